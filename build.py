@@ -252,6 +252,7 @@ CTX.INPUT['expressions'] = """
  vectorexpression.cpp
  functionexpression.cpp
  tupleaddressexpression.cpp
+ compiledexpression.cpp
 """
 
 CTX.INPUT['plannodes'] = """
@@ -309,6 +310,8 @@ CTX.INPUT['storage'] = """
  tableutil.cpp
  temptable.cpp
  TempTableLimits.cpp
+ SpillFile.cpp
+ StringDictionary.cpp
  TupleStreamWrapper.cpp
  RecoveryContext.cpp
  TupleBlock.cpp
@@ -384,6 +387,7 @@ if whichtests in ("${eetestsuite}", "execution"):
 
 if whichtests in ("${eetestsuite}", "expressions"):
     CTX.TESTS['expressions'] = """
+     CompiledExpressionTest
      expression_test
     """
 
@@ -401,10 +405,12 @@ if whichtests in ("${eetestsuite}", "storage"):
      constraint_test
      CopyOnWriteTest
      filter_test
+     MaterializedViewTest
      persistent_table_log_test
      PersistentTableMemStatsTest
      serialize_test
      StreamedTable_test
+     StringDictionaryTest
      table_and_indexes_test
      table_test
      tabletuple_export_test
@@ -418,6 +424,8 @@ if whichtests in ("${eetestsuite}", "structures"):
      CompactingMapIndexCountTest
      CompactingHashTest
      CompactingPoolTest
+     NValueHashSetTest
+     BloomFilterTest
     """
 
 if whichtests in ("${eetestsuite}", "plannodes"):
@@ -425,6 +433,29 @@ if whichtests in ("${eetestsuite}", "plannodes"):
      PlanNodeFragmentTest
     """
 
+if whichtests in ("${eetestsuite}", "executors"):
+    CTX.TESTS['executors'] = """
+     HashAggregateExecutorTest
+     IndexScanExecutorTest
+     NestLoopIndexExecutorTest
+     OrderByExecutorTest
+    """
+
+###############################################################################
+# SPECIFY THE BENCHMARKS
+###############################################################################
+
+# built like the tests, the benchmark target builds and runs these instead
+if CTX.TARGET == "BENCHMARK":
+    CTX.TESTS = {}
+    CTX.TESTS['benchmarks'] = """
+     index_benchmark
+     table_benchmark
+     nvalue_benchmark
+     executor_benchmark
+     hashinator_benchmark
+    """
+
 ###############################################################################
 # BUILD THE MAKEFILE
 ###############################################################################
@@ -469,6 +500,8 @@ if CTX.TARGET == "TEST":
     retval = runTests(CTX)
 elif CTX.TARGET == "VOLTDBIPC":
     retval = buildIPC(CTX)
+elif CTX.TARGET == "BENCHMARK":
+    retval = runBenchmarks(CTX)
 
 if retval != 0:
     sys.exit(-1)
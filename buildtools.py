@@ -1,4 +1,4 @@
-import os, sys, threading, shutil
+import os, sys, threading, shutil, json
 from subprocess import Popen, PIPE, STDOUT
 
 class BuildContext:
@@ -31,7 +31,7 @@ class BuildContext:
         for arg in [x.strip().upper() for x in args]:
             if arg in ["DEBUG", "RELEASE", "MEMCHECK", "MEMCHECK_NOFREELIST"]:
                 self.LEVEL = arg
-            if arg in ["BUILD", "CLEAN", "TEST", "VOLTRUN", "VOLTDBIPC"]:
+            if arg in ["BUILD", "CLEAN", "TEST", "VOLTRUN", "VOLTDBIPC", "BENCHMARK"]:
                 self.TARGET = arg
             if arg in ["COVERAGE"]:
                 self.COVERAGE = True
@@ -189,7 +189,7 @@ def buildMakefile(CTX):
     makefile.write(".PHONY: main\n")
     if CTX.TARGET == "VOLTRUN":
         makefile.write("main: prod/voltrun\n")
-    elif CTX.TARGET == "TEST":
+    elif CTX.TARGET in ("TEST", "BENCHMARK"):
         makefile.write("main: ")
     else:
         makefile.write("main: nativelibs/libvoltdb-%s.$(JNIEXT)\n" % version)
@@ -380,6 +380,49 @@ def runTests(CTX):
 
     return failures
 
+def runBenchmarks(CTX):
+    retval = os.system("make --directory=%s test -j4" % (CTX.OUTPUT_PREFIX))
+    if retval != 0:
+        return -1
+    TEST_PREFIX = CTX.TEST_PREFIX.rstrip("/")
+    OUTPUT_PREFIX = CTX.OUTPUT_PREFIX.rstrip("/")
+    resultPath = os.environ.get("EEBENCH_RESULT", OUTPUT_PREFIX + "/eebench.json")
+    benchmarkFilter = os.environ.get("EEBENCH_FILTER", "")
+
+    if CTX.LEVEL != "RELEASE":
+        print "NOTE: benchmarking a %s build, use release for meaningful numbers" % (CTX.LEVEL.lower())
+
+    benchmarks = []
+    for dir in CTX.TESTS.keys():
+        input = CTX.TESTS[dir].split()
+        benchmarks += [TEST_PREFIX + "/" + dir + "/" + x for x in input]
+    results = []
+    failedBenchmarks = []
+    for benchmark in benchmarks:
+        binname, objectname, sourcename = namesForTestCode(benchmark)
+        targetpath = OUTPUT_PREFIX + "/" + binname
+        partialPath = targetpath + ".json"
+        print "Running " + binname
+        sys.stdout.flush()
+        retval = os.system("%s %s '%s'" % (targetpath, partialPath, benchmarkFilter))
+        if retval != 0 or not os.path.exists(partialPath):
+            failedBenchmarks += [binname]
+            continue
+        partial = open(partialPath)
+        results += json.load(partial)["benchmarks"]
+        partial.close()
+
+    output = open(resultPath, "w")
+    json.dump({ "level": CTX.LEVEL.lower(), "benchmarks": results }, output, indent=1)
+    output.close()
+    print "==============================================================================="
+    print "BENCHMARKS COMPLETE (%d RESULTS IN %s)" % (len(results), resultPath)
+    for benchmark in failedBenchmarks:
+        print "BENCHMARK: " + benchmark + " in DIRECTORY: " + CTX.OUTPUT_PREFIX + " FAILED"
+    print "==============================================================================="
+
+    return len(failedBenchmarks)
+
 def getCompilerVersion():
     vinfo = output = Popen(["gcc", "-v"], stderr=PIPE).communicate()[1]
     # Apple now uses clang and has its own versioning system.
@@ -33,11 +33,13 @@
 #include <stx/btree_map>
 #include <murmur3/MurmurHash3.h>
 #include <limits>
+#include <vector>
 
 /*
  * Forward declaration for test friendship
  */
 class ElasticHashinatorTest_TestMinMaxToken;
+class ElasticHashinatorTest_TestBucketLookupMatchesRing;
 
 namespace voltdb {
 
@@ -48,6 +50,7 @@ namespace voltdb {
  */
 class ElasticHashinator : public TheHashinator {
     friend class ::ElasticHashinatorTest_TestMinMaxToken;
+    friend class ::ElasticHashinatorTest_TestBucketLookupMatchesRing;
 public:
 
     /*
@@ -102,40 +105,95 @@ protected:
 
 private:
     typedef stx::btree_map<int64_t, int32_t> TokenMap;
-    ElasticHashinator(TokenMap tokenMap) : tokens(tokenMap) {}
 
+    /*
+     * Never more than 2^MAX_BUCKET_BITS buckets, buckets holding more than
+     * LINEAR_SCAN_LIMIT tokens are binary searched.
+     */
+    static const int MAX_BUCKET_BITS = 16;
+    static const int32_t LINEAR_SCAN_LIMIT = 8;
+
+    /*
+     * The ring is flattened into sorted parallel arrays of tokens and partitions, plus
+     * a direct mapped bucket array over the top bits of the hash that holds the index
+     * of the floor token of the first hash in each bucket (-1 if it is below the first
+     * token). This is the same structure as ElasticHashinator.BucketLookup in Java,
+     * keep them in sync.
+     */
+    ElasticHashinator(const TokenMap &tokenMap) : m_bucketShift(0) {
+        const int32_t count = static_cast<int32_t>(tokenMap.size());
+        m_tokens.reserve(count);
+        m_partitions.reserve(count);
+        for (TokenMap::const_iterator i = tokenMap.begin(); i != tokenMap.end(); i++) {
+            m_tokens.push_back(i.key());
+            m_partitions.push_back(i.data());
+        }
+
+        int bits = 1;
+        while (bits < MAX_BUCKET_BITS && (1 << bits) < count * 2) {
+            bits++;
+        }
+        m_bucketShift = 64 - bits;
+        m_buckets.resize(static_cast<size_t>(1) << bits);
+
+        int32_t floor = -1;
+        for (size_t bucket = 0; bucket < m_buckets.size(); bucket++) {
+            const int64_t start = bucketStart(bucket);
+            while (floor + 1 < count && m_tokens[floor + 1] <= start) {
+                floor++;
+            }
+            m_buckets[bucket] = floor;
+        }
+    }
+
+    /*
+     * Buckets are taken over the hash with the sign bit flipped so that bucket
+     * order matches signed token order.
+     */
+    size_t bucketFor(int64_t hash) const {
+        return static_cast<size_t>((static_cast<uint64_t>(hash) ^ (1ULL << 63)) >> m_bucketShift);
+    }
+
+    int64_t bucketStart(size_t bucket) const {
+        return static_cast<int64_t>((static_cast<uint64_t>(bucket) << m_bucketShift) ^ (1ULL << 63));
+    }
+
+    /*
+     * Find the first token <= the hash. If the hash is < the smallest token it
+     * actually maps to the last/largest token since conceptually this is a ring.
+     */
     int32_t partitionForToken(int64_t hash) const {
-        /*
-         * C++ doesn't have the NavigableMap equivalent of floor,
-         * so we use upper_bound and step back, except if upper bound
-         * returns tokens.begin()
-         */
-        TokenMap::const_iterator i = tokens.upper_bound(hash);
-        //std::cout << "EE finding partition for token " << token << std::endl;
-
-        /*
-         * Hash value is < the smallest token (tokens.begin()) in which
-         * case it actually maps to the last/largest token since conceptually this is a ring.
-         */
-        if (i == tokens.begin()) {
-            return tokens.rbegin().data();
+        const size_t bucket = bucketFor(hash);
+        int32_t floor = m_buckets[bucket];
+        // the floor of the hash is between the floors of this bucket and the next one
+        const int32_t last = bucket + 1 < m_buckets.size() ?
+                m_buckets[bucket + 1] : static_cast<int32_t>(m_tokens.size()) - 1;
+
+        if (last - floor <= LINEAR_SCAN_LIMIT) {
+            while (floor < last && m_tokens[floor + 1] <= hash) {
+                floor++;
+            }
+        } else {
+            int32_t lo = floor + 1;
+            int32_t hi = last;
+            while (lo <= hi) {
+                const int32_t mid = lo + ((hi - lo) >> 1);
+                if (m_tokens[mid] <= hash) {
+                    floor = mid;
+                    lo = mid + 1;
+                } else {
+                    hi = mid - 1;
+                }
+            }
         }
 
-        /*
-         * Move the iterator back one, this is upper bound, so to find the floor we have to find the first
-         * value that did not come after the hash value. There are test cases that show if upper_bound
-         * returns tokens.end() that it moves back to tokens.rbegin() on its own.
-         */
-        i--;
-
-        /*
-         * At this point we will have the right value, and bounds should not be an issue
-         * due to the checks for tokens.begin. tokens.end is handled by always moving the iterator back one
-         */
-        return i.data();
+        return floor < 0 ? m_partitions.back() : m_partitions[floor];
     }
 
-    const TokenMap tokens;
+    std::vector<int64_t> m_tokens;
+    std::vector<int32_t> m_partitions;
+    std::vector<int32_t> m_buckets;
+    int m_bucketShift;
 };
 }
 #endif /* ELASTICHASHINATOR_H_ */
@@ -67,6 +67,11 @@ StringRef::create(size_t size, Pool* dataPool)
 void
 StringRef::destroy(StringRef* sref)
 {
+    if (sref->m_shared)
+    {
+        --sref->m_refCount;
+        return;
+    }
 #ifdef MEMCHECK
     delete sref;
 #else
@@ -83,6 +88,8 @@ StringRef::StringRef(size_t size)
 {
     m_size = size + sizeof(StringRef*);
     m_tempPool = false;
+    m_shared = false;
+    m_refCount = 0;
 #ifdef MEMCHECK
     m_stringPtr = new char[m_size];
 #else
@@ -95,6 +102,8 @@ StringRef::StringRef(size_t size)
 StringRef::StringRef(std::size_t size, Pool* dataPool)
 {
     m_tempPool = true;
+    m_shared = false;
+    m_refCount = 0;
     m_stringPtr =
         reinterpret_cast<char*>(dataPool->allocate(size + sizeof(StringRef*)));
     setBackPtr();
@@ -19,6 +19,7 @@
 #define STRINGREF_H
 
 #include <cstddef>
+#include <stdint.h>
 
 namespace voltdb
 {
@@ -40,6 +41,7 @@ namespace voltdb
         static std::size_t computeStringMemoryUsed(std::size_t length);
 
         friend class CompactingStringPool;
+        friend class StringDictionary;
         /// Create and return a new StringRef object which points to an
         /// allocated memory block of the requested size.  The caller
         /// may provide an optional Pool from which the memory (and
@@ -53,7 +55,8 @@ namespace voltdb
         /// any, allocated from pools to store the object.
         /// sref must have been allocated and returned by a call to
         /// StringRef::create() and must not have been created in a
-        /// temporary Pool
+        /// temporary Pool. A StringRef shared through a StringDictionary
+        /// only loses a reference, the dictionary frees it.
         static void destroy(StringRef* sref);
 
         char* get();
@@ -72,6 +75,9 @@ namespace voltdb
 
         std::size_t m_size;
         bool m_tempPool;
+        // owned by a StringDictionary, which counts the tuples referencing it
+        bool m_shared;
+        int32_t m_refCount;
         char* m_stringPtr;
     };
 }
@@ -48,7 +48,13 @@ class Topend {
             bool sync,
             bool endOfStream) = 0;
 
-    virtual void fallbackToEEAllocatedBuffer(char *buffer, size_t length) = 0;
+    /*
+     * Get a bigger result buffer when the results outgrow the one passed to
+     * setBuffers. The top end owns the returned memory and sets capacity to
+     * its size. NULL means the top end has none to give and the EE allocates
+     * its own.
+     */
+    virtual char* growResultBuffer(size_t minimumSize, size_t *capacity) = 0;
     virtual ~Topend()
     {
     }
@@ -17,6 +17,8 @@
 #include "common/serializeio.h"
 #include "common/executorcontext.hpp"
 
+#include <algorithm>
+
 using namespace voltdb;
 
 void FallbackSerializeOutput::expand(size_t minimum_desired) {
@@ -34,11 +36,23 @@ void FallbackSerializeOutput::expand(size_t minimum_desired) {
             "Output from SQL stmt overflowed output/network buffer of 50mb (-32k for message headers). "
             "Try a \"limit\" clause or a stronger predicate.");
     }
+
+    // Copy what was written so far to a bigger buffer from the topend, the
+    // old one stays valid until the topend gets control back
+    size_t capacity = 0;
+    char *grown = ExecutorContext::getExecutorContext()->getTopend()->growResultBuffer(minimum_desired, &capacity);
+    if (grown != NULL) {
+        assert(capacity >= minimum_desired);
+        ::memcpy(grown, data(), position_);
+        setPosition(position_);
+        initialize(grown, std::min(capacity, maxAllocationSize));
+        return;
+    }
+
     fallbackBuffer_ = new char[maxAllocationSize];
     ::memcpy(fallbackBuffer_, data(), position_);
     setPosition(position_);
     initialize(fallbackBuffer_, maxAllocationSize);
-    ExecutorContext::getExecutorContext()->getTopend()->fallbackToEEAllocatedBuffer(fallbackBuffer_, maxAllocationSize);
 }
 
 std::string SerializeInput::fullBufferStringRep() {
@@ -484,8 +484,10 @@ protected:
 };
 
 /*
- * A serialize output class that falls back to allocating a 50 meg buffer
- * if the regular allocation runs out of space. The topend is notified when this occurs.
+ * A serialize output class that asks the topend for a bigger buffer if the
+ * regular allocation runs out of space, up to almost 50 megs. The topend owns
+ * those buffers. If it has none to give the output falls back to allocating
+ * a 50 meg buffer of its own, once.
  */
 class FallbackSerializeOutput : public ReferenceSerializeOutput {
 public:
@@ -509,7 +511,7 @@ public:
         delete []fallbackBuffer_;
     }
 
-    /** Expand once to a fallback size, and if that doesn't work abort */
+    /** Grow into a topend buffer, or expand once to a fallback size, and if that doesn't work abort */
     void expand(size_t minimum_desired);
 private:
     char *fallbackBuffer_;
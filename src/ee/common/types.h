@@ -385,7 +385,13 @@ enum RecoveryMsgType {
 // Types of generic tasks that can be submitted to the EE
 // ------------------------------------------------------------------
 enum TaskType {
-    TASK_TYPE_VALIDATE_PARTITIONING = 0
+    TASK_TYPE_VALIDATE_PARTITIONING = 0,
+    TASK_TYPE_SET_TEMP_TABLE_SPILL = 1,
+    TASK_TYPE_GET_TEMP_TABLE_SPILL_STATS = 2,
+    TASK_TYPE_GET_VIEW_STATS = 3,
+    TASK_TYPE_SET_PLAN_CACHE = 4,
+    TASK_TYPE_GET_PLAN_CACHE_STATS = 5,
+    TASK_TYPE_SET_KEY_FILTER = 6
 };
 
 // ------------------------------------------------------------------
@@ -28,11 +28,39 @@
 #include <boost/multi_index/ordered_index.hpp>
 #include <boost/multi_index/identity.hpp>
 #include <boost/multi_index/sequenced_index.hpp>
+#include <boost/multi_index/hashed_index.hpp>
+#include <boost/multi_index/mem_fun.hpp>
+#include <boost/unordered_map.hpp>
+#include <boost/unordered_set.hpp>
+#include <vector>
 
 namespace voltdb {
 
 const int64_t FRAGMENT_CACHE_SIZE = 1000;
 
+/**
+ * Counters of a FragmentCache. Bytes are the estimates the entries were
+ * inserted with.
+ */
+struct FragmentCacheStats {
+    FragmentCacheStats()
+        : hits(0), misses(0), evictions(0), loadMicros(0),
+          entries(0), bytes(0), pinnedEntries(0), pinnedBytes(0)
+    {
+    }
+
+    int64_t hits;
+    int64_t misses;
+    int64_t evictions;
+    // Time spent fetching, parsing and initializing the plans of misses
+    int64_t loadMicros;
+    // Evictable entries and what they hold
+    int64_t entries;
+    int64_t bytes;
+    int64_t pinnedEntries;
+    int64_t pinnedBytes;
+};
+
 /**
  * Represents a cached plan graph (as JSON string, along with fragid)
  */
@@ -158,6 +186,199 @@ private:
     const size_t m_cacheSize;
 };
 
+/**
+ * LRU cache of the loaded form of plan fragments, keyed by fragment id.
+ * Entries are evicted least recently used first once there are more than
+ * maxEntries of them or their bytes add up to more than the budget. A budget
+ * of zero or less only bounds the entry count.
+ *
+ * Pinned fragment ids, the catalog's stored procedure fragments, are kept out
+ * of the LRU order and never evicted nor counted against the budget. The set
+ * of pinned ids is replaced as a whole on every catalog change. Pinned entries
+ * that are no longer pinned go back to the LRU as most recently used.
+ */
+template <typename T>
+class FragmentCache {
+private:
+    struct Entry {
+        Entry(int64_t fragId, const boost::shared_ptr<T> &value, int64_t bytes)
+            : fragId(fragId), value(value), bytes(bytes) {}
+
+        int64_t getFragId() const { return fragId; }
+
+        int64_t fragId;
+        boost::shared_ptr<T> value;
+        int64_t bytes;
+    };
+
+    /**
+     * Most recently used first, also indexed by fragment id.
+     */
+    typedef boost::multi_index::multi_index_container<
+        Entry,
+        boost::multi_index::indexed_by<
+            boost::multi_index::sequenced<>,
+            boost::multi_index::hashed_unique<
+                boost::multi_index::const_mem_fun<Entry,int64_t,&Entry::getFragId>
+            >
+        >
+    > EntrySet;
+    typedef typename EntrySet::template nth_index<1>::type EntriesById;
+    typedef boost::unordered_map<int64_t, Entry> PinnedMap;
+
+public:
+    FragmentCache(size_t maxEntries) : m_maxEntries(maxEntries), m_budget(0) {}
+
+    /**
+     * Return the cached value for fragId and make it the most recently used,
+     * or NULL on a miss. Either way is counted.
+     */
+    T *get(int64_t fragId) {
+        typename PinnedMap::iterator pinned = m_pinned.find(fragId);
+        if (pinned != m_pinned.end()) {
+            m_stats.hits++;
+            return pinned->second.value.get();
+        }
+        EntriesById &byId = m_entries.template get<1>();
+        typename EntriesById::iterator iter = byId.find(fragId);
+        if (iter == byId.end()) {
+            m_stats.misses++;
+            return NULL;
+        }
+        m_stats.hits++;
+        m_entries.relocate(m_entries.begin(), m_entries.template project<0>(iter));
+        return iter->value.get();
+    }
+
+    /**
+     * Add the value loaded for fragId after a miss and evict what no longer
+     * fits. The new entry itself is never evicted here, the caller is about
+     * to use it.
+     * @param bytes estimate of the memory the value holds
+     * @param loadMicros time it took to load
+     */
+    void insert(int64_t fragId, const boost::shared_ptr<T> &value, int64_t bytes, int64_t loadMicros) {
+        m_stats.loadMicros += loadMicros;
+        Entry entry(fragId, value, bytes);
+        if (m_pinnedIds.find(fragId) != m_pinnedIds.end()) {
+            assert(m_pinned.find(fragId) == m_pinned.end());
+            m_pinned.insert(std::make_pair(fragId, entry));
+            m_stats.pinnedEntries++;
+            m_stats.pinnedBytes += bytes;
+            return;
+        }
+        std::pair<typename EntrySet::iterator, bool> inserted = m_entries.push_front(entry);
+        assert(inserted.second);
+        if (!inserted.second) {
+            // already cached, keep the entry that is there
+            return;
+        }
+        m_stats.entries++;
+        m_stats.bytes += bytes;
+        evict();
+    }
+
+    /**
+     * Limit the bytes of the evictable entries, zero or less for no limit.
+     */
+    void setBudget(int64_t bytes) {
+        m_budget = bytes;
+        evict();
+    }
+
+    int64_t getBudget() const {
+        return m_budget;
+    }
+
+    /**
+     * Replace the set of fragment ids that are never evicted.
+     */
+    void setPinned(const std::vector<int64_t> &fragIds) {
+        m_pinnedIds.clear();
+        m_pinnedIds.insert(fragIds.begin(), fragIds.end());
+
+        // release the entries that lost their pin
+        for (typename PinnedMap::iterator iter = m_pinned.begin(); iter != m_pinned.end();) {
+            if (m_pinnedIds.find(iter->first) == m_pinnedIds.end()) {
+                m_entries.push_front(iter->second);
+                m_stats.entries++;
+                m_stats.bytes += iter->second.bytes;
+                m_stats.pinnedEntries--;
+                m_stats.pinnedBytes -= iter->second.bytes;
+                iter = m_pinned.erase(iter);
+            } else {
+                ++iter;
+            }
+        }
+
+        // and pin the cached ones that gained one
+        EntriesById &byId = m_entries.template get<1>();
+        for (std::vector<int64_t>::const_iterator id = fragIds.begin(); id != fragIds.end(); ++id) {
+            typename EntriesById::iterator iter = byId.find(*id);
+            if (iter != byId.end()) {
+                m_pinned.insert(std::make_pair(*id, *iter));
+                m_stats.pinnedEntries++;
+                m_stats.pinnedBytes += iter->bytes;
+                m_stats.entries--;
+                m_stats.bytes -= iter->bytes;
+                byId.erase(iter);
+            }
+        }
+        evict();
+    }
+
+    bool isPinned(int64_t fragId) const {
+        return m_pinnedIds.find(fragId) != m_pinnedIds.end();
+    }
+
+    /**
+     * Drop every entry, the pinned ones included. The pinned ids stay.
+     */
+    void clear() {
+        m_entries.clear();
+        m_pinned.clear();
+        m_stats.entries = m_stats.bytes = m_stats.pinnedEntries = m_stats.pinnedBytes = 0;
+    }
+
+    /** Number of objects cached */
+    int64_t size() const {
+        return static_cast<int64_t>(m_entries.size() + m_pinned.size());
+    }
+
+    const FragmentCacheStats &stats() const {
+        return m_stats;
+    }
+
+    /** Visit every cached value, the evictable ones most recently used first */
+    template <typename Visitor>
+    void forEach(Visitor &visitor) const {
+        for (typename EntrySet::const_iterator iter = m_entries.begin(); iter != m_entries.end(); ++iter) {
+            visitor(*iter->value);
+        }
+        for (typename PinnedMap::const_iterator iter = m_pinned.begin(); iter != m_pinned.end(); ++iter) {
+            visitor(*iter->second.value);
+        }
+    }
+
+private:
+    void evict() {
+        while (m_entries.size() > 1 &&
+               (m_entries.size() > m_maxEntries || (m_budget > 0 && m_stats.bytes > m_budget))) {
+            m_stats.entries--;
+            m_stats.bytes -= m_entries.back().bytes;
+            m_stats.evictions++;
+            m_entries.pop_back();
+        }
+    }
+
+    EntrySet m_entries;
+    PinnedMap m_pinned;
+    boost::unordered_set<int64_t> m_pinnedIds;
+    const size_t m_maxEntries;
+    int64_t m_budget;
+    FragmentCacheStats m_stats;
+};
+
 }
 
 #endif // FRAGMENTMANAGER_H_
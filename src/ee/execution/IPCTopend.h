@@ -41,8 +41,8 @@ public:
             StreamBlock *block,
             bool sync,
             bool endOfStream);
-    void fallbackToEEAllocatedBuffer(char *buffer, size_t length) {
-
+    char* growResultBuffer(size_t minimumSize, size_t *capacity) {
+        return NULL;
     }
 private:
     ::VoltDBIPC *m_vdbipc;
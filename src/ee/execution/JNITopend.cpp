@@ -79,14 +79,14 @@ JNITopend::JNITopend(JNIEnv *env, jobject caller) : m_jniEnv(env), m_javaExecuti
         throw std::exception();
     }
 
-    m_fallbackToEEAllocatedBufferMID =
+    m_growResultBufferMID =
             m_jniEnv->GetMethodID(
                     jniClass,
-                    "fallbackToEEAllocatedBuffer",
-                    "(Ljava/nio/ByteBuffer;)V");
-    if (m_fallbackToEEAllocatedBufferMID == NULL) {
+                    "growResultBuffer",
+                    "(I)Ljava/nio/ByteBuffer;");
+    if (m_growResultBufferMID == NULL) {
         m_jniEnv->ExceptionDescribe();
-        assert(m_fallbackToEEAllocatedBufferMID != 0);
+        assert(m_growResultBufferMID != 0);
         throw std::exception();
     }
 
@@ -154,31 +154,38 @@ JNITopend::JNITopend(JNIEnv *env, jobject caller) : m_jniEnv(env), m_javaExecuti
         m_pushExportBufferMID == 0 ||
         m_getQueuedExportBytesMID == 0 ||
         m_exportManagerClass == 0 ||
-        m_fallbackToEEAllocatedBufferMID == 0)
+        m_growResultBufferMID == 0)
     {
         throw std::exception();
     }
 }
 
 
-void JNITopend::fallbackToEEAllocatedBuffer(char *buffer, size_t length) {
+char* JNITopend::growResultBuffer(size_t minimumSize, size_t *capacity) {
     JNILocalFrameBarrier jni_frame = JNILocalFrameBarrier(m_jniEnv, 1);
     if (jni_frame.checkResult() < 0) {
-        VOLT_ERROR("Unable to load dependency: jni frame error.");
+        VOLT_ERROR("Unable to grow result buffer: jni frame error.");
         throw std::exception();
     }
 
-    jobject jbuffer = m_jniEnv->NewDirectByteBuffer(buffer, length);
-    if (jbuffer == NULL) {
+    jobject jbuffer = m_jniEnv->CallObjectMethod(m_javaExecutionEngine, m_growResultBufferMID,
+                                                 static_cast<jint>(minimumSize));
+    if (m_jniEnv->ExceptionCheck()) {
         m_jniEnv->ExceptionDescribe();
         throw std::exception();
     }
+    if (jbuffer == NULL) {
+        return NULL;
+    }
 
-    m_jniEnv->CallVoidMethod(m_javaExecutionEngine, m_fallbackToEEAllocatedBufferMID, jbuffer);
-    if (m_jniEnv->ExceptionCheck()) {
-        m_jniEnv->ExceptionDescribe();
+    // the buffer is held by the Java engine until the results are consumed
+    char *buffer = static_cast<char*>(m_jniEnv->GetDirectBufferAddress(jbuffer));
+    if (buffer == NULL) {
+        VOLT_ERROR("Result buffer from Java is not a direct buffer.");
         throw std::exception();
     }
+    *capacity = static_cast<size_t>(m_jniEnv->GetDirectBufferCapacity(jbuffer));
+    return buffer;
 }
 
 int JNITopend::loadNextDependency(int32_t dependencyId, voltdb::Pool *stringPool, Table* destination) {
@@ -42,7 +42,7 @@ public:
             StreamBlock *block,
             bool sync,
             bool endOfStream);
-    void fallbackToEEAllocatedBuffer(char *buffer, size_t length);
+    char* growResultBuffer(size_t minimumSize, size_t *capacity);
 private:
     JNIEnv *m_jniEnv;
 
@@ -51,7 +51,7 @@ private:
      * if this is NULL, VoltDBEngine will fail to call sendDependency().
     */
     jobject m_javaExecutionEngine;
-    jmethodID m_fallbackToEEAllocatedBufferMID;
+    jmethodID m_growResultBufferMID;
     jmethodID m_nextDependencyMID;
     jmethodID m_planForFragmentIdMID;
     jmethodID m_crashVoltDBMID;
@@ -83,6 +83,7 @@
 #include "executors/executorutil.h"
 #include "storage/table.h"
 #include "storage/tablefactory.h"
+#include "storage/temptable.h"
 #include "indexes/tableindex.h"
 #include "storage/constraintutil.h"
 #include "storage/persistenttable.h"
@@ -102,6 +103,7 @@
 #include <sstream>
 #include <unistd.h>
 #include <locale>
+#include <sys/time.h>
 #ifdef LINUX
 #include <malloc.h>
 #endif // LINUX
@@ -112,7 +114,8 @@ namespace voltdb {
 const int64_t AD_HOC_FRAG_ID = -1;
 
 VoltDBEngine::VoltDBEngine(Topend *topend, LogProxy *logProxy)
-    : m_currentUndoQuantum(NULL),
+    : m_plans(PLAN_CACHE_SIZE),
+      m_currentUndoQuantum(NULL),
       m_hashinator(NULL),
       m_staticParams(MAX_PARAM_COUNT),
       m_currentOutputDepId(-1),
@@ -127,6 +130,9 @@ VoltDBEngine::VoltDBEngine(Topend *topend, LogProxy *logProxy)
     // init the number of planfragments executed
     m_pfCount = 0;
 
+    // unique hash indexes get a key filter only when the host asks for one
+    m_keyFilterBitsPerKey = 0;
+
     // require a site id, at least, to inititalize.
     m_executorContext = NULL;
 
@@ -604,6 +610,13 @@ VoltDBEngine::hasSameSchema(catalog::Table *t1, voltdb::Table *t2) {
                 return false;
             }
         }
+
+        // changing the encoding rebuilds the table like changing the size
+        PersistentTable *persistentTable = dynamic_cast<PersistentTable*>(t2);
+        if (persistentTable != NULL &&
+            persistentTable->columnIsDictionaryEncoded(index) != outerIter->second->dictionaryencoded()) {
+            return false;
+        }
     }
 
     return true;
@@ -969,6 +982,7 @@ void VoltDBEngine::rebuildTableCollections()
             std::vector<TableIndex*> tindexes = tcd->getTable()->allIndexes();
             for (int i = 0; i < tindexes.size(); i++) {
                 TableIndex *index = tindexes[i];
+                index->setKeyFilter(m_keyFilterBitsPerKey);
                 getStatsManager().registerStatsSource(STATISTICS_SELECTOR_TYPE_INDEX,
                                                       catTable->relativeIndex(),
                                                       index->getIndexStats());
@@ -978,19 +992,14 @@ void VoltDBEngine::rebuildTableCollections()
 }
 
 VoltDBEngine::ExecutorVector *VoltDBEngine::getExecutorVectorForFragmentId(const int64_t fragId) {
-    typedef PlanSet::nth_index<1>::type plansById;
-    plansById::iterator iter = m_plans.get<1>().find(fragId);
-
-    // found it, move it to the front
-    if (iter != m_plans.get<1>().end()) {
-        // move it to the front of the list
-        PlanSet::iterator iter2 = m_plans.project<0>(iter);
-        m_plans.get<0>().relocate(m_plans.begin(), iter2);
-        VoltDBEngine::ExecutorVector *retval = (*iter).get();
-        assert(retval);
-        return retval;
+    ExecutorVector *cached = m_plans.get(fragId);
+    if (cached != NULL) {
+        return cached;
     }
     else {
+        timeval start;
+        gettimeofday(&start, NULL);
+
         std::string plan = m_topend->planForFragmentId(fragId);
 
         if (plan.length() == 0) {
@@ -1036,7 +1045,12 @@ VoltDBEngine::ExecutorVector *VoltDBEngine::getExecutorVectorForFragmentId(const
             frag_temptable_limit = -1;
         }
 
-        boost::shared_ptr<ExecutorVector> ev(new ExecutorVector(fragId, frag_temptable_log_limit, frag_temptable_limit, pnf));
+        // Spill files hold pointers to string storage that DML could
+        // free, so only read-only fragments may spill.
+        TempTableSpill *frag_temptable_spill = pnf->isReadOnly() ? &m_tempTableSpill : NULL;
+
+        boost::shared_ptr<ExecutorVector> ev(new ExecutorVector(fragId, frag_temptable_log_limit, frag_temptable_limit,
+                                                                frag_temptable_spill, pnf));
 
         // Initialize each node!
         for (int ctr = 0, cnt = (int)pnf->getExecuteList().size();
@@ -1056,15 +1070,22 @@ VoltDBEngine::ExecutorVector *VoltDBEngine::getExecutorVectorForFragmentId(const
             ev->list.push_back(pnf->getExecuteList()[ctr]->getExecutor());
         }
 
-        // add the plan to the back
-        m_plans.get<0>().push_back(ev);
-
-        // remove a plan from the front if the cache is full
-        if (m_plans.size() > PLAN_CACHE_SIZE) {
-            PlanSet::iterator iter = m_plans.get<0>().begin();
-            m_plans.erase(iter);
+        // Estimate what the cached plan holds by the size of its text, a proxy
+        // for its nodes and expressions, plus the first block that each output
+        // temp table keeps between executions.
+        int64_t bytes = static_cast<int64_t>(plan.length());
+        for (int ctr = 0, cnt = (int)ev->list.size(); ctr < cnt; ctr++) {
+            TempTable *output = dynamic_cast<TempTable*>(ev->list[ctr]->getPlanNode()->getOutputTable());
+            if (output != NULL) {
+                bytes += output->getTableAllocationSize();
+            }
         }
 
+        timeval end;
+        gettimeofday(&end, NULL);
+        m_plans.insert(fragId, ev, bytes,
+                       (end.tv_sec - start.tv_sec) * 1000000 + (end.tv_usec - start.tv_usec));
+
         VoltDBEngine::ExecutorVector *retval = ev.get();
         assert(retval);
         return retval;
@@ -1224,26 +1245,32 @@ void VoltDBEngine::quiesce(int64_t lastCommittedSpHandle) {
     }
 }
 
-string VoltDBEngine::debug(void) const {
-    stringstream output(stringstream::in | stringstream::out);
-    PlanSet::const_iterator iter;
-    vector<AbstractExecutor*>::const_iterator executorIter;
-
-    for (iter = m_plans.begin(); iter != m_plans.end(); iter++) {
-        boost::shared_ptr<ExecutorVector> ev = *iter;
-
-        output << "Fragment ID: " << ev->fragId << ", "
-               << "Executor list size: " << ev->list.size() << ", "
-               << "Temp table memory in bytes: "
-               << ev->limits.getAllocated() << endl;
-
-        for (executorIter = ev->list.begin();
-             executorIter != ev->list.end();
-             executorIter++) {
-            output << (*executorIter)->getPlanNode()->debug(" ") << endl;
+namespace {
+    struct DebugPrinter {
+        DebugPrinter(stringstream &output) : output(output) {}
+
+        template <typename ExecutorVector>
+        void operator()(const ExecutorVector &ev) {
+            output << "Fragment ID: " << ev.fragId << ", "
+                   << "Executor list size: " << ev.list.size() << ", "
+                   << "Temp table memory in bytes: "
+                   << ev.limits.getAllocated() << endl;
+
+            for (vector<AbstractExecutor*>::const_iterator executorIter = ev.list.begin();
+                 executorIter != ev.list.end();
+                 executorIter++) {
+                output << (*executorIter)->getPlanNode()->debug(" ") << endl;
+            }
         }
-    }
 
+        stringstream &output;
+    };
+}
+
+string VoltDBEngine::debug(void) const {
+    stringstream output(stringstream::in | stringstream::out);
+    DebugPrinter printer(output);
+    m_plans.forEach(printer);
     return output.str();
 }
 
@@ -1651,11 +1678,121 @@ void VoltDBEngine::dispatchValidatePartitioningTask(const char *taskParams) {
     }
 }
 
+void VoltDBEngine::dispatchSetTempTableSpillTask(const char *taskParams) {
+    // the parameters delimit themselves, any length that doesn't wrap the pointer will do
+    ReferenceSerializeInput taskInfo(taskParams, std::numeric_limits<int32_t>::max());
+    m_tempTableSpill.threshold = taskInfo.readLong();
+    m_tempTableSpill.directory = taskInfo.readTextString();
+
+    ReferenceSerializeOutput *output = getResultOutputSerializer();
+    output->writeInt(0);
+}
+
+void VoltDBEngine::dispatchGetTempTableSpillStatsTask() {
+    ReferenceSerializeOutput *output = getResultOutputSerializer();
+    output->writeInt(static_cast<int32_t>(sizeof(int64_t) * 4));
+    output->writeLong(m_tempTableSpill.spills);
+    output->writeLong(m_tempTableSpill.files);
+    output->writeLong(m_tempTableSpill.tuples);
+    output->writeLong(m_tempTableSpill.bytes);
+}
+
+void VoltDBEngine::dispatchGetViewStatsTask() {
+    ReferenceSerializeOutput *output = getResultOutputSerializer();
+    size_t lengthPosition = output->reserveBytes(sizeof(int32_t));
+    size_t countPosition = output->reserveBytes(sizeof(int32_t));
+    int32_t count = 0;
+    typedef std::pair<std::string, Table*> TablePair;
+    BOOST_FOREACH (TablePair tablePair, m_tablesByName) {
+        PersistentTable *table = dynamic_cast<PersistentTable*>(tablePair.second);
+        if (table == NULL) {
+            continue;
+        }
+        BOOST_FOREACH (MaterializedViewMetadata *view, table->views()) {
+            output->writeTextString(view->targetTable()->name());
+            output->writeTextString(table->name());
+            output->writeLong(view->getIndexRecomputes());
+            output->writeLong(view->getScanRecomputes());
+            count++;
+        }
+    }
+    output->writeIntAt(countPosition, count);
+    output->writeIntAt(lengthPosition,
+                       static_cast<int32_t>(output->position() - lengthPosition - sizeof(int32_t)));
+}
+
+void VoltDBEngine::dispatchSetPlanCacheTask(const char *taskParams) {
+    // the parameters delimit themselves, any length that doesn't wrap the pointer will do
+    ReferenceSerializeInput taskInfo(taskParams, std::numeric_limits<int32_t>::max());
+    int64_t budget = taskInfo.readLong();
+    int32_t count = taskInfo.readInt();
+    std::vector<int64_t> pinned;
+    pinned.reserve(count);
+    for (int32_t i = 0; i < count; i++) {
+        pinned.push_back(taskInfo.readLong());
+    }
+    m_plans.setPinned(pinned);
+    m_plans.setBudget(budget);
+
+    ReferenceSerializeOutput *output = getResultOutputSerializer();
+    output->writeInt(0);
+}
+
+void VoltDBEngine::dispatchGetPlanCacheStatsTask() {
+    const FragmentCacheStats &stats = m_plans.stats();
+    ReferenceSerializeOutput *output = getResultOutputSerializer();
+    output->writeInt(static_cast<int32_t>(sizeof(int64_t) * 9));
+    output->writeLong(stats.hits);
+    output->writeLong(stats.misses);
+    output->writeLong(stats.evictions);
+    output->writeLong(stats.loadMicros);
+    output->writeLong(stats.entries);
+    output->writeLong(stats.bytes);
+    output->writeLong(stats.pinnedEntries);
+    output->writeLong(stats.pinnedBytes);
+    output->writeLong(m_plans.getBudget());
+}
+
+void VoltDBEngine::dispatchSetKeyFilterTask(const char *taskParams) {
+    ReferenceSerializeInput taskInfo(taskParams, std::numeric_limits<int32_t>::max());
+    m_keyFilterBitsPerKey = taskInfo.readInt();
+
+    // indexes added by later catalog updates pick it up in rebuildTableCollections()
+    typedef std::pair<CatalogId, Table*> TablePair;
+    BOOST_FOREACH (TablePair tablePair, m_tables) {
+        std::vector<TableIndex*> tindexes = tablePair.second->allIndexes();
+        for (int i = 0; i < tindexes.size(); i++) {
+            tindexes[i]->setKeyFilter(m_keyFilterBitsPerKey);
+        }
+    }
+
+    ReferenceSerializeOutput *output = getResultOutputSerializer();
+    output->writeInt(0);
+}
+
 void VoltDBEngine::executeTask(TaskType taskType, const char* taskParams) {
     switch (taskType) {
     case TASK_TYPE_VALIDATE_PARTITIONING:
         dispatchValidatePartitioningTask(taskParams);
         break;
+    case TASK_TYPE_SET_TEMP_TABLE_SPILL:
+        dispatchSetTempTableSpillTask(taskParams);
+        break;
+    case TASK_TYPE_GET_TEMP_TABLE_SPILL_STATS:
+        dispatchGetTempTableSpillStatsTask();
+        break;
+    case TASK_TYPE_GET_VIEW_STATS:
+        dispatchGetViewStatsTask();
+        break;
+    case TASK_TYPE_SET_PLAN_CACHE:
+        dispatchSetPlanCacheTask(taskParams);
+        break;
+    case TASK_TYPE_GET_PLAN_CACHE_STATS:
+        dispatchGetPlanCacheStatsTask();
+        break;
+    case TASK_TYPE_SET_KEY_FILTER:
+        dispatchSetKeyFilterTask(taskParams);
+        break;
     default:
         throwFatalException("Unknown task type %d", taskType);
     }
@@ -128,6 +128,7 @@ class __attribute__((visibility("default"))) VoltDBEngine {
 
         /** Constructor for test code: this does not enable JNI callbacks. */
         VoltDBEngine() :
+          m_plans(PLAN_CACHE_SIZE),
           m_currentUndoQuantum(NULL),
           m_hashinator(NULL),
           m_staticParams(MAX_PARAM_COUNT),
@@ -404,6 +405,12 @@ class __attribute__((visibility("default"))) VoltDBEngine {
          * Tasks dispatched by executeTask
          */
         void dispatchValidatePartitioningTask(const char *taskParams);
+        void dispatchSetTempTableSpillTask(const char *taskParams);
+        void dispatchGetTempTableSpillStatsTask();
+        void dispatchGetViewStatsTask();
+        void dispatchSetPlanCacheTask(const char *taskParams);
+        void dispatchGetPlanCacheStatsTask();
+        void dispatchSetKeyFilterTask(const char *taskParams);
 
         void setCurrentUndoQuantum(voltdb::UndoQuantum* undoQuantum);
 
@@ -434,10 +441,12 @@ class __attribute__((visibility("default"))) VoltDBEngine {
             ExecutorVector(int64_t fragmentId,
                            int64_t logThreshold,
                            int64_t memoryLimit,
+                           TempTableSpill *spill,
                            PlanNodeFragment *fragment) : fragId(fragmentId), planFragment(fragment)
             {
                 limits.setLogThreshold(logThreshold);
                 limits.setMemoryLimit(memoryLimit);
+                limits.setSpill(spill);
             }
 
             int64_t getFragId() const { return fragId; }
@@ -449,19 +458,11 @@ class __attribute__((visibility("default"))) VoltDBEngine {
         };
 
         /**
-         * The set of plan bytes is explicitly maintained in MRU-first order,
-         * while also indexed by the plans' bytes. Here lie boost-related dragons.
+         * Executor trees of the loaded plan fragments, pinned if they
+         * belong to a stored procedure of the catalog, else evicted
+         * least recently used first.
          */
-        typedef boost::multi_index::multi_index_container<
-            boost::shared_ptr<ExecutorVector>,
-            boost::multi_index::indexed_by<
-                boost::multi_index::sequenced<>,
-                boost::multi_index::hashed_unique<
-                    boost::multi_index::const_mem_fun<ExecutorVector,int64_t,&ExecutorVector::getFragId>
-                >
-            >
-        > PlanSet;
-        PlanSet m_plans;
+        FragmentCache<ExecutorVector> m_plans;
 
         /**
          * Get a vector of executors for a given fragment id.
@@ -483,6 +484,10 @@ class __attribute__((visibility("default"))) VoltDBEngine {
         boost::scoped_ptr<TheHashinator> m_hashinator;
         size_t m_startOfResultBuffer;
         int64_t m_tempTableMemoryLimit;
+        // Spill settings and counters shared by every read-only fragment
+        TempTableSpill m_tempTableSpill;
+        // Bits per key of the unique hash index key filters, 0 for none
+        int m_keyFilterBitsPerKey;
 
         /*
          * Catalog delegates hashed by path.
@@ -52,7 +52,9 @@
 #include "expressions/abstractexpression.h"
 #include "plannodes/aggregatenode.h"
 #include "storage/temptable.h"
+#include "storage/tablefactory.h"
 #include "storage/tableiterator.h"
+#include "storage/SpillFile.h"
 
 #include "boost/foreach.hpp"
 #include "boost/unordered_map.hpp"
@@ -437,6 +439,7 @@ bool AggregateExecutorBase::p_init(AbstractPlanNode*, TempTableLimits* limits)
     }
 
     setTempOutputTable(limits);
+    m_limits = limits;
 
     m_aggTypes = node->getAggregates();
     m_distinctAggs = node->getDistinctAggregates();
@@ -550,16 +553,62 @@ typedef boost::unordered_map<TableTuple,
                              TableTupleHasher,
                              TableTupleEqualityChecker> HashAggregateMapType;
 
+// A pass that outgrows the spill threshold splits its new groups this many ways
+static const int SPILL_PARTITIONS = 16;
+// Passes past this one keep all of their groups in memory
+static const int MAX_SPILL_PASS = 4;
+// Spilled partitions are read back this many bytes at a time
+static const int64_t SPILL_READ_BUFFER_BYTES = 256 * 1024;
+
+AggregateHashExecutor::~AggregateHashExecutor() { }
+
 bool AggregateHashExecutor::p_execute(const NValueArray& params)
 {
     executeAggBase(params);
 
-    HashAggregateMapType hash;
-
     VOLT_TRACE("looping..");
     Table* input_table = m_abstractNode->getInputTables()[0];
     assert(input_table);
     VOLT_TRACE("input table\n%s", input_table->debug().c_str());
+    SpilledPartitions partitions;
+    aggregate(input_table, 0, partitions);
+    if (partitions.empty()) {
+        return true;
+    }
+
+    // Each spilled partition holds whole groups that were not output yet.
+    if (!m_spillTable) {
+        m_spillTable.reset(TableFactory::getCopiedTempTable(m_abstractNode->databaseId(),
+                                                            input_table->name(),
+                                                            input_table,
+                                                            m_limits));
+    }
+    const int bufferTuples = static_cast<int>(std::max(static_cast<int64_t>(1),
+            SPILL_READ_BUFFER_BYTES / (input_table->schema()->tupleLength() + TUPLE_HEADER_SIZE)));
+    TableTuple spilledTuple(input_table->schema());
+    while (!partitions.empty()) {
+        boost::shared_ptr<SpillFile> file = partitions.front().first;
+        const int pass = partitions.front().second;
+        partitions.pop_front();
+        m_spillTable->deleteAllTuplesNonVirtual(false);
+        SpillFile::Reader reader(*file, 0, file->tupleCount(), bufferTuples);
+        while (reader.next(spilledTuple)) {
+            m_spillTable->insertTempTuple(spilledTuple);
+        }
+        file.reset();
+        aggregate(m_spillTable.get(), pass, partitions);
+    }
+    m_spillTable->deleteAllTuplesNonVirtual(false);
+    return true;
+}
+
+void AggregateHashExecutor::aggregate(Table* input_table, int pass, SpilledPartitions& partitions)
+{
+    m_memoryPool.purge();
+    HashAggregateMapType hash;
+    const bool canSpill = pass < MAX_SPILL_PASS && m_limits->getSpillThreshold() > 0;
+    std::vector<boost::shared_ptr<SpillFile> > spills;
+
     TableIterator it = input_table->iterator();
     TableTuple nxtTuple(input_table->schema());
     PoolBackedTupleStorage nextGroupByKeyStorage(m_groupByKeySchema, &m_memoryPool);
@@ -572,6 +621,20 @@ bool AggregateHashExecutor::p_execute(const NValueArray& params)
 
         // Group not found. Make a new entry in the hash for this new group.
         if (keyIter == hash.end()) {
+            // Unless the groups already in memory are too large, then the
+            // tuple waits in a partition for a later pass.
+            if (spills.empty() && canSpill &&
+                m_limits->shouldSpill(m_memoryPool.getAllocatedMemory() +
+                                      hash.size() * (sizeof(HashAggregateMapType::value_type) + 2 * sizeof(void*)))) {
+                for (int ii = 0; ii < SPILL_PARTITIONS; ii++) {
+                    spills.push_back(boost::shared_ptr<SpillFile>(
+                        new SpillFile(input_table->schema(), m_limits->getSpillDirectory())));
+                }
+            }
+            if (!spills.empty()) {
+                spills[nextGroupByKeyTuple.hashCode(pass + 1) % SPILL_PARTITIONS]->append(nxtTuple);
+                continue;
+            }
             aggregateRow = new (m_memoryPool, m_aggTypes.size()) AggregateRow();
             hash.insert(HashAggregateMapType::value_type(nextGroupByKeyTuple, aggregateRow));
             initAggInstances(aggregateRow);
@@ -594,7 +657,22 @@ bool AggregateHashExecutor::p_execute(const NValueArray& params)
         insertOutputTuple(aggregateRow);
         delete aggregateRow;
     }
-    return true;
+
+    if (!spills.empty()) {
+        int64_t files = 0;
+        int64_t tuples = 0;
+        int64_t bytes = 0;
+        BOOST_FOREACH(boost::shared_ptr<SpillFile> spill, spills) {
+            spill->flush();
+            if (spill->tupleCount() > 0) {
+                files++;
+                tuples += spill->tupleCount();
+                bytes += spill->byteCount();
+                partitions.push_back(std::make_pair(spill, pass + 1));
+            }
+        }
+        m_limits->spilled("GROUP BY", files, tuples, bytes);
+    }
 }
 
 
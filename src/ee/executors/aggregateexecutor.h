@@ -54,8 +54,16 @@
 #include "common/tabletuple.h"
 #include "expressions/abstractexpression.h"
 
+#include "boost/scoped_ptr.hpp"
+#include "boost/shared_ptr.hpp"
+
+#include <deque>
+#include <utility>
+
 namespace voltdb {
 struct AggregateRow;
+class SpillFile;
+class TempTable;
 
 /**
  * The base class for aggregate executors regardless of the type of grouping that should be performed.
@@ -64,7 +72,7 @@ class AggregateExecutorBase : public AbstractExecutor
 {
 public:
     AggregateExecutorBase(VoltDBEngine* engine, AbstractPlanNode* abstract_node) :
-        AbstractExecutor(engine, abstract_node), m_groupByKeySchema(NULL)
+        AbstractExecutor(engine, abstract_node), m_groupByKeySchema(NULL), m_limits(NULL)
     { }
     ~AggregateExecutorBase()
     {
@@ -108,6 +116,7 @@ protected:
     std::vector<AbstractExpression*> m_inputExpressions;
     std::vector<AbstractExpression*> m_outputColumnExpressions;
     std::vector<int> m_aggregateOutputColumns;
+    TempTableLimits* m_limits;
 };
 
 
@@ -120,10 +129,23 @@ class AggregateHashExecutor : public AggregateExecutorBase
 public:
     AggregateHashExecutor(VoltDBEngine* engine, AbstractPlanNode* abstract_node) :
         AggregateExecutorBase(engine, abstract_node) { }
-    ~AggregateHashExecutor() { }
+    ~AggregateHashExecutor();
 
 private:
+    // A spilled partition of the input and the pass that will aggregate it
+    typedef std::deque<std::pair<boost::shared_ptr<SpillFile>, int> > SpilledPartitions;
+
     virtual bool p_execute(const NValueArray& params);
+
+    /**
+     * Aggregate the input into the output table.  Once the groups in
+     * memory outgrow the spill threshold, the tuples of any new group go
+     * to partition files that are queued for a later pass.
+     */
+    void aggregate(Table* input_table, int pass, SpilledPartitions& partitions);
+
+    // Holds the spilled partition being aggregated
+    boost::scoped_ptr<TempTable> m_spillTable;
 };
 
 /**
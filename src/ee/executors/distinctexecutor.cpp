@@ -53,8 +53,8 @@
 #include "storage/temptable.h"
 #include "storage/tableiterator.h"
 #include "storage/tablefactory.h"
+#include "structures/NValueHashSet.h"
 
-#include <set>
 #include <cassert>
 
 using namespace voltdb;
@@ -65,6 +65,7 @@ bool DistinctExecutor::p_init(AbstractPlanNode*,
     VOLT_DEBUG("init Distinct Executor");
     DistinctPlanNode* node = dynamic_cast<DistinctPlanNode*>(m_abstractNode);
     assert(node);
+    m_limits = limits;
     //
     // Create a duplicate of input table
     //
@@ -98,14 +99,13 @@ bool DistinctExecutor::p_execute(const NValueArray &params) {
     AbstractExpression *distinctExpression = node->getDistinctExpression();
     distinctExpression->substitute(params);
 
-    std::set<NValue, NValue::ltNValue> found_values;
+    NValueHashSet found_values(1, m_limits);
     while (iterator.next(tuple)) {
         //
-        // Check whether this value already exists in our list
+        // Add the value to the ones seen, the tuple is new if the value was
         //
         NValue tuple_value = distinctExpression->eval(&tuple, NULL);
-        if (found_values.find(tuple_value) == found_values.end()) {
-            found_values.insert(tuple_value);
+        if (found_values.insert(&tuple_value)) {
             if (!output_table->insertTuple(tuple)) {
                 VOLT_ERROR("Failed to insert tuple from input table '%s' into"
                            " output table '%s'",
@@ -60,7 +60,7 @@ class DistinctExecutor : public AbstractExecutor
 {
 public:
     DistinctExecutor(VoltDBEngine *engine, AbstractPlanNode* abstract_node)
-        : AbstractExecutor(engine, abstract_node)
+        : AbstractExecutor(engine, abstract_node), m_limits(NULL)
     {
         this->distinct_column_type = VALUE_TYPE_INVALID;
     }
@@ -73,6 +73,8 @@ protected:
     bool p_execute(const NValueArray &params);
 
     ValueType distinct_column_type;
+    // charged for the values seen so far
+    TempTableLimits* m_limits;
 };
 
 }
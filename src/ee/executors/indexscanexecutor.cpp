@@ -182,6 +182,37 @@ bool IndexScanExecutor::p_init(AbstractPlanNode *abstractNode,
 
     m_tuple = TableTuple(m_targetTable->schema());
 
+    //
+    // COVERING INDEX
+    // The planner marks scans that only read key columns. Scan those on a
+    // copy of the key when the index key holds the column values.
+    //
+    m_covering = m_node->isCovering() && m_projectionNode != NULL &&
+        m_index->keyHoldsColumnValues() && m_index->getIndexedExpressions().empty();
+    const TupleSchema *keySchema = m_index->getKeySchema();
+    const TupleSchema *tableSchema = m_targetTable->schema();
+    const std::vector<int> &indexColumns = m_index->getColumnIndices();
+    for (int ctr = 0; m_covering && ctr < keySchema->columnCount(); ctr++) {
+        // a string is only copied from the key as it is stored in the table
+        m_covering = keySchema->columnIsInlined(ctr) ==
+            tableSchema->columnIsInlined(indexColumns[ctr]);
+    }
+    if (m_covering) {
+        m_coveringColumns = indexColumns;
+        m_keyBackingStore = new char[keySchema->tupleLength() + TUPLE_HEADER_SIZE];
+        m_keyTuple = TableTuple(m_keyBackingStore, keySchema);
+        m_coveringBackingStore = new char[tableSchema->tupleLength() + TUPLE_HEADER_SIZE];
+        ::memset(m_coveringBackingStore, 0, tableSchema->tupleLength() + TUPLE_HEADER_SIZE);
+        m_coveringTuple = TableTuple(m_coveringBackingStore, tableSchema);
+        m_coveringTuple.setAllNulls();
+    }
+    VOLT_TRACE("Index scan covering: %d", m_covering);
+
+    m_compiledEndExpression.reset(
+        CompiledExpression::compile(m_node->getEndExpression(), m_targetTable->schema()));
+    m_compiledPostExpression.reset(
+        CompiledExpression::compile(m_node->getPredicate(), m_targetTable->schema()));
+
     if (m_node->getEndExpression() != NULL)
     {
         m_needsSubstituteEndExpression =
@@ -326,6 +357,9 @@ bool IndexScanExecutor::p_execute(const NValueArray &params)
         if (m_needsSubstituteEndExpression) {
             end_expression->substitute(params);
         }
+        if (m_compiledEndExpression) {
+            m_compiledEndExpression->bind();
+        }
         VOLT_DEBUG("End Expression:\n%s", end_expression->debug(true).c_str());
     }
 
@@ -338,6 +372,9 @@ bool IndexScanExecutor::p_execute(const NValueArray &params)
         if (m_needsSubstitutePostExpression) {
             post_expression->substitute(params);
         }
+        if (m_compiledPostExpression) {
+            m_compiledPostExpression->bind();
+        }
         VOLT_DEBUG("Post Expression:\n%s", post_expression->debug(true).c_str());
     }
     assert (m_index);
@@ -388,17 +425,28 @@ bool IndexScanExecutor::p_execute(const NValueArray &params)
     //
     // We have to different nextValue() methods for different lookup types
     //
+    // A covering scan never reads m_tuple, it evaluates on the key columns
+    TableTuple &scanTuple = m_covering ? m_coveringTuple : m_tuple;
+    const int coveringColumnCount = static_cast<int>(m_coveringColumns.size());
     while ((limit == -1 || tuple_ctr < limit) &&
            ((localLookupType == INDEX_LOOKUP_TYPE_EQ &&
-             !(m_tuple = m_index->nextValueAtKey()).isNullTuple()) ||
+             !(m_tuple = m_covering ? m_index->nextValueAtKeyWithKey(&m_keyTuple) :
+                                      m_index->nextValueAtKey()).isNullTuple()) ||
            ((localLookupType != INDEX_LOOKUP_TYPE_EQ || activeNumOfSearchKeys == 0) &&
-            !(m_tuple = m_index->nextValue()).isNullTuple()))) {
-        VOLT_TRACE("LOOPING in indexscan: tuple: '%s'\n", m_tuple.debug("tablename").c_str());
+            !(m_tuple = m_covering ? m_index->nextValueWithKey(&m_keyTuple) :
+                                     m_index->nextValue()).isNullTuple()))) {
+        if (m_covering) {
+            for (int ctr = 0; ctr < coveringColumnCount; ctr++) {
+                m_coveringTuple.setNValue(m_coveringColumns[ctr], m_keyTuple.getNValue(ctr));
+            }
+        }
+        VOLT_TRACE("LOOPING in indexscan: tuple: '%s'\n", scanTuple.debug("tablename").c_str());
         //
         // First check whether the end_expression is now false
         //
         if (end_expression != NULL &&
-            end_expression->eval(&m_tuple, NULL).isFalse())
+            (m_compiledEndExpression ? !m_compiledEndExpression->isTrue(&scanTuple) :
+                                       end_expression->eval(&scanTuple, NULL).isFalse()))
         {
             VOLT_TRACE("End Expression evaluated to false, stopping scan");
             break;
@@ -407,7 +455,8 @@ bool IndexScanExecutor::p_execute(const NValueArray &params)
         // Then apply our post-predicate to do further filtering
         //
         if (post_expression == NULL ||
-            post_expression->eval(&m_tuple, NULL).isTrue())
+            (m_compiledPostExpression ? m_compiledPostExpression->isTrue(&scanTuple) :
+                                        post_expression->eval(&scanTuple, NULL).isTrue()))
         {
             //
             // INLINE OFFSET
@@ -428,7 +477,7 @@ bool IndexScanExecutor::p_execute(const NValueArray &params)
                     for (int ctr = m_numOfColumns - 1; ctr >= 0; --ctr)
                     {
                         temp_tuple.setNValue(ctr,
-                                             m_tuple.getNValue(m_projectionAllTupleArray[ctr]));
+                                             scanTuple.getNValue(m_projectionAllTupleArray[ctr]));
                     }
                 }
                 else
@@ -436,7 +485,7 @@ bool IndexScanExecutor::p_execute(const NValueArray &params)
                     for (int ctr = m_numOfColumns - 1; ctr >= 0; --ctr)
                     {
                         temp_tuple.setNValue(ctr,
-                                             m_projectionExpressions[ctr]->eval(&m_tuple, NULL));
+                                             m_projectionExpressions[ctr]->eval(&scanTuple, NULL));
                     }
                 }
                 m_outputTable->insertTupleNonVirtual(temp_tuple);
@@ -460,5 +509,7 @@ bool IndexScanExecutor::p_execute(const NValueArray &params)
 
 IndexScanExecutor::~IndexScanExecutor() {
     delete [] m_searchKeyBackingStore;
+    delete [] m_keyBackingStore;
+    delete [] m_coveringBackingStore;
     delete [] m_projectionExpressions;
 }
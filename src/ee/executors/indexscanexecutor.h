@@ -48,8 +48,12 @@
 
 #include "common/tabletuple.h"
 #include "executors/abstractexecutor.h"
+#include "expressions/compiledexpression.h"
 
 #include "boost/shared_array.hpp"
+#include "boost/scoped_ptr.hpp"
+
+#include <vector>
 
 namespace voltdb {
 
@@ -69,7 +73,8 @@ class IndexScanExecutor : public AbstractExecutor
 {
 public:
     IndexScanExecutor(VoltDBEngine* engine, AbstractPlanNode* abstractNode)
-        : AbstractExecutor(engine, abstractNode), m_searchKeyBackingStore(NULL)
+        : AbstractExecutor(engine, abstractNode), m_searchKeyBackingStore(NULL),
+          m_keyBackingStore(NULL), m_coveringBackingStore(NULL)
     {
         m_projectionExpressions = NULL;
     }
@@ -100,6 +105,9 @@ private:
     bool* m_needsSubstituteSearchKey; // needs_substitute_search_key_ptr[]
     bool m_needsSubstitutePostExpression;
     bool m_needsSubstituteEndExpression;
+    // end and post expressions lowered for the target table, NULL where it didn't pay
+    boost::scoped_ptr<CompiledExpression> m_compiledEndExpression;
+    boost::scoped_ptr<CompiledExpression> m_compiledPostExpression;
 
     IndexLookupType m_lookupType;
     SortDirectionType m_sortDirection;
@@ -112,6 +120,14 @@ private:
     TableTuple m_dummy;
     TableTuple m_tuple;
 
+    // Covering scans read the key of each entry into m_keyTuple and
+    // evaluate on m_coveringTuple, a table-schema tuple that only has
+    // the key columns (at m_coveringColumns) set.
+    bool m_covering;
+    TableTuple m_keyTuple;
+    TableTuple m_coveringTuple;
+    std::vector<int> m_coveringColumns;
+
     // arrange the memory mgmt aids at the bottom to try to maximize
     // cache hits (by keeping them out of the way of useful runtime data)
     boost::shared_array<bool> m_needsSubstituteSearchKeyPtr;
@@ -121,6 +137,8 @@ private:
         m_searchKeyBeforeSubstituteArrayPtr;
     // So Valgrind doesn't complain:
     char* m_searchKeyBackingStore;
+    char* m_keyBackingStore;
+    char* m_coveringBackingStore;
 };
 
 }
@@ -43,6 +43,7 @@
  * OTHER DEALINGS IN THE SOFTWARE.
  */
 
+#include <algorithm>
 #include <vector>
 #include <string>
 #include <stack>
@@ -58,6 +59,7 @@
 #include "storage/table.h"
 #include "storage/persistenttable.h"
 #include "storage/temptable.h"
+#include "storage/TempTableLimits.h"
 #include "indexes/tableindex.h"
 #include "storage/tableiterator.h"
 
@@ -161,6 +163,81 @@ namespace
         }
         return true;
     }
+
+    /**
+     * Orders the entries of a batch by their search keys, ties by position
+     * in the outer table
+     */
+    class BatchKeyLess
+    {
+    public:
+        BatchKeyLess(char *keys, int keyLength, const TupleSchema *keySchema)
+            : m_keys(keys), m_keyLength(keyLength), m_keySchema(keySchema)
+        {
+        }
+
+        bool operator()(int lhs, int rhs) const
+        {
+            const TableTuple lhsKey(m_keys + lhs * m_keyLength, m_keySchema);
+            const TableTuple rhsKey(m_keys + rhs * m_keyLength, m_keySchema);
+            const int diff = lhsKey.compare(rhsKey);
+            return diff < 0 || (diff == 0 && lhs < rhs);
+        }
+
+    private:
+        char *m_keys;
+        int m_keyLength;
+        const TupleSchema *m_keySchema;
+    };
+
+    typedef std::vector<std::pair<int, char*> > BatchMatches;
+
+    /**
+     * Charges the capacity of the buffered matches of a batched join to
+     * the temp table limits, and frees it and gives it back once the join
+     * is done or has failed
+     */
+    class BatchMatchesCharge
+    {
+    public:
+        BatchMatchesCharge(BatchMatches &matches, TempTableLimits *limits)
+            : m_matches(matches), m_limits(limits), m_bytes(0)
+        {
+        }
+
+        ~BatchMatchesCharge()
+        {
+            BatchMatches().swap(m_matches);
+            m_limits->reduceAllocated(m_bytes);
+        }
+
+        /**
+         * Call after adding matches, throws if the limits are exceeded
+         */
+        void update()
+        {
+            const int bytes = static_cast<int>(m_matches.capacity() * sizeof(BatchMatches::value_type));
+            if (bytes == m_bytes) {
+                return;
+            }
+            // like a temp table block, the grown buffer is charged even
+            // if it takes the limits over the top
+            m_limits->reduceAllocated(m_bytes);
+            m_bytes = bytes;
+            m_limits->increaseAllocated(bytes);
+        }
+
+    private:
+        BatchMatches &m_matches;
+        TempTableLimits *m_limits;
+        int m_bytes;
+    };
+
+    bool
+    batchEntryLess(const std::pair<int, char*> &lhs, const std::pair<int, char*> &rhs)
+    {
+        return lhs.first < rhs.first;
+    }
 }
 
 bool NestLoopIndexExecutor::p_init(AbstractPlanNode* abstractNode,
@@ -168,6 +245,7 @@ bool NestLoopIndexExecutor::p_init(AbstractPlanNode* abstractNode,
 {
     VOLT_TRACE("init NLIJ Executor");
     assert(limits);
+    m_limits = limits;
 
     node = dynamic_cast<NestLoopIndexPlanNode*>(abstractNode);
     assert(node);
@@ -252,6 +330,13 @@ bool NestLoopIndexExecutor::p_init(AbstractPlanNode* abstractNode,
     index_values.move( index_values_backing_store - TUPLE_HEADER_SIZE);
     index_values.setAllNulls();
 
+    if (m_lookupType == INDEX_LOOKUP_TYPE_EQ && num_of_searchkeys > 0 && index->isOrderedIndex()) {
+        m_batchKeyLength = index->getKeySchema()->tupleLength() + TUPLE_HEADER_SIZE;
+        m_batchKeys.reset(new char[BATCH_SIZE * m_batchKeyLength]);
+        m_batchOuter.reserve(BATCH_SIZE);
+        m_batchOrder.reserve(BATCH_SIZE);
+    }
+
     // for each tuple value expression in the predicate, determine
     // which tuple is being represented. Tuple could come from outer
     // table or inner table. Configure the predicate to use the correct
@@ -350,6 +435,13 @@ bool NestLoopIndexExecutor::p_execute(const NValueArray &params)
         where_expression->substitute(params);
         VOLT_TRACE("Post Expression:\n%s", where_expression->debug(true).c_str());
     }
+    if (m_batchKeys && outer_table->activeTupleCount() >= BATCH_MIN_OUTER_TUPLES) {
+        executeBatched(end_expression, post_expression, prejoin_expression, where_expression);
+        VOLT_TRACE ("result table:\n %s", output_table->debug().c_str());
+        VOLT_TRACE("Finished NestLoopIndex");
+        return (true);
+    }
+
     //
     // OUTER TABLE ITERATION
     //
@@ -573,6 +665,137 @@ bool NestLoopIndexExecutor::p_execute(const NValueArray &params)
     return (true);
 }
 
+void NestLoopIndexExecutor::executeBatched(AbstractExpression* end_expression,
+                                           AbstractExpression* post_expression,
+                                           AbstractExpression* prejoin_expression,
+                                           AbstractExpression* where_expression)
+{
+    const std::vector<AbstractExpression*> &searchKeys = inline_node->getSearchKeyExpressions();
+    const int num_of_searchkeys = static_cast<int>(searchKeys.size());
+    const TupleSchema *keySchema = index->getKeySchema();
+    TableTuple outer_tuple(outer_table->schema());
+    TableTuple inner_tuple(inner_table->schema());
+    TableTuple key(keySchema);
+    TableIterator outer_iterator = outer_table->iterator();
+    int num_of_outer_cols = outer_table->columnCount();
+    TableTuple &join_tuple = output_table->tempTuple();
+    TableTuple null_tuple = m_null_tuple;
+    int num_of_inner_cols = (join_type == JOIN_TYPE_LEFT)? null_tuple.sizeInValues() : 0;
+    BatchMatchesCharge charge(m_batchMatches, m_limits);
+
+    bool more = true;
+    while (more) {
+        m_batchOuter.clear();
+        m_batchOrder.clear();
+        m_batchMatches.clear();
+
+        //
+        // (1) Gather the next batch of outer tuples and their search keys.
+        // Outer tuples failing the pre-join predicate or with a key that
+        // does not fit the index can't match and are not probed.
+        //
+        int batched = 0;
+        while (batched < BATCH_SIZE && (more = outer_iterator.next(outer_tuple))) {
+            m_batchOuter.push_back(outer_tuple.address());
+            if (prejoin_expression == NULL || prejoin_expression->eval(&outer_tuple, NULL).isTrue()) {
+                key.move(m_batchKeys.get() + batched * m_batchKeyLength);
+                key.setAllNulls();
+                bool keyException = false;
+                for (int ctr = 0; ctr < num_of_searchkeys; ctr++) {
+                    NValue candidateValue = searchKeys[ctr]->eval(&outer_tuple, NULL);
+                    try {
+                        key.setNValue(ctr, candidateValue);
+                    }
+                    catch (const SQLException &e) {
+                        // an EQ key out of range of the column matches nothing
+                        if ((e.getInternalFlags() & (SQLException::TYPE_OVERFLOW | SQLException::TYPE_UNDERFLOW)) == 0) {
+                            throw e;
+                        }
+                        keyException = true;
+                        break;
+                    }
+                }
+                if (!keyException) {
+                    m_batchOrder.push_back(batched);
+                }
+            }
+            batched++;
+        }
+
+        //
+        // (2) Probe the index in key order, keeping the inner tuples that
+        // pass the end and post expressions
+        //
+        std::sort(m_batchOrder.begin(), m_batchOrder.end(),
+                  BatchKeyLess(m_batchKeys.get(), m_batchKeyLength, keySchema));
+        for (std::vector<int>::const_iterator entry = m_batchOrder.begin();
+             entry != m_batchOrder.end(); ++entry) {
+            key.move(m_batchKeys.get() + *entry * m_batchKeyLength);
+            outer_tuple.move(m_batchOuter[*entry]);
+            VOLT_TRACE("Searching %s", key.debug("").c_str());
+            index->moveToKey(&key);
+            while (!(inner_tuple = index->nextValueAtKey()).isNullTuple()) {
+                if (end_expression != NULL &&
+                    end_expression->eval(&outer_tuple, &inner_tuple).isFalse())
+                {
+                    VOLT_TRACE("End Expression evaluated to false, stopping scan");
+                    break;
+                }
+                if (post_expression == NULL ||
+                    post_expression->eval(&outer_tuple, &inner_tuple).isTrue())
+                {
+                    m_batchMatches.push_back(std::pair<int, char*>(*entry, inner_tuple.address()));
+                    charge.update();
+                }
+            }
+        }
+
+        //
+        // (3) Join in outer table order. The matches of each probe are
+        // contiguous and in index order, so a stable sort keeps them so.
+        //
+        std::stable_sort(m_batchMatches.begin(), m_batchMatches.end(), batchEntryLess);
+        const size_t matchCount = m_batchMatches.size();
+        size_t next = 0;
+        for (int entry = 0; entry < batched; entry++) {
+            outer_tuple.move(m_batchOuter[entry]);
+            join_tuple.setNValues(0, outer_tuple, 0, num_of_outer_cols);
+            bool match = false;
+            for (; next < matchCount && m_batchMatches[next].first == entry; next++) {
+                match = true;
+                // the inner tuples are scattered over the table blocks
+                if (next + 1 < matchCount) {
+                    __builtin_prefetch(m_batchMatches[next + 1].second);
+                }
+                inner_tuple.move(m_batchMatches[next].second);
+                if (where_expression == NULL || where_expression->eval(&outer_tuple, &inner_tuple).isTrue()) {
+                    for (int col_ctr = num_of_outer_cols;
+                         col_ctr < join_tuple.sizeInValues();
+                         ++col_ctr)
+                    {
+                        join_tuple.
+                        setNValue(col_ctr,
+                                  m_outputExpressions[col_ctr]->
+                                  eval(&inner_tuple, NULL));
+                    }
+                    VOLT_TRACE("MATCH: %s",
+                               join_tuple.debug(output_table->name()).c_str());
+                    output_table->insertTupleNonVirtual(join_tuple);
+                }
+            }
+            //
+            // Left Outer Join
+            //
+            if (join_type == JOIN_TYPE_LEFT && !match) {
+                if (where_expression == NULL || where_expression->eval(&outer_tuple, &null_tuple).isTrue()) {
+                    join_tuple.setNValues(num_of_outer_cols, m_null_tuple, 0, num_of_inner_cols);
+                    output_table->insertTupleNonVirtual(join_tuple);
+                }
+            }
+        }
+    }
+}
+
 NestLoopIndexExecutor::~NestLoopIndexExecutor() {
     delete [] index_values_backing_store;
 }
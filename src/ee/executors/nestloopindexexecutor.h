@@ -52,6 +52,10 @@
 #include "expressions/abstractexpression.h"
 #include "executors/abstractexecutor.h"
 
+#include "boost/scoped_array.hpp"
+
+#include <utility>
+#include <vector>
 
 namespace voltdb {
 
@@ -75,7 +79,7 @@ class NestLoopIndexExecutor : public AbstractExecutor
 public:
     NestLoopIndexExecutor(VoltDBEngine *engine, AbstractPlanNode* abstract_node)
         : AbstractExecutor(engine, abstract_node),
-        index_values_backing_store(NULL)
+        index_values_backing_store(NULL), m_limits(NULL)
     {
         node = NULL;
         inline_node = NULL;
@@ -84,6 +88,7 @@ public:
         index = NULL;
         outer_table = NULL;
         m_lookupType = INDEX_LOOKUP_TYPE_INVALID;
+        m_batchKeyLength = 0;
     }
 
     ~NestLoopIndexExecutor();
@@ -93,6 +98,23 @@ protected:
                 TempTableLimits* limits);
     bool p_execute(const NValueArray &params);
 
+    /**
+     * Equality joins from an outer table of at least BATCH_MIN_OUTER_TUPLES
+     * into an ordered index gather the search keys of BATCH_SIZE outer tuples
+     * at a time and probe the index in key order, so neighbouring probes
+     * descend through the same tree nodes. The matches are buffered and
+     * joined in the order of the outer table, same as the tuple at a
+     * time loop. A many-to-many join can buffer a lot of matches, they
+     * are charged to the fragment's temp table limits like a temp table.
+     */
+    static const int BATCH_SIZE = 1024;
+    static const int BATCH_MIN_OUTER_TUPLES = 64;
+
+    void executeBatched(AbstractExpression* end_expression,
+                        AbstractExpression* post_expression,
+                        AbstractExpression* prejoin_expression,
+                        AbstractExpression* where_expression);
+
     NestLoopIndexPlanNode* node;
     IndexScanPlanNode* inline_node;
     IndexLookupType m_lookupType;
@@ -108,6 +130,17 @@ protected:
 
     //So valgrind doesn't report the data as lost.
     char *index_values_backing_store;
+
+    // charged for the matches of a batch
+    TempTableLimits* m_limits;
+
+    // batched probes: the outer tuples and search keys of a batch, the
+    // batch entries in key order and the (entry, inner tuple) matches
+    int m_batchKeyLength;
+    boost::scoped_array<char> m_batchKeys;
+    std::vector<char*> m_batchOuter;
+    std::vector<int> m_batchOrder;
+    std::vector<std::pair<int, char*> > m_batchMatches;
 };
 
 }
@@ -56,6 +56,9 @@
 #include "storage/temptable.h"
 #include "storage/tableiterator.h"
 #include "storage/tablefactory.h"
+#include "storage/SpillFile.h"
+
+#include <boost/ptr_container/ptr_vector.hpp>
 
 using namespace voltdb;
 using namespace std;
@@ -86,6 +89,7 @@ OrderByExecutor::p_init(AbstractPlanNode* abstract_node,
     limit_node =
         dynamic_cast<LimitPlanNode*>(node->
                                      getInlinePlanNode(PLAN_NODE_TYPE_LIMIT));
+    m_limits = limits;
 
     return true;
 }
@@ -133,6 +137,106 @@ private:
     size_t m_keyCount;
 };
 
+// Each run being merged reads at least this much of its file at a time
+static const int64_t MERGE_BUFFER_BYTES = 64 * 1024;
+
+/**
+ * Orders the head tuples of the runs being merged so that the least one
+ * is on top of the heap
+ */
+class RunHeadComparer
+{
+public:
+    RunHeadComparer(TupleComparer& comparer) : m_comparer(comparer) {}
+
+    bool operator()(const pair<TableTuple, size_t>& a, const pair<TableTuple, size_t>& b)
+    {
+        return m_comparer(b.first, a.first);
+    }
+
+private:
+    TupleComparer& m_comparer;
+};
+
+/**
+ * Sort a temp table too large to sort in memory next to its sorted copy.
+ * The input is sorted in runs of up to the spill threshold that are
+ * written to a spill file, then it is emptied and the runs are merged
+ * into the output.
+ */
+static void
+externalSort(TempTable* input_table, Table* output_table, TupleComparer& comparer,
+             int limit, int offset, TempTableLimits* limits)
+{
+    const TupleSchema* schema = input_table->schema();
+    const int64_t tupleBytes = schema->tupleLength() + TUPLE_HEADER_SIZE;
+    const int64_t runTuples = max(static_cast<int64_t>(1), limits->getSpillThreshold() / tupleBytes);
+
+    SpillFile file(schema, limits->getSpillDirectory());
+    vector<int64_t> runStarts;
+    vector<TableTuple> xs;
+    xs.reserve(static_cast<size_t>(min(runTuples, input_table->activeTupleCount())));
+    TableIterator iterator = input_table->iterator();
+    TableTuple tuple(schema);
+    bool more = true;
+    while (more) {
+        more = iterator.next(tuple);
+        if (more) {
+            xs.push_back(tuple);
+        }
+        if (static_cast<int64_t>(xs.size()) == runTuples || (!more && !xs.empty())) {
+            sort(xs.begin(), xs.end(), comparer);
+            runStarts.push_back(file.tupleCount());
+            for (vector<TableTuple>::iterator it = xs.begin(); it != xs.end(); it++) {
+                file.append(*it);
+            }
+            xs.clear();
+        }
+    }
+    file.flush();
+    runStarts.push_back(file.tupleCount());
+    const size_t runCount = runStarts.size() - 1;
+    limits->spilled("ORDER BY", runCount, file.tupleCount(), file.byteCount());
+
+    // Everything is in the runs, let the input go before the output grows.
+    input_table->deleteAllTuplesNonVirtual(false);
+
+    const int64_t bufferTuples = max(MERGE_BUFFER_BYTES / tupleBytes,
+                                     runTuples / static_cast<int64_t>(max(runCount, static_cast<size_t>(1))));
+    boost::ptr_vector<SpillFile::Reader> readers;
+    vector<pair<TableTuple, size_t> > heads;
+    RunHeadComparer headComparer(comparer);
+    for (size_t run = 0; run < runCount; run++) {
+        readers.push_back(new SpillFile::Reader(file, runStarts[run], runStarts[run + 1] - runStarts[run],
+                                                static_cast<int>(min(bufferTuples, runTuples))));
+        TableTuple head(schema);
+        if (readers[run].next(head)) {
+            heads.push_back(make_pair(head, run));
+            push_heap(heads.begin(), heads.end(), headComparer);
+        }
+    }
+
+    int tuple_ctr = 0;
+    int tuple_skipped = 0;
+    while (!heads.empty() && (limit < 0 || tuple_ctr < limit)) {
+        pop_heap(heads.begin(), heads.end(), headComparer);
+        pair<TableTuple, size_t>& least = heads.back();
+        if (tuple_skipped < offset) {
+            tuple_skipped++;
+        }
+        else {
+            output_table->insertTuple(least.first);
+            tuple_ctr++;
+        }
+        if (readers[least.second].next(least.first)) {
+            push_heap(heads.begin(), heads.end(), headComparer);
+        }
+        else {
+            heads.pop_back();
+        }
+    }
+}
+
 bool
 OrderByExecutor::p_execute(const NValueArray &params)
 {
@@ -164,20 +268,69 @@ OrderByExecutor::p_execute(const NValueArray &params)
     TableIterator iterator = input_table->iterator();
     TableTuple tuple(input_table->schema());
     vector<TableTuple> xs;
-    while (iterator.next(tuple))
-    {
-        assert(tuple.isActive());
-        xs.push_back(tuple);
+    TupleComparer comparer(node->getSortExpressions(), node->getSortDirections());
+
+    //
+    // OPTIMIZATION: TOP-N
+    // With a limit only the first offset + limit tuples in sort order are
+    // needed. Keep them in a heap with the greatest on top and replace it
+    // whenever a smaller tuple comes along, instead of sorting everything.
+    //
+    int64_t keep = -1;
+    if (limit >= 0) {
+        keep = static_cast<int64_t>(limit) + max(offset, 0);
+    }
+    if (keep == 0) {
+        return true;
+    }
+    if (keep > 0 && keep < input_table->activeTupleCount()) {
+        xs.reserve(static_cast<size_t>(keep));
+        while (iterator.next(tuple))
+        {
+            assert(tuple.isActive());
+            if (static_cast<int64_t>(xs.size()) < keep) {
+                xs.push_back(tuple);
+                push_heap(xs.begin(), xs.end(), comparer);
+            }
+            else if (comparer(tuple, xs.front())) {
+                pop_heap(xs.begin(), xs.end(), comparer);
+                xs.back() = tuple;
+                push_heap(xs.begin(), xs.end(), comparer);
+            }
+        }
+        sort_heap(xs.begin(), xs.end(), comparer);
+    }
+    else if (dynamic_cast<TempTable*>(input_table) != NULL &&
+             m_limits->shouldSpill(input_table->activeTupleCount() *
+                                   (input_table->schema()->tupleLength() + TUPLE_HEADER_SIZE))) {
+        // A temp table input above the spill threshold is sorted on disk,
+        // so it can be freed before its sorted copy is built.
+        externalSort(static_cast<TempTable*>(input_table), output_table, comparer,
+                     limit, offset, m_limits);
+        VOLT_TRACE("Result of OrderBy:\n '%s'", output_table->debug().c_str());
+        return true;
+    }
+    else {
+        while (iterator.next(tuple))
+        {
+            assert(tuple.isActive());
+            xs.push_back(tuple);
+        }
+        VOLT_TRACE("\n***** Input Table PreSort:\n '%s'",
+                   input_table->debug().c_str());
+        sort(xs.begin(), xs.end(), comparer);
     }
-    VOLT_TRACE("\n***** Input Table PreSort:\n '%s'",
-               input_table->debug().c_str());
-    sort(xs.begin(), xs.end(), TupleComparer(node->getSortExpressions(),
-                                             node->getSortDirections()));
 
     int tuple_ctr = 0;
     int tuple_skipped = 0;
     for (vector<TableTuple>::iterator it = xs.begin(); it != xs.end(); it++)
     {
+        //
+        // Check whether we have gone past our limit
+        //
+        if (limit >= 0 && tuple_ctr >= limit) {
+            break;
+        }
         //
         // Check if has gone past the offset
         //
@@ -196,12 +349,7 @@ OrderByExecutor::p_execute(const NValueArray &params)
                        output_table->name().c_str());
             return false;
         }
-        //
-        // Check whether we have gone past our limit
-        //
-        if (limit >= 0 && ++tuple_ctr >= limit) {
-            break;
-        }
+        tuple_ctr++;
     }
     VOLT_TRACE("Result of OrderBy:\n '%s'", output_table->debug().c_str());
 
@@ -62,7 +62,7 @@ namespace voltdb {
     class OrderByExecutor : public AbstractExecutor {
     public:
         OrderByExecutor(VoltDBEngine *engine, AbstractPlanNode* abstract_node)
-            : AbstractExecutor(engine, abstract_node), limit_node(NULL)
+            : AbstractExecutor(engine, abstract_node), limit_node(NULL), m_limits(NULL)
             { }
         ~OrderByExecutor();
 
@@ -73,6 +73,7 @@ namespace voltdb {
 
     private:
         LimitPlanNode *limit_node;
+        TempTableLimits *m_limits;
     };
 
 }
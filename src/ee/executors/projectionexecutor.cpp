@@ -94,6 +94,12 @@ bool ProjectionExecutor::p_init(AbstractPlanNode *abstractNode,
     if (!node->isInline()) {
         input_table = node->getInputTables()[0];
         tuple = TableTuple(input_table->schema());
+
+        compiled_array.clear();
+        for (int ctr = 0; ctr < m_columnCount; ctr++) {
+            compiled_array.push_back(boost::shared_ptr<CompiledExpression>(
+                CompiledExpression::compile(expression_array[ctr], input_table->schema())));
+        }
     }
     return true;
 }
@@ -122,6 +128,9 @@ bool ProjectionExecutor::p_execute(const NValueArray &params) {
         for (int ctr = m_columnCount - 1; ctr >= 0; --ctr) {
             assert(expression_array[ctr]);
             expression_array[ctr]->substitute(params);
+            if (compiled_array[ctr]) {
+                compiled_array[ctr]->bind();
+            }
             VOLT_TRACE("predicate[%d]: %s", ctr,
                        expression_array[ctr]->debug(true).c_str());
         }
@@ -151,7 +160,9 @@ bool ProjectionExecutor::p_execute(const NValueArray &params) {
             }
         } else {
             for (int ctr = m_columnCount - 1; ctr >= 0; --ctr) {
-                temp_tuple.setNValue(ctr, expression_array[ctr]->eval(&tuple, NULL));
+                temp_tuple.setNValue(ctr, compiled_array[ctr] ?
+                                          compiled_array[ctr]->eval(&tuple) :
+                                          expression_array[ctr]->eval(&tuple, NULL));
             }
         }
         output_table->insertTupleNonVirtual(temp_tuple);
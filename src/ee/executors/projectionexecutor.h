@@ -48,10 +48,12 @@
 
 #include <vector>
 #include "boost/shared_array.hpp"
+#include "boost/shared_ptr.hpp"
 #include "common/common.h"
 #include "common/valuevector.h"
 #include "common/tabletuple.h"
 #include "executors/abstractexecutor.h"
+#include "expressions/compiledexpression.h"
 
 namespace voltdb {
 
@@ -87,6 +89,8 @@ class ProjectionExecutor : public AbstractExecutor {
 
         boost::shared_array<AbstractExpression*> expression_array_ptr;
         AbstractExpression** expression_array;
+        // the expressions lowered for the input table, NULL where it didn't pay
+        std::vector<boost::shared_ptr<CompiledExpression> > compiled_array;
 };
 
 }
@@ -91,6 +91,23 @@ bool SeqScanExecutor::p_init(AbstractPlanNode* abstract_node,
         // Create output table based on output schema from the plan
         setTempOutputTable(limits, node->getTargetTable()->name());
     }
+
+    //
+    // Lower the predicate and the inline projection into evaluators
+    // specialized for the column types of the target table
+    //
+    const TupleSchema *schema = node->getTargetTable()->schema();
+    m_compiledPredicate.reset(CompiledExpression::compile(node->getPredicate(), schema));
+    m_compiledProjection.clear();
+    ProjectionPlanNode* projection_node =
+        dynamic_cast<ProjectionPlanNode*>(node->getInlinePlanNode(PLAN_NODE_TYPE_PROJECTION));
+    if (projection_node != NULL) {
+        const std::vector<AbstractExpression*> &expressions = projection_node->getOutputColumnExpressions();
+        for (int ctr = 0; ctr < expressions.size(); ctr++) {
+            m_compiledProjection.push_back(
+                boost::shared_ptr<CompiledExpression>(CompiledExpression::compile(expressions[ctr], schema)));
+        }
+    }
     return true;
 }
 
@@ -132,6 +149,9 @@ bool SeqScanExecutor::p_execute(const NValueArray &params) {
         for (int ctr = 0; ctr < num_of_columns; ctr++) {
             assert(projection_node->getOutputColumnExpressions()[ctr]);
             projection_node->getOutputColumnExpressions()[ctr]->substitute(params);
+            if (m_compiledProjection[ctr]) {
+                m_compiledProjection[ctr]->bind();
+            }
         }
     }
 
@@ -166,6 +186,9 @@ bool SeqScanExecutor::p_execute(const NValueArray &params) {
         {
             predicate->substitute(params);
             assert(predicate != NULL);
+            if (m_compiledPredicate) {
+                m_compiledPredicate->bind();
+            }
             VOLT_DEBUG("SCAN PREDICATE B:\n%s\n",
                        predicate->debug(true).c_str());
         }
@@ -186,7 +209,9 @@ bool SeqScanExecutor::p_execute(const NValueArray &params) {
             //
             // For each tuple we need to evaluate it against our predicate
             //
-            if (predicate == NULL || predicate->eval(&tuple, NULL).isTrue())
+            if (predicate == NULL ||
+                (m_compiledPredicate ? m_compiledPredicate->isTrue(&tuple) :
+                                       predicate->eval(&tuple, NULL).isTrue()))
             {
                 // Check if we have to skip this tuple because of offset
                 if (tuple_skipped < offset) {
@@ -204,7 +229,8 @@ bool SeqScanExecutor::p_execute(const NValueArray &params) {
                     TableTuple &temp_tuple = output_table->tempTuple();
                     for (int ctr = 0; ctr < num_of_columns; ctr++)
                     {
-                        NValue value =
+                        NValue value = m_compiledProjection[ctr] ?
+                            m_compiledProjection[ctr]->eval(&tuple) :
                             projection_node->
                           getOutputColumnExpressions()[ctr]->eval(&tuple, NULL);
                         temp_tuple.setNValue(ctr, value);
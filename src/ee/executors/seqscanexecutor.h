@@ -49,6 +49,11 @@
 #include "common/common.h"
 #include "common/valuevector.h"
 #include "executors/abstractexecutor.h"
+#include "expressions/compiledexpression.h"
+
+#include <vector>
+#include <boost/scoped_ptr.hpp>
+#include <boost/shared_ptr.hpp>
 
 namespace voltdb
 {
@@ -65,6 +70,11 @@ namespace voltdb
                     TempTableLimits* limits);
         bool p_execute(const NValueArray& params);
         bool needsOutputTableClear();
+
+    private:
+        // the predicate and inline projection lowered for the target table, NULL where it didn't pay
+        boost::scoped_ptr<CompiledExpression> m_compiledPredicate;
+        std::vector<boost::shared_ptr<CompiledExpression> > m_compiledProjection;
     };
 }
 
@@ -0,0 +1,644 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#include "expressions/compiledexpression.h"
+
+#include "common/ValueFactory.hpp"
+#include "common/ValuePeeker.hpp"
+#include "expressions/tuplevalueexpression.h"
+
+#include <cassert>
+#include <cmath>
+#include <limits>
+
+namespace voltdb {
+
+namespace {
+
+enum Kind {
+    KIND_BIGINT,
+    KIND_DOUBLE,
+    // anything else, evaluated by the original tree
+    KIND_OTHER
+};
+
+Kind kindOf(ValueType type) {
+    switch (type) {
+    case VALUE_TYPE_TINYINT:
+    case VALUE_TYPE_SMALLINT:
+    case VALUE_TYPE_INTEGER:
+    case VALUE_TYPE_BIGINT:
+    case VALUE_TYPE_TIMESTAMP:
+        return KIND_BIGINT;
+    case VALUE_TYPE_DOUBLE:
+        return KIND_DOUBLE;
+    default:
+        return KIND_OTHER;
+    }
+}
+
+/** The NValue::castAsDouble() of a widened integer */
+inline double toDouble(int64_t value) {
+    return value == INT64_NULL ? DOUBLE_MIN : static_cast<double>(value);
+}
+
+/** The NValue::compare() of two integers or two doubles */
+template <typename T>
+inline int compareValues(T lhs, T rhs) {
+    if (lhs == rhs) {
+        return VALUE_COMPARE_EQUAL;
+    } else if (lhs > rhs) {
+        return VALUE_COMPARE_GREATERTHAN;
+    } else {
+        return VALUE_COMPARE_LESSTHAN;
+    }
+}
+
+}
+
+/**
+ * A number. Integers of every width are widened to int64_t with INT64_NULL
+ * for NULL, the way NValue::castAsBigIntAndGetValue() does, doubles are the
+ * stored value.
+ */
+class CompiledNumericNode {
+public:
+    CompiledNumericNode(const AbstractExpression *expression, Kind kind)
+        : m_expression(expression), m_kind(kind) {}
+    virtual ~CompiledNumericNode() {}
+
+    virtual void bind() {}
+
+    /** Only for KIND_BIGINT */
+    virtual int64_t bigint(const TableTuple *tuple) const = 0;
+
+    /** For KIND_BIGINT and KIND_DOUBLE */
+    virtual double dbl(const TableTuple *tuple) const = 0;
+
+    /** True for the nodes whose value is the same for every tuple */
+    virtual bool isInvariant() const { return false; }
+
+    Kind kind() const { return m_kind; }
+
+    NValue value(const TableTuple *tuple) const {
+        switch (m_kind) {
+        case KIND_BIGINT:
+            return ValueFactory::getBigIntValue(bigint(tuple));
+        case KIND_DOUBLE:
+            return ValueFactory::getDoubleValue(dbl(tuple));
+        default:
+            return m_expression->eval(tuple, NULL);
+        }
+    }
+
+protected:
+    const AbstractExpression *m_expression;
+    Kind m_kind;
+};
+
+class CompiledBooleanNode {
+public:
+    CompiledBooleanNode(const AbstractExpression *expression) : m_expression(expression) {}
+    virtual ~CompiledBooleanNode() {}
+
+    virtual void bind() {}
+    virtual bool test(const TableTuple *tuple) const = 0;
+
+protected:
+    const AbstractExpression *m_expression;
+};
+
+namespace {
+
+/** A value the specialized code doesn't handle */
+class InterpretedNumericNode : public CompiledNumericNode {
+public:
+    InterpretedNumericNode(const AbstractExpression *expression)
+        : CompiledNumericNode(expression, KIND_OTHER) {}
+
+    int64_t bigint(const TableTuple *tuple) const {
+        assert(false);
+        return INT64_NULL;
+    }
+
+    double dbl(const TableTuple *tuple) const {
+        assert(false);
+        return DOUBLE_MIN;
+    }
+};
+
+/** An integer column, NULL is the minimum value of T */
+template <typename T>
+class IntegerColumnNode : public CompiledNumericNode {
+public:
+    IntegerColumnNode(const AbstractExpression *expression, uint32_t offset)
+        : CompiledNumericNode(expression, KIND_BIGINT), m_offset(offset + TUPLE_HEADER_SIZE) {}
+
+    int64_t bigint(const TableTuple *tuple) const {
+        const T value = *reinterpret_cast<const T*>(tuple->address() + m_offset);
+        return value == std::numeric_limits<T>::min() ? INT64_NULL : static_cast<int64_t>(value);
+    }
+
+    double dbl(const TableTuple *tuple) const {
+        return toDouble(bigint(tuple));
+    }
+
+private:
+    const uint32_t m_offset;
+};
+
+class DoubleColumnNode : public CompiledNumericNode {
+public:
+    DoubleColumnNode(const AbstractExpression *expression, uint32_t offset)
+        : CompiledNumericNode(expression, KIND_DOUBLE), m_offset(offset + TUPLE_HEADER_SIZE) {}
+
+    int64_t bigint(const TableTuple *tuple) const {
+        assert(false);
+        return INT64_NULL;
+    }
+
+    double dbl(const TableTuple *tuple) const {
+        return *reinterpret_cast<const double*>(tuple->address() + m_offset);
+    }
+
+private:
+    const uint32_t m_offset;
+};
+
+/**
+ * A constant, or a parameter whose value and kind are picked up by bind()
+ */
+class InvariantNode : public CompiledNumericNode {
+public:
+    InvariantNode(const AbstractExpression *expression)
+        : CompiledNumericNode(expression, KIND_OTHER), m_bigint(INT64_NULL), m_double(DOUBLE_MIN)
+    {
+        bind();
+    }
+
+    void bind() {
+        const NValue value = m_expression->eval(NULL, NULL);
+        m_kind = kindOf(ValuePeeker::peekValueType(value));
+        if (m_kind == KIND_BIGINT) {
+            m_bigint = ValuePeeker::peekAsBigInt(value);
+            m_double = toDouble(m_bigint);
+        } else if (m_kind == KIND_DOUBLE) {
+            m_double = ValuePeeker::peekDouble(value);
+        }
+    }
+
+    int64_t bigint(const TableTuple *tuple) const { return m_bigint; }
+    double dbl(const TableTuple *tuple) const { return m_double; }
+    bool isInvariant() const { return true; }
+
+private:
+    int64_t m_bigint;
+    double m_double;
+};
+
+class Plus {
+public:
+    // no overflow and no INT64_NULL result within +-2^62
+    static bool fits(int64_t lhs, int64_t rhs) {
+        const int64_t limit = INT64_C(1) << 62;
+        return lhs > -limit && lhs < limit && rhs > -limit && rhs < limit;
+    }
+    static int64_t apply(int64_t lhs, int64_t rhs) { return lhs + rhs; }
+    static double apply(double lhs, double rhs) { return lhs + rhs; }
+};
+
+class Minus {
+public:
+    static bool fits(int64_t lhs, int64_t rhs) { return Plus::fits(lhs, rhs); }
+    static int64_t apply(int64_t lhs, int64_t rhs) { return lhs - rhs; }
+    static double apply(double lhs, double rhs) { return lhs - rhs; }
+};
+
+class Multiply {
+public:
+    // products of 32 bit values stay within +-2^62
+    static bool fits(int64_t lhs, int64_t rhs) {
+        return lhs == static_cast<int32_t>(lhs) && rhs == static_cast<int32_t>(rhs);
+    }
+    static int64_t apply(int64_t lhs, int64_t rhs) { return lhs * rhs; }
+    static double apply(double lhs, double rhs) { return lhs * rhs; }
+};
+
+/**
+ * + - or * with the promotions of NValue: BIGINT for two integers, DOUBLE if
+ * either side is a double. Results the fast path can't vouch for, overflows
+ * and infinities, are recomputed by the original tree so it raises the error.
+ */
+template <typename OP>
+class ArithmeticNode : public CompiledNumericNode {
+public:
+    ArithmeticNode(const AbstractExpression *expression,
+                   CompiledNumericNode *left, CompiledNumericNode *right)
+        : CompiledNumericNode(expression, KIND_OTHER), m_left(left), m_right(right)
+    {
+        setKind();
+    }
+
+    ~ArithmeticNode() {
+        delete m_left;
+        delete m_right;
+    }
+
+    void bind() {
+        m_left->bind();
+        m_right->bind();
+        setKind();
+    }
+
+    int64_t bigint(const TableTuple *tuple) const {
+        const int64_t lhs = m_left->bigint(tuple);
+        const int64_t rhs = m_right->bigint(tuple);
+        if (lhs == INT64_NULL || rhs == INT64_NULL) {
+            return INT64_NULL;
+        }
+        if (OP::fits(lhs, rhs)) {
+            return OP::apply(lhs, rhs);
+        }
+        return ValuePeeker::peekAsBigInt(m_expression->eval(tuple, NULL));
+    }
+
+    double dbl(const TableTuple *tuple) const {
+        if (m_kind == KIND_BIGINT) {
+            return toDouble(bigint(tuple));
+        }
+        const double lhs = m_left->dbl(tuple);
+        const double rhs = m_right->dbl(tuple);
+        if (lhs <= DOUBLE_NULL || rhs <= DOUBLE_NULL) {
+            return DOUBLE_MIN;
+        }
+        const double result = OP::apply(lhs, rhs);
+        if (std::isnan(result) || non_std_isinf(result)) {
+            return ValuePeeker::peekDouble(m_expression->eval(tuple, NULL));
+        }
+        return result;
+    }
+
+private:
+    void setKind() {
+        if (m_left->kind() == KIND_OTHER || m_right->kind() == KIND_OTHER) {
+            m_kind = KIND_OTHER;
+        } else if (m_left->kind() == KIND_DOUBLE || m_right->kind() == KIND_DOUBLE) {
+            m_kind = KIND_DOUBLE;
+        } else {
+            m_kind = KIND_BIGINT;
+        }
+    }
+
+    CompiledNumericNode *m_left;
+    CompiledNumericNode *m_right;
+};
+
+class InterpretedBooleanNode : public CompiledBooleanNode {
+public:
+    InterpretedBooleanNode(const AbstractExpression *expression)
+        : CompiledBooleanNode(expression) {}
+
+    bool test(const TableTuple *tuple) const {
+        return m_expression->eval(tuple, NULL).isTrue();
+    }
+};
+
+class Equal {
+public:
+    static bool test(int cmp) { return cmp == VALUE_COMPARE_EQUAL; }
+};
+class NotEqual {
+public:
+    static bool test(int cmp) { return cmp != VALUE_COMPARE_EQUAL; }
+};
+class LessThan {
+public:
+    static bool test(int cmp) { return cmp < VALUE_COMPARE_EQUAL; }
+};
+class GreaterThan {
+public:
+    static bool test(int cmp) { return cmp > VALUE_COMPARE_EQUAL; }
+};
+class LessThanOrEqual {
+public:
+    static bool test(int cmp) { return cmp <= VALUE_COMPARE_EQUAL; }
+};
+class GreaterThanOrEqual {
+public:
+    static bool test(int cmp) { return cmp >= VALUE_COMPARE_EQUAL; }
+};
+
+/**
+ * Compares as integers when both sides are integers and as doubles when
+ * either is a double. The mode is chosen again by bind() since the kind of
+ * a parameter can change between executions.
+ */
+template <typename CMP>
+class ComparisonNode : public CompiledBooleanNode {
+public:
+    ComparisonNode(const AbstractExpression *expression,
+                   CompiledNumericNode *left, CompiledNumericNode *right)
+        : CompiledBooleanNode(expression), m_left(left), m_right(right), m_mode(MODE_INTERPRET)
+    {
+        setMode();
+    }
+
+    ~ComparisonNode() {
+        delete m_left;
+        delete m_right;
+    }
+
+    void bind() {
+        m_left->bind();
+        m_right->bind();
+        setMode();
+    }
+
+    bool test(const TableTuple *tuple) const {
+        switch (m_mode) {
+        case MODE_BIGINT_INVARIANT:
+            return CMP::test(compareValues(m_left->bigint(tuple), m_rightBigInt));
+        case MODE_BIGINT:
+            return CMP::test(compareValues(m_left->bigint(tuple), m_right->bigint(tuple)));
+        case MODE_DOUBLE:
+            return CMP::test(compareValues(m_left->dbl(tuple), m_right->dbl(tuple)));
+        default:
+            return m_expression->eval(tuple, NULL).isTrue();
+        }
+    }
+
+private:
+    enum Mode {
+        MODE_BIGINT_INVARIANT,
+        MODE_BIGINT,
+        MODE_DOUBLE,
+        MODE_INTERPRET
+    };
+
+    void setMode() {
+        const Kind left = m_left->kind();
+        const Kind right = m_right->kind();
+        if (left == KIND_OTHER || right == KIND_OTHER) {
+            m_mode = MODE_INTERPRET;
+        } else if (left == KIND_BIGINT && right == KIND_BIGINT) {
+            if (m_right->isInvariant()) {
+                m_mode = MODE_BIGINT_INVARIANT;
+                m_rightBigInt = m_right->bigint(NULL);
+            } else {
+                m_mode = MODE_BIGINT;
+            }
+        } else {
+            m_mode = MODE_DOUBLE;
+        }
+    }
+
+    CompiledNumericNode *m_left;
+    CompiledNumericNode *m_right;
+    Mode m_mode;
+    int64_t m_rightBigInt;
+};
+
+class AndNode : public CompiledBooleanNode {
+public:
+    AndNode(const AbstractExpression *expression,
+            CompiledBooleanNode *left, CompiledBooleanNode *right)
+        : CompiledBooleanNode(expression), m_left(left), m_right(right) {}
+
+    ~AndNode() {
+        delete m_left;
+        delete m_right;
+    }
+
+    void bind() {
+        m_left->bind();
+        m_right->bind();
+    }
+
+    bool test(const TableTuple *tuple) const {
+        return m_left->test(tuple) && m_right->test(tuple);
+    }
+
+private:
+    CompiledBooleanNode *m_left;
+    CompiledBooleanNode *m_right;
+};
+
+class OrNode : public CompiledBooleanNode {
+public:
+    OrNode(const AbstractExpression *expression,
+           CompiledBooleanNode *left, CompiledBooleanNode *right)
+        : CompiledBooleanNode(expression), m_left(left), m_right(right) {}
+
+    ~OrNode() {
+        delete m_left;
+        delete m_right;
+    }
+
+    void bind() {
+        m_left->bind();
+        m_right->bind();
+    }
+
+    bool test(const TableTuple *tuple) const {
+        return m_left->test(tuple) || m_right->test(tuple);
+    }
+
+private:
+    CompiledBooleanNode *m_left;
+    CompiledBooleanNode *m_right;
+};
+
+CompiledNumericNode *compileNumeric(const AbstractExpression *expression, const TupleSchema *schema);
+
+template <typename OP>
+CompiledNumericNode *compileArithmetic(const AbstractExpression *expression, const TupleSchema *schema) {
+    CompiledNumericNode *left = compileNumeric(expression->getLeft(), schema);
+    CompiledNumericNode *right = compileNumeric(expression->getRight(), schema);
+    if (left->kind() == KIND_OTHER && !left->isInvariant() &&
+        right->kind() == KIND_OTHER && !right->isInvariant()) {
+        delete left;
+        delete right;
+        return new InterpretedNumericNode(expression);
+    }
+    return new ArithmeticNode<OP>(expression, left, right);
+}
+
+CompiledNumericNode *compileColumn(const TupleValueExpression *expression, const TupleSchema *schema) {
+    const int column = expression->getColumnId();
+    if (expression->getTupleIndex() != 0 || column >= schema->columnCount()) {
+        return new InterpretedNumericNode(expression);
+    }
+    const uint32_t offset = schema->columnOffset(column);
+    switch (schema->columnType(column)) {
+    case VALUE_TYPE_TINYINT:
+        return new IntegerColumnNode<int8_t>(expression, offset);
+    case VALUE_TYPE_SMALLINT:
+        return new IntegerColumnNode<int16_t>(expression, offset);
+    case VALUE_TYPE_INTEGER:
+        return new IntegerColumnNode<int32_t>(expression, offset);
+    case VALUE_TYPE_BIGINT:
+    case VALUE_TYPE_TIMESTAMP:
+        return new IntegerColumnNode<int64_t>(expression, offset);
+    case VALUE_TYPE_DOUBLE:
+        return new DoubleColumnNode(expression, offset);
+    default:
+        return new InterpretedNumericNode(expression);
+    }
+}
+
+CompiledNumericNode *compileNumeric(const AbstractExpression *expression, const TupleSchema *schema) {
+    switch (expression->getExpressionType()) {
+    case EXPRESSION_TYPE_VALUE_TUPLE: {
+        const TupleValueExpression *column = dynamic_cast<const TupleValueExpression*>(expression);
+        if (column != NULL) {
+            return compileColumn(column, schema);
+        }
+        break;
+    }
+    case EXPRESSION_TYPE_VALUE_CONSTANT:
+    case EXPRESSION_TYPE_VALUE_PARAMETER:
+        return new InvariantNode(expression);
+    case EXPRESSION_TYPE_OPERATOR_PLUS:
+        return compileArithmetic<Plus>(expression, schema);
+    case EXPRESSION_TYPE_OPERATOR_MINUS:
+        return compileArithmetic<Minus>(expression, schema);
+    case EXPRESSION_TYPE_OPERATOR_MULTIPLY:
+        return compileArithmetic<Multiply>(expression, schema);
+    default:
+        break;
+    }
+    return new InterpretedNumericNode(expression);
+}
+
+template <typename CMP>
+CompiledBooleanNode *compileComparison(const AbstractExpression *expression, const TupleSchema *schema) {
+    CompiledNumericNode *left = compileNumeric(expression->getLeft(), schema);
+    CompiledNumericNode *right = compileNumeric(expression->getRight(), schema);
+    if (left->kind() == KIND_OTHER && !left->isInvariant() &&
+        right->kind() == KIND_OTHER && !right->isInvariant()) {
+        delete left;
+        delete right;
+        return new InterpretedBooleanNode(expression);
+    }
+    return new ComparisonNode<CMP>(expression, left, right);
+}
+
+CompiledBooleanNode *compileBoolean(const AbstractExpression *expression, const TupleSchema *schema);
+
+template <typename NODE>
+CompiledBooleanNode *compileConjunction(const AbstractExpression *expression, const TupleSchema *schema) {
+    CompiledBooleanNode *left = compileBoolean(expression->getLeft(), schema);
+    CompiledBooleanNode *right = compileBoolean(expression->getRight(), schema);
+    if (dynamic_cast<InterpretedBooleanNode*>(left) != NULL &&
+        dynamic_cast<InterpretedBooleanNode*>(right) != NULL) {
+        delete left;
+        delete right;
+        return new InterpretedBooleanNode(expression);
+    }
+    return new NODE(expression, left, right);
+}
+
+CompiledBooleanNode *compileBoolean(const AbstractExpression *expression, const TupleSchema *schema) {
+    switch (expression->getExpressionType()) {
+    case EXPRESSION_TYPE_COMPARE_EQUAL:
+        return compileComparison<Equal>(expression, schema);
+    case EXPRESSION_TYPE_COMPARE_NOTEQUAL:
+        return compileComparison<NotEqual>(expression, schema);
+    case EXPRESSION_TYPE_COMPARE_LESSTHAN:
+        return compileComparison<LessThan>(expression, schema);
+    case EXPRESSION_TYPE_COMPARE_GREATERTHAN:
+        return compileComparison<GreaterThan>(expression, schema);
+    case EXPRESSION_TYPE_COMPARE_LESSTHANOREQUALTO:
+        return compileComparison<LessThanOrEqual>(expression, schema);
+    case EXPRESSION_TYPE_COMPARE_GREATERTHANOREQUALTO:
+        return compileComparison<GreaterThanOrEqual>(expression, schema);
+    case EXPRESSION_TYPE_CONJUNCTION_AND:
+        return compileConjunction<AndNode>(expression, schema);
+    case EXPRESSION_TYPE_CONJUNCTION_OR:
+        return compileConjunction<OrNode>(expression, schema);
+    default:
+        return new InterpretedBooleanNode(expression);
+    }
+}
+
+}
+
+CompiledExpression *CompiledExpression::compile(const AbstractExpression *expression,
+                                                const TupleSchema *schema)
+{
+    if (expression == NULL || schema == NULL) {
+        return NULL;
+    }
+    switch (expression->getExpressionType()) {
+    case EXPRESSION_TYPE_OPERATOR_PLUS:
+    case EXPRESSION_TYPE_OPERATOR_MINUS:
+    case EXPRESSION_TYPE_OPERATOR_MULTIPLY: {
+        CompiledNumericNode *value = compileNumeric(expression, schema);
+        if (dynamic_cast<InterpretedNumericNode*>(value) != NULL) {
+            delete value;
+            return NULL;
+        }
+        return new CompiledExpression(expression, schema, NULL, value);
+    }
+    default: {
+        CompiledBooleanNode *predicate = compileBoolean(expression, schema);
+        if (dynamic_cast<InterpretedBooleanNode*>(predicate) != NULL) {
+            delete predicate;
+            return NULL;
+        }
+        return new CompiledExpression(expression, schema, predicate, NULL);
+    }
+    }
+}
+
+CompiledExpression::CompiledExpression(const AbstractExpression *expression, const TupleSchema *schema,
+                                       CompiledBooleanNode *predicate, CompiledNumericNode *value)
+    : m_expression(expression), m_schema(schema), m_predicate(predicate), m_value(value)
+{
+}
+
+CompiledExpression::~CompiledExpression() {
+    delete m_predicate;
+    delete m_value;
+}
+
+void CompiledExpression::bind() {
+    if (m_predicate != NULL) {
+        m_predicate->bind();
+    } else {
+        m_value->bind();
+    }
+}
+
+bool CompiledExpression::isTrue(const TableTuple *tuple) const {
+    if (m_predicate == NULL || !matches(tuple)) {
+        return m_expression->eval(tuple, NULL).isTrue();
+    }
+    return m_predicate->test(tuple);
+}
+
+NValue CompiledExpression::eval(const TableTuple *tuple) const {
+    if (!matches(tuple)) {
+        return m_expression->eval(tuple, NULL);
+    }
+    if (m_predicate != NULL) {
+        return m_predicate->test(tuple) ? NValue::getTrue() : NValue::getFalse();
+    }
+    return m_value->value(tuple);
+}
+
+}
@@ -0,0 +1,83 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#ifndef COMPILEDEXPRESSION_H
+#define COMPILEDEXPRESSION_H
+
+#include "common/NValue.hpp"
+#include "common/tabletuple.h"
+#include "expressions/abstractexpression.h"
+
+#include <boost/noncopyable.hpp>
+
+namespace voltdb {
+
+class CompiledBooleanNode;
+class CompiledNumericNode;
+
+/**
+ * An expression tree lowered, when its plan is loaded, into evaluators
+ * specialized for the types of the columns it reads. Comparisons, AND, OR
+ * and + - * over fixed width columns, constants and parameters read the
+ * tuple storage directly and work on int64_t and double instead of going
+ * through NValue. Every other node, and any value the specialized code can't
+ * handle (a DECIMAL parameter, an overflow), is evaluated by the original
+ * tree, so results and errors are the same as the interpreter's except that
+ * AND and OR short-circuit.
+ *
+ * Compiled against the schema of the outer tuple, tuples of any other schema
+ * also go to the original tree.
+ */
+class CompiledExpression : private boost::noncopyable {
+public:
+    /**
+     * @return the compiled tree, or NULL if nothing in it could be specialized.
+     * The expression must outlive the compiled tree.
+     */
+    static CompiledExpression *compile(const AbstractExpression *expression, const TupleSchema *schema);
+
+    ~CompiledExpression();
+
+    /** Pick up the parameter values, call after every substitute() of the expression */
+    void bind();
+
+    /** Same as getExpression()->eval(tuple, NULL).isTrue() */
+    bool isTrue(const TableTuple *tuple) const;
+
+    /** Same as getExpression()->eval(tuple, NULL) */
+    NValue eval(const TableTuple *tuple) const;
+
+    const AbstractExpression *getExpression() const { return m_expression; }
+
+private:
+    CompiledExpression(const AbstractExpression *expression, const TupleSchema *schema,
+                       CompiledBooleanNode *predicate, CompiledNumericNode *value);
+
+    bool matches(const TableTuple *tuple) const {
+        return tuple != NULL && tuple->getSchema() == m_schema;
+    }
+
+    const AbstractExpression *m_expression;
+    const TupleSchema *m_schema;
+    // one of them is set, depending on whether the root is a predicate
+    CompiledBooleanNode *m_predicate;
+    CompiledNumericNode *m_value;
+};
+
+}
+
+#endif // COMPILEDEXPRESSION_H
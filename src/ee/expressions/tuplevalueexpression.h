@@ -100,6 +100,8 @@ class TupleValueExpression : public AbstractExpression {
 
     int getColumnId() const {return this->value_idx;}
 
+    int getTupleIndex() const {return this->tuple_idx;}
+
     std::string getTableName() {
         return table_name;
     }
@@ -110,6 +110,8 @@ class CompactingHashMultiMapIndex : public TableIndex
 
     bool keyUsesNonInlinedMemory() { return KeyType::keyUsesNonInlinedMemory(); }
 
+    bool keyHoldsColumnValues() const { return KeyType::keyHoldsColumnValues(); }
+
     bool checkForIndexChange(const TableTuple *lhs, const TableTuple *rhs) {
         return !(m_eq(setKeyFromTuple(lhs), setKeyFromTuple(rhs)));
     }
@@ -144,6 +146,14 @@ class CompactingHashMultiMapIndex : public TableIndex
         return retval;
     }
 
+    TableTuple nextValueAtKeyWithKey(TableTuple *keyTuple)
+    {
+        if (! m_match.isNullTuple()) {
+            m_keyIter.key().toTuple(keyTuple);
+        }
+        return nextValueAtKey();
+    }
+
     bool hasKey(const TableTuple *searchKey) {
         return ! findKey(searchKey).isEnd();
     }
@@ -51,11 +51,18 @@
 
 #include "indexes/tableindex.h"
 #include "structures/CompactingHashTable.h"
+#include "structures/BloomFilter.h"
 
 namespace voltdb {
 
 /**
  * Index implemented as a Hash Table Unique Map.
+ *
+ * When the scheme or setKeyFilter() asks for it, lookups are first
+ * checked against a Bloom filter of the keys, so most of those for keys
+ * not in the index never walk a bucket chain. The filter is sized for twice the entries
+ * it is built from and rebuilt from the hash table once the entries
+ * outgrow that, or once the keys deleted since outnumber the entries.
  * @see TableIndex
  */
 template<typename KeyType>
@@ -66,16 +73,41 @@ class CompactingHashUniqueIndex : public TableIndex
     typedef CompactingHashTable<KeyType, const void*, KeyHasher, KeyEqualityChecker> MapType;
     typedef typename MapType::iterator MapIterator;
 
+    // smallest number of keys the filter is sized for
+    static const size_t MIN_FILTER_KEYS = 1024;
+
     ~CompactingHashUniqueIndex() {};
 
     bool addEntry(const TableTuple *tuple) {
         ++m_inserts;
-        return m_entries.insert(setKeyFromTuple(tuple), tuple->address());
+        const KeyType key = setKeyFromTuple(tuple);
+        if ( ! m_entries.insert(key, tuple->address())) {
+            return false;
+        }
+        if (m_filter.isEnabled()) {
+            if (m_entries.size() + m_filterStaleKeys > m_filter.capacity()) {
+                rebuildFilter();
+            } else {
+                m_filter.add(m_entries.hash(key));
+            }
+        }
+        return true;
     }
 
     bool deleteEntry(const TableTuple *tuple) {
         ++m_deletes;
-        return m_entries.erase(setKeyFromTuple(tuple));
+        if ( ! m_entries.erase(setKeyFromTuple(tuple))) {
+            return false;
+        }
+        if (m_filter.isEnabled()) {
+            // the key's bits stay set until the next rebuild, which
+            // comes once they outnumber the keys still in the index
+            ++m_filterStaleKeys;
+            if (m_filterStaleKeys > m_entries.size() && m_filterStaleKeys > MIN_FILTER_KEYS / 2) {
+                rebuildFilter();
+            }
+        }
+        return true;
     }
 
     /**
@@ -104,6 +136,8 @@ class CompactingHashUniqueIndex : public TableIndex
 
     bool keyUsesNonInlinedMemory() { return KeyType::keyUsesNonInlinedMemory(); }
 
+    bool keyHoldsColumnValues() const { return KeyType::keyHoldsColumnValues(); }
+
     bool checkForIndexChange(const TableTuple *lhs, const TableTuple *rhs) {
         return !(m_eq(setKeyFromTuple(lhs), setKeyFromTuple(rhs)));
     }
@@ -111,12 +145,12 @@ class CompactingHashUniqueIndex : public TableIndex
     bool exists(const TableTuple *persistentTuple)
     {
         ++m_lookups;
-        return ! findTuple(*persistentTuple).isEnd();
+        return ! lookup(setKeyFromTuple(persistentTuple)).isEnd();
     }
 
     bool moveToKey(const TableTuple *searchKey) {
         ++m_lookups;
-        m_keyIter = findKey(searchKey);
+        m_keyIter = lookup(KeyType(searchKey));
         if (m_keyIter.isEnd()) {
             m_match.move(NULL);
             return false;
@@ -131,11 +165,19 @@ class CompactingHashUniqueIndex : public TableIndex
         return retval;
     }
 
+    TableTuple nextValueAtKeyWithKey(TableTuple *keyTuple)
+    {
+        if (! m_match.isNullTuple()) {
+            m_keyIter.key().toTuple(keyTuple);
+        }
+        return nextValueAtKey();
+    }
+
     TableTuple uniqueMatchingTuple(const TableTuple &searchTuple)
     {
         ++m_lookups;
         TableTuple retval(getTupleSchema());
-        const MapIterator keyIter = findTuple(searchTuple);
+        const MapIterator keyIter = lookup(setKeyFromTuple(&searchTuple));
         if ( ! keyIter.isEnd()) {
             retval.move(const_cast<void*>(keyIter.value()));
         }
@@ -143,16 +185,34 @@ class CompactingHashUniqueIndex : public TableIndex
     }
 
     bool hasKey(const TableTuple *searchKey) {
-        return ! findKey(searchKey).isEnd();
+        return ! lookup(KeyType(searchKey)).isEnd();
     }
 
     size_t getSize() const { return m_entries.size(); }
 
     int64_t getMemoryEstimate() const
     {
-        return m_entries.bytesAllocated();
+        return m_entries.bytesAllocated() + m_filter.bytes();
+    }
+
+    void setKeyFilter(int bitsPerKey)
+    {
+        if (bitsPerKey == m_scheme.keyFilterBitsPerKey) {
+            return;
+        }
+        m_scheme.keyFilterBitsPerKey = bitsPerKey;
+        if (bitsPerKey > 0) {
+            rebuildFilter();
+        } else {
+            m_filter.release();
+            m_filterStaleKeys = 0;
+        }
     }
 
+    int64_t getKeyFilterProbes() const { return m_filterProbes; }
+    int64_t getKeyFilterRejects() const { return m_filterRejects; }
+    int64_t getKeyFilterFalsePositives() const { return m_filterFalsePositives; }
+
     std::string getTypeName() const { return "CompactingHashUniqueIndex"; };
 
     TableIndex *cloneEmptyNonCountingTreeIndex() const
@@ -177,6 +237,45 @@ class CompactingHashUniqueIndex : public TableIndex
         return result;
     }
 
+    // find for the lookups, through the filter when there is one
+    MapIterator lookup(const KeyType &key)
+    {
+        if ( ! m_filter.isEnabled()) {
+            return m_entries.find(key);
+        }
+        ++m_filterProbes;
+        const uint64_t hash = m_entries.hash(key);
+        if ( ! m_filter.mayContain(hash)) {
+            ++m_filterRejects;
+            return MapIterator();
+        }
+        MapIterator iter = m_entries.findWithHash(key, hash);
+        if (iter.isEnd()) {
+            ++m_filterFalsePositives;
+        }
+        return iter;
+    }
+
+    class FilterBuilder {
+    public:
+        FilterBuilder(BloomFilter &filter) : m_filter(filter) {}
+        void operator()(uint64_t hash) { m_filter.add(hash); }
+    private:
+        BloomFilter &m_filter;
+    };
+
+    void rebuildFilter()
+    {
+        size_t capacity = m_entries.size() * 2;
+        if (capacity < MIN_FILTER_KEYS) {
+            capacity = MIN_FILTER_KEYS;
+        }
+        m_filter.reset(capacity, m_scheme.keyFilterBitsPerKey);
+        m_filterStaleKeys = 0;
+        FilterBuilder builder(m_filter);
+        m_entries.forEachHash(builder);
+    }
+
     MapType m_entries;
 
     // iteration stuff
@@ -186,13 +285,28 @@ class CompactingHashUniqueIndex : public TableIndex
     // comparison stuff
    KeyEqualityChecker m_eq;
 
+    // key filter and its counters
+    BloomFilter m_filter;
+    size_t m_filterStaleKeys;
+    int64_t m_filterProbes;
+    int64_t m_filterRejects;
+    int64_t m_filterFalsePositives;
+
 public:
     CompactingHashUniqueIndex(const TupleSchema *keySchema, const TableIndexScheme &scheme) :
         TableIndex(keySchema, scheme),
         m_entries(true, KeyHasher(keySchema), KeyEqualityChecker(keySchema)),
         m_match(getTupleSchema()),
-        m_eq(keySchema)
-    {}
+        m_eq(keySchema),
+        m_filterStaleKeys(0),
+        m_filterProbes(0),
+        m_filterRejects(0),
+        m_filterFalsePositives(0)
+    {
+        if (scheme.keyFilterBitsPerKey > 0) {
+            m_filter.reset(MIN_FILTER_KEYS, scheme.keyFilterBitsPerKey);
+        }
+    }
 };
 
 }
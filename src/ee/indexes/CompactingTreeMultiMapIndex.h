@@ -110,6 +110,8 @@ class CompactingTreeMultiMapIndex : public TableIndex
 
     bool keyUsesNonInlinedMemory() { return KeyType::keyUsesNonInlinedMemory(); }
 
+    bool keyHoldsColumnValues() const { return KeyType::keyHoldsColumnValues(); }
+
     bool checkForIndexChange(const TableTuple *lhs, const TableTuple *rhs)
     {
         return 0 != m_cmp(setKeyFromTuple(lhs), setKeyFromTuple(rhs));
@@ -176,6 +178,14 @@ class CompactingTreeMultiMapIndex : public TableIndex
         return retval;
     }
 
+    TableTuple nextValueWithKey(TableTuple *keyTuple)
+    {
+        if (! m_keyIter.isEnd()) {
+            m_keyIter.key().toTuple(keyTuple);
+        }
+        return nextValue();
+    }
+
     TableTuple nextValueAtKey()
     {
         if (m_match.isNullTuple()) {
@@ -191,6 +201,14 @@ class CompactingTreeMultiMapIndex : public TableIndex
         return retval;
     }
 
+    TableTuple nextValueAtKeyWithKey(TableTuple *keyTuple)
+    {
+        if (! m_match.isNullTuple()) {
+            m_keyIter.key().toTuple(keyTuple);
+        }
+        return nextValueAtKey();
+    }
+
     bool advanceToNextKey()
     {
         if (m_keyEndIter.isEnd()) {
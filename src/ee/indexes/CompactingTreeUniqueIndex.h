@@ -107,6 +107,8 @@ class CompactingTreeUniqueIndex : public TableIndex
 
     bool keyUsesNonInlinedMemory() { return KeyType::keyUsesNonInlinedMemory(); }
 
+    bool keyHoldsColumnValues() const { return KeyType::keyHoldsColumnValues(); }
+
     bool checkForIndexChange(const TableTuple* lhs, const TableTuple* rhs)
     {
         return  0 != m_cmp(setKeyFromTuple(lhs), setKeyFromTuple(rhs));
@@ -171,6 +173,14 @@ class CompactingTreeUniqueIndex : public TableIndex
         return retval;
     }
 
+    TableTuple nextValueWithKey(TableTuple *keyTuple)
+    {
+        if (! m_keyIter.isEnd()) {
+            m_keyIter.key().toTuple(keyTuple);
+        }
+        return nextValue();
+    }
+
     TableTuple nextValueAtKey()
     {
         TableTuple retval = m_match;
@@ -178,6 +188,14 @@ class CompactingTreeUniqueIndex : public TableIndex
         return retval;
     }
 
+    TableTuple nextValueAtKeyWithKey(TableTuple *keyTuple)
+    {
+        if (! m_match.isNullTuple()) {
+            m_keyIter.key().toTuple(keyTuple);
+        }
+        return nextValueAtKey();
+    }
+
     bool advanceToNextKey()
     {
         if (m_begin) {
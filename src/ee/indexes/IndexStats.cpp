@@ -39,6 +39,9 @@ vector<string> IndexStats::generateIndexStatsColumnNames() {
     columnNames.push_back("IS_COUNTABLE");
     columnNames.push_back("ENTRY_COUNT");
     columnNames.push_back("MEMORY_ESTIMATE");
+    columnNames.push_back("FILTER_PROBES");
+    columnNames.push_back("FILTER_REJECTS");
+    columnNames.push_back("FILTER_FALSE_POSITIVES");
 
     return columnNames;
 }
@@ -83,6 +86,13 @@ void IndexStats::populateIndexStatsSchema(
     types.push_back(VALUE_TYPE_INTEGER);
     columnLengths.push_back(NValue::getTupleStorageSize(VALUE_TYPE_INTEGER));
     allowNull.push_back(false);
+
+    // key filter probes, rejects and false positives
+    for (int ii = 0; ii < 3; ii++) {
+        types.push_back(VALUE_TYPE_BIGINT);
+        columnLengths.push_back(NValue::getTupleStorageSize(VALUE_TYPE_BIGINT));
+        allowNull.push_back(false);
+    }
 }
 
 Table*
@@ -116,7 +126,8 @@ IndexStats::generateEmptyIndexStatsTable()
  */
 IndexStats::IndexStats(TableIndex* index)
     : StatsSource(), m_index(index), m_isUnique(0), m_isCountable(0),
-      m_lastTupleCount(0), m_lastMemEstimate(0)
+      m_lastTupleCount(0), m_lastMemEstimate(0), m_lastFilterProbes(0),
+      m_lastFilterRejects(0), m_lastFilterFalsePositives(0)
 {
 }
 
@@ -166,12 +177,21 @@ void IndexStats::updateStatsTuple(TableTuple *tuple) {
     tuple->setNValue( StatsSource::m_columnName2Index["INDEX_TYPE"], m_indexType);
     int64_t count = static_cast<int64_t>(m_index->getSize());
     int64_t mem_estimate_kb = m_index->getMemoryEstimate() / 1024;
+    int64_t filterProbes = m_index->getKeyFilterProbes();
+    int64_t filterRejects = m_index->getKeyFilterRejects();
+    int64_t filterFalsePositives = m_index->getKeyFilterFalsePositives();
 
     if (interval()) {
         count = count - m_lastTupleCount;
         m_lastTupleCount = static_cast<int64_t>(m_index->getSize());
         mem_estimate_kb = mem_estimate_kb - (m_lastMemEstimate / 1024);
         m_lastMemEstimate = m_index->getMemoryEstimate();
+        filterProbes = filterProbes - m_lastFilterProbes;
+        m_lastFilterProbes = m_index->getKeyFilterProbes();
+        filterRejects = filterRejects - m_lastFilterRejects;
+        m_lastFilterRejects = m_index->getKeyFilterRejects();
+        filterFalsePositives = filterFalsePositives - m_lastFilterFalsePositives;
+        m_lastFilterFalsePositives = m_index->getKeyFilterFalsePositives();
     }
 
     if (mem_estimate_kb > INT32_MAX)
@@ -190,6 +210,12 @@ void IndexStats::updateStatsTuple(TableTuple *tuple) {
     tuple->setNValue(StatsSource::m_columnName2Index["MEMORY_ESTIMATE"],
                      ValueFactory::
                      getIntegerValue(static_cast<int32_t>(mem_estimate_kb)));
+    tuple->setNValue(StatsSource::m_columnName2Index["FILTER_PROBES"],
+                     ValueFactory::getBigIntValue(filterProbes));
+    tuple->setNValue(StatsSource::m_columnName2Index["FILTER_REJECTS"],
+                     ValueFactory::getBigIntValue(filterRejects));
+    tuple->setNValue(StatsSource::m_columnName2Index["FILTER_FALSE_POSITIVES"],
+                     ValueFactory::getBigIntValue(filterFalsePositives));
 }
 
 /**
@@ -108,6 +108,9 @@ private:
 
     int64_t m_lastTupleCount;
     int64_t m_lastMemEstimate;
+    int64_t m_lastFilterProbes;
+    int64_t m_lastFilterRejects;
+    int64_t m_lastFilterFalsePositives;
 };
 
 }
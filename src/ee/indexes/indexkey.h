@@ -46,6 +46,7 @@
 #ifndef INDEXKEY_H
 #define INDEXKEY_H
 
+#include "common/ValueFactory.hpp"
 #include "common/ValuePeeker.hpp"
 #include "common/tabletuple.h"
 
@@ -132,6 +133,7 @@ struct IntsKey
 
     static inline bool keyDependsOnTupleAddress() { return false; }
     static inline bool keyUsesNonInlinedMemory() { return false; }
+    static inline bool keyHoldsColumnValues() { return true; }
 
     /*
      * Take a value that is part of the key (already converted to a uint64_t) and inserts it into the
@@ -225,6 +227,48 @@ struct IntsKey
         return std::string(buffer.str());
     }
 
+    /*
+     * Decode the key into a key-schema tuple.
+     */
+    void toTuple(TableTuple *keyTuple) const {
+        int keyOffset = 0;
+        int intraKeyOffset = sizeof(uint64_t) - 1;
+        const TupleSchema *keySchema = keyTuple->getSchema();
+        const int columnCount = keySchema->columnCount();
+        for (int ii = 0; ii < columnCount; ii++) {
+            switch(keySchema->columnType(ii)) {
+            case voltdb::VALUE_TYPE_BIGINT: {
+                const uint64_t keyValue = extractKeyValue<uint64_t>(keyOffset, intraKeyOffset);
+                keyTuple->setNValue(ii, ValueFactory::getBigIntValue(
+                        convertUnsignedValueToSignedValue< int64_t, INT64_MAX>(keyValue)));
+                break;
+            }
+            case voltdb::VALUE_TYPE_INTEGER: {
+                const uint64_t keyValue = extractKeyValue<uint32_t>(keyOffset, intraKeyOffset);
+                keyTuple->setNValue(ii, ValueFactory::getIntegerValue(
+                        convertUnsignedValueToSignedValue< int32_t, INT32_MAX>(keyValue)));
+                break;
+            }
+            case voltdb::VALUE_TYPE_SMALLINT: {
+                const uint64_t keyValue = extractKeyValue<uint16_t>(keyOffset, intraKeyOffset);
+                keyTuple->setNValue(ii, ValueFactory::getSmallIntValue(
+                        convertUnsignedValueToSignedValue< int16_t, INT16_MAX>(keyValue)));
+                break;
+            }
+            case voltdb::VALUE_TYPE_TINYINT: {
+                const uint64_t keyValue = extractKeyValue<uint8_t>(keyOffset, intraKeyOffset);
+                keyTuple->setNValue(ii, ValueFactory::getTinyIntValue(
+                        convertUnsignedValueToSignedValue< int8_t, INT8_MAX>(keyValue)));
+                break;
+            }
+            default:
+                throwFatalException("We currently only support a specific set of column index types/sizes for IntsKeys [%s]",
+                                    getTypeName(keySchema->columnType(ii)).c_str());
+                break;
+            }
+        }
+    }
+
     IntsKey() {}
 
     IntsKey(const TableTuple *tuple) {
@@ -427,6 +471,7 @@ struct GenericKey
 
     static inline bool keyDependsOnTupleAddress() { return false; }
     static inline bool keyUsesNonInlinedMemory() { return true; } // maybe
+    static inline bool keyHoldsColumnValues() { return true; }
 
     GenericKey() {}
 
@@ -453,6 +498,12 @@ struct GenericKey
         }
     }
 
+    // The key is a key-schema tuple without a header, strings that
+    // are not inlined are copied by reference.
+    void toTuple(TableTuple *keyTuple) const {
+        ::memcpy(keyTuple->address() + TUPLE_HEADER_SIZE, data, keyTuple->getSchema()->tupleLength());
+    }
+
     // actual location of data, extends past the end.
     char data[keySize];
 };
@@ -677,6 +728,8 @@ struct TupleKey
 
     static inline bool keyDependsOnTupleAddress() { return true; }
     static inline bool keyUsesNonInlinedMemory() { return true; } // maybe
+    // the values are only reachable through the table tuple
+    static inline bool keyHoldsColumnValues() { return false; }
 
     // Set a key from a key-schema tuple.
     TupleKey(const TableTuple *tuple) {
@@ -702,6 +755,10 @@ struct TupleKey
         m_keyTupleSchema = tuple->getSchema();
     }
 
+    void toTuple(TableTuple *keyTuple) const {
+        throwFatalException("TupleKey does not hold the indexed values");
+    }
+
     // Return a table tuple that is valid for comparison
     TableTuple getTupleForComparison() const {
         return TableTuple(m_keyTuple, m_keyTupleSchema);
@@ -68,6 +68,7 @@ class AbstractExpression;
 struct TableIndexScheme {
     TableIndexScheme() {
         tupleSchema = NULL;
+        keyFilterBitsPerKey = 0;
     }
 
     TableIndexScheme(std::string a_name, TableIndexType a_type,
@@ -83,7 +84,8 @@ struct TableIndexScheme {
       unique(a_unique),
       countable(a_countable),
       expressionsAsText(a_expressionsAsText),
-      tupleSchema(a_tupleSchema)
+      tupleSchema(a_tupleSchema),
+      keyFilterBitsPerKey(0)
     {}
 
     // TODO: Remove this temporary backward-compatible test-only constructor -- this should go away soon, forcing
@@ -110,7 +112,8 @@ struct TableIndexScheme {
       unique(a_unique),
       countable(a_countable),
       expressionsAsText(""),
-      tupleSchema(a_tupleSchema)
+      tupleSchema(a_tupleSchema),
+      keyFilterBitsPerKey(0)
     {
     }
 
@@ -122,7 +125,8 @@ struct TableIndexScheme {
       unique(other.unique),
       countable(other.countable),
       expressionsAsText(other.expressionsAsText),
-      tupleSchema(other.tupleSchema)
+      tupleSchema(other.tupleSchema),
+      keyFilterBitsPerKey(other.keyFilterBitsPerKey)
     {}
 
     TableIndexScheme& operator=(const TableIndexScheme& other)
@@ -135,6 +139,7 @@ struct TableIndexScheme {
         countable = other.countable;
         expressionsAsText = other.expressionsAsText;
         tupleSchema = other.tupleSchema;
+        keyFilterBitsPerKey = other.keyFilterBitsPerKey;
         return *this;
     }
 
@@ -151,6 +156,9 @@ struct TableIndexScheme {
     bool countable;
     std::string expressionsAsText;
     const TupleSchema *tupleSchema;
+    // size of the Bloom filter a unique hash index checks lookups
+    // against, 0 for none
+    int keyFilterBitsPerKey;
 };
 
 /**
@@ -301,6 +309,35 @@ public:
      */
     virtual TableTuple nextValueAtKey() = 0;
 
+    /**
+     * Does the index key hold the values of the indexed columns so
+     * the next*WithKey() methods can hand them out without reading
+     * the table tuples?
+     */
+    virtual bool keyHoldsColumnValues() const
+    {
+        return false;
+    }
+
+    /**
+     * nextValue() that also decodes the key of the returned entry into
+     * keyTuple, a key-schema tuple with its own storage. Only for
+     * indexes whose keyHoldsColumnValues().
+     */
+    virtual TableTuple nextValueWithKey(TableTuple *keyTuple)
+    {
+        throwFatalException("Invoked TableIndex virtual method nextValueWithKey which has no implementation");
+    };
+
+    /**
+     * nextValueAtKey() that also decodes the key of the returned entry
+     * into keyTuple.
+     */
+    virtual TableTuple nextValueAtKeyWithKey(TableTuple *keyTuple)
+    {
+        throwFatalException("Invoked TableIndex virtual method nextValueAtKeyWithKey which has no implementation");
+    };
+
     /**
      * sets the tuple to point the entry next to the one found by
      * moveToKey().  calls this repeatedly to get all entries
@@ -390,11 +427,33 @@ public:
     // index.
     virtual int64_t getMemoryEstimate() const = 0;
 
+    // Bits per key of the Bloom filter unique hash indexes put in front
+    // of their lookups, when TableIndexScheme::keyFilterBitsPerKey asks for one
+    static const int DEFAULT_KEY_FILTER_BITS_PER_KEY = 10;
+
+    // Turn the key filter on with bitsPerKey bits per key, building it
+    // from the entries already there, or off with 0. Indexes that have
+    // no filter ignore it.
+    virtual void setKeyFilter(int bitsPerKey) {}
+
+    // Lookups checked against the key filter, those it answered as
+    // definite misses and those it let through that missed anyway.
+    // Zero for the indexes without a filter.
+    virtual int64_t getKeyFilterProbes() const { return 0; }
+    virtual int64_t getKeyFilterRejects() const { return 0; }
+    virtual int64_t getKeyFilterFalsePositives() const { return 0; }
+
     const std::vector<int>& getColumnIndices() const
     {
         return m_scheme.columnIndices;
     }
 
+    // Tree indexes iterate in key order, hash indexes don't
+    bool isOrderedIndex() const
+    {
+        return m_scheme.type == BALANCED_TREE_INDEX;
+    }
+
     // Provide an empty expressions vector to indicate a simple columns-only index.
     static const std::vector<AbstractExpression*>& simplyIndexColumns() {
         static std::vector<AbstractExpression*> emptyExpressionVector;
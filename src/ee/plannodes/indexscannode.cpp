@@ -87,6 +87,10 @@ SortDirectionType IndexScanPlanNode::getSortDirection() const {
     return sort_direction;
 }
 
+bool IndexScanPlanNode::isCovering() const {
+    return covering;
+}
+
 void IndexScanPlanNode::setTargetIndexName(std::string name) {
     this->target_index_name = name;
 }
@@ -124,6 +128,7 @@ std::string IndexScanPlanNode::debugInfo(const std::string &spacer) const {
     buffer << spacer << "EnableKeyIteration[" << std::boolalpha << this->key_iterate << "]\n";
     buffer << spacer << "IndexLookupType[" << this->lookup_type << "]\n";
     buffer << spacer << "SortDirection[" << this->sort_direction << "]\n";
+    buffer << spacer << "Covering[" << std::boolalpha << this->covering << "]\n";
 
     buffer << spacer << "SearchKey Expressions:\n";
     for (int ctr = 0, cnt = (int)this->searchkey_expressions.size(); ctr < cnt; ctr++) {
@@ -159,6 +164,8 @@ void IndexScanPlanNode::loadFromJSONObject(PlannerDomValue obj) {
 
     target_index_name = obj.valueForKey("TARGET_INDEX_NAME").asStr();
 
+    covering = obj.hasNonNullKey("COVERING") && obj.valueForKey("COVERING").asBool();
+
     if (obj.hasNonNullKey("END_EXPRESSION")) {
         PlannerDomValue exprValue = obj.valueForKey("END_EXPRESSION");
         end_expression = AbstractExpression::buildExpressionTree(exprValue);
@@ -63,12 +63,14 @@ class IndexScanPlanNode : public AbstractScanPlanNode {
             this->lookup_type = INDEX_LOOKUP_TYPE_EQ;
             this->sort_direction = SORT_DIRECTION_TYPE_INVALID;
             this->end_expression = NULL;
+            this->covering = false;
         }
         IndexScanPlanNode() : AbstractScanPlanNode() {
             this->key_iterate = false;
             this->lookup_type = INDEX_LOOKUP_TYPE_EQ;
             this->sort_direction = SORT_DIRECTION_TYPE_INVALID;
             this->end_expression = NULL;
+            this->covering = false;
         }
         ~IndexScanPlanNode();
         virtual PlanNodeType getPlanNodeType() const { return (PLAN_NODE_TYPE_INDEXSCAN); }
@@ -82,6 +84,8 @@ class IndexScanPlanNode : public AbstractScanPlanNode {
         void setSortDirection(SortDirectionType val);
         SortDirectionType getSortDirection() const;
 
+        bool isCovering() const;
+
         void setTargetIndexName(std::string name);
         std::string getTargetIndexName() const;
 
@@ -120,6 +124,10 @@ class IndexScanPlanNode : public AbstractScanPlanNode {
         // Sorting Direction
         //
         SortDirectionType sort_direction;
+        //
+        // Only columns of the index key are read
+        //
+        bool covering;
 };
 
 }
@@ -176,6 +176,25 @@ bool PlanNodeFragment::hasDelete() const
     return has_delete;
 }
 
+bool PlanNodeFragment::isReadOnly() const
+{
+    const PlanNodeType dmlTypes[] = { PLAN_NODE_TYPE_INSERT,
+                                      PLAN_NODE_TYPE_UPDATE,
+                                      PLAN_NODE_TYPE_DELETE };
+    for (int ii = 0; ii < m_planNodes.size(); ii++)
+    {
+        for (int jj = 0; jj < sizeof(dmlTypes) / sizeof(dmlTypes[0]); jj++)
+        {
+            if (m_planNodes[ii]->getPlanNodeType() == dmlTypes[jj] ||
+                m_planNodes[ii]->getInlinePlanNode(dmlTypes[jj]) != NULL)
+            {
+                return false;
+            }
+        }
+    }
+    return true;
+}
+
 std::string PlanNodeFragment::debug() {
     std::ostringstream buffer;
     buffer << "Execute List:\n";
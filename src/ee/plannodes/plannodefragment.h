@@ -96,6 +96,10 @@ class PlanNodeFragment {
     // as part of the horrible ENG-1333 hack.
     bool hasDelete() const;
 
+    // true if no plan node of this fragment, inline or not, modifies a
+    // persistent table
+    bool isReadOnly() const;
+
     // produce a string describing pnf's content
     std::string debug();
 
@@ -17,7 +17,10 @@
 
 #include <cassert>
 #include <cstdio>
+#include <algorithm>
 #include "boost/shared_array.hpp"
+#include "boost/scoped_array.hpp"
+#include "boost/scoped_ptr.hpp"
 #include "common/types.h"
 #include "common/PlannerDomValue.h"
 #include "common/FatalException.hpp"
@@ -29,13 +32,15 @@
 #include "expressions/abstractexpression.h"
 #include "indexes/tableindex.h"
 #include "storage/persistenttable.h"
+#include "storage/tableiterator.h"
 #include "storage/MaterializedViewMetadata.h"
 
 namespace voltdb {
 
 MaterializedViewMetadata::MaterializedViewMetadata(
         PersistentTable *srcTable, PersistentTable *destTable, catalog::MaterializedViewInfo *metadata)
-        : m_target(destTable), m_filterPredicate(NULL)
+        : m_source(srcTable), m_target(destTable), m_filterPredicate(NULL),
+          m_indexRecomputes(0), m_scanRecomputes(0)
 {
 DEBUG_STREAM_HERE("New mat view on source table " << srcTable->name() << " @" << srcTable << " view table " << m_target->name() << " @" << m_target);
     // best not to have to worry about the destination table disappearing out from under the source table that feeds it.
@@ -211,6 +216,21 @@ void MaterializedViewMetadata::processTupleInsert(TableTuple &newTuple, bool fal
         else if (m_outputColumnAggTypes[i] == EXPRESSION_TYPE_AGGREGATE_COUNT) {
             m_updatedTuple.setNValue(i, existingValue.op_increment());
         }
+        else if (m_outputColumnAggTypes[i] == EXPRESSION_TYPE_AGGREGATE_MIN ||
+                 m_outputColumnAggTypes[i] == EXPRESSION_TYPE_AGGREGATE_MAX) {
+            // NULLs don't count, the first value of a group is its MIN and MAX
+            if (!exists || existingValue.isNull()) {
+                m_updatedTuple.setNValue(i, newValue);
+            }
+            else if (newValue.isNull()) {
+                m_updatedTuple.setNValue(i, existingValue);
+            }
+            else {
+                int cmp = newValue.compare(existingValue);
+                bool replace = (m_outputColumnAggTypes[i] == EXPRESSION_TYPE_AGGREGATE_MIN) ? cmp < 0 : cmp > 0;
+                m_updatedTuple.setNValue(i, replace ? newValue : existingValue);
+            }
+        }
         else {
             char message[128];
             snprintf(message, 128, "Error in materialized view table update for"
@@ -282,6 +302,16 @@ void MaterializedViewMetadata::processTupleDelete(TableTuple &oldTuple, bool fal
         else if (m_outputColumnAggTypes[i] == EXPRESSION_TYPE_AGGREGATE_COUNT) {
             m_updatedTuple.setNValue(i, existingValue.op_decrement());
         }
+        else if (m_outputColumnAggTypes[i] == EXPRESSION_TYPE_AGGREGATE_MIN ||
+                 m_outputColumnAggTypes[i] == EXPRESSION_TYPE_AGGREGATE_MAX) {
+            // only deleting the current value changes it, ties included
+            if (!oldValue.isNull() && oldValue.compare(existingValue) == 0) {
+                m_updatedTuple.setNValue(i, recomputeMinMax(oldTuple, i));
+            }
+            else {
+                m_updatedTuple.setNValue(i, existingValue);
+            }
+        }
         else {
             throw SerializableEEException(VOLT_EE_EXCEPTION_TYPE_EEEXCEPTION,
                                           "Error in materialized view table"
@@ -294,6 +324,106 @@ void MaterializedViewMetadata::processTupleDelete(TableTuple &oldTuple, bool fal
     m_target->updateTupleWithSpecificIndexes(m_existingTuple, m_updatedTuple, m_emptyIndexUpdateList, fallible);
 }
 
+NValue MaterializedViewMetadata::recomputeMinMax(TableTuple &oldTuple, int colindex) {
+    const bool isMin = m_outputColumnAggTypes[colindex] == EXPRESSION_TYPE_AGGREGATE_MIN;
+    const int32_t srcColumn = m_outputColumnSrcTableIndexes[colindex];
+    const NValue oldValue = oldTuple.getNValue(srcColumn);
+    NValue result = NValue::getNullValue(m_target->schema()->columnType(colindex));
+
+    // oldTuple is out of the indexes by now, except for an update that
+    // leaves their keys alone, or still in the table, so skip it by address
+    TableIndex *index = findMinMaxIndex(srcColumn);
+    if (index != NULL) {
+        m_indexRecomputes++;
+        const TupleSchema *keySchema = index->getKeySchema();
+        boost::scoped_array<char> keyStorage(new char[keySchema->tupleLength() + 1]);
+        memset(keyStorage.get(), 0, keySchema->tupleLength() + 1);
+        TableTuple searchKey(keyStorage.get(), keySchema);
+        searchKey.setAllNulls();
+        const std::vector<int> &keyColumns = index->getColumnIndices();
+        for (int i = 0; i < m_groupByColumnCount; i++) {
+            searchKey.setNValue(i, oldTuple.getNValue(keyColumns[i]));
+        }
+        // the new MIN is at or after the old one, the new MAX anywhere
+        // before it, the index only goes forward so MAX reads the group
+        if (isMin) {
+            searchKey.setNValue(m_groupByColumnCount, oldValue);
+        }
+        index->moveToKeyOrGreater(&searchKey);
+
+        TableTuple tuple;
+        while (!(tuple = index->nextValue()).isNullTuple() && sameGroup(tuple, oldTuple)) {
+            if (tuple.address() == oldTuple.address()) {
+                continue;
+            }
+            NValue value = tuple.getNValue(srcColumn);
+            if (value.isNull() ||
+                (m_filterPredicate && m_filterPredicate->eval(&tuple, NULL).isFalse())) {
+                continue;
+            }
+            result = value;
+            if (isMin || value.compare(oldValue) == 0) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    m_scanRecomputes++;
+    boost::scoped_ptr<TableIterator> iterator(m_source->makeIterator());
+    TableTuple tuple(m_source->schema());
+    while (iterator->next(tuple)) {
+        if (tuple.address() == oldTuple.address() || !sameGroup(tuple, oldTuple)) {
+            continue;
+        }
+        NValue value = tuple.getNValue(srcColumn);
+        if (value.isNull() ||
+            (m_filterPredicate && m_filterPredicate->eval(&tuple, NULL).isFalse())) {
+            continue;
+        }
+        if (result.isNull() || (isMin ? value.compare(result) < 0 : value.compare(result) > 0)) {
+            result = value;
+            // a tie with the deleted value can't be beaten
+            if (value.compare(oldValue) == 0) {
+                break;
+            }
+        }
+    }
+    return result;
+}
+
+TableIndex *MaterializedViewMetadata::findMinMaxIndex(int32_t srcColumn) const {
+    std::vector<TableIndex*> indexes = m_source->allIndexes();
+    for (int i = 0; i < indexes.size(); i++) {
+        TableIndex *index = indexes[i];
+        const std::vector<int> &keyColumns = index->getColumnIndices();
+        if (!index->isOrderedIndex() ||
+            !index->getIndexedExpressions().empty() ||
+            keyColumns.size() <= m_groupByColumnCount ||
+            keyColumns[m_groupByColumnCount] != srcColumn) {
+            continue;
+        }
+        bool matches = true;
+        for (int k = 0; k < m_groupByColumnCount && matches; k++) {
+            matches = std::find(m_groupByColumns, m_groupByColumns + m_groupByColumnCount,
+                                keyColumns[k]) != m_groupByColumns + m_groupByColumnCount;
+        }
+        if (matches) {
+            return index;
+        }
+    }
+    return NULL;
+}
+
+bool MaterializedViewMetadata::sameGroup(const TableTuple &tuple, const TableTuple &other) const {
+    for (int i = 0; i < m_groupByColumnCount; i++) {
+        if (tuple.getNValue(m_groupByColumns[i]).compare(other.getNValue(m_groupByColumns[i])) != 0) {
+            return false;
+        }
+    }
+    return true;
+}
+
 bool MaterializedViewMetadata::findExistingTuple(TableTuple &oldTuple, bool expected) {
     // find the key for this tuple (which is the group by columns)
     for (int i = 0; i < m_groupByColumnCount; i++) {
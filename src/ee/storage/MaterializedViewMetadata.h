@@ -55,8 +55,17 @@ public:
     void processTupleDelete(TableTuple &oldTuple, bool fallible);
 
     PersistentTable * targetTable() const { return m_target; }
+    PersistentTable * sourceTable() const { return m_source; }
 
     void setTargetTable(PersistentTable * target);
+
+    /**
+     * Times the MIN or MAX of a group was deleted and found again among
+     * the rows left, through a tree index on the source table or by
+     * scanning it, since the view was defined.
+     */
+    int64_t getIndexRecomputes() const { return m_indexRecomputes; }
+    int64_t getScanRecomputes() const { return m_scanRecomputes; }
 private:
 
     void freeBackedTuples();
@@ -71,6 +80,24 @@ private:
      */
     bool findExistingTuple(TableTuple &oldTuple, bool expected = false);
 
+    /**
+     * The MIN or MAX of view column colindex over the rows of the group of
+     * oldTuple other than oldTuple itself, which is being deleted and held
+     * the current value. NULL if none of those rows has a value.
+     */
+    NValue recomputeMinMax(TableTuple &oldTuple, int colindex);
+
+    /**
+     * A tree index on the source table whose key starts with the group by
+     * columns, in any order, followed by srcColumn. NULL if there is none.
+     */
+    TableIndex *findMinMaxIndex(int32_t srcColumn) const;
+
+    /** the group of tuple has the same group by values as that of other */
+    bool sameGroup(const TableTuple &tuple, const TableTuple &other) const;
+
+    // the table the view aggregates
+    PersistentTable *m_source;
     // the materialized view table
     PersistentTable *m_target;
     // space to hold the search key for the view table
@@ -107,6 +134,10 @@ private:
 
     // empty vector to tell the target table not to update indexes
     std::vector<TableIndex*> m_emptyIndexUpdateList;
+
+    // MIN and MAX recomputes after deleting the current value
+    int64_t m_indexRecomputes;
+    int64_t m_scanRecomputes;
 };
 
 } // namespace voltdb
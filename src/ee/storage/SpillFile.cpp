@@ -0,0 +1,143 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#include "storage/SpillFile.h"
+
+#include "common/SerializableEEException.h"
+
+#include <algorithm>
+#include <cassert>
+#include <cerrno>
+#include <cstdio>
+#include <cstdlib>
+#include <cstring>
+#include <unistd.h>
+#include <vector>
+
+using namespace voltdb;
+
+// Writes are buffered up to this many bytes (or one tuple, if larger)
+static const size_t SPILL_BUFFER_SIZE = 256 * 1024;
+
+static void throwSpillError(const std::string &what)
+{
+    char msg[1024];
+    snprintf(msg, 1024, "Temp table spill file %s failed: %s",
+             what.c_str(), strerror(errno));
+    throw SerializableEEException(VOLT_EE_EXCEPTION_TYPE_EEEXCEPTION, msg);
+}
+
+SpillFile::SpillFile(const TupleSchema *schema, const std::string &directory)
+    : m_tupleLength(schema->tupleLength() + TUPLE_HEADER_SIZE),
+      m_fd(-1),
+      m_tupleCount(0),
+      m_buffered(0),
+      m_bufferSize(std::max(SPILL_BUFFER_SIZE, m_tupleLength))
+{
+    std::string path = (directory.empty() ? std::string(".") : directory) + "/volt_spill_XXXXXX";
+    std::vector<char> name(path.begin(), path.end());
+    name.push_back('\0');
+    m_fd = mkstemp(&name[0]);
+    if (m_fd < 0) {
+        throwSpillError("creation in " + directory);
+    }
+    unlink(&name[0]);
+    m_buffer.reset(new char[m_bufferSize]);
+}
+
+SpillFile::~SpillFile()
+{
+    if (m_fd >= 0) {
+        close(m_fd);
+    }
+}
+
+void SpillFile::append(const TableTuple &tuple)
+{
+    if (m_buffered + m_tupleLength > m_bufferSize) {
+        flush();
+    }
+    ::memcpy(m_buffer.get() + m_buffered, tuple.address(), m_tupleLength);
+    m_buffered += m_tupleLength;
+    ++m_tupleCount;
+}
+
+void SpillFile::flush()
+{
+    write(m_buffer.get(), m_buffered);
+    m_buffered = 0;
+}
+
+void SpillFile::write(const char *data, size_t length)
+{
+    while (length > 0) {
+        ssize_t written = ::write(m_fd, data, length);
+        if (written < 0) {
+            if (errno == EINTR) {
+                continue;
+            }
+            throwSpillError("write");
+        }
+        data += written;
+        length -= written;
+    }
+}
+
+void SpillFile::read(char *data, size_t length, int64_t offset) const
+{
+    while (length > 0) {
+        ssize_t got = ::pread(m_fd, data, length, offset);
+        if (got < 0 && errno == EINTR) {
+            continue;
+        }
+        if (got <= 0) {
+            throwSpillError("read");
+        }
+        data += got;
+        length -= got;
+        offset += got;
+    }
+}
+
+SpillFile::Reader::Reader(const SpillFile &file, int64_t first, int64_t count, int bufferTuples)
+    : m_file(file),
+      m_next(first),
+      m_end(first + count),
+      m_bufferTuples(std::max(bufferTuples, 1)),
+      m_buffer(new char[m_bufferTuples * file.m_tupleLength]),
+      m_buffered(0),
+      m_position(0)
+{
+    assert(m_end <= file.m_tupleCount);
+    assert(file.m_buffered == 0);
+}
+
+bool SpillFile::Reader::next(TableTuple &tuple)
+{
+    if (m_position == m_buffered) {
+        if (m_next == m_end) {
+            return false;
+        }
+        m_buffered = static_cast<int>(std::min(static_cast<int64_t>(m_bufferTuples), m_end - m_next));
+        m_file.read(m_buffer.get(), m_buffered * m_file.m_tupleLength, m_next * m_file.m_tupleLength);
+        m_next += m_buffered;
+        m_position = 0;
+    }
+    tuple.move(m_buffer.get() + m_position * m_file.m_tupleLength);
+    ++m_position;
+    return true;
+}
@@ -0,0 +1,98 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#ifndef _EE_STORAGE_SPILLFILE_H_
+#define _EE_STORAGE_SPILLFILE_H_
+
+#include "common/tabletuple.h"
+
+#include <boost/scoped_array.hpp>
+#include <boost/utility.hpp>
+#include <stdint.h>
+#include <string>
+
+namespace voltdb
+{
+    /**
+     * A temporary file of the raw storage of temp table tuples, for
+     * executors whose working set is too large to hold in memory.
+     *
+     * Tuples are written as they sit in the temp table, so uninlined
+     * columns are written as pointers to storage that is still owned by
+     * a persistent table or the temp string pool.  A spill file is only
+     * valid for the duration of the read-only fragment that wrote it.
+     *
+     * The file is unlinked as soon as it is created and goes away when
+     * the SpillFile is destroyed or the process exits.
+     */
+    class SpillFile : boost::noncopyable
+    {
+    public:
+        /**
+         * Create an empty file in the given directory.  Throws a
+         * SerializableEEException if the file can't be created.
+         */
+        SpillFile(const TupleSchema *schema, const std::string &directory);
+        ~SpillFile();
+
+        /** Append a copy of the tuple's storage */
+        void append(const TableTuple &tuple);
+        /** Write out what append() has buffered */
+        void flush();
+
+        int64_t tupleCount() const { return m_tupleCount; }
+        int64_t byteCount() const { return m_tupleCount * m_tupleLength; }
+
+        /**
+         * Reads a range of the tuples back in the order they were
+         * appended.  The file must have been flushed.
+         */
+        class Reader : boost::noncopyable
+        {
+        public:
+            Reader(const SpillFile &file, int64_t first, int64_t count, int bufferTuples);
+
+            /**
+             * Point the tuple at the next one in the range.  The storage
+             * stays valid until the following call to next().
+             */
+            bool next(TableTuple &tuple);
+
+        private:
+            const SpillFile &m_file;
+            int64_t m_next;
+            const int64_t m_end;
+            const int m_bufferTuples;
+            boost::scoped_array<char> m_buffer;
+            int m_buffered;
+            int m_position;
+        };
+
+    private:
+        void write(const char *data, size_t length);
+        void read(char *data, size_t length, int64_t offset) const;
+
+        const size_t m_tupleLength;
+        int m_fd;
+        int64_t m_tupleCount;
+        boost::scoped_array<char> m_buffer;
+        size_t m_buffered;
+        const size_t m_bufferSize;
+    };
+}
+
+#endif // _EE_STORAGE_SPILLFILE_H_
@@ -0,0 +1,114 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#include "storage/StringDictionary.h"
+
+#include <cstring>
+#include <vector>
+
+#include "common/NValue.hpp"
+#include "common/StringRef.h"
+#include "common/ValuePeeker.hpp"
+#include "murmur3/MurmurHash3.h"
+
+namespace voltdb {
+
+// fewest entries a sweep is worth walking the dictionary for
+static const size_t MIN_SWEEP_THRESHOLD = 1024;
+
+static inline NValue entryValue(StringRef *sref) {
+    return NValue::deserializeFromTupleStorage(&sref, VALUE_TYPE_VARCHAR, false);
+}
+
+StringDictionary::StringDictionary()
+    : m_entries(), m_sweepThreshold(MIN_SWEEP_THRESHOLD), m_bytes(0)
+{
+}
+
+StringDictionary::~StringDictionary()
+{
+    for (EntryMap::iterator it = m_entries.begin(); it != m_entries.end(); ++it) {
+        release(it->second);
+    }
+}
+
+uint64_t StringDictionary::hash(const char *data, int32_t length)
+{
+    int64_t out[2];
+    MurmurHash3_x64_128(data, length, 0, out);
+    return static_cast<uint64_t>(out[0]);
+}
+
+StringRef* StringDictionary::intern(StringRef *fresh)
+{
+    if (fresh == NULL) {
+        return NULL;
+    }
+    const NValue value = entryValue(fresh);
+    const int32_t length = ValuePeeker::peekObjectLength(value);
+    const char *data = reinterpret_cast<const char*>(ValuePeeker::peekObjectValue(value));
+    const uint64_t h = hash(data, length);
+
+    std::pair<EntryMap::iterator, EntryMap::iterator> range = m_entries.equal_range(h);
+    for (EntryMap::iterator it = range.first; it != range.second; ++it) {
+        StringRef *entry = it->second;
+        const NValue entryVal = entryValue(entry);
+        if (ValuePeeker::peekObjectLength(entryVal) == length &&
+            ::memcmp(ValuePeeker::peekObjectValue(entryVal), data, length) == 0) {
+            ++entry->m_refCount;
+            StringRef::destroy(fresh);
+            return entry;
+        }
+    }
+
+    if (m_entries.size() >= m_sweepThreshold) {
+        sweep();
+    }
+    fresh->m_shared = true;
+    fresh->m_refCount = 1;
+    m_entries.insert(std::make_pair(h, fresh));
+    m_bytes += static_cast<int64_t>(StringRef::computeStringMemoryUsed(length));
+    return fresh;
+}
+
+void StringDictionary::sweep()
+{
+    std::vector<EntryMap::iterator> unreferenced;
+    for (EntryMap::iterator it = m_entries.begin(); it != m_entries.end(); ++it) {
+        if (it->second->m_refCount == 0) {
+            unreferenced.push_back(it);
+        }
+    }
+    for (size_t ii = 0; ii < unreferenced.size(); ii++) {
+        release(unreferenced[ii]->second);
+        m_entries.erase(unreferenced[ii]);
+    }
+    m_sweepThreshold = m_entries.size() * 2;
+    if (m_sweepThreshold < MIN_SWEEP_THRESHOLD) {
+        m_sweepThreshold = MIN_SWEEP_THRESHOLD;
+    }
+}
+
+void StringDictionary::release(StringRef *entry)
+{
+    m_bytes -= static_cast<int64_t>(StringRef::computeStringMemoryUsed(
+        ValuePeeker::peekObjectLength(entryValue(entry))));
+    entry->m_shared = false;
+    StringRef::destroy(entry);
+}
+
+}
@@ -0,0 +1,80 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#ifndef _EE_STORAGE_STRINGDICTIONARY_H_
+#define _EE_STORAGE_STRINGDICTIONARY_H_
+
+#include <stdint.h>
+#include <cstddef>
+#include <boost/unordered_map.hpp>
+
+namespace voltdb {
+
+class StringRef;
+
+/**
+ * The distinct values of a dictionary encoded column. Tuples with equal
+ * values point at the same StringRef, so the value is stored once and
+ * the pointer serves as its id: values of the column are equal exactly
+ * when their pointers are. Comparisons and hashing still read the bytes,
+ * since parameters, constants and other tables' values are not interned.
+ *
+ * Each entry counts the tuples (and undo actions) referencing it,
+ * StringRef::destroy only drops one of those references. Entries no
+ * one references are freed by sweep(), which intern() calls once the
+ * dictionary has doubled since the last one.
+ */
+class StringDictionary {
+  public:
+    StringDictionary();
+    /** Frees every entry, the tuples using them must be gone */
+    ~StringDictionary();
+
+    /**
+     * Take over a string just allocated for a tuple of the table and
+     * return the entry for its value, which is fresh itself when the
+     * value is new. NULL stays NULL.
+     */
+    StringRef* intern(StringRef *fresh);
+
+    /** Free the entries no tuple references anymore */
+    void sweep();
+
+    /** Entries, including unreferenced ones not swept yet */
+    size_t size() const { return m_entries.size(); }
+
+    /** Memory used by the entries, as StringRef::computeStringMemoryUsed counts it */
+    int64_t bytes() const { return m_bytes; }
+
+  private:
+    // no copy, no assignment
+    StringDictionary(StringDictionary const&);
+    StringDictionary operator=(StringDictionary const&);
+
+    static uint64_t hash(const char *data, int32_t length);
+
+    void release(StringRef *entry);
+
+    typedef boost::unordered_multimap<uint64_t, StringRef*> EntryMap;
+    EntryMap m_entries;
+    size_t m_sweepThreshold;
+    int64_t m_bytes;
+};
+
+}
+
+#endif // _EE_STORAGE_STRINGDICTIONARY_H_
@@ -362,6 +362,21 @@ Table *TableCatalogDelegate::constructTableFromCatalog(catalog::Database const &
                                                     partitionColumnIndex, exportEnabled,
                                                     tableIsExportOnly);
 
+    // export only tables keep no tuples to encode
+    PersistentTable *persistentTable = dynamic_cast<PersistentTable*>(table);
+    if (persistentTable != NULL) {
+        for (col_iterator = catalogTable.columns().begin();
+             col_iterator != catalogTable.columns().end();
+             col_iterator++)
+        {
+            const catalog::Column *catalog_column = col_iterator->second;
+            if (catalog_column->dictionaryencoded() &&
+                ! schema->columnIsInlined(catalog_column->index())) {
+                persistentTable->setDictionaryEncodedColumn(catalog_column->index());
+            }
+        }
+    }
+
     // add a pkey index if one exists
     if (pkey_index_id.size() != 0) {
         TableIndex *pkeyIndex = TableIndexFactory::getInstance(pkey_index_scheme);
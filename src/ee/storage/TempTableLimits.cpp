@@ -20,6 +20,7 @@
 #include "common/SQLException.h"
 #include "logging/LogManager.h"
 
+#include <cassert>
 #include <cstdio>
 
 using namespace voltdb;
@@ -28,7 +29,8 @@ TempTableLimits::TempTableLimits()
     : m_currMemoryInBytes(0),
       m_logThreshold(-1),
       m_memoryLimit(1024 * 1024 * 100),
-      m_logLatch(false)
+      m_logLatch(false),
+      m_spill(NULL)
 {
 }
 
@@ -99,3 +101,44 @@ TempTableLimits::getMemoryLimit() const
 {
     return m_memoryLimit;
 }
+
+void
+TempTableLimits::setSpill(TempTableSpill *spill)
+{
+    m_spill = spill;
+}
+
+bool
+TempTableLimits::shouldSpill(int64_t bytes) const
+{
+    return m_spill != NULL && m_spill->threshold > 0 && bytes > m_spill->threshold;
+}
+
+int64_t
+TempTableLimits::getSpillThreshold() const
+{
+    return m_spill != NULL ? m_spill->threshold : -1;
+}
+
+const std::string&
+TempTableLimits::getSpillDirectory() const
+{
+    assert(m_spill != NULL);
+    return m_spill->directory;
+}
+
+void
+TempTableLimits::spilled(const char *what, int64_t files, int64_t tuples, int64_t bytes)
+{
+    assert(m_spill != NULL);
+    ++m_spill->spills;
+    m_spill->files += files;
+    m_spill->tuples += tuples;
+    m_spill->bytes += bytes;
+    char msg[1024];
+    snprintf(msg, 1024,
+             "%s spilled %jd tuples (%jd KB) to %jd files in %s while executing SQL.",
+             what, (intmax_t)tuples, (intmax_t)(bytes / 1024), (intmax_t)files,
+             m_spill->directory.c_str());
+    LogManager::getThreadLogger(LOGGERID_SQL)->log(LOGLEVEL_INFO, msg);
+}
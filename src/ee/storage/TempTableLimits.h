@@ -19,9 +19,34 @@
 #define _EE_STORAGE_TEMPTABLELIMITS_H_
 
 #include <stdint.h>
+#include <string>
 
 namespace voltdb
 {
+    /**
+     * Engine wide settings and counters for temp results that executors
+     * move to disk instead of holding in memory.  A threshold of zero or
+     * less disables spilling.
+     */
+    struct TempTableSpill
+    {
+        TempTableSpill()
+            : threshold(-1), spills(0), files(0), tuples(0), bytes(0)
+        {
+        }
+
+        // The working set, in bytes, above which an executor spills
+        int64_t threshold;
+        // Where the spill files are created
+        std::string directory;
+        // Number of executions that spilled
+        int64_t spills;
+        // Number of sorted runs or partitions written
+        int64_t files;
+        int64_t tuples;
+        int64_t bytes;
+    };
+
     /**
      * Track the amount of memory used for the temp tables contained
      * within a plan fragment's executors.  Log or throw exceptions
@@ -47,6 +72,24 @@ namespace voltdb
         void setMemoryLimit(int64_t limit);
         int64_t getMemoryLimit() const;
 
+        /**
+         * Let the executors of this fragment spill under the given
+         * settings.  NULL, the default, keeps everything in memory.
+         */
+        void setSpill(TempTableSpill *spill);
+        /**
+         * True if a working set of the given size should be moved to
+         * disk rather than kept in memory.
+         */
+        bool shouldSpill(int64_t bytes) const;
+        int64_t getSpillThreshold() const;
+        const std::string& getSpillDirectory() const;
+        /**
+         * Count an execution that spilled and log it at INFO level to
+         * the SQL instance.
+         */
+        void spilled(const char *what, int64_t files, int64_t tuples, int64_t bytes);
+
     private:
         // The current amount of memory used by temp tables for this
         // plan fragment
@@ -61,6 +104,8 @@ namespace voltdb
         // True if we have already generated a log message for
         // exceeding the log threshold and not yet dropped below it.
         bool m_logLatch;
+        // Spill settings shared with the engine, NULL if spilling is off
+        TempTableSpill *m_spill;
     };
 }
 
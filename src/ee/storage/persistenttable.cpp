@@ -72,6 +72,7 @@
 #include "storage/PersistentTableUndoUpdateAction.h"
 #include "storage/ConstraintFailureException.h"
 #include "storage/MaterializedViewMetadata.h"
+#include "storage/StringDictionary.h"
 #include "storage/CopyOnWriteContext.h"
 #include "storage/tableiterator.h"
 
@@ -120,6 +121,10 @@ PersistentTable::~PersistentTable()
         delete m_views[i];
     }
 
+    // the tuples let go of the dictionary entries above
+    for (int i = 0; i < m_dictionaries.size(); i++) {
+        delete m_dictionaries[i];
+    }
 }
 
 // ------------------------------------------------------------------
@@ -239,7 +244,8 @@ void PersistentTable::insertPersistentTuple(TableTuple &source, bool fallible)
     //
     target.copyForPersistentInsert(source); // tuple in freelist must be already cleared
     if (m_schema->getUninlinedObjectColumnCount() != 0) {
-        increaseStringMemCount(target.getNonInlinedMemorySize());
+        internDictionaryColumns(target);
+        increaseStringMemCount(tupleStringMemorySize(target));
     }
 
     target.setActiveTrue();
@@ -386,8 +392,8 @@ bool PersistentTable::updateTupleWithSpecificIndexes(TableTuple &targetTupleToUp
     }
 
     if (m_schema->getUninlinedObjectColumnCount() != 0) {
-        decreaseStringMemCount(targetTupleToUpdate.getNonInlinedMemorySize());
-        increaseStringMemCount(sourceTupleWithNewValues.getNonInlinedMemorySize());
+        decreaseStringMemCount(tupleStringMemorySize(targetTupleToUpdate));
+        increaseStringMemCount(tupleStringMemorySize(sourceTupleWithNewValues));
     }
 
     // TODO: This is a little messed up.
@@ -414,6 +420,9 @@ bool PersistentTable::updateTupleWithSpecificIndexes(TableTuple &targetTupleToUp
 
     // this is the actual write of the new values
     targetTupleToUpdate.copyForPersistentUpdate(sourceTupleWithNewValues, oldObjects, newObjects);
+    if ( ! newObjects.empty()) {
+        internDictionaryColumns(targetTupleToUpdate, &newObjects);
+    }
 
     if (uq) {
         /*
@@ -490,8 +499,8 @@ void PersistentTable::updateTupleForUndo(char* tupleWithUnwantedValues,
 
     if (m_schema->getUninlinedObjectColumnCount() != 0)
     {
-        decreaseStringMemCount(targetTupleToUpdate.getNonInlinedMemorySize());
-        increaseStringMemCount(sourceTupleWithNewValues.getNonInlinedMemorySize());
+        decreaseStringMemCount(tupleStringMemorySize(targetTupleToUpdate));
+        increaseStringMemCount(tupleStringMemorySize(sourceTupleWithNewValues));
     }
 
     bool dirty = targetTupleToUpdate.isDirty();
@@ -724,6 +733,67 @@ bool PersistentTable::checkNulls(TableTuple &tuple) const {
     return true;
 }
 
+void PersistentTable::setDictionaryEncodedColumn(int columnIndex)
+{
+    assert(m_tupleCount == 0);
+    assert( ! m_schema->columnIsInlined(columnIndex));
+    if (columnIsDictionaryEncoded(columnIndex)) {
+        return;
+    }
+    m_dictionaryColumns.push_back(columnIndex);
+    m_dictionaries.push_back(new StringDictionary());
+}
+
+bool PersistentTable::columnIsDictionaryEncoded(int columnIndex) const
+{
+    return dictionary(columnIndex) != NULL;
+}
+
+const StringDictionary* PersistentTable::dictionary(int columnIndex) const
+{
+    for (int i = 0; i < m_dictionaryColumns.size(); i++) {
+        if (m_dictionaryColumns[i] == columnIndex) {
+            return m_dictionaries[i];
+        }
+    }
+    return NULL;
+}
+
+void PersistentTable::internDictionaryColumns(TableTuple &tuple, std::vector<char*> *newObjects)
+{
+    for (int i = 0; i < m_dictionaryColumns.size(); i++) {
+        StringRef **column = reinterpret_cast<StringRef**>(tuple.getDataPtr(m_dictionaryColumns[i]));
+        std::vector<char*>::iterator newObject;
+        if (newObjects != NULL) {
+            newObject = std::find(newObjects->begin(), newObjects->end(),
+                                  reinterpret_cast<char*>(*column));
+            if (newObject == newObjects->end()) {
+                // the column kept its value
+                continue;
+            }
+        }
+        StringDictionary *dictionary = m_dictionaries[i];
+        const int64_t bytes = dictionary->bytes();
+        *column = dictionary->intern(*column);
+        m_nonInlinedMemorySize += dictionary->bytes() - bytes;
+        if (newObjects != NULL) {
+            *newObject = reinterpret_cast<char*>(*column);
+        }
+    }
+}
+
+size_t PersistentTable::tupleStringMemorySize(const TableTuple &tuple) const
+{
+    size_t bytes = tuple.getNonInlinedMemorySize();
+    for (int i = 0; i < m_dictionaryColumns.size(); i++) {
+        const NValue value = tuple.getNValue(m_dictionaryColumns[i]);
+        if ( ! value.isNull()) {
+            bytes -= StringRef::computeStringMemoryUsed(ValuePeeker::peekObjectLength(value));
+        }
+    }
+    return bytes;
+}
+
 /*
  * claim ownership of a view. table is responsible for this view*
  */
@@ -880,7 +950,8 @@ void PersistentTable::processLoadedTuple(TableTuple &tuple,
     // Do this before unique constraints which might roll back the memory
     if (m_schema->getUninlinedObjectColumnCount() != 0)
     {
-        increaseStringMemCount(tuple.getNonInlinedMemorySize());
+        internDictionaryColumns(tuple);
+        increaseStringMemCount(tupleStringMemorySize(tuple));
     }
 
     if (!tryInsertOnAllIndexes(&tuple)) {
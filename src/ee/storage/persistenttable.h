@@ -84,6 +84,7 @@ class RecoveryProtoMsg;
 class TupleOutputStreamProcessor;
 class ReferenceSerializeInput;
 class ElasticScanner;
+class StringDictionary;
 
 
 /**
@@ -213,8 +214,18 @@ class PersistentTable : public Table, public UndoQuantumReleaseInterest,
      */
     TableTuple& getTempTupleInlined(TableTuple &source);
 
+    /**
+     * Store the distinct values of a non-inlined string column once,
+     * shared by the tuples holding them. Set before any tuple is inserted.
+     */
+    void setDictionaryEncodedColumn(int columnIndex);
+    bool columnIsDictionaryEncoded(int columnIndex) const;
+    /** The dictionary of an encoded column, NULL for the other columns */
+    const StringDictionary* dictionary(int columnIndex) const;
+
     /** Add/drop/list materialized views to this table */
     void addMaterializedView(MaterializedViewMetadata *view);
+    const std::vector<MaterializedViewMetadata*> & views() const { return m_views; }
 
     /** Prepare table for streaming from serialized data. */
     bool activateStream(TupleSerializer &tupleSerializer,
@@ -313,6 +324,20 @@ class PersistentTable : public Table, public UndoQuantumReleaseInterest,
 
     bool checkNulls(TableTuple &tuple) const;
 
+    /*
+     * Swap the strings just allocated for the dictionary encoded columns
+     * of a tuple in the table for the dictionary entries. After an update
+     * only the columns in newObjects were allocated, and newObjects is
+     * changed to match.
+     */
+    void internDictionaryColumns(TableTuple &tuple, std::vector<char*> *newObjects = NULL);
+
+    /*
+     * Non-inlined memory of a tuple, without the dictionary encoded
+     * columns the dictionaries account for.
+     */
+    size_t tupleStringMemorySize(const TableTuple &tuple) const;
+
     // Zero allocation size uses defaults.
     PersistentTable(int partitionColumn, int tableAllocationTargetSize = 0);
     void onSetColumns();
@@ -361,6 +386,10 @@ class PersistentTable : public Table, public UndoQuantumReleaseInterest,
     // list of materialized views that are sourced from this table
     std::vector<MaterializedViewMetadata *> m_views;
 
+    // dictionary encoded columns and their dictionaries, owned by the table
+    std::vector<int> m_dictionaryColumns;
+    std::vector<StringDictionary*> m_dictionaries;
+
     // STATS
     voltdb::PersistentTableStats stats_;
     voltdb::TableStats* getTableStats();
@@ -413,7 +442,7 @@ inline void PersistentTable::deleteTupleStorage(TableTuple &tuple, TBPtr block)
 
     // This frees referenced strings -- when could possibly be a better time?
     if (m_schema->getUninlinedObjectColumnCount() != 0) {
-        decreaseStringMemCount(tuple.getNonInlinedMemorySize());
+        decreaseStringMemCount(tupleStringMemorySize(tuple));
         tuple.freeObjectColumns();
     }
 
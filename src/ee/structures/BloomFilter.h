@@ -0,0 +1,162 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#ifndef _EE_STRUCTURES_BLOOMFILTER_H_
+#define _EE_STRUCTURES_BLOOMFILTER_H_
+
+#include <boost/noncopyable.hpp>
+#include <cassert>
+#include <cstdlib>
+#include <cstring>
+#include <new>
+#include <stdint.h>
+
+namespace voltdb {
+
+/**
+ * A blocked Bloom filter over 64 bit hashes. Every key sets eight bits
+ * in one 32 byte block, one bit in each of its 32 bit words, so a
+ * lookup touches a single cache line. With 10 bits per key about 1% of
+ * the hashes never added pass mayContain().
+ *
+ * Keys can't be taken out. The owner counts its removals and rebuilds
+ * the filter from the keys it still holds with clear() and add() once
+ * enough stale bits have built up, or once it holds more keys than the
+ * filter was sized for.
+ */
+class BloomFilter : private boost::noncopyable {
+public:
+    // words in a block, one bit is set in each
+    static const int BLOCK_WORDS = 8;
+    static const size_t BLOCK_BYTES = BLOCK_WORDS * sizeof(uint32_t);
+
+    BloomFilter() : m_blocks(NULL), m_blockMask(0), m_capacity(0)
+    {
+    }
+
+    ~BloomFilter()
+    {
+        free(m_blocks);
+    }
+
+    /**
+     * Size the filter for capacity keys at bitsPerKey bits each and
+     * clear it
+     */
+    void reset(size_t capacity, int bitsPerKey)
+    {
+        assert(bitsPerKey > 0);
+        size_t blocks = 1;
+        while (blocks * BLOCK_BYTES * 8 < capacity * bitsPerKey) {
+            blocks <<= 1;
+        }
+        if (blocks != m_blockMask + 1 || m_blocks == NULL) {
+            free(m_blocks);
+            m_blocks = NULL;
+            void *memory = NULL;
+            if (posix_memalign(&memory, 64, blocks * BLOCK_BYTES) != 0) {
+                throw std::bad_alloc();
+            }
+            m_blocks = static_cast<uint32_t*>(memory);
+            m_blockMask = blocks - 1;
+        }
+        m_capacity = capacity;
+        clear();
+    }
+
+    void clear()
+    {
+        if (m_blocks != NULL) {
+            memset(m_blocks, 0, bytes());
+        }
+    }
+
+    // free the blocks, the filter is disabled until the next reset()
+    void release()
+    {
+        free(m_blocks);
+        m_blocks = NULL;
+        m_blockMask = 0;
+        m_capacity = 0;
+    }
+
+    bool isEnabled() const { return m_blocks != NULL; }
+
+    // keys the filter was sized for
+    size_t capacity() const { return m_capacity; }
+
+    size_t bytes() const { return m_blocks == NULL ? 0 : (m_blockMask + 1) * BLOCK_BYTES; }
+
+    void add(uint64_t hash)
+    {
+        assert(m_blocks);
+        const uint64_t mixed = mix(hash);
+        uint32_t *block = m_blocks + (static_cast<size_t>(mixed >> 32) & m_blockMask) * BLOCK_WORDS;
+        const uint32_t key = static_cast<uint32_t>(mixed);
+        for (int ii = 0; ii < BLOCK_WORDS; ii++) {
+            block[ii] |= bit(key, ii);
+        }
+    }
+
+    /**
+     * False if the hash was never added since the last clear(), true if
+     * it may have been
+     */
+    bool mayContain(uint64_t hash) const
+    {
+        assert(m_blocks);
+        const uint64_t mixed = mix(hash);
+        const uint32_t *block = m_blocks + (static_cast<size_t>(mixed >> 32) & m_blockMask) * BLOCK_WORDS;
+        const uint32_t key = static_cast<uint32_t>(mixed);
+        for (int ii = 0; ii < BLOCK_WORDS; ii++) {
+            if ((block[ii] & bit(key, ii)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+private:
+    // the index key hashers combine column values without much mixing
+    static uint64_t mix(uint64_t hash)
+    {
+        hash ^= hash >> 33;
+        hash *= 0xff51afd7ed558ccdULL;
+        hash ^= hash >> 33;
+        hash *= 0xc4ceb9fe1a85ec53ULL;
+        hash ^= hash >> 33;
+        return hash;
+    }
+
+    // one of 32 bits in word ii, from the top bits of an odd multiple of the key
+    static uint32_t bit(uint32_t key, int ii)
+    {
+        static const uint32_t SALT[BLOCK_WORDS] = {
+            0x47b6137bU, 0x44974d91U, 0x8824ad5bU, 0xa2b7289dU,
+            0x705495c7U, 0x2df1424bU, 0x9efc4947U, 0x5c6bfb31U
+        };
+        return 1U << ((key * SALT[ii]) >> 27);
+    }
+
+    uint32_t *m_blocks;
+    size_t m_blockMask;
+    size_t m_capacity;
+};
+
+}
+
+#endif // _EE_STRUCTURES_BLOOMFILTER_H_
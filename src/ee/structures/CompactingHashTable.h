@@ -157,6 +157,8 @@ namespace voltdb {
 
         /** simple find */
         iterator find(const Key &key) const;
+        /** find with the hash of the key already computed by hash() */
+        iterator findWithHash(const Key &key, uint64_t hash) const;
         /** find an exact key/value match (optionaly searching by value first) */
         iterator find(const Key &key, const Data &value) const;
         /** simple insert */
@@ -170,6 +172,23 @@ namespace voltdb {
         /** STL-ish size() method */
         size_t size() const { return m_count; }
 
+        /** the hash of a key, as stored in its node */
+        uint64_t hash(const Key &key) const { return m_hasher(key); }
+
+        /** call f with the hash stored for every key/value pair */
+        template<class F> void forEachHash(F &f) const {
+            for (uint64_t ii = 0; ii < TABLE_SIZES[m_sizeIndex]; ii++) {
+                for (const HashNode *node = m_buckets[ii]; node; node = node->nextInBucket) {
+                    f(node->hash);
+                    if (!m_unique) {
+                        for (const HashNode *n = node->nextWithKey; n; n = n->nextWithKey) {
+                            f(n->hash);
+                        }
+                    }
+                }
+            }
+        }
+
         /** Return bytes used for this index */
         size_t bytesAllocated() const { return m_allocator.bytesAllocated() + TABLE_SIZES[m_sizeIndex] * sizeof(HashNode*); }
 
@@ -288,6 +307,13 @@ namespace voltdb {
         return iterator(foundNode);
     }
 
+    template<class K, class T, class H, class EK, class ET>
+    typename CompactingHashTable<K, T, H, EK, ET>::iterator CompactingHashTable<K, T, H, EK, ET>::findWithHash(const Key &key, uint64_t hash) const {
+        uint64_t bucketOffset = hash % TABLE_SIZES[m_sizeIndex];
+        const HashNode *foundNode = find(m_buckets[bucketOffset], key);
+        return iterator(foundNode);
+    }
+
     template<class K, class T, class H, class EK, class ET>
     typename CompactingHashTable<K, T, H, EK, ET>::iterator CompactingHashTable<K, T, H, EK, ET>::find(const Key &key, const Data &value) const {
         uint64_t hash = m_hasher(key);
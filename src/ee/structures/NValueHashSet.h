@@ -0,0 +1,186 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#ifndef _EE_STRUCTURES_NVALUEHASHSET_H_
+#define _EE_STRUCTURES_NVALUEHASHSET_H_
+
+#include "common/NValue.hpp"
+#include "storage/TempTableLimits.h"
+
+#include <boost/noncopyable.hpp>
+#include <cassert>
+#include <vector>
+#include <stdint.h>
+
+namespace voltdb {
+
+/**
+ * A set of rows of NValues, every row being width values wide, for
+ * DISTINCT and the like. Rows are kept by value in one flat array and
+ * found by open addressing with linear probing, so the set makes no
+ * allocation per row and never needs the tuples the values came from.
+ * The hash of each row is kept beside it and compared before the values
+ * themselves.
+ *
+ * The arrays are charged to the TempTableLimits given, if any, so a set
+ * that grows too large fails the fragment like a temp table would.
+ * The NValues are not copied deeply, objects they point to must outlive
+ * the set.
+ */
+class NValueHashSet : private boost::noncopyable {
+public:
+    // slots in a new set, a power of two
+    static const size_t MIN_CAPACITY = 64;
+
+    NValueHashSet(int width, TempTableLimits *limits)
+        : m_width(width), m_limits(limits), m_size(0), m_bits(0), m_bytes(0)
+    {
+        assert(width > 0);
+        resize(MIN_CAPACITY);
+    }
+
+    ~NValueHashSet()
+    {
+        if (m_limits != NULL) {
+            m_limits->reduceAllocated(m_bytes);
+        }
+    }
+
+    /**
+     * Add the row of width values starting at row.
+     * @return true if it was not in the set yet
+     */
+    bool insert(const NValue *row)
+    {
+        const uint64_t hash = hashRow(row);
+        size_t slot = find(hash, row);
+        if (m_hashes[slot] != EMPTY) {
+            return false;
+        }
+        // keep the load under 1/2, probe sequences stay short
+        if ((m_size + 1) * 2 > m_hashes.size()) {
+            resize(m_hashes.size() * 2);
+            slot = find(hash, row);
+        }
+        m_hashes[slot] = hash;
+        for (int i = 0; i < m_width; i++) {
+            m_values[slot * m_width + i] = row[i];
+        }
+        ++m_size;
+        return true;
+    }
+
+    bool contains(const NValue *row) const
+    {
+        return m_hashes[find(hashRow(row), row)] != EMPTY;
+    }
+
+    size_t size() const { return m_size; }
+    size_t capacity() const { return m_hashes.size(); }
+    /** Bytes charged to the TempTableLimits */
+    int allocatedBytes() const { return m_bytes; }
+
+private:
+    static const uint64_t EMPTY = 0;
+
+    /**
+     * The boost hash of consecutive integers is consecutive, spread it over
+     * the high bits with a Fibonacci multiply. The low bit is set so that no
+     * row hashes to EMPTY.
+     */
+    uint64_t hashRow(const NValue *row) const
+    {
+        std::size_t seed = 0;
+        for (int i = 0; i < m_width; i++) {
+            row[i].hashCombine(seed);
+        }
+        return (static_cast<uint64_t>(seed) * 0x9E3779B97F4A7C15ULL) | 1;
+    }
+
+    /**
+     * @return the slot holding the row or the empty slot it would go to
+     */
+    size_t find(uint64_t hash, const NValue *row) const
+    {
+        const size_t mask = m_hashes.size() - 1;
+        size_t slot = static_cast<size_t>(hash >> (64 - m_bits));
+        while (m_hashes[slot] != EMPTY) {
+            if (m_hashes[slot] == hash && equals(slot, row)) {
+                break;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    bool equals(size_t slot, const NValue *row) const
+    {
+        const NValue *existing = &m_values[slot * m_width];
+        for (int i = 0; i < m_width; i++) {
+            if (existing[i].compare(row[i]) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void resize(size_t capacity)
+    {
+        assert((capacity & (capacity - 1)) == 0);
+        const int bytes = static_cast<int>(capacity * (sizeof(uint64_t) + m_width * sizeof(NValue)));
+        std::vector<uint64_t> hashes(capacity, EMPTY);
+        std::vector<NValue> values(capacity * m_width);
+        hashes.swap(m_hashes);
+        values.swap(m_values);
+        m_bits = 0;
+        while ((static_cast<size_t>(1) << m_bits) < capacity) {
+            ++m_bits;
+        }
+        for (size_t i = 0; i < hashes.size(); i++) {
+            if (hashes[i] != EMPTY) {
+                size_t slot = find(hashes[i], &values[i * m_width]);
+                m_hashes[slot] = hashes[i];
+                for (int j = 0; j < m_width; j++) {
+                    m_values[slot * m_width + j] = values[i * m_width + j];
+                }
+            }
+        }
+
+        // like a temp table block, the new arrays are the set's own
+        // and charged to it even if they take the limits over the top
+        if (m_limits != NULL) {
+            m_limits->reduceAllocated(m_bytes);
+        }
+        m_bytes = bytes;
+        if (m_limits != NULL) {
+            m_limits->increaseAllocated(bytes);
+        }
+    }
+
+    const int m_width;
+    TempTableLimits *m_limits;
+    size_t m_size;
+    // log2 of the capacity
+    int m_bits;
+    int m_bytes;
+    std::vector<uint64_t> m_hashes;
+    std::vector<NValue> m_values;
+};
+
+}
+
+#endif // _EE_STRUCTURES_NVALUEHASHSET_H_
@@ -669,6 +669,27 @@ SHAREDLIB_JNIEXPORT jlong JNICALL Java_org_voltcore_utils_DBBPool_getBufferAddre
     return reinterpret_cast<jlong>(address);
 }
 
+/*
+ * Class:     org_voltcore_utils_DBBPool
+ * Method:    wrapAddress
+ * Signature: (JI)Ljava/nio/ByteBuffer;
+ *
+ * Returns a DirectByteBuffer over native memory that doesn't own it
+ * @param address Native address of the memory
+ * @param capacity Size of the memory in bytes
+ * @return DirectByteBuffer over the memory
+ */
+SHAREDLIB_JNIEXPORT jobject JNICALL Java_org_voltcore_utils_DBBPool_wrapAddress
+  (JNIEnv *env, jclass clazz, jlong address, jint capacity)
+{
+    jobject buffer = env->NewDirectByteBuffer(reinterpret_cast<void*>(address), capacity);
+    if (env->ExceptionCheck()) {
+        env->ExceptionDescribe();
+        return NULL;
+    }
+    return buffer;
+}
+
 /*
  * Class:     org_voltcore_utils_DBBPool
  * Method:    getBufferCRC32
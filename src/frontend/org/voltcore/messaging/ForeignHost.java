@@ -23,6 +23,9 @@ import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.voltcore.logging.Level;
@@ -31,7 +34,6 @@ import org.voltcore.network.Connection;
 import org.voltcore.network.QueueMonitor;
 import org.voltcore.network.VoltProtocolHandler;
 import org.voltcore.utils.CoreUtils;
-import org.voltcore.utils.DeferredSerialization;
 import org.voltcore.utils.EstTime;
 import org.voltcore.utils.RateLimitedLogger;
 import org.voltdb.VoltDB;
@@ -40,6 +42,30 @@ public class ForeignHost {
     private static final VoltLogger hostLog = new VoltLogger("HOST");
     private static final RateLimitedLogger rateLimitedLogger = new RateLimitedLogger(10 * 1000, hostLog, Level.WARN);
 
+    // destination count of a frame carrying a poison pill
+    static final int POISON_PILL = -1;
+
+    /*
+     * Messages to a host are packed into batches that go out as one frame. A batch
+     * takes new messages until the network thread serializes it or it reaches
+     * MAX_BATCH_BYTES. Under load a new batch is held back for up to the batch window
+     * before it is queued so more messages can join it. The window doubles while
+     * batches average four or more messages and halves while they average fewer
+     * than two, so a lightly loaded host doesn't wait at all.
+     */
+    static final int MAX_BATCH_BYTES =
+        Math.max(0, Integer.getInteger("FOREIGN_HOST_BATCH_BYTES", 32 * 1024));
+    static final int MAX_BATCH_WINDOW_US =
+        Math.max(0, Integer.getInteger("FOREIGN_HOST_BATCH_WINDOW_US", 100));
+    static final int BATCH_WINDOW_STEP_US = 10;
+    // batches between window adjustments
+    static final int BATCH_WINDOW_INTERVAL = 64;
+
+    private static class BatchFlusher {
+        static final ScheduledThreadPoolExecutor m_executor =
+            CoreUtils.getScheduledThreadPoolExecutor("ForeignHost batch flusher", 1, CoreUtils.SMALL_STACK_SIZE);
+    }
+
     private Connection m_connection;
     final FHInputHandler m_handler;
     private final HostMessenger m_hostMessenger;
@@ -57,6 +83,19 @@ public class ForeignHost {
     private long m_deadHostTimeout;
     private final AtomicLong m_lastMessageMillis = new AtomicLong(Long.MAX_VALUE);
 
+    // the batch taking new messages, guarded by m_batchLock
+    private final Object m_batchLock = new Object();
+    private MessageBatch m_batch = null;
+    private volatile int m_batchWindowUs = 0;
+
+    // batching stats, only updated by the network thread
+    private volatile long m_batches = 0;
+    private volatile long m_batchedMessages = 0;
+    private volatile long m_batchedBytes = 0;
+    private volatile long m_fullBatches = 0;
+    private int m_windowBatches = 0;
+    private int m_windowMessages = 0;
+
     /** ForeignHost's implementation of InputHandler */
     public class FHInputHandler extends VoltProtocolHandler {
 
@@ -183,35 +222,150 @@ public class ForeignHost {
             return;
         }
 
-        m_connection.writeStream().enqueue(
-            new DeferredSerialization() {
+        final int size = message.getSerializedSize();
+        synchronized (m_batchLock) {
+            batchFor(MessageBatch.frameHeaderSize(destinations.length) + size)
+                .add(destinations, message, size);
+        }
+
+        detectDeadHost();
+    }
+
+    /**
+     * Send a message that was already flattened to be sent to several hosts, the
+     * body is shared with the other hosts. This public method is re-entrant.
+     */
+    void send(
+            final long destinations[],
+            final int destinationCount,
+            final long sourceHSId,
+            final SerializedMessage body)
+    {
+        if (destinationCount == 0) {
+            return;
+        }
+
+        // The destinations are a scratch array of the caller
+        final long copy[] = Arrays.copyOf(destinations, destinationCount);
+        synchronized (m_batchLock) {
+            batchFor(MessageBatch.frameHeaderSize(destinationCount) + body.size())
+                .add(copy, sourceHSId, body);
+        }
+
+        detectDeadHost();
+    }
+
+    /**
+     * Find the batch a message of the given size goes into, starting a new one
+     * if there is no open batch or the message doesn't fit. Must hold m_batchLock.
+     */
+    private MessageBatch batchFor(int bytes) {
+        MessageBatch batch = m_batch;
+        if (batch != null && !batch.m_closed) {
+            if (batch.bytes() + bytes <= MAX_BATCH_BYTES) {
+                return batch;
+            }
+            // Full, make sure it's queued ahead of the next one
+            m_fullBatches++;
+            queueBatch(batch);
+        }
+
+        batch = new MessageBatch() {
+            @Override
+            void close() {
+                closeBatch(this);
+            }
+
+            @Override
+            void batchSerialized(int messages, int bytes) {
+                ForeignHost.this.batchSerialized(messages, bytes);
+            }
+        };
+        m_batch = batch;
+
+        final int window = m_batchWindowUs;
+        if (window == 0) {
+            queueBatch(batch);
+        } else {
+            final MessageBatch delayed = batch;
+            BatchFlusher.m_executor.schedule(new Runnable() {
                 @Override
-                public final ByteBuffer[] serialize() throws IOException{
-                    int len = 4            /* length prefix */
-                            + 8            /* source hsid */
-                            + 4            /* destinationCount */
-                            + 8 * destinations.length  /* destination list */
-                            + message.getSerializedSize();
-                    ByteBuffer buf = ByteBuffer.allocate(len);
-                    buf.putInt(len - 4);
-                    buf.putLong(message.m_sourceHSId);
-                    buf.putInt(destinations.length);
-                    for (int ii = 0; ii < destinations.length; ii++) {
-                        buf.putLong(destinations[ii]);
+                public void run() {
+                    synchronized (m_batchLock) {
+                        queueBatch(delayed);
                     }
-                    message.flattenToBuffer(buf);
-                    buf.flip();
-                    return new ByteBuffer[] { buf };
                 }
+            }, window, TimeUnit.MICROSECONDS);
+        }
+        return batch;
+    }
 
-                @Override
-                public final void cancel() {
-                    /*
-                     * Can this be removed?
-                     */
-                }
-            });
+    /** Must hold m_batchLock */
+    private void queueBatch(MessageBatch batch) {
+        if (!batch.m_queued) {
+            batch.m_queued = true;
+            m_connection.writeStream().enqueue(batch);
+        }
+    }
+
+    private void closeBatch(MessageBatch batch) {
+        synchronized (m_batchLock) {
+            batch.m_closed = true;
+            if (m_batch == batch) {
+                m_batch = null;
+            }
+        }
+    }
+
+    private void batchSerialized(int messages, int bytes) {
+        m_batches++;
+        m_batchedMessages += messages;
+        m_batchedBytes += bytes;
+        if (MAX_BATCH_WINDOW_US > 0) {
+            m_windowMessages += messages;
+            if (++m_windowBatches >= BATCH_WINDOW_INTERVAL) {
+                m_batchWindowUs = adaptBatchWindow(m_batchWindowUs,
+                        m_windowMessages / (double)m_windowBatches, MAX_BATCH_WINDOW_US);
+                m_windowBatches = 0;
+                m_windowMessages = 0;
+            }
+        }
+    }
+
+    static int adaptBatchWindow(int window, double messagesPerBatch, int maxWindow) {
+        if (messagesPerBatch >= 4.0) {
+            return Math.min(maxWindow, Math.max(BATCH_WINDOW_STEP_US, window * 2));
+        } else if (messagesPerBatch < 2.0) {
+            return window / 2 < BATCH_WINDOW_STEP_US ? 0 : window / 2;
+        }
+        return window;
+    }
+
+    public int getHostId() {
+        return m_hostId;
+    }
+
+    public int getBatchWindow() {
+        return m_batchWindowUs;
+    }
+
+    public long getBatches() {
+        return m_batches;
+    }
+
+    public long getBatchedMessages() {
+        return m_batchedMessages;
+    }
+
+    public long getBatchedBytes() {
+        return m_batchedBytes;
+    }
+
+    public long getFullBatches() {
+        return m_fullBatches;
+    }
 
+    private void detectDeadHost() {
         long current_time = EstTime.currentTimeMillis();
         long current_delta = current_time - m_lastMessageMillis.get();
         /*
@@ -241,7 +395,7 @@ public class ForeignHost {
     }
 
 
-    String hostname() {
+    public String hostname() {
         return m_connection.getHostnameOrIP();
     }
 
@@ -285,11 +439,9 @@ public class ForeignHost {
     private void handleRead(ByteBuffer in, Connection c) throws IOException {
         // port is locked by VoltNetwork when in valid use.
         // assert(m_port.m_lock.tryLock() == true);
-        long recvDests[] = null;
-
         final long sourceHSId = in.getLong();
         final int destCount = in.getInt();
-        if (destCount == -1) {//This is a poison pill
+        if (destCount == POISON_PILL) {//This is a poison pill
             byte messageBytes[] = new byte[in.getInt()];
             in.get(messageBytes);
             String message = new String(messageBytes, "UTF-8");
@@ -298,7 +450,25 @@ public class ForeignHost {
             org.voltdb.VoltDB.crashLocalVoltDB(message, false, null);
         }
 
-        recvDests = new long[destCount];
+        if (destCount == MessageBatch.BATCH) {
+            // Each message in the batch is laid out like a frame of its own
+            final int messageCount = in.getInt();
+            final int limit = in.limit();
+            for (int ii = 0; ii < messageCount; ii++) {
+                final int end = in.getInt() + in.position();
+                in.limit(end);
+                final long messageSourceHSId = in.getLong();
+                handleMessage(messageSourceHSId, in.getInt(), in);
+                in.limit(limit);
+                in.position(end);
+            }
+        } else {
+            handleMessage(sourceHSId, destCount, in);
+        }
+    }
+
+    private void handleMessage(long sourceHSId, int destCount, ByteBuffer in) throws IOException {
+        long recvDests[] = new long[destCount];
         for (int i = 0; i < destCount; i++) {
             recvDests[i] = in.getLong();
         }
@@ -335,7 +505,7 @@ public class ForeignHost {
         ByteBuffer message = ByteBuffer.allocate( 20 + errBytes.length);
         message.putInt(message.capacity() - 4);
         message.putLong(-1);
-        message.putInt(-1);
+        message.putInt(POISON_PILL);
         message.putInt(errBytes.length);
         message.put(errBytes);
         message.flip();
@@ -17,16 +17,16 @@
 
 package org.voltcore.messaging;
 
+import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.SocketException;
 import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Queue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
@@ -54,7 +54,6 @@ import org.voltdb.utils.MiscUtils;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.primitives.Longs;
 
 /**
  * Host messenger contains all the code necessary to join a cluster mesh, and create mailboxes
@@ -818,27 +817,118 @@ public class HostMessenger implements SocketJoiner.JoinHandler, InterfaceToMesse
         }
     }
 
+    /*
+     * Scratch space for grouping the destinations of a send by foreign host
+     * without boxing them, one per sending thread. Local destinations are
+     * delivered while the destinations are grouped and delivery can send
+     * again on the same thread, a nested send finds the scratch in use
+     * and gets its own.
+     */
+    private static final class FanOut {
+        boolean m_inUse = false;
+        ForeignHost m_hosts[] = new ForeignHost[8];
+        int m_hostIndex[] = new int[32];
+        long m_destinations[] = new long[32];
+
+        void ensureCapacity(int destinations) {
+            if (m_hostIndex.length < destinations) {
+                m_hostIndex = new int[destinations];
+                m_destinations = new long[destinations];
+            }
+        }
+
+        int indexOf(ForeignHost host, int hostCount) {
+            for (int ii = 0; ii < hostCount; ii++) {
+                if (m_hosts[ii] == host) {
+                    return ii;
+                }
+            }
+            if (hostCount == m_hosts.length) {
+                m_hosts = Arrays.copyOf(m_hosts, hostCount * 2);
+            }
+            m_hosts[hostCount] = host;
+            return hostCount;
+        }
+
+        void clear(int hostCount) {
+            Arrays.fill(m_hosts, 0, hostCount, null);
+        }
+    }
+
+    private static final ThreadLocal<FanOut> m_fanOut = new ThreadLocal<FanOut>() {
+        @Override
+        protected FanOut initialValue() {
+            return new FanOut();
+        }
+    };
+
+    /**
+     * Send a message to many sites. A message going to more than one foreign host is
+     * flattened once on the calling thread and the serialized body is shared by the
+     * write streams of all the hosts, otherwise it is serialized by the network thread.
+     */
     public void send(long[] destinationHSIds, final VoltMessage message)
     {
         assert(message != null);
         assert(destinationHSIds != null);
-        final HashMap<ForeignHost, ArrayList<Long>> foreignHosts =
-            new HashMap<ForeignHost, ArrayList<Long>>(32);
-        for (long hsId : destinationHSIds) {
-            ForeignHost host = presend(hsId, message);
-            if (host == null) continue;
-            ArrayList<Long> bundle = foreignHosts.get(host);
-            if (bundle == null) {
-                bundle = new ArrayList<Long>();
-                foreignHosts.put(host, bundle);
-            }
-            bundle.add(hsId);
-        }
+        FanOut threadFanOut = m_fanOut.get();
+        final FanOut fanOut = threadFanOut.m_inUse ? new FanOut() : threadFanOut;
+        fanOut.m_inUse = true;
+        fanOut.ensureCapacity(destinationHSIds.length);
+        final int hostIndex[] = fanOut.m_hostIndex;
 
-        if (foreignHosts.size() == 0) return;
+        int hostCount = 0;
+        try {
+            for (int ii = 0; ii < destinationHSIds.length; ii++) {
+                ForeignHost host = presend(destinationHSIds[ii], message);
+                if (host == null) {
+                    hostIndex[ii] = -1;
+                    continue;
+                }
+                hostIndex[ii] = fanOut.indexOf(host, hostCount);
+                if (hostIndex[ii] == hostCount) {
+                    hostCount++;
+                }
+            }
 
-        for (Entry<ForeignHost, ArrayList<Long>> e : foreignHosts.entrySet()) {
-            e.getKey().send(Longs.toArray(e.getValue()), message);
+            if (hostCount == 1) {
+                int count = 0;
+                for (int ii = 0; ii < destinationHSIds.length; ii++) {
+                    if (hostIndex[ii] == 0) {
+                        count++;
+                    }
+                }
+                final long destinations[] = new long[count];
+                count = 0;
+                for (int ii = 0; ii < destinationHSIds.length; ii++) {
+                    if (hostIndex[ii] == 0) {
+                        destinations[count++] = destinationHSIds[ii];
+                    }
+                }
+                fanOut.m_hosts[0].send(destinations, message);
+            } else if (hostCount > 1) {
+                SerializedMessage body;
+                try {
+                    body = SerializedMessage.flatten(message);
+                } catch (IOException e) {
+                    org.voltdb.VoltDB.crashLocalVoltDB("Failed to serialize " + message, true, e);
+                    return;
+                }
+                final long destinations[] = fanOut.m_destinations;
+                for (int host = 0; host < hostCount; host++) {
+                    int count = 0;
+                    for (int ii = 0; ii < destinationHSIds.length; ii++) {
+                        if (hostIndex[ii] == host) {
+                            destinations[count++] = destinationHSIds[ii];
+                        }
+                    }
+                    fanOut.m_hosts[host].send(destinations, count, message.m_sourceHSId, body);
+                }
+                body.release();
+            }
+        } finally {
+            fanOut.clear(hostCount);
+            fanOut.m_inUse = false;
         }
     }
 
@@ -917,6 +1007,13 @@ public class HostMessenger implements SocketJoiner.JoinHandler, InterfaceToMesse
         return retval;
     }
 
+    /**
+     * Get the foreign hosts this host is connected to, for stats.
+     */
+    public List<ForeignHost> getForeignHosts() {
+        return new ArrayList<ForeignHost>(m_foreignHosts.values());
+    }
+
     /**
      * Kill a foreign host socket by id.
      * @param hostId The id of the foreign host to kill.
@@ -0,0 +1,193 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltcore.messaging;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.voltcore.utils.DeferredSerialization;
+
+/**
+ * Messages queued for a foreign host that go out together as one frame.
+ *
+ * Each message is laid out exactly like a standalone frame: length prefix, source
+ * HSId, destination count, destinations and the flattened message. A batch of more
+ * than one message wraps them in an outer frame with a source HSId of -1 and a
+ * destination count of BATCH, followed by the number of messages. A batch holding
+ * a single message is written as a plain frame.
+ *
+ * Messages are flattened when the network thread serializes the batch, except
+ * messages that were already flattened once for several hosts, their shared body
+ * is returned as is and released once it has been copied out.
+ */
+abstract class MessageBatch implements DeferredSerialization {
+    // destination count of a frame holding a batch of frames
+    static final int BATCH = -2;
+    // length prefix, source hsid, destination count and message count
+    static final int BATCH_HEADER_SIZE = 4 + 8 + 4 + 4;
+
+    private static final class Entry {
+        final long m_destinations[];
+        final long m_sourceHSId;
+        final VoltMessage m_message;
+        final SerializedMessage m_shared;
+        final int m_size;
+
+        Entry(long destinations[], long sourceHSId, VoltMessage message, SerializedMessage shared, int size) {
+            m_destinations = destinations;
+            m_sourceHSId = sourceHSId;
+            m_message = message;
+            m_shared = shared;
+            m_size = size;
+        }
+    }
+
+    private final ArrayList<Entry> m_entries = new ArrayList<Entry>(4);
+    private int m_bytes = BATCH_HEADER_SIZE;
+
+    // Both guarded by the lock of the foreign host the batch belongs to
+    boolean m_queued = false;
+    boolean m_closed = false;
+
+    static int frameHeaderSize(int destinations) {
+        return 4 + 8 + 4 + 8 * destinations;
+    }
+
+    /**
+     * Add a message to be flattened when the batch is serialized. The size is taken
+     * when the message is sent and not computed again, some messages build state
+     * for flattening in getSerializedSize.
+     */
+    void add(long destinations[], VoltMessage message, int size) {
+        m_entries.add(new Entry(destinations, message.m_sourceHSId, message, null, size));
+        m_bytes += frameHeaderSize(destinations.length) + size;
+    }
+
+    void add(long destinations[], long sourceHSId, SerializedMessage body) {
+        body.retain();
+        m_entries.add(new Entry(destinations, sourceHSId, null, body, body.size()));
+        m_bytes += frameHeaderSize(destinations.length) + body.size();
+    }
+
+    int messageCount() {
+        return m_entries.size();
+    }
+
+    int bytes() {
+        return m_bytes;
+    }
+
+    /**
+     * Called before the batch is serialized or cancelled, no messages can be added
+     * to it once this returns.
+     */
+    abstract void close();
+
+    /**
+     * Called after the batch has been serialized
+     */
+    abstract void batchSerialized(int messages, int bytes);
+
+    @Override
+    public ByteBuffer[] serialize() throws IOException {
+        close();
+        final int count = m_entries.size();
+        final boolean batched = count > 1;
+
+        // Everything but the shared bodies goes into one buffer, the shared bodies
+        // are returned between slices of it
+        int inlineBytes = batched ? BATCH_HEADER_SIZE : 0;
+        int sharedBytes = 0;
+        int sharedCount = 0;
+        for (Entry e : m_entries) {
+            inlineBytes += frameHeaderSize(e.m_destinations.length);
+            if (e.m_shared == null) {
+                inlineBytes += e.m_size;
+            } else {
+                sharedBytes += e.m_size;
+                sharedCount++;
+            }
+        }
+
+        final ByteBuffer buf = ByteBuffer.allocate(inlineBytes);
+        final ByteBuffer out[] = new ByteBuffer[1 + 2 * sharedCount];
+        int outCount = 0;
+        int segmentStart = 0;
+        if (batched) {
+            buf.putInt(inlineBytes + sharedBytes - 4);
+            buf.putLong(-1);
+            buf.putInt(BATCH);
+            buf.putInt(count);
+        }
+        for (int ii = 0; ii < count; ii++) {
+            final Entry e = m_entries.get(ii);
+            buf.putInt(frameHeaderSize(e.m_destinations.length) - 4 + e.m_size);
+            buf.putLong(e.m_sourceHSId);
+            buf.putInt(e.m_destinations.length);
+            for (long destination : e.m_destinations) {
+                buf.putLong(destination);
+            }
+            if (e.m_shared == null) {
+                // Messages expect to be flattened into a buffer of exactly their size
+                final int end = buf.position() + e.m_size;
+                buf.limit(end);
+                e.m_message.flattenToBuffer(buf.slice());
+                buf.limit(buf.capacity());
+                buf.position(end);
+            } else {
+                out[outCount++] = segment(buf, segmentStart);
+                out[outCount++] = e.m_shared.body();
+                segmentStart = buf.position();
+            }
+        }
+        if (buf.position() > segmentStart || outCount == 0) {
+            out[outCount++] = segment(buf, segmentStart);
+        }
+
+        batchSerialized(count, inlineBytes + sharedBytes);
+        return outCount == out.length ? out : Arrays.copyOf(out, outCount);
+    }
+
+    private static ByteBuffer segment(ByteBuffer buf, int start) {
+        final ByteBuffer segment = buf.duplicate();
+        segment.limit(buf.position());
+        segment.position(start);
+        return segment.slice();
+    }
+
+    @Override
+    public void cancel() {
+        close();
+        releaseShared();
+    }
+
+    @Override
+    public void serialized() {
+        releaseShared();
+    }
+
+    private void releaseShared() {
+        for (Entry e : m_entries) {
+            if (e.m_shared != null) {
+                e.m_shared.release();
+            }
+        }
+    }
+}
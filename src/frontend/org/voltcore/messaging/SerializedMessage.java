@@ -0,0 +1,136 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltcore.messaging;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A message flattened once and shared read only by the write streams of every
+ * foreign host it is sent to. The body lives in a pooled buffer that goes back
+ * to the pool when the last reference is released, each write stream releases
+ * its reference once it has copied the body out or dropped it.
+ */
+final class SerializedMessage {
+    // Bodies are pooled in power of two size classes from 1k to 256k,
+    // larger ones get a buffer of their own that is left to the GC
+    static final int MIN_POOLED_SHIFT = 10;
+    static final int MAX_POOLED_SHIFT = 18;
+    // cap on the idle buffers kept per size class
+    static final int MAX_POOLED_PER_CLASS = 64;
+
+    private static final PooledBuffers m_pools[] =
+        new PooledBuffers[MAX_POOLED_SHIFT - MIN_POOLED_SHIFT + 1];
+    static {
+        for (int ii = 0; ii < m_pools.length; ii++) {
+            m_pools[ii] = new PooledBuffers(1 << (MIN_POOLED_SHIFT + ii));
+        }
+    }
+
+    private static final class PooledBuffers {
+        private final int m_capacity;
+        private final ConcurrentLinkedQueue<ByteBuffer> m_buffers = new ConcurrentLinkedQueue<ByteBuffer>();
+        private final AtomicInteger m_count = new AtomicInteger(0);
+
+        private PooledBuffers(int capacity) {
+            m_capacity = capacity;
+        }
+
+        private ByteBuffer acquire() {
+            ByteBuffer buf = m_buffers.poll();
+            if (buf == null) {
+                return ByteBuffer.allocate(m_capacity);
+            }
+            m_count.decrementAndGet();
+            buf.clear();
+            return buf;
+        }
+
+        private void release(ByteBuffer buf) {
+            if (m_count.incrementAndGet() <= MAX_POOLED_PER_CLASS) {
+                m_buffers.offer(buf);
+            } else {
+                m_count.decrementAndGet();
+            }
+        }
+    }
+
+    private final PooledBuffers m_pool;
+    private final ByteBuffer m_buffer;
+    private final ByteBuffer m_body;
+    // the sender holds the first reference
+    private final AtomicInteger m_refs = new AtomicInteger(1);
+
+    private SerializedMessage(PooledBuffers pool, ByteBuffer buffer, ByteBuffer body) {
+        m_pool = pool;
+        m_buffer = buffer;
+        m_body = body.asReadOnlyBuffer();
+    }
+
+    static SerializedMessage flatten(VoltMessage message) throws IOException {
+        final int size = message.getSerializedSize();
+        final PooledBuffers pool = poolFor(size);
+        final ByteBuffer buf = pool == null ? ByteBuffer.allocate(size) : pool.acquire();
+        // Messages expect to be flattened into a buffer of exactly their size
+        buf.limit(size);
+        final ByteBuffer body = buf.slice();
+        message.flattenToBuffer(body);
+        assert(body.position() == size);
+        body.clear();
+        return new SerializedMessage(pool, buf, body);
+    }
+
+    private static PooledBuffers poolFor(int size) {
+        int shift = MIN_POOLED_SHIFT;
+        while ((1 << shift) < size) {
+            if (++shift > MAX_POOLED_SHIFT) {
+                return null;
+            }
+        }
+        return m_pools[shift - MIN_POOLED_SHIFT];
+    }
+
+    /**
+     * A read only view of the whole body, with its own position and limit
+     */
+    ByteBuffer body() {
+        return m_body.duplicate();
+    }
+
+    int size() {
+        return m_body.capacity();
+    }
+
+    void retain() {
+        m_refs.incrementAndGet();
+    }
+
+    void release() {
+        final int refs = m_refs.decrementAndGet();
+        assert(refs >= 0);
+        if (refs == 0 && m_pool != null) {
+            m_pool.release(m_buffer);
+        }
+    }
+
+    int refCount() {
+        return m_refs.get();
+    }
+}
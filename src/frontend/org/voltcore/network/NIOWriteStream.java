@@ -321,6 +321,9 @@ public class NIOWriteStream implements WriteStream {
 
                 @Override
                 public void cancel() {}
+
+                @Override
+                public void serialized() {}
             });
             m_port.setInterests( SelectionKey.OP_WRITE, 0);
         }
@@ -375,6 +378,7 @@ public class NIOWriteStream implements WriteStream {
                     }
                 }
             }
+            ds.serialized();
         }
         updateQueued(bytesQueued, true);
     }
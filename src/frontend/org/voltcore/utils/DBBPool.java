@@ -257,6 +257,16 @@ public final class DBBPool {
         };
     }
 
+    /**
+     * Wrap native memory in a DirectByteBuffer that doesn't own it. Slices and
+     * duplicates of the returned buffer refer back to it, so a reference to it
+     * tracks whether anything still points into the memory.
+     * @param address Native address of the memory
+     * @param capacity Size of the memory in bytes
+     * @return DirectByteBuffer over the memory
+     */
+    public static native ByteBuffer wrapAddress(long address, int capacity);
+
     /*
      * Delete a char array that was allocated on the native heap
      */
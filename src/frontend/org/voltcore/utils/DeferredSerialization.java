@@ -33,6 +33,12 @@ public interface DeferredSerialization {
      */
     ByteBuffer[] serialize() throws IOException;
 
+    /**
+     * Called once the buffers returned by serialize have been copied out, so any
+     * resources backing them can be released.
+     */
+    void serialized();
+
     /**
      * A deferred serialization might not be able to take place if a stream is closed
      * so a method for canceling the serialization and freeing associated resources must be provided.
@@ -102,6 +102,20 @@ public class AdmissionControlGroup implements org.voltcore.network.QueueMonitor
     // Same single-writer, unsynchronized reader pattern as initiator stats.
     private LatencyInfo m_latencyInfo = new LatencyInfo();
 
+    /*
+     * Microsecond latency histograms by procedure, partition and connection.
+     * Same single writer, unsynchronized reader pattern, the histograms can be
+     * read while they are being recorded to. Connections get a lower precision
+     * histogram since there can be thousands of them.
+     */
+    private final NonBlockingHashMap<String, LatencyHistogram> m_procedureLatency =
+            new NonBlockingHashMap<String, LatencyHistogram>();
+    private final NonBlockingHashMap<Integer, LatencyHistogram> m_partitionLatency =
+            new NonBlockingHashMap<Integer, LatencyHistogram>();
+    private final NonBlockingHashMap<Long, LatencyHistogram> m_connectionLatency =
+            new NonBlockingHashMap<Long, LatencyHistogram>();
+    public static final int CONNECTION_LATENCY_PRECISION = Math.max(1, LatencyHistogram.DEFAULT_PRECISION - 2);
+
     public AdmissionControlGroup(int maxBytes, int maxRequests)
     {
         MAX_DESIRED_PENDING_BYTES = maxBytes;
@@ -136,6 +150,7 @@ public class AdmissionControlGroup implements org.voltcore.network.QueueMonitor
         assert(m_expectedThreadId == Thread.currentThread().getId());
         m_members.remove(member);
         m_connectionStates.remove(member.connectionId());
+        m_connectionLatency.remove(member.connectionId());
     }
 
     /*
@@ -279,7 +294,9 @@ public class AdmissionControlGroup implements org.voltcore.network.QueueMonitor
             long connectionId,
             String connectionHostname,
             String procedureName,
+            int partitionId,
             int delta,
+            long deltaMicros,
             byte status) {
         boolean needToInsert = false;
         Map<String, InvocationInfo> procInfoMap = m_connectionStates.get(connectionId);
@@ -296,7 +313,26 @@ public class AdmissionControlGroup implements org.voltcore.network.QueueMonitor
         if(needToInsert) {
             m_connectionStates.put(connectionId, procInfoMap);
         }
-        m_latencyInfo.addSample(delta);
+        m_latencyInfo.addSample(deltaMicros);
+
+        LatencyHistogram histogram = m_procedureLatency.get(procedureName);
+        if (histogram == null) {
+            histogram = new LatencyHistogram();
+            m_procedureLatency.put(procedureName, histogram);
+        }
+        histogram.recordValue(deltaMicros);
+        histogram = m_partitionLatency.get(partitionId);
+        if (histogram == null) {
+            histogram = new LatencyHistogram();
+            m_partitionLatency.put(partitionId, histogram);
+        }
+        histogram.recordValue(deltaMicros);
+        histogram = m_connectionLatency.get(connectionId);
+        if (histogram == null) {
+            histogram = new LatencyHistogram(CONNECTION_LATENCY_PRECISION);
+            m_connectionLatency.put(connectionId, histogram);
+        }
+        histogram.recordValue(deltaMicros);
     }
 
     public Iterator<Map.Entry<Long, Map<String, InvocationInfo>>> getInitiationStatsIterator() {
@@ -306,4 +342,16 @@ public class AdmissionControlGroup implements org.voltcore.network.QueueMonitor
     public LatencyInfo getLatencyInfo() {
         return m_latencyInfo;
     }
+
+    public Map<String, LatencyHistogram> getProcedureLatency() {
+        return m_procedureLatency;
+    }
+
+    public Map<Integer, LatencyHistogram> getPartitionLatency() {
+        return m_partitionLatency;
+    }
+
+    public Map<Long, LatencyHistogram> getConnectionLatency() {
+        return m_connectionLatency;
+    }
 }
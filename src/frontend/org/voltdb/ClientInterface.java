@@ -23,8 +23,8 @@ import java.io.StringWriter;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.nio.channels.AsynchronousCloseException;
 import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
 import java.util.ArrayList;
@@ -39,6 +39,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -300,26 +301,59 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
     private boolean m_hasGlobalClientBackPressure = false;
     private final boolean m_isConfiguredForHSQL;
 
-    /** A port that accepts client connections */
+    // how long a new connection has to send its login message
+    static final long LOGIN_TIMEOUT_MS = 1600;
+    // how often the acceptor looks for logins that have timed out
+    private static final long LOGIN_CHECK_INTERVAL_MS = 100;
+    private static final int AUTH_THREADS = Math.max(1, Integer.getInteger("CLIENT_AUTH_THREADS", 2));
+
+    /**
+     * A port that accepts client connections.
+     *
+     * The accept loop and the reads of the login messages share a selector, so a
+     * client that connects and sends its login slowly (or never) doesn't tie up a
+     * thread. Once the whole login message has been read it goes to a small pool
+     * that checks the password hash and sets up the connection. The connection is
+     * only registered with the network once the service it asked for is known,
+     * because the handler of a VoltPort can't change after registration.
+     */
     public class ClientAcceptor implements Runnable {
         private final int m_port;
         private final ServerSocketChannel m_serverSocket;
         private final VoltNetworkPool m_network;
         private volatile boolean m_running = true;
         private Thread m_thread = null;
+        private Selector m_selector = null;
         private final boolean m_isAdmin;
+        private final ClientLoginStats.Counters m_counters;
 
         /**
-         * Used a cached thread pool to accept new connections.
+         * Authenticates the login messages read by the acceptor thread.
          */
-        private final ExecutorService m_executor = CoreUtils.getBoundedThreadPoolExecutor(128, 10L, TimeUnit.SECONDS,
-                        CoreUtils.getThreadFactory("Client authentication threads", "Client authenticator"));
+        private final ExecutorService m_executor =
+            CoreUtils.getListeningExecutorService("Client authenticator", AUTH_THREADS);
+
+        /**
+         * A connection that hasn't finished sending its login message. Only touched
+         * by the acceptor thread until the message is complete.
+         */
+        private class PendingLogin {
+            private final SocketChannel m_socket;
+            private final long m_acceptNanos = System.nanoTime();
+            private final ByteBuffer m_lengthBuffer = ByteBuffer.allocate(4);
+            private ByteBuffer m_message = null;
+
+            private PendingLogin(SocketChannel socket) {
+                m_socket = socket;
+            }
+        }
 
         ClientAcceptor(int port, VoltNetworkPool network, boolean isAdmin)
         {
             m_network = network;
             m_port = port;
             m_isAdmin = isAdmin;
+            m_counters = new ClientLoginStats.Counters(port);
             ServerSocketChannel socket;
             try {
                 socket = ServerSocketChannel.open();
@@ -337,6 +371,10 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
             m_serverSocket = socket;
         }
 
+        public ClientLoginStats.Counters getCounters() {
+            return m_counters;
+        }
+
         public void start() throws IOException {
             if (m_thread != null) {
                 throw new IllegalStateException("A thread for this ClientAcceptor is already running");
@@ -352,6 +390,9 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
                     VoltDB.crashLocalVoltDB("Client interface failed to bind to port " + m_port, false, e);
                 }
             }
+            m_selector = Selector.open();
+            m_serverSocket.configureBlocking(false);
+            m_serverSocket.register(m_selector, SelectionKey.OP_ACCEPT);
             m_running = true;
             String threadName = m_isAdmin ? "AdminPort connection acceptor" : "ClientPort connection acceptor";
             m_thread = new Thread( null, this, threadName, 262144);
@@ -360,121 +401,37 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
         }
 
         public void shutdown() throws InterruptedException {
-            //sync prevents interruption while shuttown down executor
-            synchronized (this) {
-                m_running = false;
-                m_thread.interrupt();
-            }
+            m_running = false;
+            m_selector.wakeup();
             m_thread.join();
         }
 
         @Override
         public void run() {
             try {
-                do {
-                    final SocketChannel socket;
-                    try
-                    {
-                        socket = m_serverSocket.accept();
-                    }
-                    catch (IOException ioe)
-                    {
-                        if (ioe.getMessage() != null &&
-                            ioe.getMessage().contains("Too many open files"))
-                        {
-                            networkLog.warn("Rejected accepting new connection due to too many open files");
+                long lastTimeoutCheck = System.nanoTime();
+                while (m_running) {
+                    m_selector.select(LOGIN_CHECK_INTERVAL_MS);
+                    final Iterator<SelectionKey> iter = m_selector.selectedKeys().iterator();
+                    while (iter.hasNext()) {
+                        final SelectionKey key = iter.next();
+                        iter.remove();
+                        if (!key.isValid()) {
                             continue;
                         }
-                        else
-                        {
-                            throw ioe;
+                        if (key.isAcceptable()) {
+                            acceptConnections();
+                        } else if (key.isReadable()) {
+                            readLogin(key);
                         }
                     }
 
-                    /*
-                     * Enforce a limit on the maximum number of connections
-                     */
-                    if (m_numConnections.get() == MAX_CONNECTIONS.get()) {
-                        networkLog.warn("Rejected connection from " +
-                                socket.socket().getRemoteSocketAddress() +
-                                " because the connection limit of " + MAX_CONNECTIONS + " has been reached");
-                        try {
-                            /*
-                             * Send rejection message with reason code
-                             */
-                            final ByteBuffer b = ByteBuffer.allocate(1);
-                            b.put(MAX_CONNECTIONS_LIMIT_ERROR);
-                            b.flip();
-                            socket.configureBlocking(true);
-                            for (int ii = 0; ii < 4 && b.hasRemaining(); ii++) {
-                                socket.write(b);
-                            }
-                            socket.close();
-                        } catch (IOException e) {}//don't care keep running
-                        continue;
+                    final long now = System.nanoTime();
+                    if (now - lastTimeoutCheck >= TimeUnit.MILLISECONDS.toNanos(LOGIN_CHECK_INTERVAL_MS)) {
+                        lastTimeoutCheck = now;
+                        expireLogins(now);
                     }
-
-                    /*
-                     * Increment the number of connections even though this one hasn't been authenticated
-                     * so that a flood of connection attempts (with many doomed) will not result in
-                     * successful authentication of connections that would put us over the limit.
-                     */
-                    m_numConnections.incrementAndGet();
-
-                    m_executor.execute(new Runnable() {
-                        @Override
-                        public void run() {
-                            if (socket != null) {
-                                boolean success = false;
-                                try {
-                                    final InputHandler handler = authenticate(socket);
-                                    if (handler != null) {
-                                        socket.configureBlocking(false);
-                                        if (handler instanceof ClientInputHandler) {
-                                            socket.socket().setTcpNoDelay(true);
-                                        }
-                                        socket.socket().setKeepAlive(true);
-
-                                        if (handler instanceof ClientInputHandler) {
-                                            final Connection c = m_network.registerChannel(socket, handler, 0);
-                                            /*
-                                             * If IV2 is enabled the logic initially enabling read is
-                                             * in the started method of the InputHandler
-                                             */
-                                            if (!m_isIV2Enabled) {
-                                                m_backpressureLock.lock();
-                                                try {
-                                                    if (!m_hasDTXNBackPressure) {
-                                                        c.enableReadSelection();
-                                                    }
-                                                    m_connections.add(c);
-                                                } finally {
-                                                    m_backpressureLock.unlock();
-                                                }
-                                            }
-                                        } else {
-                                            m_network.registerChannel(socket, handler, SelectionKey.OP_READ);
-                                        }
-                                        success = true;
-                                    }
-                                } catch (IOException e) {
-                                    try {
-                                        socket.close();
-                                    } catch (IOException e1) {
-                                        //Don't care connection is already lost anyways
-                                    }
-                                    if (m_running) {
-                                        hostLog.warn("Exception authenticating and registering user in ClientAcceptor", e);
-                                    }
-                                } finally {
-                                    if (!success) {
-                                        m_numConnections.decrementAndGet();
-                                    }
-                                }
-                            }
-                        }
-                    });
-                } while (m_running);
+                }
             }  catch (IOException e) {
                 if (m_running) {
                     hostLog.fatal("Exception in ClientAcceptor. The acceptor has died", e);
@@ -485,138 +442,316 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
                 } catch (IOException e) {
                     hostLog.fatal(null, e);
                 }
-                //Prevent interruption
-                synchronized (this) {
-                    Thread.interrupted();
-                    m_executor.shutdownNow();
-                    try {
-                        m_executor.awaitTermination( 1, TimeUnit.DAYS);
-                    } catch (InterruptedException e) {
-                        throw new RuntimeException(e);
+                for (SelectionKey key : m_selector.keys()) {
+                    if (key.isValid() && key.attachment() instanceof PendingLogin) {
+                        closeLogin(key, (PendingLogin)key.attachment(), null);
                     }
                 }
+                try {
+                    m_selector.close();
+                } catch (IOException e) {}//don't care, shutting down
+                m_executor.shutdownNow();
+                try {
+                    m_executor.awaitTermination( 1, TimeUnit.DAYS);
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
             }
         }
 
         /**
-         * Attempt to authenticate the user associated with this socket connection
-         * @param socket
-         * @return AuthUser a set of user permissions or null if authentication fails
-         * @throws IOException
+         * Accept all of the pending connections and start reading their login messages
          */
-        private InputHandler
-        authenticate(final SocketChannel socket) throws IOException
-        {
-            ByteBuffer responseBuffer = ByteBuffer.allocate(6);
-            byte version = (byte)0;
-            responseBuffer.putInt(2);//message length
-            responseBuffer.put(version);//version
+        private void acceptConnections() throws IOException {
+            while (true) {
+                final SocketChannel socket;
+                try
+                {
+                    socket = m_serverSocket.accept();
+                }
+                catch (IOException ioe)
+                {
+                    if (ioe.getMessage() != null &&
+                        ioe.getMessage().contains("Too many open files"))
+                    {
+                        networkLog.warn("Rejected accepting new connection due to too many open files");
+                        return;
+                    }
+                    else
+                    {
+                        throw ioe;
+                    }
+                }
+                if (socket == null) {
+                    return;
+                }
 
-            /*
-             * The login message is a length preceded name string followed by a length preceded
-             * SHA-1 single hash of the password.
-             */
-            socket.configureBlocking(true);
-            socket.socket().setTcpNoDelay(true);//Greatly speeds up requests hitting the wire
-            final ByteBuffer lengthBuffer = ByteBuffer.allocate(4);
+                /*
+                 * Enforce a limit on the maximum number of connections
+                 */
+                if (m_numConnections.get() == MAX_CONNECTIONS.get()) {
+                    networkLog.warn("Rejected connection from " +
+                            socket.socket().getRemoteSocketAddress() +
+                            " because the connection limit of " + MAX_CONNECTIONS + " has been reached");
+                    m_counters.rejected.incrementAndGet();
+                    try {
+                        /*
+                         * Send rejection message with reason code
+                         */
+                        final ByteBuffer b = ByteBuffer.allocate(1);
+                        b.put(MAX_CONNECTIONS_LIMIT_ERROR);
+                        b.flip();
+                        socket.configureBlocking(false);
+                        writeResponse(socket, b);
+                        socket.close();
+                    } catch (IOException e) {}//don't care keep running
+                    continue;
+                }
 
-            /*
-             * Schedule a timeout to close the socket in case there is no response for the timeout
-             * period. This will wake up the current thread that is blocked on reading the login message
-             */
-            ScheduledFuture<?> timeoutFuture = VoltDB.instance().schedulePriorityWork(new Runnable() {
-                                                    @Override
-                                                    public void run() {
-                                                        try {
-                                                            socket.close();
-                                                        } catch (IOException e) {
-                                                            //Don't care
-                                                        }
-                                                    }
-                                                }, 1600, 0, TimeUnit.MILLISECONDS);
+                /*
+                 * Increment the number of connections even though this one hasn't been authenticated
+                 * so that a flood of connection attempts (with many doomed) will not result in
+                 * successful authentication of connections that would put us over the limit.
+                 */
+                m_numConnections.incrementAndGet();
+                m_counters.accepted.incrementAndGet();
+                m_counters.pending.incrementAndGet();
 
+                final PendingLogin login = new PendingLogin(socket);
+                try {
+                    socket.configureBlocking(false);
+                    socket.socket().setTcpNoDelay(true);//Greatly speeds up requests hitting the wire
+                    socket.register(m_selector, SelectionKey.OP_READ, login);
+                } catch (IOException e) {
+                    m_counters.failures.incrementAndGet();
+                    closeLogin(null, login, null);
+                }
+            }
+        }
+
+        /**
+         * Read as much of the login message as is available. The login message is a
+         * length preceded name string followed by a length preceded SHA-1 single hash
+         * of the password. Nothing past the end of the message is read, anything the
+         * client pipelined after it is left for the connection's handler.
+         */
+        private void readLogin(SelectionKey key) {
+            final PendingLogin login = (PendingLogin)key.attachment();
+            final SocketChannel socket = login.m_socket;
             try {
-                while (lengthBuffer.hasRemaining()) {
-                    int read = socket.read(lengthBuffer);
-                    if (read == -1) {
-                        socket.close();
-                        timeoutFuture.cancel(false);
-                        return null;
+                if (login.m_message == null) {
+                    if (socket.read(login.m_lengthBuffer) == -1) {
+                        m_counters.failures.incrementAndGet();
+                        closeLogin(key, login, null);
+                        return;
+                    }
+                    if (login.m_lengthBuffer.hasRemaining()) {
+                        return;
+                    }
+                    login.m_lengthBuffer.flip();
+
+                    final int messageLength = login.m_lengthBuffer.getInt();
+                    if (messageLength < 0) {
+                        authLog.warn("Failure to authenticate connection(" + socket.socket().getRemoteSocketAddress() +
+                                     "): wire protocol violation (message length " + messageLength + " is negative).");
+                        m_counters.failures.incrementAndGet();
+                        closeLogin(key, login, WIRE_PROTOCOL_FORMAT_ERROR);
+                        return;
                     }
+                    if (messageLength > ((1024 * 1024) * 2)) {
+                        authLog.warn("Failure to authenticate connection(" + socket.socket().getRemoteSocketAddress() +
+                                     "): wire protocol violation (message length " + messageLength + " is too large).");
+                        m_counters.failures.incrementAndGet();
+                        closeLogin(key, login, WIRE_PROTOCOL_FORMAT_ERROR);
+                        return;
+                    }
+                    login.m_message = ByteBuffer.allocate(messageLength);
                 }
-            } catch (AsynchronousCloseException e) {}//This is the timeout firing and closing the channel
 
-            //Didn't get the value. Client isn't going to get anymore time.
-            if (lengthBuffer.hasRemaining()) {
-                authLog.debug("Failure to authenticate connection(" + socket.socket().getRemoteSocketAddress() +
-                              "): wire protocol violation (timeout reading message length).");
-                //Send negative response
-                responseBuffer.put(WIRE_PROTOCOL_TIMEOUT_ERROR).flip();
-                socket.write(responseBuffer);
-                socket.close();
-                return null;
+                if (login.m_message.hasRemaining() && socket.read(login.m_message) == -1) {
+                    m_counters.failures.incrementAndGet();
+                    closeLogin(key, login, null);
+                    return;
+                }
+                if (login.m_message.hasRemaining()) {
+                    return;
+                }
+            } catch (IOException e) {
+                m_counters.failures.incrementAndGet();
+                closeLogin(key, login, null);
+                return;
             }
-            lengthBuffer.flip();
 
-            final int messageLength = lengthBuffer.getInt();
-            if (messageLength < 0) {
-                authLog.warn("Failure to authenticate connection(" + socket.socket().getRemoteSocketAddress() +
-                             "): wire protocol violation (message length " + messageLength + " is negative).");
-                //Send negative response
-                responseBuffer.put(WIRE_PROTOCOL_FORMAT_ERROR).flip();
-                socket.write(responseBuffer);
-                socket.close();
-                return null;
+            /*
+             * Got the whole login message, the rest is up to the authentication pool.
+             * The socket can be registered with the network while the cancelled key
+             * is still in this selector.
+             */
+            key.cancel();
+            login.m_message.flip();
+            try {
+                m_executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        finishLogin(login);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // shutting down
+                closeLogin(null, login, null);
             }
-            if (messageLength > ((1024 * 1024) * 2)) {
-                  authLog.warn("Failure to authenticate connection(" + socket.socket().getRemoteSocketAddress() +
-                               "): wire protocol violation (message length " + messageLength + " is too large).");
-                  //Send negative response
-                  responseBuffer.put(WIRE_PROTOCOL_FORMAT_ERROR).flip();
-                  socket.write(responseBuffer);
-                  socket.close();
-                  return null;
-              }
+        }
 
-            final ByteBuffer message = ByteBuffer.allocate(messageLength);
+        /**
+         * Respond to and close the connections that haven't sent a complete login
+         * message within the timeout. Client isn't going to get anymore time.
+         */
+        private void expireLogins(long now) {
+            final long timeout = TimeUnit.MILLISECONDS.toNanos(LOGIN_TIMEOUT_MS);
+            for (SelectionKey key : m_selector.keys()) {
+                if (!key.isValid() || !(key.attachment() instanceof PendingLogin)) {
+                    continue;
+                }
+                final PendingLogin login = (PendingLogin)key.attachment();
+                if (now - login.m_acceptNanos < timeout) {
+                    continue;
+                }
+                authLog.debug("Failure to authenticate connection(" +
+                              login.m_socket.socket().getRemoteSocketAddress() +
+                              "): wire protocol violation (timeout reading " +
+                              (login.m_message == null ? "message length" : "authentication strings") + ").");
+                m_counters.timeouts.incrementAndGet();
+                closeLogin(key, login, WIRE_PROTOCOL_TIMEOUT_ERROR);
+            }
+        }
 
+        /**
+         * Give up on a connection before it is registered with the network,
+         * sending the reason code if there is one
+         */
+        private void closeLogin(SelectionKey key, PendingLogin login, Byte reason) {
+            if (key != null) {
+                key.cancel();
+            }
             try {
-                while (message.hasRemaining()) {
-                    int read = socket.read(message);
-                    if (read == -1) {
-                        socket.close();
-                        timeoutFuture.cancel(false);
-                        return null;
+                if (reason != null) {
+                    ByteBuffer responseBuffer = ByteBuffer.allocate(6);
+                    responseBuffer.putInt(2);//message length
+                    responseBuffer.put((byte)0);//version
+                    responseBuffer.put(reason).flip();
+                    writeResponse(login.m_socket, responseBuffer);
+                }
+            } catch (IOException e) {
+                //Don't care connection is already lost anyways
+            } finally {
+                m_numConnections.decrementAndGet();
+                m_counters.pending.decrementAndGet();
+                try {
+                    login.m_socket.close();
+                } catch (IOException e) {}
+            }
+        }
+
+        /**
+         * Runs on the authentication pool once the whole login message is read
+         */
+        private void finishLogin(PendingLogin login) {
+            final SocketChannel socket = login.m_socket;
+            boolean success = false;
+            try {
+                final InputHandler handler = authenticate(socket, login.m_message);
+                if (handler != null) {
+                    m_counters.loginSucceeded(System.nanoTime() - login.m_acceptNanos);
+                    socket.socket().setKeepAlive(true);
+
+                    if (handler instanceof ClientInputHandler) {
+                        final Connection c = m_network.registerChannel(socket, handler, 0);
+                        /*
+                         * If IV2 is enabled the logic initially enabling read is
+                         * in the started method of the InputHandler
+                         */
+                        if (!m_isIV2Enabled) {
+                            m_backpressureLock.lock();
+                            try {
+                                if (!m_hasDTXNBackPressure) {
+                                    c.enableReadSelection();
+                                }
+                                m_connections.add(c);
+                            } finally {
+                                m_backpressureLock.unlock();
+                            }
+                        }
+                    } else {
+                        m_network.registerChannel(socket, handler, SelectionKey.OP_READ);
                     }
+                    success = true;
+                }
+            } catch (IOException e) {
+                try {
+                    socket.close();
+                } catch (IOException e1) {
+                    //Don't care connection is already lost anyways
+                }
+                if (m_running) {
+                    hostLog.warn("Exception authenticating and registering user in ClientAcceptor", e);
                 }
-            } catch (AsynchronousCloseException e) {}//This is the timeout firing and closing the channel
+            } finally {
+                m_counters.pending.decrementAndGet();
+                if (!success) {
+                    m_counters.failures.incrementAndGet();
+                    m_numConnections.decrementAndGet();
+                }
+            }
+        }
+
+        /**
+         * The socket is non-blocking, but a login response is small enough to fit
+         * in the send buffer of a connection that hasn't sent anything yet
+         */
+        private void writeResponse(SocketChannel socket, ByteBuffer b) throws IOException {
+            for (int ii = 0; ii < 4 && b.hasRemaining(); ii++) {
+                socket.write(b);
+            }
+            if (b.hasRemaining()) {
+                throw new IOException("Unable to write the login response to " +
+                                      socket.socket().getRemoteSocketAddress());
+            }
+        }
+
+        /**
+         * Attempt to authenticate the user associated with this socket connection
+         * @param socket
+         * @param message the complete login message
+         * @return the input handler for the requested service or null if authentication fails
+         * @throws IOException
+         */
+        private InputHandler
+        authenticate(final SocketChannel socket, final ByteBuffer message) throws IOException
+        {
+            ByteBuffer responseBuffer = ByteBuffer.allocate(6);
+            byte version = (byte)0;
+            responseBuffer.putInt(2);//message length
+            responseBuffer.put(version);//version
 
-            //Didn't get the whole message. Client isn't going to get anymore time.
-            if (message.hasRemaining()) {
+            final String service;
+            final String username;
+            final byte password[] = new byte[20];
+            try {
+                message.position(1);//skip version
+                FastDeserializer fds = new FastDeserializer(message);
+                service = fds.readString();
+                username = fds.readString();
+                message.get(password);
+            } catch (RuntimeException e) {
                 authLog.warn("Failure to authenticate connection(" + socket.socket().getRemoteSocketAddress() +
-                             "): wire protocol violation (timeout reading authentication strings).");
+                             "): wire protocol violation (malformed login message).");
                 //Send negative response
-                responseBuffer.put(WIRE_PROTOCOL_TIMEOUT_ERROR).flip();
-                socket.write(responseBuffer);
+                responseBuffer.put(WIRE_PROTOCOL_FORMAT_ERROR).flip();
+                writeResponse(socket, responseBuffer);
                 socket.close();
                 return null;
             }
 
-            /*
-             * Since we got the login message, cancel the timeout.
-             * If cancellation fails then the socket is dead and the connection lost
-             */
-            if (!timeoutFuture.cancel(false)) {
-                return null;
-            }
-
-            message.flip().position(1);//skip version
-            FastDeserializer fds = new FastDeserializer(message);
-            final String service = fds.readString();
-            final String username = fds.readString();
-            final byte password[] = new byte[20];
-            message.get(password);
-
             CatalogContext context = m_catalogContext.get();
 
             /*
@@ -634,7 +769,7 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
                                  "): user " + username + " failed authentication.");
                     //Send negative response
                     responseBuffer.put(AUTHENTICATION_FAILURE).flip();
-                    socket.write(responseBuffer);
+                    writeResponse(socket, responseBuffer);
                     socket.close();
                     return null;
                 }
@@ -643,7 +778,7 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
                         "): user " + username + " because this node is rejoining.");
                 //Send negative response
                 responseBuffer.put(AUTHENTICATION_FAILURE_DUE_TO_REJOIN).flip();
-                socket.write(responseBuffer);
+                writeResponse(socket, responseBuffer);
                 socket.close();
                 return null;
             }
@@ -670,7 +805,7 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
                 if (connectorClassName == null) {
                     //Send negative response
                     responseBuffer.put(EXPORT_DISABLED_REJECTION).flip();
-                    socket.write(responseBuffer);
+                    writeResponse(socket, responseBuffer);
                     socket.close();
                     authLog.warn("Rejected user " + strUser +
                                  " attempting to use disabled or unconfigured service " +
@@ -680,7 +815,7 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
                 if (!user.authorizeConnector(connectorClassName)) {
                     //Send negative response
                     responseBuffer.put(AUTHENTICATION_FAILURE).flip();
-                    socket.write(responseBuffer);
+                    writeResponse(socket, responseBuffer);
                     socket.close();
                     authLog.warn("Failure to authorize user " + strUser + " for service " + service + ".");
                     return null;
@@ -703,7 +838,7 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
                 responseBuffer.putInt(VoltDB.instance().getHostMessenger().getInstanceId().getCoord());
                 responseBuffer.putInt(buildString.length);
                 responseBuffer.put(buildString).flip();
-                socket.write(responseBuffer);
+                writeResponse(socket, responseBuffer);
 
             }
             else {
@@ -711,7 +846,7 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
                              "): user " + username + " failed authentication.");
                 // Send negative response
                 responseBuffer.put(AUTHENTICATION_FAILURE).flip();
-                socket.write(responseBuffer);
+                writeResponse(socket, responseBuffer);
                 socket.close();
                 return null;
 
@@ -940,6 +1075,7 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
             }
             final long now = System.currentTimeMillis();
             final int delta = (int)(now - clientData.m_creationTime);
+            final long deltaMicros = (System.nanoTime() - clientData.m_creationTimeNanos) / 1000;
 
             // Reuse the creation time of the original invocation to have accurate internal latency
             if (restartTransaction(clientData.m_messageSize, clientData.m_creationTime)) {
@@ -955,7 +1091,9 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
                     cihm.connection.connectionId(),
                     cihm.connection.getHostnameOrIP(),
                     clientData.m_procName,
+                    clientData.m_partitionId,
                     delta,
+                    deltaMicros,
                     clientResponse.getStatus());
 
             clientResponse.setClientHandle(clientData.m_clientHandle);
@@ -965,6 +1103,8 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
             ByteBuffer results = ByteBuffer.allocate(clientResponse.getSerializedSize() + 4);
             results.putInt(results.capacity() - 4);
             clientResponse.flattenToBuffer(results);
+            TransactionTracer.record(CoreUtils.getHostIdFromHSId(m_siteId),
+                    response.getClientInterfaceHandle(), TransactionTracer.Stage.CI_WRITE);
             return new ByteBuffer[] { results };
         }
 
@@ -972,6 +1112,10 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
         public void cancel() {
         }
 
+        @Override
+        public void serialized() {
+        }
+
         /**
          * Checks if the transaction needs to be restarted, if so, restart it.
          * @param messageSize the original message size when the invocation first came in
@@ -1159,6 +1303,7 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
                     isForReplay);
 
         Iv2Trace.logCreateTransaction(workRequest);
+        TransactionTracer.record(CoreUtils.getHostIdFromHSId(m_siteId), handle, TransactionTracer.Stage.CI_RECEIVE);
         m_mailbox.send(initiatorHSId, workRequest);
         return true;
     }
@@ -1223,6 +1368,8 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
                         InitiateResponseMessage response = (InitiateResponseMessage)message;
                         StoredProcedureInvocation invocation = response.getInvocation();
                         Iv2Trace.logFinishTransaction(response, m_mailbox.getHSId());
+                        TransactionTracer.record(CoreUtils.getHostIdFromHSId(m_siteId),
+                                response.getClientInterfaceHandle(), TransactionTracer.Stage.CI_RESPONSE);
                         ClientInterfaceHandleManager cihm = m_cihm.get(response.getClientConnectionId());
                         Procedure procedure = null;
 
@@ -2639,6 +2786,10 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
         return statsIterators;
     }
 
+    public List<AdmissionControlGroup> getAdmissionControlGroups() {
+        return new ArrayList<AdmissionControlGroup>(m_allACGs);
+    }
+
     public List<LatencyInfo> getLatencyStats() {
         List<LatencyInfo> latencyStats = new ArrayList<LatencyInfo>();
         for (AdmissionControlGroup acg : m_allACGs) {
@@ -2646,4 +2797,15 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
         }
         return latencyStats;
     }
+
+    public List<ClientLoginStats.Counters> getLoginCounters() {
+        List<ClientLoginStats.Counters> counters = new ArrayList<ClientLoginStats.Counters>();
+        if (m_acceptor != null) {
+            counters.add(m_acceptor.getCounters());
+        }
+        if (m_adminAcceptor != null) {
+            counters.add(m_adminAcceptor.getCounters());
+        }
+        return counters;
+    }
 }
@@ -25,6 +25,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import org.voltcore.logging.VoltLogger;
 import org.voltcore.network.Connection;
@@ -104,16 +105,24 @@ public class ClientInterfaceHandleManager
         final long m_clientHandle;
         final int m_messageSize;
         final long m_creationTime;
+        // for the latency histograms, a restarted transaction is backdated
+        // to its original creation time at millisecond granularity
+        final long m_creationTimeNanos;
         final String m_procName;
+        final int m_partitionId;
         final long m_initiatorHSId;
         Iv2InFlight(long ciHandle, long clientHandle,
-                int messageSize, long creationTime, String procName, long initiatorHSId)
+                int messageSize, long creationTime, String procName, int partitionId,
+                long initiatorHSId)
         {
             m_ciHandle = ciHandle;
             m_clientHandle = clientHandle;
             m_messageSize = messageSize;
             m_creationTime = creationTime;
+            final long age = System.currentTimeMillis() - creationTime;
+            m_creationTimeNanos = System.nanoTime() - (age > 1 ? TimeUnit.MILLISECONDS.toNanos(age) : 0);
             m_procName = procName;
+            m_partitionId = partitionId;
             m_initiatorHSId = initiatorHSId;
         }
     }
@@ -224,7 +233,8 @@ public class ClientInterfaceHandleManager
         long ciHandle =
                 isShortCircuitRead ? m_shortCircuitHG.getNextHandle() : partitionStuff.m_generator.getNextHandle();
         Iv2InFlight inFlight =
-                new Iv2InFlight(ciHandle, clientHandle, messageSize, creationTime, procName, initiatorHSId);
+                new Iv2InFlight(ciHandle, clientHandle, messageSize, creationTime, procName, partitionId,
+                               initiatorHSId);
 
         if (isShortCircuitRead) {
             /*
@@ -0,0 +1,149 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.voltdb.VoltTable.ColumnInfo;
+
+/**
+ * Connection accept and login handshake stats, one row per client port on this
+ * host. ACCEPT_RATE is in connections per second and the login latencies are in
+ * milliseconds from accepting the connection to sending the login response. An
+ * interval request reports what happened since the previous interval request.
+ */
+public class ClientLoginStats extends StatsSource {
+
+    /**
+     * Counters for one acceptor, updated by the acceptor thread and the
+     * authentication pool.
+     */
+    public static class Counters {
+        public final int port;
+        public final AtomicLong accepted = new AtomicLong(0);
+        // rejected at the connection limit
+        public final AtomicLong rejected = new AtomicLong(0);
+        public final AtomicLong logins = new AtomicLong(0);
+        public final AtomicLong failures = new AtomicLong(0);
+        public final AtomicLong timeouts = new AtomicLong(0);
+        public final AtomicInteger pending = new AtomicInteger(0);
+        private final AtomicLong m_loginNanos = new AtomicLong(0);
+        private final AtomicLong m_maxLoginNanos = new AtomicLong(0);
+
+        // values at the last interval request
+        private final long m_startTime = System.currentTimeMillis();
+        private long m_lastTime = m_startTime;
+        private long m_lastValues[] = new long[6];
+
+        public Counters(int port) {
+            this.port = port;
+        }
+
+        public void loginSucceeded(long latencyNanos) {
+            logins.incrementAndGet();
+            m_loginNanos.addAndGet(latencyNanos);
+            long max;
+            while ((max = m_maxLoginNanos.get()) < latencyNanos) {
+                if (m_maxLoginNanos.compareAndSet(max, latencyNanos)) {
+                    break;
+                }
+            }
+        }
+
+        /**
+         * accepted, rejected, logins, failures, timeouts, login nanos, max login nanos
+         * and the elapsed milliseconds they were counted over
+         */
+        synchronized long[] sample(boolean interval) {
+            final long now = System.currentTimeMillis();
+            final long values[] = new long[] {
+                    accepted.get(), rejected.get(), logins.get(),
+                    failures.get(), timeouts.get(), m_loginNanos.get() };
+            final long result[] = new long[values.length + 2];
+            for (int ii = 0; ii < values.length; ii++) {
+                result[ii] = interval ? values[ii] - m_lastValues[ii] : values[ii];
+            }
+            if (interval) {
+                result[values.length] = m_maxLoginNanos.getAndSet(0);
+                result[values.length + 1] = now - m_lastTime;
+                m_lastValues = values;
+                m_lastTime = now;
+            } else {
+                result[values.length] = m_maxLoginNanos.get();
+                result[values.length + 1] = now - m_startTime;
+            }
+            return result;
+        }
+    }
+
+    public ClientLoginStats() {
+        super(false);
+    }
+
+    @Override
+    protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
+        super.populateColumnSchema(columns);
+        columns.add(new ColumnInfo("PORT", VoltType.INTEGER));
+        columns.add(new ColumnInfo("ACCEPTED", VoltType.BIGINT));
+        columns.add(new ColumnInfo("REJECTED", VoltType.BIGINT));
+        columns.add(new ColumnInfo("ACCEPT_RATE", VoltType.FLOAT));
+        columns.add(new ColumnInfo("LOGINS", VoltType.BIGINT));
+        columns.add(new ColumnInfo("FAILURES", VoltType.BIGINT));
+        columns.add(new ColumnInfo("TIMEOUTS", VoltType.BIGINT));
+        columns.add(new ColumnInfo("PENDING", VoltType.INTEGER));
+        columns.add(new ColumnInfo("AVG_LOGIN_LATENCY", VoltType.FLOAT));
+        columns.add(new ColumnInfo("MAX_LOGIN_LATENCY", VoltType.FLOAT));
+    }
+
+    private boolean m_interval = false;
+
+    @Override
+    protected void updateStatsRow(Object rowKey, Object[] rowValues) {
+        final Counters counters = (Counters) rowKey;
+        final long sample[] = counters.sample(m_interval);
+        final long logins = sample[2];
+        final long elapsed = sample[7];
+
+        rowValues[columnNameToIndex.get("PORT")] = counters.port;
+        rowValues[columnNameToIndex.get("ACCEPTED")] = sample[0];
+        rowValues[columnNameToIndex.get("REJECTED")] = sample[1];
+        rowValues[columnNameToIndex.get("ACCEPT_RATE")] =
+            elapsed > 0 ? sample[0] * 1000.0 / elapsed : 0.0;
+        rowValues[columnNameToIndex.get("LOGINS")] = logins;
+        rowValues[columnNameToIndex.get("FAILURES")] = sample[3];
+        rowValues[columnNameToIndex.get("TIMEOUTS")] = sample[4];
+        rowValues[columnNameToIndex.get("PENDING")] = counters.pending.get();
+        rowValues[columnNameToIndex.get("AVG_LOGIN_LATENCY")] =
+            logins > 0 ? sample[5] / (logins * 1000000.0) : 0.0;
+        rowValues[columnNameToIndex.get("MAX_LOGIN_LATENCY")] = sample[6] / 1000000.0;
+        super.updateStatsRow(rowKey, rowValues);
+    }
+
+    @Override
+    protected Iterator<Object> getStatsRowKeyIterator(boolean interval) {
+        m_interval = interval;
+        ArrayList<Object> rows = new ArrayList<Object>();
+        for (ClientInterface ci : VoltDB.instance().getClientInterfaces()) {
+            rows.addAll(ci.getLoginCounters());
+        }
+        return rows.iterator();
+    }
+}
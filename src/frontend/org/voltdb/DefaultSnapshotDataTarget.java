@@ -20,6 +20,8 @@ package org.voltdb;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.util.List;
@@ -32,6 +34,7 @@ import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -43,6 +46,7 @@ import org.voltcore.logging.VoltLogger;
 import org.voltcore.utils.CoreUtils;
 import org.voltcore.utils.DBBPool;
 import org.voltcore.utils.DBBPool.BBContainer;
+import org.voltdb.catalog.Deployment;
 import org.voltdb.messaging.FastSerializer;
 import org.voltdb.sysprocs.saverestore.SnapshotUtil;
 import org.voltdb.utils.CompressionService;
@@ -83,6 +87,15 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
 
     private volatile long m_bytesWritten = 0;
 
+    /*
+     * Bytes handed to the compressor, the compressed payload it produced (without
+     * the chunk headers) and the CPU time spent compressing them, used to report
+     * the compression ratio and cost in the snapshot status
+     */
+    private final AtomicLong m_uncompressedBytes = new AtomicLong(0);
+    private final AtomicLong m_compressedBytes = new AtomicLong(0);
+    private final AtomicLong m_compressionTimeNanos = new AtomicLong(0);
+
     private static final Semaphore m_bytesAllowedBeforeSync = new Semaphore((1024 * 1024) * 256);
     private final AtomicInteger m_bytesWrittenSinceLastSync = new AtomicInteger(0);
 
@@ -103,6 +116,8 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
             m_outstandingWriteTasksLock.newCondition();
 
     private static final ListeningExecutorService m_es = CoreUtils.getSingleThreadExecutor("Snapshot write service ");
+    private static ListeningExecutorService m_compressionES = null;
+    private static final ThreadMXBean m_threadMXBean = ManagementFactory.getThreadMXBean();
     private static final ListeningScheduledExecutorService m_syncService = MoreExecutors.listeningDecorator(
             Executors.newSingleThreadScheduledExecutor(CoreUtils.getThreadFactory("Snapshot sync service")));
 
@@ -263,6 +278,37 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
         m_syncTask = syncTask;
     }
 
+    /*
+     * Chunks are compressed on a dedicated pool so that a snapshot doesn't queue up
+     * behind, or starve, other users of the computation service. The pool gets the cores
+     * that aren't already taken by execution sites on this host.
+     */
+    private static synchronized ListeningExecutorService getCompressionService() {
+        if (m_compressionES == null) {
+            m_compressionES = CoreUtils.getListeningExecutorService(
+                    "Snapshot compression thread", getCompressionThreadCount());
+        }
+        return m_compressionES;
+    }
+
+    static int getCompressionThreadCount() {
+        int sitesPerHost = 0;
+        VoltDBInterface instance = VoltDB.instance();
+        if (instance != null && instance.getCatalogContext() != null) {
+            for (Deployment deployment : instance.getCatalogContext().cluster.getDeployment()) {
+                sitesPerHost = deployment.getSitesperhost();
+            }
+        }
+        return Math.max(1, CoreUtils.availableProcessors() - sitesPerHost);
+    }
+
+    private static long currentThreadCpuTime() {
+        if (m_threadMXBean.isCurrentThreadCpuTimeSupported()) {
+            return m_threadMXBean.getCurrentThreadCpuTime();
+        }
+        return System.nanoTime();
+    }
+
     @Override
     public boolean needsFinalClose()
     {
@@ -349,7 +395,24 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
              * that is 16 bytes, but 4 of those are done by CompressionService
              */
             cont.b.position(12);
-            compressionTask = CompressionService.compressAndCRC32cBufferAsync(tupleData.b, cont);
+            final BBContainer compressionOutput = cont;
+            compressionTask = getCompressionService().submit(new Callable<BBContainer>() {
+                @Override
+                public BBContainer call() throws Exception {
+                    final int uncompressedLength = tupleData.b.remaining();
+                    final long start = currentThreadCpuTime();
+                    try {
+                        final BBContainer compressed =
+                                CompressionService.compressAndCRC32cBuffer(tupleData.b, compressionOutput);
+                        // everything past the 16 header bytes is compressed payload
+                        m_compressedBytes.addAndGet(compressed.b.limit() - 16);
+                        return compressed;
+                    } finally {
+                        m_compressionTimeNanos.addAndGet(currentThreadCpuTime() - start);
+                        m_uncompressedBytes.addAndGet(uncompressedLength);
+                    }
+                }
+            });
         }
         final Future<BBContainer> compressionTaskFinal = compressionTask;
 
@@ -443,6 +506,21 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
         return m_bytesWritten;
     }
 
+    @Override
+    public long getUncompressedBytes() {
+        return m_uncompressedBytes.get();
+    }
+
+    @Override
+    public long getCompressedBytes() {
+        return m_compressedBytes.get();
+    }
+
+    @Override
+    public long getCompressionTimeNanos() {
+        return m_compressionTimeNanos.get();
+    }
+
     @Override
     public void setOnCloseHandler(Runnable onClose) {
         m_onCloseHandler = onClose;
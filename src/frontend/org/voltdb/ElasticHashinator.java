@@ -48,6 +48,106 @@ public class ElasticHashinator extends TheHashinator {
      */
     private final ImmutableSortedMap<Long, Integer> tokens;
     private final byte m_configBytes[];
+    private final BucketLookup m_lookup;
+
+    /**
+     * Flattened copy of the ring for partitionForToken. The tokens and partitions are
+     * kept in sorted parallel arrays, and a direct mapped bucket array over the top bits
+     * of the hash stores the index of the floor token of the first hash in each bucket.
+     * A lookup starts at that index and only has to step over the tokens that fall
+     * inside the bucket, which with at least twice as many buckets as tokens is usually
+     * none. Buckets that still hold many tokens fall back to a binary search.
+     *
+     * The EE's ElasticHashinator.h builds the same structure, keep them in sync.
+     */
+    static final class BucketLookup {
+        static final int MAX_BUCKET_BITS = 16;
+        static final int LINEAR_SCAN_LIMIT = 8;
+
+        final long m_tokens[];
+        final int m_partitions[];
+        final int m_buckets[];
+        final int m_bucketShift;
+
+        BucketLookup(Map<Long, Integer> sortedTokens) {
+            final int count = sortedTokens.size();
+            m_tokens = new long[count];
+            m_partitions = new int[count];
+            int ii = 0;
+            for (Map.Entry<Long, Integer> e : sortedTokens.entrySet()) {
+                m_tokens[ii] = e.getKey();
+                m_partitions[ii] = e.getValue();
+                ii++;
+            }
+
+            int bits = 1;
+            while (bits < MAX_BUCKET_BITS && (1 << bits) < count * 2) {
+                bits++;
+            }
+            m_bucketShift = 64 - bits;
+            m_buckets = new int[1 << bits];
+
+            // The floor token index of the lowest hash in each bucket, -1 if it is
+            // below the first token
+            int floor = -1;
+            for (int bucket = 0; bucket < m_buckets.length; bucket++) {
+                final long bucketStart = bucketStart(bucket);
+                while (floor + 1 < count && m_tokens[floor + 1] <= bucketStart) {
+                    floor++;
+                }
+                m_buckets[bucket] = floor;
+            }
+        }
+
+        /**
+         * Buckets are taken over the hash with the sign bit flipped so that bucket order
+         * matches signed token order
+         */
+        private int bucketFor(long hash) {
+            return (int)((hash ^ Long.MIN_VALUE) >>> m_bucketShift);
+        }
+
+        private long bucketStart(int bucket) {
+            return ((long)bucket << m_bucketShift) ^ Long.MIN_VALUE;
+        }
+
+        /**
+         * For a given a value hash, find the token that corresponds to it. This will
+         * be the first token <= the value hash, or if the value hash is < the first token in the ring,
+         * it wraps around to the last token in the ring closest to Long.MAX_VALUE
+         */
+        int partitionForToken(long hash) {
+            final int bucket = bucketFor(hash);
+            int floor = m_buckets[bucket];
+            // the floor of the hash is between the floors of this bucket and the next one
+            final int last = bucket + 1 < m_buckets.length ? m_buckets[bucket + 1] : m_tokens.length - 1;
+
+            if (last - floor <= LINEAR_SCAN_LIMIT) {
+                while (floor < last && m_tokens[floor + 1] <= hash) {
+                    floor++;
+                }
+            } else {
+                int lo = floor + 1;
+                int hi = last;
+                while (lo <= hi) {
+                    final int mid = (lo + hi) >>> 1;
+                    if (m_tokens[mid] <= hash) {
+                        floor = mid;
+                        lo = mid + 1;
+                    } else {
+                        hi = mid - 1;
+                    }
+                }
+            }
+
+            /*
+             * Because the tokens are randomly distributed it is likely there is a range
+             * near Long.MIN_VALUE that isn't covered by a token. Conceptually this is a ring
+             * so the correct token is the one near Long.MAX_VALUE.
+             */
+            return floor < 0 ? m_partitions[m_partitions.length - 1] : m_partitions[floor];
+        }
+    }
 
     /**
      * Initialize the hashinator from a binary description of the ring.
@@ -75,6 +175,7 @@ public class ElasticHashinator extends TheHashinator {
             builder.put(e.getKey(), e.getValue());
         }
         tokens = builder.build();
+        m_lookup = new BucketLookup(tokens);
     }
 
     /**
@@ -85,6 +186,7 @@ public class ElasticHashinator extends TheHashinator {
     private ElasticHashinator(Map<Long, Integer> tokens) {
         this.tokens = ImmutableSortedMap.copyOf(tokens);
         m_configBytes = toBytes();
+        m_lookup = new BucketLookup(this.tokens);
     }
 
     /**
@@ -200,20 +302,7 @@ public class ElasticHashinator extends TheHashinator {
      * it wraps around to the last token in the ring closest to Long.MAX_VALUE
      */
     int partitionForToken(long hash) {
-        Map.Entry<Long, Integer> entry = tokens.floorEntry(hash);
-        //System.out.println("Finding partition for token " + token);
-        /*
-         * Because the tokens are randomly distributed it is likely there is a range
-         * near Long.MIN_VALUE that isn't covered by a token. Conceptually this is a ring
-         * so the correct token is the one near Long.MAX_VALUE.
-         */
-        if (entry != null) {
-            //System.out.println("Floor token was " + entry.getKey());
-            return entry.getValue();
-        } else {
-            //System.out.println("Last entry token " + tokens.lastEntry().getKey());
-            return tokens.lastEntry().getValue();
-        }
+        return m_lookup.partitionForToken(hash);
     }
 
     @Override
@@ -47,5 +47,8 @@ public class IndexStats extends SiteStatsSource {
         columns.add(new ColumnInfo("IS_COUNTABLE", VoltType.TINYINT));
         columns.add(new ColumnInfo("ENTRY_COUNT", VoltType.BIGINT));
         columns.add(new ColumnInfo("MEMORY_ESTIMATE", VoltType.INTEGER));
+        columns.add(new ColumnInfo("FILTER_PROBES", VoltType.BIGINT));
+        columns.add(new ColumnInfo("FILTER_REJECTS", VoltType.BIGINT));
+        columns.add(new ColumnInfo("FILTER_FALSE_POSITIVES", VoltType.BIGINT));
     }
 }
@@ -0,0 +1,244 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>A log-linear latency histogram with microsecond resolution, in the style
+ * of HdrHistogram. Values below 2^precision microseconds are counted exactly,
+ * every power of two above that is split into 2^precision linear sub-buckets,
+ * so a recorded value is reported within 1/2^precision of itself. The default
+ * precision of 6 bits keeps the error under 1.6% in 2048 counters. Values of
+ * 2^37 microseconds (about 38 hours) and over are counted in the last bucket.</p>
+ *
+ * <p>Recording is lock free and can be done from any number of threads, readers
+ * don't lock either and see a slightly stale but usable view. Histograms of the
+ * same precision can be merged and diffed, so a cumulative histogram can be
+ * turned into an interval one by subtracting an earlier copy of itself.</p>
+ */
+public class LatencyHistogram {
+    /** Default number of bits of precision, set with -DLATENCY_HISTOGRAM_PRECISION */
+    public static final int DEFAULT_PRECISION =
+        Math.max(1, Math.min(10, Integer.getInteger("LATENCY_HISTOGRAM_PRECISION", 6)));
+
+    // the last power of two range with its own buckets
+    private static final int MAX_EXPONENT = 36;
+
+    private final int m_precision;
+    private final AtomicLongArray m_counts;
+    private final AtomicLong m_totalCount = new AtomicLong(0);
+    private final AtomicLong m_totalMicros = new AtomicLong(0);
+    private final AtomicLong m_max = new AtomicLong(0);
+
+    public LatencyHistogram() {
+        this(DEFAULT_PRECISION);
+    }
+
+    /**
+     * @param precision bits of precision, between 1 and 10
+     */
+    public LatencyHistogram(int precision) {
+        if (precision < 1 || precision > 10) {
+            throw new IllegalArgumentException("Precision must be between 1 and 10 bits but was " + precision);
+        }
+        m_precision = precision;
+        m_counts = new AtomicLongArray((MAX_EXPONENT - precision + 2) << precision);
+    }
+
+    /**
+     * Record a latency. Negative values (the clock moved backwards) are recorded as 0.
+     * @param micros latency in microseconds
+     */
+    public void recordValue(long micros) {
+        if (micros < 0) {
+            micros = 0;
+        }
+        m_counts.incrementAndGet(indexOf(micros));
+        m_totalCount.incrementAndGet();
+        m_totalMicros.addAndGet(micros);
+        long max;
+        while ((max = m_max.get()) < micros) {
+            if (m_max.compareAndSet(max, micros)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Add the counts of another histogram of the same precision to this one
+     */
+    public void add(LatencyHistogram other) {
+        checkPrecision(other);
+        for (int ii = 0; ii < m_counts.length(); ii++) {
+            final long count = other.m_counts.get(ii);
+            if (count != 0) {
+                m_counts.addAndGet(ii, count);
+            }
+        }
+        m_totalCount.addAndGet(other.m_totalCount.get());
+        m_totalMicros.addAndGet(other.m_totalMicros.get());
+        final long otherMax = other.m_max.get();
+        long max;
+        while ((max = m_max.get()) < otherMax) {
+            if (m_max.compareAndSet(max, otherMax)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * A histogram of the values recorded in newer since older was copied from it.
+     * The max of the result is the upper bound of its highest non-empty bucket,
+     * capped at the max of newer.
+     */
+    public static LatencyHistogram diff(LatencyHistogram newer, LatencyHistogram older) {
+        newer.checkPrecision(older);
+        LatencyHistogram retval = new LatencyHistogram(newer.m_precision);
+        long total = 0;
+        int highest = -1;
+        for (int ii = 0; ii < newer.m_counts.length(); ii++) {
+            final long count = Math.max(0, newer.m_counts.get(ii) - older.m_counts.get(ii));
+            if (count != 0) {
+                retval.m_counts.set(ii, count);
+                total += count;
+                highest = ii;
+            }
+        }
+        retval.m_totalCount.set(total);
+        retval.m_totalMicros.set(Math.max(0, newer.m_totalMicros.get() - older.m_totalMicros.get()));
+        if (highest >= 0) {
+            retval.m_max.set(Math.min(newer.m_max.get(), retval.highestValueAt(highest)));
+        }
+        return retval;
+    }
+
+    public LatencyHistogram copy() {
+        LatencyHistogram retval = new LatencyHistogram(m_precision);
+        retval.add(this);
+        return retval;
+    }
+
+    public int getPrecision() {
+        return m_precision;
+    }
+
+    public long getTotalCount() {
+        return m_totalCount.get();
+    }
+
+    /** @return the largest recorded value in microseconds */
+    public long getMax() {
+        return m_max.get();
+    }
+
+    /** @return the mean of the recorded values in microseconds */
+    public double getMean() {
+        final long count = m_totalCount.get();
+        return count == 0 ? 0.0 : m_totalMicros.get() / (double)count;
+    }
+
+    /**
+     * <p>Estimate the k-percentile latency. For example, k=.5 returns an estimate
+     * of the median and k=.999 the 99.9th percentile. The estimate is the upper
+     * bound of the bucket holding the k-percentile value, never more than the max.</p>
+     *
+     * @param percentile A floating point number between 0.0 and 1.0.
+     * @return An estimate of k-percentile latency in microseconds, 0 if nothing was recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+        final long counts[] = new long[m_counts.length()];
+        long total = 0;
+        for (int ii = 0; ii < counts.length; ii++) {
+            counts[ii] = m_counts.get(ii);
+            total += counts[ii];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        final long max = m_max.get();
+        final long rank = Math.max(1, (long)Math.ceil(total * Math.max(0.0, Math.min(1.0, percentile))));
+        long sum = 0;
+        for (int ii = 0; ii < counts.length; ii++) {
+            sum += counts[ii];
+            if (sum >= rank) {
+                return Math.min(highestValueAt(ii), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Count of the recorded values in [lowMicros, highMicros), to within the
+     * precision of the buckets.
+     */
+    public long getCountBetween(long lowMicros, long highMicros) {
+        long count = 0;
+        for (int ii = indexOf(Math.max(0, lowMicros)); ii < m_counts.length(); ii++) {
+            if (lowestValueAt(ii) >= highMicros) {
+                break;
+            }
+            count += m_counts.get(ii);
+        }
+        return count;
+    }
+
+    int indexOf(long micros) {
+        if (micros < (1L << m_precision)) {
+            return (int)micros;
+        }
+        final int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        if (exponent > MAX_EXPONENT) {
+            return m_counts.length() - 1;
+        }
+        final int shift = exponent - m_precision;
+        return ((shift + 1) << m_precision) + (int)((micros >>> shift) - (1L << m_precision));
+    }
+
+    long lowestValueAt(int index) {
+        final int bucket = index >>> m_precision;
+        if (bucket == 0) {
+            return index;
+        }
+        final long subBucket = index & ((1 << m_precision) - 1);
+        return ((1L << m_precision) + subBucket) << (bucket - 1);
+    }
+
+    long highestValueAt(int index) {
+        final int bucket = index >>> m_precision;
+        if (bucket == 0) {
+            return index;
+        }
+        return lowestValueAt(index) + (1L << (bucket - 1)) - 1;
+    }
+
+    private void checkPrecision(LatencyHistogram other) {
+        if (other.m_precision != m_precision) {
+            throw new IllegalArgumentException("Can't combine histograms with " + m_precision +
+                                               " and " + other.m_precision + " bits of precision");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count %d, mean %.1fus, p50 %dus, p99 %dus, p99.9 %dus, max %dus",
+                getTotalCount(), getMean(), getValueAtPercentile(.5), getValueAtPercentile(.99),
+                getValueAtPercentile(.999), getMax());
+    }
+}
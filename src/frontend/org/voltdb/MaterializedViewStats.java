@@ -0,0 +1,112 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.voltdb.VoltTable.ColumnInfo;
+
+import com.google.common.base.Charsets;
+
+/**
+ * How the materialized views of a site's partition kept their MIN and MAX
+ * columns, one row per view. Deleting the current MIN or MAX of a group makes
+ * the EE find it again among the rows left, through a tree index on the source
+ * table that starts with the group by columns followed by the aggregated column
+ * if there is one, else by scanning the whole source table. The counters start
+ * over when the view or its source table is redefined and are refreshed from
+ * the EE on every site tick. Interval requests report what changed since the
+ * previous interval request.
+ */
+public class MaterializedViewStats extends SiteStatsSource {
+
+    private final int m_partitionId;
+    // VIEW_NAME, SOURCE_TABLE, INDEX_RECOMPUTES, SCAN_RECOMPUTES of every view
+    private volatile List<Object[]> m_views = Collections.emptyList();
+    // INDEX_RECOMPUTES and SCAN_RECOMPUTES of every view at the last interval request
+    private final Map<String, long[]> m_lastValues = new HashMap<String, long[]>();
+    private boolean m_interval = false;
+
+    public MaterializedViewStats(long siteId, int partitionId) {
+        super(siteId, false);
+        m_partitionId = partitionId;
+    }
+
+    /**
+     * Called from the site thread with the result of the GET_VIEW_STATS task
+     */
+    public void update(ByteBuffer counters) {
+        final int count = counters.getInt();
+        List<Object[]> views = new ArrayList<Object[]>(count);
+        for (int i = 0; i < count; i++) {
+            views.add(new Object[] { readString(counters), readString(counters),
+                                     counters.getLong(), counters.getLong() });
+        }
+        m_views = views;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, Charsets.UTF_8);
+    }
+
+    @Override
+    protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
+        super.populateColumnSchema(columns);
+        columns.add(new ColumnInfo(VoltSystemProcedure.CNAME_PARTITION_ID, VoltSystemProcedure.CTYPE_ID));
+        columns.add(new ColumnInfo("VIEW_NAME", VoltType.STRING));
+        columns.add(new ColumnInfo("SOURCE_TABLE", VoltType.STRING));
+        columns.add(new ColumnInfo("INDEX_RECOMPUTES", VoltType.BIGINT));
+        columns.add(new ColumnInfo("SCAN_RECOMPUTES", VoltType.BIGINT));
+    }
+
+    @Override
+    protected void updateStatsRow(Object rowKey, Object[] rowValues) {
+        Object[] view = (Object[]) rowKey;
+        rowValues[columnNameToIndex.get(VoltSystemProcedure.CNAME_PARTITION_ID)] = m_partitionId;
+        rowValues[columnNameToIndex.get("VIEW_NAME")] = view[0];
+        rowValues[columnNameToIndex.get("SOURCE_TABLE")] = view[1];
+        long indexRecomputes = (Long) view[2];
+        long scanRecomputes = (Long) view[3];
+        if (m_interval) {
+            long[] last = m_lastValues.put((String) view[0],
+                                           new long[] { indexRecomputes, scanRecomputes });
+            // Counters that went backwards were started over by a redefinition
+            if (last != null && indexRecomputes >= last[0] && scanRecomputes >= last[1]) {
+                indexRecomputes -= last[0];
+                scanRecomputes -= last[1];
+            }
+        }
+        rowValues[columnNameToIndex.get("INDEX_RECOMPUTES")] = indexRecomputes;
+        rowValues[columnNameToIndex.get("SCAN_RECOMPUTES")] = scanRecomputes;
+        super.updateStatsRow(rowKey, rowValues);
+    }
+
+    @Override
+    protected Iterator<Object> getStatsRowKeyIterator(boolean interval) {
+        m_interval = interval;
+        return new ArrayList<Object>(m_views).iterator();
+    }
+}
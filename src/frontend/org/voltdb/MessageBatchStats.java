@@ -0,0 +1,75 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+
+import org.voltcore.messaging.ForeignHost;
+import org.voltcore.messaging.HostMessenger;
+import org.voltdb.VoltTable.ColumnInfo;
+
+/**
+ * Reports how messages to each of the other hosts in the cluster are packed
+ * into frames, one row per remote host. WINDOW is the current batching window
+ * in microseconds and FULL_BATCHES the batches cut short by the byte budget.
+ */
+public class MessageBatchStats extends StatsSource {
+    private final HostMessenger m_messenger;
+
+    public MessageBatchStats(HostMessenger messenger) {
+        super(false);
+        m_messenger = messenger;
+    }
+
+    @Override
+    protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
+        super.populateColumnSchema(columns);
+        columns.add(new ColumnInfo("REMOTE_HOST_ID", VoltType.INTEGER));
+        columns.add(new ColumnInfo("REMOTE_HOSTNAME", VoltType.STRING));
+        columns.add(new ColumnInfo("BATCHES", VoltType.BIGINT));
+        columns.add(new ColumnInfo("MESSAGES", VoltType.BIGINT));
+        columns.add(new ColumnInfo("BYTES", VoltType.BIGINT));
+        columns.add(new ColumnInfo("MESSAGES_PER_BATCH", VoltType.FLOAT));
+        columns.add(new ColumnInfo("FULL_BATCHES", VoltType.BIGINT));
+        columns.add(new ColumnInfo("WINDOW", VoltType.INTEGER));
+    }
+
+    @Override
+    protected void updateStatsRow(Object rowKey, Object[] rowValues) {
+        final ForeignHost fh = (ForeignHost) rowKey;
+        final long batches = fh.getBatches();
+        final long messages = fh.getBatchedMessages();
+
+        rowValues[columnNameToIndex.get("REMOTE_HOST_ID")] = fh.getHostId();
+        rowValues[columnNameToIndex.get("REMOTE_HOSTNAME")] = fh.hostname();
+        rowValues[columnNameToIndex.get("BATCHES")] = batches;
+        rowValues[columnNameToIndex.get("MESSAGES")] = messages;
+        rowValues[columnNameToIndex.get("BYTES")] = fh.getBatchedBytes();
+        rowValues[columnNameToIndex.get("MESSAGES_PER_BATCH")] =
+            batches > 0 ? messages / (double)batches : 0.0;
+        rowValues[columnNameToIndex.get("FULL_BATCHES")] = fh.getFullBatches();
+        rowValues[columnNameToIndex.get("WINDOW")] = fh.getBatchWindow();
+        super.updateStatsRow(rowKey, rowValues);
+    }
+
+    @Override
+    protected Iterator<Object> getStatsRowKeyIterator(boolean interval) {
+        return new ArrayList<Object>(m_messenger.getForeignHosts()).iterator();
+    }
+}
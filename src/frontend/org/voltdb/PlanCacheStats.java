@@ -0,0 +1,92 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+
+import org.voltdb.VoltTable.ColumnInfo;
+
+/**
+ * The executor trees a site's EE keeps loaded for the plan fragments it ran, one
+ * row per site. A miss fetches the plan from Java and parses it again, LOAD_MICROS
+ * is the time all misses took. The fragments of stored procedures are PINNED and
+ * never evicted, the others are evicted least recently used first once their
+ * estimated BYTES are over -DEE_PLAN_CACHE_MB (BUDGET_BYTES, 0 for no limit).
+ * The counters are cumulative and refreshed from the EE on every site tick.
+ */
+public class PlanCacheStats extends SiteStatsSource {
+
+    private final int m_partitionId;
+    // HITS through BUDGET_BYTES, in the order of the GET_PLAN_CACHE_STATS task
+    private volatile long[] m_counters = new long[9];
+
+    public PlanCacheStats(long siteId, int partitionId) {
+        super(siteId, false);
+        m_partitionId = partitionId;
+    }
+
+    /**
+     * Called from the site thread with the result of the GET_PLAN_CACHE_STATS task
+     */
+    public void update(ByteBuffer counters) {
+        long[] values = new long[9];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = counters.getLong();
+        }
+        m_counters = values;
+    }
+
+    @Override
+    protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
+        super.populateColumnSchema(columns);
+        columns.add(new ColumnInfo(VoltSystemProcedure.CNAME_PARTITION_ID, VoltSystemProcedure.CTYPE_ID));
+        columns.add(new ColumnInfo("HITS", VoltType.BIGINT));
+        columns.add(new ColumnInfo("MISSES", VoltType.BIGINT));
+        columns.add(new ColumnInfo("EVICTIONS", VoltType.BIGINT));
+        columns.add(new ColumnInfo("LOAD_MICROS", VoltType.BIGINT));
+        columns.add(new ColumnInfo("ENTRIES", VoltType.BIGINT));
+        columns.add(new ColumnInfo("BYTES", VoltType.BIGINT));
+        columns.add(new ColumnInfo("PINNED_ENTRIES", VoltType.BIGINT));
+        columns.add(new ColumnInfo("PINNED_BYTES", VoltType.BIGINT));
+        columns.add(new ColumnInfo("BUDGET_BYTES", VoltType.BIGINT));
+    }
+
+    @Override
+    protected void updateStatsRow(Object rowKey, Object[] rowValues) {
+        final long[] counters = m_counters;
+        rowValues[columnNameToIndex.get(VoltSystemProcedure.CNAME_PARTITION_ID)] = m_partitionId;
+        rowValues[columnNameToIndex.get("HITS")] = counters[0];
+        rowValues[columnNameToIndex.get("MISSES")] = counters[1];
+        rowValues[columnNameToIndex.get("EVICTIONS")] = counters[2];
+        rowValues[columnNameToIndex.get("LOAD_MICROS")] = counters[3];
+        rowValues[columnNameToIndex.get("ENTRIES")] = counters[4];
+        rowValues[columnNameToIndex.get("BYTES")] = counters[5];
+        rowValues[columnNameToIndex.get("PINNED_ENTRIES")] = counters[6];
+        rowValues[columnNameToIndex.get("PINNED_BYTES")] = counters[7];
+        rowValues[columnNameToIndex.get("BUDGET_BYTES")] = counters[8];
+        super.updateStatsRow(rowKey, rowValues);
+    }
+
+    @Override
+    protected Iterator<Object> getStatsRowKeyIterator(boolean interval) {
+        return Collections.<Object>singletonList(this).iterator();
+    }
+}
@@ -625,7 +625,14 @@ public class ProcedureRunner {
             }
         }
         else if (m_catProc.getSinglepartition()) {
+            final TransactionTracer.Trace trace = m_txnState != null ? m_txnState.getTrace() : null;
+            if (trace != null) {
+                trace.record(TransactionTracer.Stage.EE_START);
+            }
             results = fastPath(batch);
+            if (trace != null) {
+                trace.record(TransactionTracer.Stage.EE_END);
+            }
         }
         else {
             results = slowPath(batch, isFinalSQL);
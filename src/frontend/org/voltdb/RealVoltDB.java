@@ -88,6 +88,7 @@ import org.voltdb.compiler.deploymentfile.HeartbeatType;
 import org.voltdb.compiler.deploymentfile.SecurityType;
 import org.voltdb.compiler.deploymentfile.UsersType;
 import org.voltdb.dtxn.InitiatorStats;
+import org.voltdb.dtxn.LatencyHistogramStats;
 import org.voltdb.dtxn.LatencyStats;
 import org.voltdb.dtxn.SiteTracker;
 import org.voltdb.export.ExportManager;
@@ -105,6 +106,8 @@ import org.voltdb.licensetool.LicenseApi;
 import org.voltdb.messaging.VoltDbMessageFactory;
 import org.voltdb.rejoin.Iv2RejoinCoordinator;
 import org.voltdb.rejoin.JoinCoordinator;
+import org.voltdb.rejoin.RebalanceController;
+import org.voltdb.rejoin.RejoinStats;
 import org.voltdb.utils.CLibrary;
 import org.voltdb.utils.CatalogUtil;
 import org.voltdb.utils.Encoder;
@@ -564,6 +567,18 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback
             m_initiatorStats = new InitiatorStats(m_myHostId);
             m_liveClientsStats = new LiveClientsStats();
             getStatsAgent().registerStatsSource(StatsSelector.LIVECLIENTS, 0, m_liveClientsStats);
+            getStatsAgent().registerStatsSource(StatsSelector.REJOIN, 0, new RejoinStats());
+            getStatsAgent().registerStatsSource(StatsSelector.REBALANCE, 0, RebalanceController.instance());
+            getStatsAgent().registerStatsSource(StatsSelector.MESSAGEBATCH, 0,
+                    new MessageBatchStats(m_messenger));
+            getStatsAgent().registerStatsSource(StatsSelector.CLIENTLOGIN, 0, new ClientLoginStats());
+            getStatsAgent().registerStatsSource(StatsSelector.RESULTBUFFER, 0, new ResultBufferStats());
+            getStatsAgent().registerStatsSource(StatsSelector.PROCEDURELATENCY, 0,
+                    new LatencyHistogramStats(LatencyHistogramStats.Dimension.PROCEDURE));
+            getStatsAgent().registerStatsSource(StatsSelector.PARTITIONLATENCY, 0,
+                    new LatencyHistogramStats(LatencyHistogramStats.Dimension.PARTITION));
+            getStatsAgent().registerStatsSource(StatsSelector.CONNECTIONLATENCY, 0,
+                    new LatencyHistogramStats(LatencyHistogramStats.Dimension.CONNECTION));
             m_latencyStats = new LatencyStats(m_myHostId);
 
             /*
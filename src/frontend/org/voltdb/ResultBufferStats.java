@@ -0,0 +1,84 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.jni.ResultBufferPool;
+
+/**
+ * Occupancy of the pool of direct buffers the EE grows large results into, one
+ * row per host. POOLED buffers are idle, LENT ones are being written by an EE
+ * and HANDED_OFF ones back result tables until the GC finds them unreachable, up
+ * to HANDED_OFF_LIMIT_BYTES. The counters are cumulative: ACQUIRES is the number
+ * of grows, ALLOCATIONS the ones the pool couldn't serve, COPIES the results
+ * copied out because of the hand off limit and FREED the buffers dropped over
+ * the pool limit.
+ */
+public class ResultBufferStats extends StatsSource {
+
+    public ResultBufferStats() {
+        super(false);
+    }
+
+    @Override
+    protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
+        super.populateColumnSchema(columns);
+        columns.add(new ColumnInfo("POOLED_BUFFERS", VoltType.INTEGER));
+        columns.add(new ColumnInfo("POOLED_BYTES", VoltType.BIGINT));
+        columns.add(new ColumnInfo("LENT_BUFFERS", VoltType.INTEGER));
+        columns.add(new ColumnInfo("LENT_BYTES", VoltType.BIGINT));
+        columns.add(new ColumnInfo("HANDED_OFF_BUFFERS", VoltType.INTEGER));
+        columns.add(new ColumnInfo("HANDED_OFF_BYTES", VoltType.BIGINT));
+        columns.add(new ColumnInfo("HANDED_OFF_LIMIT_BYTES", VoltType.BIGINT));
+        columns.add(new ColumnInfo("ACQUIRES", VoltType.BIGINT));
+        columns.add(new ColumnInfo("ALLOCATIONS", VoltType.BIGINT));
+        columns.add(new ColumnInfo("HANDOFFS", VoltType.BIGINT));
+        columns.add(new ColumnInfo("COPIES", VoltType.BIGINT));
+        columns.add(new ColumnInfo("RECLAIMED", VoltType.BIGINT));
+        columns.add(new ColumnInfo("FREED", VoltType.BIGINT));
+    }
+
+    @Override
+    protected void updateStatsRow(Object rowKey, Object[] rowValues) {
+        // pick up whatever the GC found since the last grow
+        ResultBufferPool.reclaim();
+        rowValues[columnNameToIndex.get("POOLED_BUFFERS")] = ResultBufferPool.getPooledBuffers();
+        rowValues[columnNameToIndex.get("POOLED_BYTES")] = ResultBufferPool.getPooledBytes();
+        rowValues[columnNameToIndex.get("LENT_BUFFERS")] = ResultBufferPool.getLentBuffers();
+        rowValues[columnNameToIndex.get("LENT_BYTES")] = ResultBufferPool.getLentBytes();
+        rowValues[columnNameToIndex.get("HANDED_OFF_BUFFERS")] = ResultBufferPool.getHandedOffBuffers();
+        rowValues[columnNameToIndex.get("HANDED_OFF_BYTES")] = ResultBufferPool.getHandedOffBytes();
+        rowValues[columnNameToIndex.get("HANDED_OFF_LIMIT_BYTES")] = ResultBufferPool.getHandedOffLimitBytes();
+        rowValues[columnNameToIndex.get("ACQUIRES")] = ResultBufferPool.getAcquires();
+        rowValues[columnNameToIndex.get("ALLOCATIONS")] = ResultBufferPool.getAllocations();
+        rowValues[columnNameToIndex.get("HANDOFFS")] = ResultBufferPool.getHandOffs();
+        rowValues[columnNameToIndex.get("COPIES")] = ResultBufferPool.getCopies();
+        rowValues[columnNameToIndex.get("RECLAIMED")] = ResultBufferPool.getReclaimed();
+        rowValues[columnNameToIndex.get("FREED")] = ResultBufferPool.getFreed();
+        super.updateStatsRow(rowKey, rowValues);
+    }
+
+    @Override
+    protected Iterator<Object> getStatsRowKeyIterator(boolean interval) {
+        return Collections.<Object>singletonList(this).iterator();
+    }
+}
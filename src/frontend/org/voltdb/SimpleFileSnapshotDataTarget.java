@@ -129,6 +129,21 @@ public class SimpleFileSnapshotDataTarget implements SnapshotDataTarget {
         return m_bytesWritten;
     }
 
+    @Override
+    public long getUncompressedBytes() {
+        return m_bytesWritten;
+    }
+
+    @Override
+    public long getCompressedBytes() {
+        return m_bytesWritten;
+    }
+
+    @Override
+    public long getCompressionTimeNanos() {
+        return 0;
+    }
+
     @Override
     public void setOnCloseHandler(Runnable onClose) {
         m_onCloseTask = onClose;
@@ -54,6 +54,23 @@ public interface SnapshotDataTarget {
 
     public long getBytesWritten();
 
+    /**
+     * Get the number of bytes of tuple data handed to this target before compression.
+     * Targets that don't compress report the same value as {@link #getBytesWritten()}.
+     */
+    public long getUncompressedBytes();
+
+    /**
+     * Get the number of bytes the tuple data compressed to, not counting any headers
+     * the target adds. Targets that don't compress report {@link #getUncompressedBytes()}.
+     */
+    public long getCompressedBytes();
+
+    /**
+     * Get the CPU time in nanoseconds spent compressing tuple data for this target
+     */
+    public long getCompressionTimeNanos();
+
     public void setOnCloseHandler(Runnable onClose);
 
     /**
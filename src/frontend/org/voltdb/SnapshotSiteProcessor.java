@@ -52,6 +52,7 @@ import org.voltdb.catalog.Table;
 import org.voltdb.iv2.SiteTaskerQueue;
 import org.voltdb.iv2.SnapshotTask;
 import org.voltdb.jni.ExecutionEngine;
+import org.voltdb.rejoin.StreamSnapshotDataTarget;
 import org.voltdb.sysprocs.saverestore.SnapshotPredicates;
 import org.voltdb.utils.CatalogUtil;
 import org.voltdb.utils.CompressionService;
@@ -206,6 +207,12 @@ public class SnapshotSiteProcessor {
 
     private final IdlePredicate m_idlePredicate;
 
+    /*
+     * Sets how many blocks are serialized per round of snapshot work based on
+     * measured transaction latency, see SnapshotWorkController
+     */
+    private final SnapshotWorkController m_workController;
+
     /*
      * Synchronization is handled by SnapshotSaveAPI.startSnapshotting
      * Store the export sequence numbers for every table and partition. This will
@@ -254,9 +261,15 @@ public class SnapshotSiteProcessor {
     }
 
     public SnapshotSiteProcessor(SiteTaskerQueue siteQueue, int snapshotPriority, IdlePredicate idlePredicate) {
+        this(siteQueue, snapshotPriority, idlePredicate, new SnapshotWorkController(0));
+    }
+
+    public SnapshotSiteProcessor(SiteTaskerQueue siteQueue, int snapshotPriority, IdlePredicate idlePredicate,
+                                 SnapshotWorkController workController) {
         m_siteTaskerQueue = siteQueue;
         m_snapshotPriority = snapshotPriority;
         m_idlePredicate = idlePredicate;
+        m_workController = workController;
     }
 
     public void shutdown() throws InterruptedException {
@@ -318,8 +331,10 @@ public class SnapshotSiteProcessor {
                  */
                 if (m_snapshotPriority > 0) {
                     final long now = System.currentTimeMillis();
-                    //Ask if the site is idle, and if it is queue the work immediately
-                    if (m_idlePredicate.idle(now)) {
+                    //Ask if the site is idle, and if it is queue the work immediately.
+                    //Same if transaction latency is well under the target, the work
+                    //controller will back off if the snapshot starts to hurt it.
+                    if (m_idlePredicate.idle(now) || m_workController.hasLatencyHeadroom()) {
                         m_siteTaskerQueue.offer(new SnapshotTask());
                         return;
                     }
@@ -430,7 +445,15 @@ public class SnapshotSiteProcessor {
         // which has multiple targets, using the multiplier uses a lot of direct byte buffers
         // which may exhaust the java heap.
         if (maxTableTaskSize == 1) {
-            resizeBufferPool(m_bufferCountMultiplier);
+            // A stream target can keep up to its window of blocks in flight, give it
+            // enough buffers to fill it.
+            int bufferCount = m_bufferCountMultiplier;
+            for (SnapshotDataTarget target : targets) {
+                if (target.getFormat() == SnapshotFormat.STREAM) {
+                    bufferCount = Math.max(bufferCount, StreamSnapshotDataTarget.MAX_WINDOW);
+                }
+            }
+            resizeBufferPool(bufferCount);
         } else {
             resizeBufferPool(maxTableTaskSize);
         }
@@ -646,53 +669,68 @@ public class SnapshotSiteProcessor {
         }
 
         /*
-         * Try to serialize a block from a table, if the table is finished,
-         * remove the tasks from the task map and move on to the next table. If a block is
-         * successfully serialized, break out of the loop and release the site thread for more
+         * Try to serialize blocks from a table, if the table is finished,
+         * remove the tasks from the task map and move on to the next table. Once the
+         * round has serialized as many blocks as the work controller allows, or runs out
+         * of buffers, break out of the loop and release the site thread for more
          * transaction work.
          */
+        final int budget = m_workController.beginRound(System.currentTimeMillis(),
+                                                       m_siteTaskerQueue.getStarvationTracker());
+        final List<ListenableFuture<?>> writeFutures = new ArrayList<ListenableFuture<?>>();
         Iterator<Map.Entry<Integer, Collection<SnapshotTableTask>>> taskIter =
             m_snapshotTableTasks.asMap().entrySet().iterator();
+        tableLoop:
         while (taskIter.hasNext()) {
             Map.Entry<Integer, Collection<SnapshotTableTask>> taskEntry = taskIter.next();
             final int tableId = taskEntry.getKey();
             final Collection<SnapshotTableTask> tableTasks = taskEntry.getValue();
 
-            final List<BBContainer> outputBuffers = getOutputBuffers(tableTasks);
-            if (outputBuffers == null) {
-                // Not enough buffers available
-                break;
-            }
+            while (writeFutures.size() < budget) {
+                final List<BBContainer> outputBuffers = getOutputBuffers(tableTasks);
+                if (outputBuffers == null) {
+                    // Not enough buffers available
+                    break tableLoop;
+                }
 
-            final int[] serialized = ee.tableStreamSerializeMore(tableId,
-                                                                 TableStreamType.SNAPSHOT,
-                                                                 outputBuffers);
-            for (int serializedBytes : serialized) {
-                if (serializedBytes < 0) {
-                    VoltDB.crashLocalVoltDB("Failure while serialize data from a table for COW snapshot", false, null);
+                final int[] serialized = ee.tableStreamSerializeMore(tableId,
+                                                                     TableStreamType.SNAPSHOT,
+                                                                     outputBuffers);
+                for (int serializedBytes : serialized) {
+                    if (serializedBytes < 0) {
+                        VoltDB.crashLocalVoltDB("Failure while serialize data from a table for COW snapshot", false, null);
+                    }
                 }
-            }
 
-            /**
-             * The EE will return 0 when there is no more data left to pull from that table.
-             * The enclosing loop ensures that the next table is then addressed.
-             */
-            if (serialized[0] == 0) {
-                asyncTerminateReplicatedTableTasks(tableTasks);
-                // XXX: Guava's multimap will clear the tableTasks collection when the entry is
-                // removed from the containing map, so don't use the collection after removal!
-                taskIter.remove();
-                SNAP_LOG.debug("Finished snapshot tasks for table " + tableId +
-                               ": " + tableTasks);
-
-                // Return all allocated snapshot output buffers
-                for (BBContainer container : outputBuffers) {
-                    m_availableSnapshotBuffers.offer(container);
+                /**
+                 * The EE will return 0 when there is no more data left to pull from that table.
+                 * The enclosing loop ensures that the next table is then addressed.
+                 */
+                if (serialized[0] == 0) {
+                    asyncTerminateReplicatedTableTasks(tableTasks);
+                    // XXX: Guava's multimap will clear the tableTasks collection when the entry is
+                    // removed from the containing map, so don't use the collection after removal!
+                    taskIter.remove();
+                    SNAP_LOG.debug("Finished snapshot tasks for table " + tableId +
+                                   ": " + tableTasks);
+
+                    // Return all allocated snapshot output buffers
+                    for (BBContainer container : outputBuffers) {
+                        m_availableSnapshotBuffers.offer(container);
+                    }
+                    continue tableLoop;
+                } else {
+                    writeFutures.add(writeSnapshotBlocksToTargets(tableId, outputBuffers, serialized));
                 }
-            } else {
-                retval = writeSnapshotBlocksToTargets(tableId, outputBuffers, serialized);
-                break;
             }
+            break;
+        }
+
+        m_workController.blocksSerialized(writeFutures.size());
+        if (writeFutures.size() == 1) {
+            retval = writeFutures.get(0);
+        } else if (!writeFutures.isEmpty()) {
+            retval = Futures.allAsList(writeFutures);
         }
 
         /**
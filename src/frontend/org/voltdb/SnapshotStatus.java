@@ -21,6 +21,7 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import org.voltdb.VoltTable.ColumnInfo;
 import org.voltdb.sysprocs.SnapshotRegistry;
@@ -89,6 +90,9 @@ public class SnapshotStatus extends StatsSource {
         columns.add(new ColumnInfo("DURATION", VoltType.BIGINT));
         columns.add(new ColumnInfo("THROUGHPUT", VoltType.FLOAT));
         columns.add(new ColumnInfo("RESULT", VoltType.STRING));
+        columns.add(new ColumnInfo("UNCOMPRESSED_SIZE", VoltType.BIGINT));
+        columns.add(new ColumnInfo("COMPRESSION_RATIO", VoltType.FLOAT));
+        columns.add(new ColumnInfo("COMPRESSION_TIME", VoltType.BIGINT));
     }
 
     @SuppressWarnings("unchecked")
@@ -117,6 +121,13 @@ public class SnapshotStatus extends StatsSource {
         rowValues[columnNameToIndex.get("DURATION")] = duration;
         rowValues[columnNameToIndex.get("THROUGHPUT")] = throughput;
         rowValues[columnNameToIndex.get("RESULT")] = t.error == null ? "SUCCESS" : "FAILURE";
+        rowValues[columnNameToIndex.get("UNCOMPRESSED_SIZE")] = t.uncompressedSize;
+        // SIZE includes the file and chunk headers, the ratio is over the payload only
+        rowValues[columnNameToIndex.get("COMPRESSION_RATIO")] =
+            t.compressedSize == 0 ? 0.0 : t.uncompressedSize / (double)t.compressedSize;
+        // CPU time spent compressing, in milliseconds
+        rowValues[columnNameToIndex.get("COMPRESSION_TIME")] =
+            TimeUnit.NANOSECONDS.toMillis(t.compressionTimeNanos);
         super.updateStatsRow(rowKey, rowValues);
     }
 
@@ -0,0 +1,270 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.dtxn.LatencyStats;
+import org.voltdb.dtxn.LatencyStats.LatencyInfo;
+
+/**
+ * Decides how many blocks a site serializes each time it gets to do snapshot work.
+ *
+ * Once per control period the p99 transaction latency seen by the client interfaces
+ * over that period is compared against a target. Above the target the budget is
+ * halved, well below it (or when the site spent most of the period starved for work)
+ * the budget grows by one. With the target set to 0 the budget stays at one block
+ * per round, which is the fixed snapshot priority behavior. Setting the target
+ * explicitly also lets snapshot work skip the snapshot priority quiet period while
+ * latency is well under it.
+ *
+ * The controller is only touched by the site thread, the stats are read unlocked.
+ */
+public class SnapshotWorkController extends SiteStatsSource {
+
+    // p99 latency target in milliseconds, 0 disables the controller
+    public static final int LATENCY_TARGET_MS =
+        Math.max(0, Integer.getInteger("SNAPSHOT_LATENCY_TARGET_MS", 50));
+    // only a target the operator asked for overrides the snapshot priority quiet period
+    static final boolean LATENCY_TARGET_SET = System.getProperty("SNAPSHOT_LATENCY_TARGET_MS") != null;
+    public static final int MAX_BUDGET =
+        Math.max(1, Integer.getInteger("SNAPSHOT_MAX_BLOCKS_PER_ROUND", 8));
+    static final long CONTROL_PERIOD_MS = 100;
+
+    private final int m_latencyTarget;
+    private final int m_maxBudget;
+    private final boolean m_overrideQuietPeriod;
+
+    private volatile int m_budget = 1;
+    private volatile int m_measuredLatency = 0;
+    private volatile double m_idlePercent = 0.0;
+    private volatile long m_rounds = 0;
+    private volatile long m_blocks = 0;
+    private volatile long m_increases = 0;
+    private volatile long m_decreases = 0;
+
+    private long m_lastAdjustTime = 0;
+    private long m_lastStarvedNanos = 0;
+    private long m_lastAdjustNanos = System.nanoTime();
+
+    public SnapshotWorkController(long siteId) {
+        this(siteId, LATENCY_TARGET_MS, MAX_BUDGET, LATENCY_TARGET_SET);
+    }
+
+    SnapshotWorkController(long siteId, int latencyTarget, int maxBudget, boolean overrideQuietPeriod) {
+        super(siteId, false);
+        m_latencyTarget = latencyTarget;
+        m_maxBudget = maxBudget;
+        m_overrideQuietPeriod = overrideQuietPeriod;
+    }
+
+    /**
+     * Called by the site at the start of every round of snapshot work.
+     * @param tracker starvation tracker of the site, may be null
+     * @return the number of blocks the round may serialize
+     */
+    public int beginRound(long now, StarvationTracker tracker) {
+        m_rounds++;
+        if (m_latencyTarget > 0 && now - m_lastAdjustTime >= CONTROL_PERIOD_MS) {
+            m_lastAdjustTime = now;
+
+            double idleFraction = 0.0;
+            final long nowNanos = System.nanoTime();
+            if (tracker != null) {
+                final long starved = tracker.getStarvedTimeNanos();
+                final long elapsed = nowNanos - m_lastAdjustNanos;
+                if (elapsed > 0) {
+                    idleFraction = (starved - m_lastStarvedNanos) / (double)elapsed;
+                }
+                m_lastStarvedNanos = starved;
+            }
+            m_lastAdjustNanos = nowNanos;
+
+            adjust(HostLatencySampler.getRecentP99(now), idleFraction);
+        }
+        return m_budget;
+    }
+
+    public void blocksSerialized(int count) {
+        m_blocks += count;
+    }
+
+    /**
+     * True if latency has enough headroom that snapshot work doesn't need to wait
+     * out the quiet period. Always false unless the latency target was set explicitly,
+     * the default target only sizes the budget and leaves the snapshot priority alone.
+     */
+    public boolean hasLatencyHeadroom() {
+        return m_overrideQuietPeriod && m_latencyTarget > 0 && m_measuredLatency <= m_latencyTarget / 2;
+    }
+
+    /**
+     * p99 latency in milliseconds of the transactions completed on this host in
+     * the last control period
+     */
+    public static int getRecentHostLatency(long now) {
+        return HostLatencySampler.getRecentP99(now);
+    }
+
+    public int getBudget() {
+        return m_budget;
+    }
+
+    void adjust(int p99, double idleFraction) {
+        m_measuredLatency = p99;
+        m_idlePercent = Math.max(0.0, Math.min(100.0, idleFraction * 100.0));
+        if (p99 > m_latencyTarget) {
+            if (m_budget > 1) {
+                m_budget = Math.max(1, m_budget / 2);
+                m_decreases++;
+            }
+        } else if (p99 <= m_latencyTarget / 2 || idleFraction >= 0.5) {
+            if (m_budget < m_maxBudget) {
+                m_budget++;
+                m_increases++;
+            }
+        }
+    }
+
+    @Override
+    protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
+        super.populateColumnSchema(columns);
+        columns.add(new ColumnInfo("BUDGET", VoltType.INTEGER));
+        columns.add(new ColumnInfo("MAX_BUDGET", VoltType.INTEGER));
+        columns.add(new ColumnInfo("LATENCY_TARGET", VoltType.INTEGER));
+        columns.add(new ColumnInfo("MEASURED_LATENCY", VoltType.INTEGER));
+        columns.add(new ColumnInfo("IDLE_PERCENT", VoltType.FLOAT));
+        columns.add(new ColumnInfo("ROUNDS", VoltType.BIGINT));
+        columns.add(new ColumnInfo("BLOCKS", VoltType.BIGINT));
+        columns.add(new ColumnInfo("INCREASES", VoltType.BIGINT));
+        columns.add(new ColumnInfo("DECREASES", VoltType.BIGINT));
+    }
+
+    @Override
+    protected void updateStatsRow(Object rowKey, Object rowValues[]) {
+        rowValues[columnNameToIndex.get("BUDGET")] = m_budget;
+        rowValues[columnNameToIndex.get("MAX_BUDGET")] = m_maxBudget;
+        rowValues[columnNameToIndex.get("LATENCY_TARGET")] = m_latencyTarget;
+        rowValues[columnNameToIndex.get("MEASURED_LATENCY")] = m_measuredLatency;
+        rowValues[columnNameToIndex.get("IDLE_PERCENT")] = m_idlePercent;
+        rowValues[columnNameToIndex.get("ROUNDS")] = m_rounds;
+        rowValues[columnNameToIndex.get("BLOCKS")] = m_blocks;
+        rowValues[columnNameToIndex.get("INCREASES")] = m_increases;
+        rowValues[columnNameToIndex.get("DECREASES")] = m_decreases;
+        super.updateStatsRow(rowKey, rowValues);
+    }
+
+    @Override
+    protected Iterator<Object> getStatsRowKeyIterator(boolean interval) {
+        return new Iterator<Object>() {
+            boolean returnRow = true;
+            @Override
+            public boolean hasNext() {
+                return returnRow;
+            }
+
+            @Override
+            public Object next() {
+                if (returnRow) {
+                    returnRow = false;
+                    return new Object();
+                } else {
+                    return null;
+                }
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * Computes the p99 latency of the transactions completed on this host since the
+     * previous sample from the cumulative LatencyStats buckets. Shared by all the sites,
+     * the value is recomputed at most once per control period.
+     */
+    static class HostLatencySampler {
+        private static long m_lastSampleTime = 0;
+        private static long[] m_lastBuckets = null;
+        private static int m_lastP99 = 0;
+
+        static synchronized int getRecentP99(long now) {
+            if (now - m_lastSampleTime < CONTROL_PERIOD_MS) {
+                return m_lastP99;
+            }
+            m_lastSampleTime = now;
+
+            long[] buckets = null;
+            long max = 0;
+            for (ClientInterface ci : VoltDB.instance().getClientInterfaces()) {
+                for (LatencyInfo info : ci.getLatencyStats()) {
+                    List<Long> infoBuckets = info.getBuckets();
+                    if (buckets == null) {
+                        buckets = new long[infoBuckets.size()];
+                    }
+                    for (int i = 0; i < buckets.length; i++) {
+                        buckets[i] += infoBuckets.get(i);
+                    }
+                    max = Math.max(max, info.getMax());
+                }
+            }
+            if (buckets == null) {
+                m_lastP99 = 0;
+                return m_lastP99;
+            }
+
+            long[] delta = new long[buckets.length];
+            long total = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                delta[i] = buckets[i] - (m_lastBuckets == null ? 0 : m_lastBuckets[i]);
+                total += delta[i];
+            }
+            m_lastBuckets = buckets;
+
+            m_lastP99 = percentile(delta, total, max, 0.99);
+            return m_lastP99;
+        }
+
+        /**
+         * Upper bound of the bucket holding the requested percentile, the last
+         * bucket is open ended so its bound is the largest latency seen.
+         */
+        static int percentile(long[] buckets, long total, long max, double percentile) {
+            if (total <= 0) {
+                return 0;
+            }
+            long k = (long)Math.ceil(total * percentile);
+            long sum = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                sum += buckets[i];
+                if (sum >= k) {
+                    if (i == buckets.length - 1) {
+                        return (int)max;
+                    }
+                    return (int)((i + 1) * LatencyStats.BUCKET_RANGE);
+                }
+            }
+            return (int)max;
+        }
+    }
+}
@@ -81,6 +81,17 @@ public class StarvationTracker extends SiteStatsSource {
         m_lastMin = Math.min(m_lastMin, delta);
     }
 
+    /**
+     * Total time spent starved, including the current starvation period if there is one.
+     * Only safe to call from the thread reporting starvation.
+     */
+    public long getStarvedTimeNanos() {
+        if (m_starved) {
+            return m_totalTime + (System.nanoTime() - m_starvationStartTime);
+        }
+        return m_totalTime;
+    }
+
     @Override
     protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
         super.populateColumnSchema(columns);
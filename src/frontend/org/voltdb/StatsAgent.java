@@ -17,10 +17,16 @@
 package org.voltdb;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.json_voltpatches.JSONObject;
 import org.voltcore.network.Connection;
+import org.voltcore.utils.CoreUtils;
 import org.voltcore.utils.Pair;
 
 import org.voltdb.TheHashinator.HashinatorType;
@@ -28,19 +34,81 @@ import org.voltdb.client.ClientResponse;
 
 /**
  * Agent responsible for collecting stats on this host.
+ *
+ * Sources are registered and collected without a lock on the agent, each source
+ * only locks itself while its rows are read. With a cache max age set, requests
+ * for cumulative (non-interval) stats are answered from snapshots taken on a fixed
+ * cadence by a separate thread, so the sources are read at that cadence no matter
+ * how often monitoring polls. A snapshot is never served once it is older than the
+ * max age, the request collects directly instead. Interval requests always go to
+ * the sources, which keep the baseline of the previous interval themselves.
  */
 public class StatsAgent extends OpsAgent
 {
-    private final HashMap<StatsSelector, HashMap<Long, ArrayList<StatsSource>>> registeredStatsSources =
-        new HashMap<StatsSelector, HashMap<Long, ArrayList<StatsSource>>>();
+    /**
+     * Oldest snapshot served for a cumulative stats request, 0 collects every request
+     * from the sources. Set with -DSTATS_CACHE_MAX_AGE_MS
+     */
+    public static final long DEFAULT_CACHE_MAX_AGE_MS =
+        Math.max(0, Integer.getInteger("STATS_CACHE_MAX_AGE_MS", 0));
+    // selectors not requested for this many max ages stop being snapshotted
+    static final int IDLE_SNAPSHOT_PERIODS = 10;
+
+    private final ConcurrentHashMap<StatsSelector, ConcurrentHashMap<Long, List<StatsSource>>> registeredStatsSources =
+        new ConcurrentHashMap<StatsSelector, ConcurrentHashMap<Long, List<StatsSource>>>();
+
+    private static class CachedStats {
+        final long timestamp;
+        final VoltTable table;
+
+        CachedStats(long timestamp, VoltTable table) {
+            this.timestamp = timestamp;
+            this.table = table;
+        }
+    }
+
+    private final long m_cacheMaxAge;
+    private final ConcurrentHashMap<StatsSelector, CachedStats> m_cache =
+        new ConcurrentHashMap<StatsSelector, CachedStats>();
+    // last time each cached selector was requested
+    private final ConcurrentHashMap<StatsSelector, Long> m_lastRequested =
+        new ConcurrentHashMap<StatsSelector, Long>();
+    private final ScheduledThreadPoolExecutor m_snapshotter;
 
     public StatsAgent()
+    {
+        this(DEFAULT_CACHE_MAX_AGE_MS);
+    }
+
+    StatsAgent(long cacheMaxAge)
     {
         super("StatsAgent");
         StatsSelector selectors[] = StatsSelector.values();
         for (int ii = 0; ii < selectors.length; ii++) {
-            registeredStatsSources.put(selectors[ii], new HashMap<Long, ArrayList<StatsSource>>());
+            registeredStatsSources.put(selectors[ii], new ConcurrentHashMap<Long, List<StatsSource>>());
+        }
+        m_cacheMaxAge = cacheMaxAge;
+        if (cacheMaxAge > 0) {
+            m_snapshotter = CoreUtils.getScheduledThreadPoolExecutor("StatsSnapshotter", 1, CoreUtils.SMALL_STACK_SIZE);
+            final long period = Math.max(1, cacheMaxAge / 2);
+            m_snapshotter.scheduleAtFixedRate(new Runnable() {
+                @Override
+                public void run() {
+                    refreshSnapshots(System.currentTimeMillis());
+                }
+            }, period, period, TimeUnit.MILLISECONDS);
+        } else {
+            m_snapshotter = null;
+        }
+    }
+
+    @Override
+    public void shutdown() throws InterruptedException {
+        if (m_snapshotter != null) {
+            m_snapshotter.shutdown();
+            m_snapshotter.awaitTermination(1, TimeUnit.DAYS);
         }
+        super.shutdown();
     }
 
     @Override
@@ -86,10 +154,11 @@ public class StatsAgent extends OpsAgent
      * Need to release references to catalog related stats sources
      * to avoid hoarding references to the catalog.
      */
-    public synchronized void notifyOfCatalogUpdate() {
-        final HashMap<Long, ArrayList<StatsSource>> siteIdToStatsSources =
+    public void notifyOfCatalogUpdate() {
+        final Map<Long, List<StatsSource>> siteIdToStatsSources =
             registeredStatsSources.get(StatsSelector.PROCEDURE);
         siteIdToStatsSources.clear();
+        m_cache.remove(StatsSelector.PROCEDURE);
     }
 
     @Override
@@ -255,6 +324,35 @@ public class StatsAgent extends OpsAgent
             case SNAPSHOTSTATUS:
                 stats = collectSnapshotStatusStats();
                 break;
+            case REJOIN:
+                stats = collectRejoinStats();
+                break;
+            case REBALANCE:
+                stats = collectRebalanceStats();
+                break;
+            case MESSAGEBATCH:
+                stats = collectMessageBatchStats();
+                break;
+            case CLIENTLOGIN:
+                stats = collectClientLoginStats(interval);
+                break;
+            case RESULTBUFFER:
+                stats = collectResultBufferStats();
+                break;
+            case TEMPTABLESPILL:
+                stats = collectTempTableSpillStats(interval);
+                break;
+            case VIEW:
+                stats = collectViewStats(interval);
+                break;
+            case PLANCACHE:
+                stats = collectPlanCacheStats(interval);
+                break;
+            case PROCEDURELATENCY:
+            case PARTITIONLATENCY:
+            case CONNECTIONLATENCY:
+                stats = collectLatencyHistogramStats(subselector, interval);
+                break;
             case MEMORY:
                 stats = collectMemoryStats(interval);
                 break;
@@ -277,6 +375,9 @@ public class StatsAgent extends OpsAgent
             case STARVATION:
                 stats = collectStarvationStats(interval);
                 break;
+            case SNAPSHOTBUDGET:
+                stats = collectSnapshotBudgetStats(interval);
+                break;
             case PLANNER:
                 stats = collectPlannerStats(interval);
                 break;
@@ -319,7 +420,7 @@ public class StatsAgent extends OpsAgent
         Long now = System.currentTimeMillis();
         VoltTable[] stats = null;
 
-        VoltTable nodeStats = getStatsAggregate(StatsSelector.DRNODE, false, now);
+        VoltTable nodeStats = getCachedStatsAggregate(StatsSelector.DRNODE, false, now);
         if (nodeStats != null) {
             stats = new VoltTable[1];
             stats[0] = nodeStats;
@@ -332,7 +433,7 @@ public class StatsAgent extends OpsAgent
         Long now = System.currentTimeMillis();
         VoltTable[] stats = null;
 
-        VoltTable partitionStats = getStatsAggregate(StatsSelector.DRPARTITION, false, now);
+        VoltTable partitionStats = getCachedStatsAggregate(StatsSelector.DRPARTITION, false, now);
         if (partitionStats != null) {
             stats = new VoltTable[1];
             stats[0] = partitionStats;
@@ -345,7 +446,7 @@ public class StatsAgent extends OpsAgent
         Long now = System.currentTimeMillis();
         VoltTable[] stats = null;
 
-        VoltTable ssStats = getStatsAggregate(StatsSelector.SNAPSHOTSTATUS, false, now);
+        VoltTable ssStats = getCachedStatsAggregate(StatsSelector.SNAPSHOTSTATUS, false, now);
         if (ssStats != null) {
             stats = new VoltTable[1];
             stats[0] = ssStats;
@@ -353,12 +454,129 @@ public class StatsAgent extends OpsAgent
         return stats;
     }
 
+    private VoltTable[] collectRejoinStats()
+    {
+        Long now = System.currentTimeMillis();
+        VoltTable[] stats = null;
+
+        VoltTable rStats = getCachedStatsAggregate(StatsSelector.REJOIN, false, now);
+        if (rStats != null) {
+            stats = new VoltTable[1];
+            stats[0] = rStats;
+        }
+        return stats;
+    }
+
+    private VoltTable[] collectRebalanceStats()
+    {
+        Long now = System.currentTimeMillis();
+        VoltTable[] stats = null;
+
+        VoltTable rStats = getCachedStatsAggregate(StatsSelector.REBALANCE, false, now);
+        if (rStats != null) {
+            stats = new VoltTable[1];
+            stats[0] = rStats;
+        }
+        return stats;
+    }
+
+    private VoltTable[] collectMessageBatchStats()
+    {
+        Long now = System.currentTimeMillis();
+        VoltTable[] stats = null;
+
+        VoltTable bStats = getCachedStatsAggregate(StatsSelector.MESSAGEBATCH, false, now);
+        if (bStats != null) {
+            stats = new VoltTable[1];
+            stats[0] = bStats;
+        }
+        return stats;
+    }
+
+    private VoltTable[] collectClientLoginStats(boolean interval)
+    {
+        Long now = System.currentTimeMillis();
+        VoltTable[] stats = null;
+
+        VoltTable lStats = getCachedStatsAggregate(StatsSelector.CLIENTLOGIN, interval, now);
+        if (lStats != null) {
+            stats = new VoltTable[1];
+            stats[0] = lStats;
+        }
+        return stats;
+    }
+
+    private VoltTable[] collectResultBufferStats()
+    {
+        Long now = System.currentTimeMillis();
+        VoltTable[] stats = null;
+
+        VoltTable rStats = getCachedStatsAggregate(StatsSelector.RESULTBUFFER, false, now);
+        if (rStats != null) {
+            stats = new VoltTable[1];
+            stats[0] = rStats;
+        }
+        return stats;
+    }
+
+    private VoltTable[] collectTempTableSpillStats(boolean interval)
+    {
+        Long now = System.currentTimeMillis();
+        VoltTable[] stats = null;
+
+        VoltTable sStats = getCachedStatsAggregate(StatsSelector.TEMPTABLESPILL, interval, now);
+        if (sStats != null) {
+            stats = new VoltTable[1];
+            stats[0] = sStats;
+        }
+        return stats;
+    }
+
+    private VoltTable[] collectViewStats(boolean interval)
+    {
+        Long now = System.currentTimeMillis();
+        VoltTable[] stats = null;
+
+        VoltTable vStats = getCachedStatsAggregate(StatsSelector.VIEW, interval, now);
+        if (vStats != null) {
+            stats = new VoltTable[1];
+            stats[0] = vStats;
+        }
+        return stats;
+    }
+
+    private VoltTable[] collectPlanCacheStats(boolean interval)
+    {
+        Long now = System.currentTimeMillis();
+        VoltTable[] stats = null;
+
+        VoltTable pStats = getCachedStatsAggregate(StatsSelector.PLANCACHE, interval, now);
+        if (pStats != null) {
+            stats = new VoltTable[1];
+            stats[0] = pStats;
+        }
+        return stats;
+    }
+
+    private VoltTable[] collectLatencyHistogramStats(StatsSelector selector, boolean interval)
+    {
+        Long now = System.currentTimeMillis();
+        VoltTable[] stats = null;
+
+        VoltTable lStats = getCachedStatsAggregate(selector, interval, now);
+        if (lStats != null) {
+            stats = new VoltTable[1];
+            stats[0] = lStats;
+        }
+        return stats;
+    }
+
     private VoltTable[] collectMemoryStats(boolean interval)
     {
         Long now = System.currentTimeMillis();
         VoltTable[] stats = null;
 
-        VoltTable mStats = getStatsAggregate(StatsSelector.MEMORY, interval, now);
+        VoltTable mStats = getCachedStatsAggregate(StatsSelector.MEMORY, interval, now);
         if (mStats != null) {
             stats = new VoltTable[1];
             stats[0] = mStats;
@@ -371,7 +589,7 @@ public class StatsAgent extends OpsAgent
         Long now = System.currentTimeMillis();
         VoltTable[] stats = null;
 
-        VoltTable iStats = getStatsAggregate(StatsSelector.IOSTATS, interval, now);
+        VoltTable iStats = getCachedStatsAggregate(StatsSelector.IOSTATS, interval, now);
         if (iStats != null) {
             stats = new VoltTable[1];
             stats[0] = iStats;
@@ -384,7 +602,7 @@ public class StatsAgent extends OpsAgent
         Long now = System.currentTimeMillis();
         VoltTable[] stats = null;
 
-        VoltTable iStats = getStatsAggregate(StatsSelector.INITIATOR, interval, now);
+        VoltTable iStats = getCachedStatsAggregate(StatsSelector.INITIATOR, interval, now);
         if (iStats != null) {
             stats = new VoltTable[1];
             stats[0] = iStats;
@@ -397,7 +615,7 @@ public class StatsAgent extends OpsAgent
         Long now = System.currentTimeMillis();
         VoltTable[] stats = null;
 
-        VoltTable tStats = getStatsAggregate(StatsSelector.TABLE, interval, now);
+        VoltTable tStats = getCachedStatsAggregate(StatsSelector.TABLE, interval, now);
         if (tStats != null) {
             stats = new VoltTable[1];
             stats[0] = tStats;
@@ -410,7 +628,7 @@ public class StatsAgent extends OpsAgent
         Long now = System.currentTimeMillis();
         VoltTable[] stats = null;
 
-        VoltTable tStats = getStatsAggregate(StatsSelector.INDEX, interval, now);
+        VoltTable tStats = getCachedStatsAggregate(StatsSelector.INDEX, interval, now);
         if (tStats != null) {
             stats = new VoltTable[1];
             stats[0] = tStats;
@@ -423,7 +641,7 @@ public class StatsAgent extends OpsAgent
         Long now = System.currentTimeMillis();
         VoltTable[] stats = null;
 
-        VoltTable pStats = getStatsAggregate(StatsSelector.PROCEDURE, interval, now);
+        VoltTable pStats = getCachedStatsAggregate(StatsSelector.PROCEDURE, interval, now);
         if (pStats != null) {
             stats = new VoltTable[1];
             stats[0] = pStats;
@@ -437,7 +655,20 @@ public class StatsAgent extends OpsAgent
         Long now = System.currentTimeMillis();
         VoltTable[] stats = null;
 
-        VoltTable sStats = getStatsAggregate(StatsSelector.STARVATION, interval, now);
+        VoltTable sStats = getCachedStatsAggregate(StatsSelector.STARVATION, interval, now);
+        if (sStats != null) {
+            stats = new VoltTable[1];
+            stats[0] = sStats;
+        }
+        return stats;
+    }
+
+    private VoltTable[] collectSnapshotBudgetStats(boolean interval)
+    {
+        Long now = System.currentTimeMillis();
+        VoltTable[] stats = null;
+
+        VoltTable sStats = getCachedStatsAggregate(StatsSelector.SNAPSHOTBUDGET, interval, now);
         if (sStats != null) {
             stats = new VoltTable[1];
             stats[0] = sStats;
@@ -450,7 +681,7 @@ public class StatsAgent extends OpsAgent
         Long now = System.currentTimeMillis();
         VoltTable[] stats = null;
 
-        VoltTable pStats = getStatsAggregate(StatsSelector.PLANNER, interval, now);
+        VoltTable pStats = getCachedStatsAggregate(StatsSelector.PLANNER, interval, now);
         if (pStats != null) {
             stats = new VoltTable[1];
             stats[0] = pStats;
@@ -463,7 +694,7 @@ public class StatsAgent extends OpsAgent
         Long now = System.currentTimeMillis();
         VoltTable[] stats = null;
 
-        VoltTable lStats = getStatsAggregate(StatsSelector.LIVECLIENTS, interval, now);
+        VoltTable lStats = getCachedStatsAggregate(StatsSelector.LIVECLIENTS, interval, now);
         if (lStats != null) {
             stats = new VoltTable[1];
             stats[0] = lStats;
@@ -479,7 +710,7 @@ public class StatsAgent extends OpsAgent
         Long now = System.currentTimeMillis();
         VoltTable[] stats = null;
 
-        VoltTable lStats = getStatsAggregate(StatsSelector.LATENCY, interval, now);
+        VoltTable lStats = getCachedStatsAggregate(StatsSelector.LATENCY, interval, now);
         if (lStats != null) {
             stats = new VoltTable[1];
             stats[0] = lStats;
@@ -519,19 +750,79 @@ public class StatsAgent extends OpsAgent
         return stats;
     }
 
-    public synchronized void registerStatsSource(StatsSelector selector, long siteId, StatsSource source) {
+    public void registerStatsSource(StatsSelector selector, long siteId, StatsSource source) {
         assert selector != null;
         assert source != null;
-        final HashMap<Long, ArrayList<StatsSource>> siteIdToStatsSources = registeredStatsSources.get(selector);
+        final ConcurrentHashMap<Long, List<StatsSource>> siteIdToStatsSources = registeredStatsSources.get(selector);
         assert siteIdToStatsSources != null;
-        ArrayList<StatsSource> statsSources = siteIdToStatsSources.get(siteId);
+        List<StatsSource> statsSources = siteIdToStatsSources.get(siteId);
         if (statsSources == null) {
-            statsSources = new ArrayList<StatsSource>();
-            siteIdToStatsSources.put(siteId, statsSources);
+            statsSources = new CopyOnWriteArrayList<StatsSource>();
+            List<StatsSource> existing = siteIdToStatsSources.putIfAbsent(siteId, statsSources);
+            if (existing != null) {
+                statsSources = existing;
+            }
         }
         statsSources.add(source);
     }
 
+    /**
+     * Like getStatsAggregate(), but cumulative stats are served from a snapshot
+     * if caching is on and the snapshot is no older than the max age.
+     */
+    VoltTable getCachedStatsAggregate(
+            final StatsSelector selector,
+            final boolean interval,
+            final Long now) {
+        if (interval || m_cacheMaxAge <= 0) {
+            return getStatsAggregate(selector, interval, now);
+        }
+        return getStatsSnapshot(selector, m_cacheMaxAge, now);
+    }
+
+    /**
+     * Cumulative stats of this host for the selector from a snapshot no older than
+     * maxAge, collected now if there isn't one. The table is shared, readers that
+     * iterate it must wrap its buffer in their own VoltTable.
+     */
+    public VoltTable getStatsSnapshot(final StatsSelector selector, final long maxAge, final long now) {
+        if (m_snapshotter != null) {
+            m_lastRequested.put(selector, now);
+        }
+        final CachedStats cached = m_cache.get(selector);
+        if (cached != null && now - cached.timestamp <= maxAge) {
+            return cached.table;
+        }
+        final VoltTable table = getStatsAggregate(selector, false, now);
+        if (table != null) {
+            m_cache.put(selector, new CachedStats(now, table));
+        }
+        return table;
+    }
+
+    /**
+     * Snapshot the selectors requested recently, forget the ones nobody asks for.
+     */
+    void refreshSnapshots(long now) {
+        for (Map.Entry<StatsSelector, Long> e : m_lastRequested.entrySet()) {
+            final StatsSelector selector = e.getKey();
+            if (now - e.getValue() > IDLE_SNAPSHOT_PERIODS * m_cacheMaxAge) {
+                if (m_lastRequested.remove(selector, e.getValue())) {
+                    m_cache.remove(selector);
+                }
+                continue;
+            }
+            try {
+                final VoltTable table = getStatsAggregate(selector, false, now);
+                if (table != null) {
+                    m_cache.put(selector, new CachedStats(now, table));
+                }
+            } catch (Exception ex) {
+                hostLog.warn("Failed to snapshot " + selector + " statistics", ex);
+            }
+        }
+    }
+
     /**
      * Get aggregate statistics on this node for the given selector.
      * If you need both site-wise and node-wise stats, register the appropriate StatsSources for that
@@ -543,29 +834,39 @@ public class StatsAgent extends OpsAgent
      * @param now         current timestamp
      * @return  statistics VoltTable results
      */
-    public synchronized VoltTable getStatsAggregate(
+    public VoltTable getStatsAggregate(
             final StatsSelector selector,
             final boolean interval,
             final Long now) {
         return getStatsAggregateInternal(selector, interval, now, null);
     }
 
-    private synchronized VoltTable getStatsAggregateInternal(
+    private VoltTable getStatsAggregateInternal(
             final StatsSelector selector,
             final boolean interval,
             final Long now,
             VoltTable prevResults)
     {
         assert selector != null;
-        final HashMap<Long, ArrayList<StatsSource>> siteIdToStatsSources = registeredStatsSources.get(selector);
+        final Map<Long, List<StatsSource>> siteIdToStatsSources = registeredStatsSources.get(selector);
 
         // There are cases early in rejoin where we can get polled before the server is ready to provide
         // stats.  Just return null for now, which will result in no tables from this node.
         if (siteIdToStatsSources == null || siteIdToStatsSources.isEmpty()) {
             return null;
         }
-        // Just need a random site's list to do some things
-        ArrayList<StatsSource> sSources = siteIdToStatsSources.entrySet().iterator().next().getValue();
+        // Just need a random site's list to do some things, the map may
+        // be cleared by a catalog update at any time
+        List<StatsSource> sSources = null;
+        for (List<StatsSource> sources : siteIdToStatsSources.values()) {
+            if (!sources.isEmpty()) {
+                sSources = sources;
+                break;
+            }
+        }
+        if (sSources == null) {
+            return null;
+        }
 
         /*
          * Some sources like TableStats use VoltTable to keep track of
@@ -588,7 +889,7 @@ public class StatsAgent extends OpsAgent
          // Append to previous results if provided.
         final VoltTable resultTable = prevResults != null ? prevResults : new VoltTable(columns);
 
-        for (ArrayList<StatsSource> statsSources : siteIdToStatsSources.values()) {
+        for (List<StatsSource> statsSources : siteIdToStatsSources.values()) {
             assert statsSources != null;
             for (final StatsSource ss : statsSources) {
                 assert ss != null;
@@ -600,10 +901,14 @@ public class StatsAgent extends OpsAgent
                     final VoltTable table = ss.getStatsTable();
                     // this table can be null during recovery, at least
                     if (table != null) {
-                        while (table.advanceRow()) {
-                            resultTable.add(table);
+                        // the row position is shared by whoever reads the table
+                        synchronized (table) {
+                            table.resetRowPosition();
+                            while (table.advanceRow()) {
+                                resultTable.add(table);
+                            }
+                            table.resetRowPosition();
                         }
-                        table.resetRowPosition();
                     }
                 } else {
                     Object statsRows[][] = ss.getStatsRows(interval, now);
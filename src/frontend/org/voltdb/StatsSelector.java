@@ -31,6 +31,18 @@ public enum StatsSelector {
     MANAGEMENT,       // Returns pretty much everything
     PROCEDUREPROFILE, // performs an aggregation of the procedure statistics
     SNAPSHOTSTATUS,
+    REJOIN,           // progress of rejoin and join snapshot streams on this node
+    SNAPSHOTBUDGET,   // per site snapshot work budget set by the latency controller
+    REBALANCE,        // elastic rebalance data transfer progress and throttling
+    MESSAGEBATCH,     // batching of messages sent to each of the other hosts
+    CLIENTLOGIN,      // connection accept rate and login latency of the client ports
+    RESULTBUFFER,     // occupancy of the pool of buffers large EE results grow into
+    TEMPTABLESPILL,   // sorts and aggregations moved to disk by each site's EE
+    VIEW,             // MIN and MAX recomputes of the materialized views
+    PLANCACHE,        // executor trees each site's EE keeps loaded for plan fragments
+    PROCEDURELATENCY, // microsecond latency percentiles by procedure
+    PARTITIONLATENCY, // microsecond latency percentiles by partition
+    CONNECTIONLATENCY, // microsecond latency percentiles by client connection
 
     /*
      * DRPARTITION and DRNODE are internal names
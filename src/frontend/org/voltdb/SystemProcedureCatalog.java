@@ -134,6 +134,8 @@ public class SystemProcedureCatalog {
         builder.put("@SnapshotScan",            new Config("org.voltdb.sysprocs.SnapshotScan",             false, false, false, 0, VoltType.INVALID,   false, false, true,  true));
         builder.put("@SnapshotDelete",          new Config("org.voltdb.sysprocs.SnapshotDelete",           false, false, false, 0, VoltType.INVALID,   false, false, true,  true));
         builder.put("@Shutdown",                new Config("org.voltdb.sysprocs.Shutdown",                 false, false, false, 0, VoltType.INVALID,   false, false, true,  true));
+        builder.put("@RebalanceControl",        new Config("org.voltdb.sysprocs.RebalanceControl",         false, false, true,  0, VoltType.INVALID,   false, false, true,  true));
+        builder.put("@TransactionTrace",        new Config("org.voltdb.sysprocs.TransactionTrace",         false, false, false, 0, VoltType.INVALID,   false, false, true,  true));
         builder.put("@ProfCtl",                 new Config("org.voltdb.sysprocs.ProfCtl",                  false, false, true,  0, VoltType.INVALID,   false, false, true,  true));
         builder.put("@Statistics",              new Config("org.voltdb.sysprocs.Statistics",               false, true,  false, 0, VoltType.INVALID,   false, false, true,  true));
         builder.put("@SystemCatalog",           new Config("org.voltdb.sysprocs.SystemCatalog",            true,  true,  false, 0, VoltType.STRING,    false, false, true,  true));
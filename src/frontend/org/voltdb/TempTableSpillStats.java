@@ -0,0 +1,75 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+
+import org.voltdb.VoltTable.ColumnInfo;
+
+/**
+ * Temp results a site's EE sorted or aggregated on disk because they were over
+ * -DTEMP_TABLE_SPILL_MB, one row per site. SPILLS counts the ORDER BY and GROUP BY
+ * executions that spilled, FILES the sorted runs and partitions they wrote. The
+ * counters are cumulative and refreshed from the EE on every site tick.
+ */
+public class TempTableSpillStats extends SiteStatsSource {
+
+    private volatile long m_spills = 0;
+    private volatile long m_files = 0;
+    private volatile long m_tuples = 0;
+    private volatile long m_bytes = 0;
+
+    public TempTableSpillStats(long siteId) {
+        super(siteId, false);
+    }
+
+    /**
+     * Called from the site thread with the counters of its EE
+     */
+    public void update(long spills, long files, long tuples, long bytes) {
+        m_spills = spills;
+        m_files = files;
+        m_tuples = tuples;
+        m_bytes = bytes;
+    }
+
+    @Override
+    protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
+        super.populateColumnSchema(columns);
+        columns.add(new ColumnInfo("SPILLS", VoltType.BIGINT));
+        columns.add(new ColumnInfo("FILES", VoltType.BIGINT));
+        columns.add(new ColumnInfo("TUPLES", VoltType.BIGINT));
+        columns.add(new ColumnInfo("BYTES", VoltType.BIGINT));
+    }
+
+    @Override
+    protected void updateStatsRow(Object rowKey, Object[] rowValues) {
+        rowValues[columnNameToIndex.get("SPILLS")] = m_spills;
+        rowValues[columnNameToIndex.get("FILES")] = m_files;
+        rowValues[columnNameToIndex.get("TUPLES")] = m_tuples;
+        rowValues[columnNameToIndex.get("BYTES")] = m_bytes;
+        super.updateStatsRow(rowKey, rowValues);
+    }
+
+    @Override
+    protected Iterator<Object> getStatsRowKeyIterator(boolean interval) {
+        return Collections.<Object>singletonList(this).iterator();
+    }
+}
@@ -0,0 +1,323 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * <p>Sampled lifecycle tracing of single partition transactions. A sampled
+ * transaction gets a System.nanoTime() stamp as it passes each stage between the
+ * client interface receiving the invocation and the response being written back
+ * to the client. Stamps go into a preallocated ring buffer owned by the thread
+ * recording them (a site, a network thread, the client interface), so recording
+ * never locks or allocates and old events are overwritten.</p>
+ *
+ * <p>Whether a transaction is sampled is a hash of its client interface handle,
+ * every host reaches the same decision without anything being added to the
+ * messages. Unsampled transactions pay one volatile read, or a null check once
+ * the decision is carried in the transaction state. The sample rate (1 in N,
+ * 0 is off) is set with -DTXN_TRACE_SAMPLE_RATE or @TransactionTrace.</p>
+ *
+ * <p>Events are keyed by the host of the client interface and the client
+ * interface handle. Stamps are only comparable between events recorded on the
+ * same host, so a transaction whose partition master is on another host than
+ * its client interface shows up as two partial traces, one per host.</p>
+ */
+public class TransactionTracer {
+
+    public static enum Stage {
+        CI_RECEIVE,         // invocation routed by the client interface
+        INITIATOR_RECEIVE,  // initiate task received by the partition master
+        LOG_SUBMIT,         // handed to the command log
+        LOG_DURABLE,        // command log reported it durable
+        QUEUE_OFFER,        // offered to the transaction task queue
+        TASK_START,         // picked up by the site thread
+        PROCEDURE_START,    // procedure runner invoked
+        EE_START,           // batch of SQL sent to the EE
+        EE_END,             // batch of SQL returned from the EE
+        PROCEDURE_END,      // procedure runner returned
+        TASK_END,           // response delivered to the initiator mailbox
+        REPLICA_ACK,        // response received from a replica
+        RESPONSE_SEND,      // response sent to the client interface
+        CI_RESPONSE,        // response received by the client interface
+        CI_WRITE;           // response serialized for the client connection
+
+        private static final Stage[] m_values = values();
+
+        public static Stage get(int ordinal) {
+            return m_values[ordinal];
+        }
+    }
+
+    /** Magic number and version at the start of a dump file */
+    public static final int DUMP_MAGIC = 0x54585452; // "TXTR"
+    public static final int DUMP_VERSION = 1;
+
+    /** Events kept per thread, set with -DTXN_TRACE_RING_SIZE */
+    public static final int RING_SIZE =
+        Math.max(64, Integer.getInteger("TXN_TRACE_RING_SIZE", 16 * 1024));
+
+    private static volatile int m_sampleRate =
+        Math.max(0, Integer.getInteger("TXN_TRACE_SAMPLE_RATE", 0));
+
+    private static final CopyOnWriteArrayList<Ring> m_rings = new CopyOnWriteArrayList<Ring>();
+
+    private static final ThreadLocal<Ring> m_ring = new ThreadLocal<Ring>() {
+        @Override
+        protected Ring initialValue() {
+            // the rings of threads that exited go when the next thread starts tracing
+            for (Ring ring : m_rings) {
+                if (ring.isOwnerDead()) {
+                    m_rings.remove(ring);
+                }
+            }
+            Ring ring = new Ring(Thread.currentThread(), RING_SIZE);
+            m_rings.add(ring);
+            return ring;
+        }
+    };
+
+    /**
+     * The trace of one sampled transaction, carried in its transaction state so
+     * the site doesn't hash the handle again at every stage.
+     */
+    public static class Trace {
+        public final int ciHostId;
+        public final long ciHandle;
+
+        Trace(int ciHostId, long ciHandle) {
+            this.ciHostId = ciHostId;
+            this.ciHandle = ciHandle;
+        }
+
+        public void record(Stage stage) {
+            m_ring.get().add(ciHostId, ciHandle, stage, System.nanoTime());
+        }
+    }
+
+    /**
+     * Receives the events of a snapshot of the rings
+     */
+    public static interface EventVisitor {
+        public void event(String thread, int ciHostId, long ciHandle, Stage stage, long nanos);
+    }
+
+    /**
+     * Single writer ring of events. The writer publishes an event by advancing
+     * the volatile count after filling in the slot, readers copy the slots and
+     * throw away whatever the writer may have overwritten meanwhile. There is
+     * one slot more than the events kept, the one the writer may be filling.
+     */
+    static class Ring {
+        final String m_thread;
+        // null if the ring isn't owned by a thread
+        private final WeakReference<Thread> m_owner;
+        final int[] m_hosts;
+        final long[] m_handles;
+        final byte[] m_stages;
+        final long[] m_times;
+        private volatile long m_count = 0;
+        // events before this one were cleared
+        private volatile long m_start = 0;
+
+        Ring(Thread owner, int size) {
+            this(owner.getName(), owner, size);
+        }
+
+        Ring(String thread, int size) {
+            this(thread, null, size);
+        }
+
+        private Ring(String thread, Thread owner, int size) {
+            m_thread = thread;
+            m_owner = owner == null ? null : new WeakReference<Thread>(owner);
+            m_hosts = new int[size + 1];
+            m_handles = new long[size + 1];
+            m_stages = new byte[size + 1];
+            m_times = new long[size + 1];
+        }
+
+        boolean isOwnerDead() {
+            if (m_owner == null) {
+                return false;
+            }
+            final Thread owner = m_owner.get();
+            return owner == null || !owner.isAlive();
+        }
+
+        void add(int ciHostId, long ciHandle, Stage stage, long nanos) {
+            final long count = m_count;
+            final int slot = (int)(count % m_times.length);
+            m_hosts[slot] = ciHostId;
+            m_handles[slot] = ciHandle;
+            m_stages[slot] = (byte)stage.ordinal();
+            m_times[slot] = nanos;
+            m_count = count + 1;
+        }
+
+        void clear() {
+            m_start = m_count;
+        }
+
+        int visit(EventVisitor visitor) {
+            final int size = m_times.length;
+            final long end = m_count;
+            // the slot of event end - size is the one the writer may be filling
+            final long begin = Math.max(m_start, end - size + 1);
+            final int n = (int)(end - begin);
+            int[] hosts = new int[n];
+            long[] handles = new long[n];
+            byte[] stages = new byte[n];
+            long[] times = new long[n];
+            for (int i = 0; i < n; i++) {
+                final int slot = (int)((begin + i) % size);
+                hosts[i] = m_hosts[slot];
+                handles[i] = m_handles[slot];
+                stages[i] = m_stages[slot];
+                times[i] = m_times[slot];
+            }
+            // anything the writer lapped while copying, or is still filling, is garbage
+            final int skip = (int)Math.max(0, m_count + 1 - size - begin);
+            for (int i = skip; i < n; i++) {
+                visitor.event(m_thread, hosts[i], handles[i], Stage.get(stages[i]), times[i]);
+            }
+            return Math.max(0, n - skip);
+        }
+    }
+
+    /**
+     * Mix the bits of the handle, the low bits of consecutive handles only
+     * differ in their sequence number.
+     */
+    static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    public static boolean isSampled(long ciHandle) {
+        final int rate = m_sampleRate;
+        return rate > 0 && (rate == 1 || (mix(ciHandle) & Long.MAX_VALUE) % rate == 0);
+    }
+
+    /**
+     * @return the trace of the transaction if it is sampled, null otherwise
+     */
+    public static Trace sample(int ciHostId, long ciHandle) {
+        if (isSampled(ciHandle)) {
+            return new Trace(ciHostId, ciHandle);
+        }
+        return null;
+    }
+
+    /**
+     * Record a stage of a transaction if it is sampled
+     */
+    public static void record(int ciHostId, long ciHandle, Stage stage) {
+        if (isSampled(ciHandle)) {
+            m_ring.get().add(ciHostId, ciHandle, stage, System.nanoTime());
+        }
+    }
+
+    /**
+     * @param rate trace 1 in rate transactions, 0 turns tracing off
+     */
+    public static void setSampleRate(int rate) {
+        m_sampleRate = Math.max(0, rate);
+    }
+
+    public static int getSampleRate() {
+        return m_sampleRate;
+    }
+
+    /**
+     * Drop the events recorded so far, the rings stay allocated
+     */
+    public static void clear() {
+        for (Ring ring : m_rings) {
+            ring.clear();
+        }
+    }
+
+    /**
+     * Visit the events of every ring, oldest first within a ring
+     * @return the number of events visited
+     */
+    public static long visit(EventVisitor visitor) {
+        long events = 0;
+        for (Ring ring : m_rings) {
+            events += ring.visit(visitor);
+        }
+        return events;
+    }
+
+    /**
+     * <p>Write the events to a file. The format is big endian:</p>
+     * <pre>
+     *   int magic, int version, int hostId, long wallClockMillis, long nanoTime
+     *   repeated: int ciHostId, long ciHandle, byte stage, long nanos
+     *   int -1
+     * </pre>
+     * <p>The clocks in the header line the nanoTime stamps up with wall clock time.</p>
+     * @return the number of events written
+     */
+    public static long dump(File file, int hostId) throws IOException {
+        final DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file), 64 * 1024));
+        try {
+            out.writeInt(DUMP_MAGIC);
+            out.writeInt(DUMP_VERSION);
+            out.writeInt(hostId);
+            out.writeLong(System.currentTimeMillis());
+            out.writeLong(System.nanoTime());
+            final IOException[] error = new IOException[1];
+            long events = visit(new EventVisitor() {
+                @Override
+                public void event(String thread, int ciHostId, long ciHandle, Stage stage, long nanos) {
+                    if (error[0] != null) {
+                        return;
+                    }
+                    try {
+                        out.writeInt(ciHostId);
+                        out.writeLong(ciHandle);
+                        out.writeByte(stage.ordinal());
+                        out.writeLong(nanos);
+                    } catch (IOException e) {
+                        error[0] = e;
+                    }
+                }
+            });
+            if (error[0] != null) {
+                throw error[0];
+            }
+            out.writeInt(-1);
+            return events;
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -254,10 +254,12 @@ class Distributer {
         public CallbackBookeeping(long timestamp, ProcedureCallback callback, String name) {
             assert(callback != null);
             this.timestamp = timestamp;
+            this.nanoTime = System.nanoTime();
             this.callback = callback;
             this.name = name;
         }
         long timestamp;
+        long nanoTime;
         ProcedureCallback callback;
         String name;
     }
@@ -330,6 +332,7 @@ class Distributer {
          * Update the procedures statistics
          * @param procName Name of procedure being updated
          * @param roundTrip round trip from client queued to client response callback invocation
+         * @param roundTripMicros the same round trip in microseconds
          * @param clusterRoundTrip round trip measured within the VoltDB cluster
          * @param abort true of the procedure was aborted
          * @param failure true if the procedure failed
@@ -337,6 +340,7 @@ class Distributer {
         private void updateStats(
                 String procName,
                 int roundTrip,
+                long roundTripMicros,
                 int clusterRoundTrip,
                 boolean abort,
                 boolean failure) {
@@ -351,12 +355,13 @@ class Distributer {
                 stats.m_endTS = Long.MIN_VALUE;
                 m_stats.put(procName, stats);
             }
-            stats.update(roundTrip, clusterRoundTrip, abort, failure);
+            stats.update(roundTrip, roundTripMicros, clusterRoundTrip, abort, failure);
         }
 
         @Override
         public void handleMessage(ByteBuffer buf, Connection c) {
             long now = System.currentTimeMillis();
+            long nowNanos = System.nanoTime();
             ClientResponseImpl response = new ClientResponseImpl();
             try {
                 response.initFromBuffer(buf);
@@ -405,7 +410,8 @@ class Distributer {
                     }
                     int clusterRoundTrip = response.getClusterRoundtrip();
                     m_rateLimiter.transactionResponseReceived(now, clusterRoundTrip);
-                    updateStats(stuff.name, delta, clusterRoundTrip, abort, error);
+                    updateStats(stuff.name, delta, (nowNanos - stuff.nanoTime) / 1000,
+                                clusterRoundTrip, abort, error);
                 }
             }
 
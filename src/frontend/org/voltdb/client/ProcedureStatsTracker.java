@@ -18,6 +18,7 @@
 package org.voltdb.client;
 
 import org.voltdb.LatencyBucketSet;
+import org.voltdb.LatencyHistogram;
 
 public class ProcedureStatsTracker {
 
@@ -42,12 +43,13 @@ public class ProcedureStatsTracker {
                 new LatencyBucketSet(10, ClientStats.TEN_MS_BUCKET_COUNT);
         LatencyBucketSet m_latencyBy100ms =
                 new LatencyBucketSet(100, ClientStats.HUNDRED_MS_BUCKET_COUNT);
+        LatencyHistogram m_latencyHistogram = new LatencyHistogram();
 
         public Stats(long since) {
             this.since = since;
         }
 
-        public void update(int roundTripTime, int clusterRoundTripTime,
+        public void update(int roundTripTime, long roundTripMicros, int clusterRoundTripTime,
                            boolean abort, boolean error)
         {
             m_maxRoundTripTime = Math.max(roundTripTime, m_maxRoundTripTime);
@@ -67,6 +69,7 @@ public class ProcedureStatsTracker {
             m_latencyBy1ms.update(roundTripTime);
             m_latencyBy10ms.update(roundTripTime);
             m_latencyBy100ms.update(roundTripTime);
+            m_latencyHistogram.recordValue(roundTripMicros);
         }
     }
 
@@ -87,9 +90,9 @@ public class ProcedureStatsTracker {
         m_intervalStats = new Stats(now);
     }
 
-    void update(int roundTripTime, int clusterRoundTripTime, boolean abort, boolean error) {
-        m_lifetimeStats.update(roundTripTime, clusterRoundTripTime, abort, error);
-        m_intervalStats.update(roundTripTime, clusterRoundTripTime, abort, error);
+    void update(int roundTripTime, long roundTripMicros, int clusterRoundTripTime, boolean abort, boolean error) {
+        m_lifetimeStats.update(roundTripTime, roundTripMicros, clusterRoundTripTime, abort, error);
+        m_intervalStats.update(roundTripTime, roundTripMicros, clusterRoundTripTime, abort, error);
     }
 
     void resetInterval(long since) {
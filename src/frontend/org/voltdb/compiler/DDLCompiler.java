@@ -272,6 +272,22 @@ public class DDLCompiler {
             "([\\w.$]+)" +                      // (1) <table name>
             "\\s*;\\z"                          // (end statement)
             );
+
+    /**
+     * ENCODE TABLE statement regex
+     * NB supports only unquoted table and column names
+     * Capture groups are tagged as (1) and (2) in comments below.
+     */
+    static final Pattern encodePattern = Pattern.compile(
+            "(?i)" +                            // (ignore case)
+            "\\A"  +                            // start statement
+            "ENCODE\\s+TABLE\\s+"  +            // ENCODE TABLE
+            "([\\w$]+)" +                       // (1) <table name>
+            "\\s+ON\\s+COLUMN\\s+" +            // ON COLUMN
+            "([\\w$]+)" +                       // (2) <column name>
+            "\\s+AS\\s+DICTIONARY" +            // AS DICTIONARY
+            "\\s*;\\z"                          // (end statement)
+            );
     /**
      * Regex Description:
      *
@@ -280,7 +296,7 @@ public class DDLCompiler {
      *  partition, replicate, or role.
      * <pre>
      * (?i) -- ignore case
-     * ((?<=\\ACREATE\\s{0,1024})(?:PROCEDURE|ROLE)|\\APARTITION|\\AREPLICATE\\AEXPORT) -- voltdb ddl
+     * ((?<=\\ACREATE\\s{0,1024})(?:PROCEDURE|ROLE)|\\APARTITION|\\AREPLICATE\\AEXPORT\\AENCODE) -- voltdb ddl
      *    [capture group 1]
      *      (?<=\\ACREATE\\s{1,1024})(?:PROCEDURE|ROLE) -- create procedure or role ddl
      *          (?<=\\ACREATE\\s{0,1024}) -- CREATE zero-width positive lookbehind
@@ -297,11 +313,14 @@ public class DDLCompiler {
      *      | -- or
      *      \\A -- beginning of statement
      *      EXPORT -- token
+     *      | -- or
+     *      \\A -- beginning of statement
+     *      ENCODE -- token
      * \\s -- one space
      * </pre>
      */
     static final Pattern voltdbStatementPrefixPattern = Pattern.compile(
-            "(?i)((?<=\\ACREATE\\s{0,1024})(?:PROCEDURE|ROLE)|\\APARTITION|\\AREPLICATE|\\AEXPORT)\\s"
+            "(?i)((?<=\\ACREATE\\s{0,1024})(?:PROCEDURE|ROLE)|\\APARTITION|\\AREPLICATE|\\AEXPORT|\\AENCODE)\\s"
             );
 
     static final String TABLE = "TABLE";
@@ -309,6 +328,7 @@ public class DDLCompiler {
     static final String PARTITION = "PARTITION";
     static final String REPLICATE = "REPLICATE";
     static final String EXPORT = "EXPORT";
+    static final String ENCODE = "ENCODE";
     static final String ROLE = "ROLE";
 
     enum Permission {
@@ -464,7 +484,7 @@ public class DDLCompiler {
             return false;
         }
 
-        // either PROCEDURE, REPLICATE, PARTITION, ROLE, or EXPORT
+        // either PROCEDURE, REPLICATE, PARTITION, ROLE, EXPORT or ENCODE
         String commandPrefix = statementMatcher.group(1).toUpperCase();
 
         // matches if it is CREATE PROCEDURE [ALLOW <role> ...] FROM CLASS <class-name>;
@@ -644,6 +664,16 @@ public class DDLCompiler {
             return true;
         }
 
+        statementMatcher = encodePattern.matcher(statement);
+        if( statementMatcher.matches()) {
+
+            String tableName = checkIdentifierStart(statementMatcher.group(1), statement);
+            String columnName = checkIdentifierStart(statementMatcher.group(2), statement);
+            m_tracker.addDictionaryEncodedColumn(tableName, columnName);
+
+            return true;
+        }
+
         /*
          * if no correct syntax regex matched above then at this juncture
          * the statement is syntax incorrect
@@ -687,6 +717,13 @@ public class DDLCompiler {
                     statement.substring(0,statement.length()-1))); // remove trailing semicolon
         }
 
+        if( ENCODE.equals(commandPrefix)) {
+            throw m_compiler.new VoltCompilerException(String.format(
+                    "Invalid ENCODE TABLE statement: \"%s\", " +
+                    "expected syntax: ENCODE TABLE <table> ON COLUMN <column> AS DICTIONARY",
+                    statement.substring(0,statement.length()-1))); // remove trailing semicolon
+        }
+
         // Not a VoltDB-specific DDL statement.
         return false;
     }
@@ -1548,9 +1585,12 @@ public class DDLCompiler {
 
         for (i++; i < displayColCount; i++) {
             ParsedSelectStmt.ParsedColInfo outcol = stmt.displayColumns.get(i);
-            if ((outcol.expression.getExpressionType() != ExpressionType.AGGREGATE_COUNT) &&
-                    (outcol.expression.getExpressionType() != ExpressionType.AGGREGATE_SUM)) {
-                msg += "must have non-group by columns aggregated by sum or count.";
+            ExpressionType aggType = outcol.expression.getExpressionType();
+            if ((aggType != ExpressionType.AGGREGATE_COUNT) &&
+                    (aggType != ExpressionType.AGGREGATE_SUM) &&
+                    (aggType != ExpressionType.AGGREGATE_MIN) &&
+                    (aggType != ExpressionType.AGGREGATE_MAX)) {
+                msg += "must have non-group by columns aggregated by sum, count, min or max.";
                 throw m_compiler.new VoltCompilerException(msg);
             }
             if (outcol.expression.getLeft().getExpressionType() != ExpressionType.VALUE_TUPLE) {
@@ -39,6 +39,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.jar.JarEntry;
 import java.util.jar.JarInputStream;
 import java.util.regex.Matcher;
@@ -101,6 +102,8 @@ public class VoltCompiler {
     /** Represents the level of severity for a Feedback message generated during compiling. */
     public static enum Severity { INFORMATIONAL, WARNING, ERROR, UNEXPECTED }
     public static final int NO_LINE_NUMBER = -1;
+    /** Smallest VARCHAR the EE stores out of the tuple (UNINLINEABLE_OBJECT_LENGTH) */
+    static final int MIN_DICTIONARY_ENCODED_SIZE = 64;
 
     // feedback by filename
     ArrayList<Feedback> m_infos = new ArrayList<Feedback>();
@@ -790,6 +793,28 @@ public class VoltCompiler {
             }
         }
 
+        // Mark the dictionary encoded columns
+        for (Entry<String, Set<String>> e : voltDdlTracker.getDictionaryEncodedColumns().entrySet()) {
+            final Table t = tables.getIgnoreCase(e.getKey());
+            if (t == null) {
+                throw new VoltCompilerException(msg + "ENCODE has unknown TABLE '" + e.getKey() + "'");
+            }
+            for (String colName : e.getValue()) {
+                final Column c = t.getColumns().getIgnoreCase(colName);
+                if (c == null) {
+                    throw new VoltCompilerException(msg + "ENCODE has unknown COLUMN '" + colName + "'");
+                }
+                // shorter values are stored in the tuple, there's no string allocation to share
+                if (VoltType.get((byte) c.getType()) != VoltType.STRING ||
+                    c.getSize() < MIN_DICTIONARY_ENCODED_SIZE) {
+                    throw new VoltCompilerException(msg + "Encoded column '" + t.getTypeName() + "." +
+                            c.getTypeName() + "' is not a valid type. Dictionary encoded columns must be " +
+                            "VARCHAR(" + MIN_DICTIONARY_ENCODED_SIZE + ") or larger.");
+                }
+                c.setDictionaryencoded(true);
+            }
+        }
+
         // this should reorder the tables and partitions all alphabetically
         String catData = m_catalog.serialize();
         m_catalog = new Catalog();
@@ -40,6 +40,7 @@ public class VoltDDLElementTracker {
     final Map<String, ProcedureDescriptor> m_procedureMap =
             new HashMap<String, ProcedureDescriptor>();
     final Set<String> m_exports = new HashSet<String>();
+    final Map<String, Set<String>> m_dictionaryColumns = new HashMap<String, Set<String>>();
 
     /**
      * Constructor needs a compiler instance to throw VoltCompilerException.
@@ -169,4 +170,36 @@ public class VoltDDLElementTracker {
         return m_exports;
     }
 
+    /**
+     * Track a dictionary encoded column
+     * @param tableName a table name
+     * @param colName a column name
+     * @throws VoltCompilerException when the given column is already encoded
+     */
+    void addDictionaryEncodedColumn( String tableName, String colName)
+        throws VoltCompilerException
+    {
+        assert tableName != null && ! tableName.trim().isEmpty();
+        assert colName != null && ! colName.trim().isEmpty();
+
+        Set<String> columns = m_dictionaryColumns.get(tableName.toLowerCase());
+        if( columns == null) {
+            columns = new HashSet<String>();
+            m_dictionaryColumns.put(tableName.toLowerCase(), columns);
+        }
+        if( ! columns.add(colName.toLowerCase())) {
+            throw m_compiler.new VoltCompilerException(String.format(
+                    "Column \"%s.%s\" is already encoded", tableName, colName
+                    ));
+        }
+    }
+
+    /**
+     * Get the tracked dictionary encoded columns
+     * @return a map of table names to their dictionary encoded column names
+     */
+    Map<String, Set<String>> getDictionaryEncodedColumns() {
+        return m_dictionaryColumns;
+    }
+
 }
\ No newline at end of file
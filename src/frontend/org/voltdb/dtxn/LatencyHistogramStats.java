@@ -0,0 +1,147 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.dtxn;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.voltdb.AdmissionControlGroup;
+import org.voltdb.ClientInterface;
+import org.voltdb.LatencyHistogram;
+import org.voltdb.StatsSource;
+import org.voltdb.VoltDB;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.VoltType;
+
+/**
+ * Percentiles of the latency of the transactions completed on this host, from
+ * the time the invocation was read from the client to the time the response was
+ * queued back to it. One row per procedure, partition (multi-partition
+ * transactions are under the MP initiator's partition id) or client connection,
+ * all values are in microseconds.
+ *
+ * Interval requests diff against the cumulative histograms at the previous
+ * interval request.
+ */
+public class LatencyHistogramStats extends StatsSource {
+
+    public static enum Dimension {
+        PROCEDURE,
+        PARTITION,
+        CONNECTION
+    }
+
+    private final Dimension m_dimension;
+    private Map<Object, LatencyHistogram> m_rows = new HashMap<Object, LatencyHistogram>();
+    private Map<Object, LatencyHistogram> m_lastInterval = new HashMap<Object, LatencyHistogram>();
+
+    public LatencyHistogramStats(Dimension dimension) {
+        super(false);
+        m_dimension = dimension;
+    }
+
+    @Override
+    protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
+        super.populateColumnSchema(columns);
+        switch (m_dimension) {
+        case PROCEDURE:
+            columns.add(new ColumnInfo("PROCEDURE", VoltType.STRING));
+            break;
+        case PARTITION:
+            columns.add(new ColumnInfo("PARTITION_ID", VoltType.INTEGER));
+            break;
+        case CONNECTION:
+            columns.add(new ColumnInfo("CONNECTION_ID", VoltType.BIGINT));
+            break;
+        }
+        columns.add(new ColumnInfo("INVOCATIONS", VoltType.BIGINT));
+        columns.add(new ColumnInfo("AVG", VoltType.BIGINT));
+        columns.add(new ColumnInfo("P50", VoltType.BIGINT));
+        columns.add(new ColumnInfo("P99", VoltType.BIGINT));
+        columns.add(new ColumnInfo("P999", VoltType.BIGINT));
+        columns.add(new ColumnInfo("MAX", VoltType.BIGINT));
+    }
+
+    @Override
+    protected void updateStatsRow(Object rowKey, Object[] rowValues) {
+        final LatencyHistogram histogram = m_rows.get(rowKey);
+        switch (m_dimension) {
+        case PROCEDURE:
+            rowValues[columnNameToIndex.get("PROCEDURE")] = rowKey;
+            break;
+        case PARTITION:
+            rowValues[columnNameToIndex.get("PARTITION_ID")] = rowKey;
+            break;
+        case CONNECTION:
+            rowValues[columnNameToIndex.get("CONNECTION_ID")] = rowKey;
+            break;
+        }
+        rowValues[columnNameToIndex.get("INVOCATIONS")] = histogram.getTotalCount();
+        rowValues[columnNameToIndex.get("AVG")] = (long)histogram.getMean();
+        rowValues[columnNameToIndex.get("P50")] = histogram.getValueAtPercentile(.5);
+        rowValues[columnNameToIndex.get("P99")] = histogram.getValueAtPercentile(.99);
+        rowValues[columnNameToIndex.get("P999")] = histogram.getValueAtPercentile(.999);
+        rowValues[columnNameToIndex.get("MAX")] = histogram.getMax();
+        super.updateStatsRow(rowKey, rowValues);
+    }
+
+    @Override
+    protected Iterator<Object> getStatsRowKeyIterator(boolean interval) {
+        // merge the histograms of every admission control group on the host
+        final Map<Object, LatencyHistogram> totals = new TreeMap<Object, LatencyHistogram>();
+        for (ClientInterface ci : VoltDB.instance().getClientInterfaces()) {
+            for (AdmissionControlGroup acg : ci.getAdmissionControlGroups()) {
+                Map<?, LatencyHistogram> histograms = null;
+                switch (m_dimension) {
+                case PROCEDURE:
+                    histograms = acg.getProcedureLatency();
+                    break;
+                case PARTITION:
+                    histograms = acg.getPartitionLatency();
+                    break;
+                case CONNECTION:
+                    histograms = acg.getConnectionLatency();
+                    break;
+                }
+                for (Map.Entry<?, LatencyHistogram> e : histograms.entrySet()) {
+                    final LatencyHistogram total = totals.get(e.getKey());
+                    if (total == null) {
+                        totals.put(e.getKey(), e.getValue().copy());
+                    } else {
+                        total.add(e.getValue());
+                    }
+                }
+            }
+        }
+
+        if (interval) {
+            m_rows = new TreeMap<Object, LatencyHistogram>();
+            for (Map.Entry<Object, LatencyHistogram> e : totals.entrySet()) {
+                final LatencyHistogram last = m_lastInterval.get(e.getKey());
+                m_rows.put(e.getKey(), last == null ? e.getValue() : LatencyHistogram.diff(e.getValue(), last));
+            }
+            m_lastInterval = totals;
+        } else {
+            m_rows = totals;
+        }
+        return new ArrayList<Object>(m_rows.keySet()).iterator();
+    }
+}
@@ -22,6 +22,7 @@ import java.util.Iterator;
 import java.util.List;
 
 import org.voltdb.ClientInterface;
+import org.voltdb.LatencyHistogram;
 import org.voltdb.SiteStatsSource;
 import org.voltdb.StatsSelector;
 import org.voltdb.VoltDB;
@@ -68,66 +69,71 @@ public class LatencyStats extends SiteStatsSource {
         }
     }
 
+    /**
+     * Host wide latency of the transactions completed by one admission control
+     * group. Recorded in a microsecond resolution histogram, the 10ms buckets of
+     * the LATENCY selector are derived from it.
+     */
     public static class LatencyInfo
     {
-        private volatile ImmutableList<Long> m_latencyStats;
-        private volatile long m_max;
+        private static final int BUCKET_COUNT = 26;
+        private final LatencyHistogram m_histogram;
 
         public LatencyInfo()
         {
-            Long[] buckets = {0l, 0l, 0l, 0l, 0l, 0l, 0l, 0l, 0l, 0l,
-                0l, 0l, 0l, 0l, 0l, 0l, 0l, 0l, 0l, 0l,
-                0l, 0l, 0l, 0l, 0l, 0l};
-            m_latencyStats = ImmutableList.copyOf(buckets);
-            m_max = (m_latencyStats.size() - 1) * BUCKET_RANGE;
+            this(new LatencyHistogram());
         }
 
-        public void addSample(int delta)
+        private LatencyInfo(LatencyHistogram histogram)
         {
-            int bucketIndex = Math.min((int) (delta / BUCKET_RANGE), m_latencyStats.size() - 1);
-
-            // if the host's clock moves backwards, bucketIndex can be negative
-            // this next line of code is a lie, but a beautiful one that keeps your server up
-            if (bucketIndex < 0) bucketIndex = 0;
+            m_histogram = histogram;
+        }
 
-            m_max = Math.max(delta, m_max);
-            ImmutableList.Builder<Long> builder = ImmutableList.builder();
-            for (int i = 0; i < m_latencyStats.size(); i++) {
-                if (i == bucketIndex) {
-                    builder.add(m_latencyStats.get(i) + 1);
-                }
-                else {
-                    builder.add(m_latencyStats.get(i));
-                }
-            }
-            m_latencyStats = builder.build();
+        public void addSample(long deltaMicros)
+        {
+            m_histogram.recordValue(deltaMicros);
         }
 
         void mergeLatencyInfo(LatencyInfo other)
         {
             assert(other != null);
-            assert(m_latencyStats.size() == other.m_latencyStats.size());
-            m_max = Math.max(m_max, other.m_max);
+            m_histogram.add(other.m_histogram);
+        }
+
+        /**
+         * Counts of the transactions in each 10ms bucket, the last bucket is open ended
+         */
+        public List<Long> getBuckets()
+        {
             ImmutableList.Builder<Long> builder = ImmutableList.builder();
-            for (int i = 0; i < m_latencyStats.size(); i++) {
-                builder.add(m_latencyStats.get(i) + other.m_latencyStats.get(i));
+            long accounted = 0;
+            for (int i = 0; i < BUCKET_COUNT - 1; i++) {
+                long count = m_histogram.getCountBetween(i * BUCKET_RANGE * 1000,
+                                                         (i + 1) * BUCKET_RANGE * 1000);
+                accounted += count;
+                builder.add(count);
             }
-            m_latencyStats = builder.build();
+            builder.add(Math.max(0, m_histogram.getTotalCount() - accounted));
+            return builder.build();
         }
 
-        List<Long> getBuckets()
+        /**
+         * The largest latency in milliseconds, never less than the lower bound of the last bucket
+         */
+        public long getMax()
         {
-            return m_latencyStats;
+            return Math.max((BUCKET_COUNT - 1) * BUCKET_RANGE, m_histogram.getMax() / 1000);
         }
 
-        long getMax()
+        public LatencyHistogram getHistogram()
         {
-            return m_max;
+            return m_histogram;
         }
     }
 
-    private static final long BUCKET_RANGE = 10; // 10ms
+    public static final long BUCKET_RANGE = 10; // 10ms
     private LatencyInfo m_totals;
+    private List<Long> m_totalBuckets;
 
     public LatencyStats(long siteId) {
         super(siteId, false);
@@ -144,7 +150,8 @@ public class LatencyStats extends SiteStatsSource {
                 m_totals.mergeLatencyInfo(info);
             }
         }
-        return new BucketIterator(m_totals.getBuckets().size());
+        m_totalBuckets = m_totals.getBuckets();
+        return new BucketIterator(m_totalBuckets.size());
     }
 
     @Override
@@ -160,13 +167,13 @@ public class LatencyStats extends SiteStatsSource {
         final int bucket = (Integer) rowKey;
 
         rowValues[columnNameToIndex.get("BUCKET_MIN")] = bucket * BUCKET_RANGE;
-        if (bucket < m_totals.getBuckets().size() - 1) {
+        if (bucket < m_totalBuckets.size() - 1) {
             rowValues[columnNameToIndex.get("BUCKET_MAX")] = (bucket + 1) * BUCKET_RANGE;
         } else {
             // max for the last bucket is the max of the largest latency
             rowValues[columnNameToIndex.get("BUCKET_MAX")] = m_totals.getMax();
         }
-        rowValues[columnNameToIndex.get("INVOCATIONS")] = m_totals.getBuckets().get(bucket);
+        rowValues[columnNameToIndex.get("INVOCATIONS")] = m_totalBuckets.get(bucket);
         super.updateStatsRow(rowKey, rowValues);
     }
 }
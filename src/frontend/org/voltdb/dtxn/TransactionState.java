@@ -25,6 +25,7 @@ import org.voltcore.messaging.TransactionInfoBaseMessage;
 import org.voltdb.ClientResponseImpl;
 import org.voltdb.SiteProcedureConnection;
 import org.voltdb.StoredProcedureInvocation;
+import org.voltdb.TransactionTracer;
 import org.voltdb.VoltTable;
 import org.voltdb.iv2.Site;
 import org.voltdb.messaging.FragmentTaskMessage;
@@ -48,6 +49,8 @@ public abstract class TransactionState extends OrderableTransaction  {
     protected ClientResponseImpl m_response = null;
     protected final boolean m_isForReplay;
     protected int m_hash = -1; // -1 shows where the value comes from (they only have to match)
+    // set by the initiator if the transaction is sampled for tracing
+    protected TransactionTracer.Trace m_trace = null;
 
     /**
      * Set up the final member variables from the parameters. This will
@@ -100,6 +103,17 @@ public abstract class TransactionState extends OrderableTransaction  {
      */
     public abstract boolean isSinglePartition();
 
+    public void setTrace(TransactionTracer.Trace trace) {
+        m_trace = trace;
+    }
+
+    /**
+     * @return the lifecycle trace of the transaction, null if it isn't sampled
+     */
+    public TransactionTracer.Trace getTrace() {
+        return m_trace;
+    }
+
     public void setHash(Integer hash) {
         m_hash = hash == null ? 0 : hash; // don't allow null
     }
@@ -183,6 +183,9 @@ public class RawProcessor implements ExportDataProcessor {
                     @Override
                     public void cancel() {
                     }
+                    @Override
+                    public void serialized() {
+                    }
                 });
             closeConnection();
         }
@@ -275,6 +278,9 @@ public class RawProcessor implements ExportDataProcessor {
                         @Override
                         public void cancel() {
                         }
+                        @Override
+                        public void serialized() {
+                        }
                     });
                 return;
             }
@@ -314,6 +320,9 @@ public class RawProcessor implements ExportDataProcessor {
                         @Override
                         public void cancel() {
                         }
+                        @Override
+                        public void serialized() {
+                        }
                     });
                 return;
             }
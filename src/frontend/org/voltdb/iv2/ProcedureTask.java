@@ -27,6 +27,7 @@ import org.voltdb.ClientResponseImpl;
 import org.voltdb.ExpectedProcedureException;
 import org.voltdb.ProcedureRunner;
 import org.voltdb.SiteProcedureConnection;
+import org.voltdb.TransactionTracer;
 import org.voltdb.VoltDB;
 import org.voltdb.VoltTable;
 import org.voltdb.client.ClientResponse;
@@ -99,8 +100,15 @@ abstract public class ProcedureTask extends TransactionTask
 
                 // Check partitioning of the invocation
                 if (runner.checkPartition(m_txnState)) {
+                    final TransactionTracer.Trace trace = m_txnState.getTrace();
+                    if (trace != null) {
+                        trace.record(TransactionTracer.Stage.PROCEDURE_START);
+                    }
                     runner.setupTransaction(m_txnState);
                     cr = runner.call(task.getParameters());
+                    if (trace != null) {
+                        trace.record(TransactionTracer.Stage.PROCEDURE_END);
+                    }
 
                     m_txnState.setHash(cr.getHash());
 
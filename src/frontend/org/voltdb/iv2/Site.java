@@ -19,6 +19,7 @@ package org.voltdb.iv2;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -43,20 +44,24 @@ import org.voltdb.FragmentPlanSource;
 import org.voltdb.HsqlBackend;
 import org.voltdb.IndexStats;
 import org.voltdb.LoadedProcedureSet;
+import org.voltdb.MaterializedViewStats;
 import org.voltdb.MemoryStats;
 import org.voltdb.ParameterSet;
 import org.voltdb.PartitionDRGateway;
+import org.voltdb.PlanCacheStats;
 import org.voltdb.ProcedureRunner;
 import org.voltdb.SiteProcedureConnection;
 import org.voltdb.SiteSnapshotConnection;
 import org.voltdb.SnapshotDataTarget;
 import org.voltdb.SnapshotSiteProcessor;
 import org.voltdb.SnapshotTableTask;
+import org.voltdb.SnapshotWorkController;
 import org.voltdb.StartAction;
 import org.voltdb.StatsAgent;
 import org.voltdb.StatsSelector;
 import org.voltdb.SystemProcedureExecutionContext;
 import org.voltdb.TableStats;
+import org.voltdb.TempTableSpillStats;
 import org.voltdb.TheHashinator;
 import org.voltdb.VoltDB;
 import org.voltdb.VoltProcedure.VoltAbortException;
@@ -64,6 +69,9 @@ import org.voltdb.VoltTable;
 import org.voltdb.catalog.CatalogMap;
 import org.voltdb.catalog.Cluster;
 import org.voltdb.catalog.Database;
+import org.voltdb.catalog.PlanFragment;
+import org.voltdb.catalog.Procedure;
+import org.voltdb.catalog.Statement;
 import org.voltdb.catalog.Table;
 import org.voltdb.dtxn.SiteTracker;
 import org.voltdb.dtxn.TransactionState;
@@ -78,10 +86,12 @@ import org.voltdb.messaging.CompleteTransactionMessage;
 import org.voltdb.messaging.FragmentTaskMessage;
 import org.voltdb.messaging.Iv2InitiateTaskMessage;
 import org.voltdb.rejoin.TaskLog;
+import org.voltdb.utils.Encoder;
 import org.voltdb.utils.LogKeys;
 
 import vanilla.java.affinity.impl.PosixJNAAffinity;
 
+import com.google.common.base.Charsets;
 import com.google.common.collect.ImmutableMap;
 
 public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConnection, FragmentPlanSource
@@ -132,7 +142,22 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
     // Stats
     final TableStats m_tableStats;
     final IndexStats m_indexStats;
+    final MaterializedViewStats m_viewStats;
+    final SnapshotWorkController m_snapshotWorkController;
     final MemoryStats m_memStats;
+    final TempTableSpillStats m_tempTableSpillStats;
+    final PlanCacheStats m_planCacheStats;
+
+    // Temp results over this many MB are sorted or aggregated on disk, 0 keeps them in memory
+    static final long TEMP_TABLE_SPILL_MB = Math.max(0, Integer.getInteger("TEMP_TABLE_SPILL_MB", 0));
+    // Where the EE creates the files it spills to
+    static final String TEMP_TABLE_SPILL_DIR =
+        System.getProperty("TEMP_TABLE_SPILL_DIR", System.getProperty("java.io.tmpdir"));
+    private boolean m_tempTableSpillEnabled = false;
+    // Loaded plans of ad hoc queries the EE keeps within this many MB, 0 only limits their number
+    static final long EE_PLAN_CACHE_MB = Math.max(0, Integer.getInteger("EE_PLAN_CACHE_MB", 256));
+    // Bits per key of the Bloom filter put in front of unique hash index lookups, 0 for none
+    static final int EE_KEY_FILTER_BITS_PER_KEY = Math.max(0, Integer.getInteger("EE_KEY_FILTER_BITS_PER_KEY", 0));
 
     // Each execution site manages snapshot using a SnapshotSiteProcessor
     private SnapshotSiteProcessor m_snapshotter;
@@ -373,13 +398,31 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
             agent.registerStatsSource(StatsSelector.INDEX,
                                       m_siteId,
                                       m_indexStats);
+            m_viewStats = new MaterializedViewStats(m_siteId, partitionId);
+            agent.registerStatsSource(StatsSelector.VIEW,
+                                      m_siteId,
+                                      m_viewStats);
             m_memStats = memStats;
+            m_snapshotWorkController = new SnapshotWorkController(m_siteId);
+            agent.registerStatsSource(StatsSelector.SNAPSHOTBUDGET,
+                                      m_siteId,
+                                      m_snapshotWorkController);
         } else {
             // MPI doesn't need to track these stats
             m_tableStats = null;
             m_indexStats = null;
+            m_viewStats = null;
             m_memStats = null;
+            m_snapshotWorkController = new SnapshotWorkController(m_siteId);
         }
+        // The MPI runs the coordinating fragments of multi-partition reads,
+        // the ones most likely to spill, so it reports too.
+        m_tempTableSpillStats = new TempTableSpillStats(m_siteId);
+        (agent != null ? agent : VoltDB.instance().getStatsAgent()).registerStatsSource(
+                StatsSelector.TEMPTABLESPILL, m_siteId, m_tempTableSpillStats);
+        m_planCacheStats = new PlanCacheStats(m_siteId, partitionId);
+        (agent != null ? agent : VoltDB.instance().getStatsAgent()).registerStatsSource(
+                StatsSelector.PLANCACHE, m_siteId, m_planCacheStats);
     }
 
     /** Update the loaded procedures. */
@@ -403,6 +446,9 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
         else {
             m_hsql = null;
             m_ee = initializeEE(serializedCatalog, timestamp);
+            configureTempTableSpill();
+            configurePlanCache();
+            configureKeyFilter();
         }
 
         m_snapshotter = new SnapshotSiteProcessor(m_scheduler,
@@ -412,7 +458,8 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
             public boolean idle(long now) {
                 return (now - 5) > m_lastTxnTime;
             }
-        });
+        },
+        m_snapshotWorkController);
     }
 
     /** Create a native VoltDB execution engine */
@@ -465,6 +512,63 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
     }
 
 
+    /** Let the EE spill large temp results to TEMP_TABLE_SPILL_DIR */
+    private void configureTempTableSpill()
+    {
+        if (TEMP_TABLE_SPILL_MB == 0) {
+            return;
+        }
+        byte[] directory = TEMP_TABLE_SPILL_DIR.getBytes(Charsets.UTF_8);
+        ByteBuffer paramBuffer = ByteBuffer.allocate(8 + 4 + directory.length);
+        paramBuffer.putLong(TEMP_TABLE_SPILL_MB * 1024 * 1024);
+        paramBuffer.putInt(directory.length);
+        paramBuffer.put(directory);
+        m_ee.executeTask(TaskType.SET_TEMP_TABLE_SPILL, paramBuffer.array());
+        m_tempTableSpillEnabled = true;
+    }
+
+    /** Let unique hash indexes answer lookups of missing keys from a Bloom filter */
+    private void configureKeyFilter()
+    {
+        if (EE_KEY_FILTER_BITS_PER_KEY == 0) {
+            return;
+        }
+        ByteBuffer paramBuffer = ByteBuffer.allocate(4);
+        paramBuffer.putInt(EE_KEY_FILTER_BITS_PER_KEY);
+        m_ee.executeTask(TaskType.SET_KEY_FILTER, paramBuffer.array());
+    }
+
+    /**
+     * Give the EE its budget for ad hoc plans and pin the fragments of the
+     * catalog's stored procedures, which it then never evicts
+     */
+    private void configurePlanCache()
+    {
+        if (m_backend == BackendTarget.NONE || m_backend == BackendTarget.HSQLDB_BACKEND) {
+            return;
+        }
+        List<Long> pinned = new ArrayList<Long>();
+        synchronized (FragInfo.class) {
+            for (Procedure proc : m_context.database.getProcedures()) {
+                for (Statement stmt : proc.getStatements()) {
+                    for (PlanFragment frag : stmt.getFragments()) {
+                        FragInfo info = m_plansByHash.get(new Sha1Wrapper(Encoder.hexDecode(frag.getPlanhash())));
+                        if (info != null) {
+                            pinned.add(info.fragId);
+                        }
+                    }
+                }
+            }
+        }
+        ByteBuffer paramBuffer = ByteBuffer.allocate(8 + 4 + 8 * pinned.size());
+        paramBuffer.putLong(EE_PLAN_CACHE_MB * 1024 * 1024);
+        paramBuffer.putInt(pinned.size());
+        for (long fragId : pinned) {
+            paramBuffer.putLong(fragId);
+        }
+        m_ee.executeTask(TaskType.SET_PLAN_CACHE, paramBuffer.array());
+    }
+
     @Override
     public void run()
     {
@@ -860,6 +964,11 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
                 m_indexStats.setStatsTable(stats);
             }
 
+            // update materialized view stats, the mock EE has no tasks
+            if (m_backend != BackendTarget.NONE && m_backend != BackendTarget.HSQLDB_BACKEND) {
+                m_viewStats.update(ByteBuffer.wrap(m_ee.executeTask(TaskType.GET_VIEW_STATS, new byte[0])));
+            }
+
             // update the rolled up memory statistics
             if (m_memStats != null) {
                 m_memStats.eeUpdateMemStats(m_siteId,
@@ -871,6 +980,18 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
                                             m_ee.getThreadLocalPoolAllocations());
             }
         }
+
+        if (m_tempTableSpillEnabled) {
+            ByteBuffer counters = ByteBuffer.wrap(
+                    m_ee.executeTask(TaskType.GET_TEMP_TABLE_SPILL_STATS, new byte[0]));
+            m_tempTableSpillStats.update(counters.getLong(), counters.getLong(),
+                                         counters.getLong(), counters.getLong());
+        }
+
+        if (m_backend != BackendTarget.NONE && m_backend != BackendTarget.HSQLDB_BACKEND) {
+            m_planCacheStats.update(ByteBuffer.wrap(
+                    m_ee.executeTask(TaskType.GET_PLAN_CACHE_STATS, new byte[0])));
+        }
     }
 
     @Override
@@ -983,6 +1104,8 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
     {
         m_context = context;
         m_loadedProcedures.loadProcedures(m_context, m_backend, csp);
+        // the catalog's statements and so their fragment ids may have changed
+        configurePlanCache();
 
         if (isMPI) {
             // the rest of the work applies to sites with real EEs
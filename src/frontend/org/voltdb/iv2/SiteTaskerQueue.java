@@ -61,4 +61,8 @@ public class SiteTaskerQueue
     public void setStarvationTracker(StarvationTracker tracker) {
         m_starvationTracker = tracker;
     }
+
+    public StarvationTracker getStarvationTracker() {
+        return m_starvationTracker;
+    }
 }
@@ -25,6 +25,7 @@ import org.voltcore.utils.CoreUtils;
 import org.voltdb.ClientResponseImpl;
 import org.voltdb.PartitionDRGateway;
 import org.voltdb.SiteProcedureConnection;
+import org.voltdb.TransactionTracer;
 import org.voltdb.VoltTable;
 import org.voltdb.client.ClientResponse;
 import org.voltdb.messaging.InitiateResponseMessage;
@@ -55,6 +56,10 @@ public class SpProcedureTask extends ProcedureTask
         if (hostLog.isDebugEnabled()) {
             hostLog.debug("STARTING: " + this);
         }
+        final TransactionTracer.Trace trace = m_txnState.getTrace();
+        if (trace != null) {
+            trace.record(TransactionTracer.Stage.TASK_START);
+        }
         if (!m_txnState.isReadOnly()) {
             m_txnState.setBeginUndoToken(siteConnection.getLatestUndoToken());
         }
@@ -67,6 +72,9 @@ public class SpProcedureTask extends ProcedureTask
         }
         completeInitiateTask(siteConnection);
         response.m_sourceHSId = m_initiator.getHSId();
+        if (trace != null) {
+            trace.record(TransactionTracer.Stage.TASK_END);
+        }
         m_initiator.deliver(response);
         execLog.l7dlog( Level.TRACE, LogKeys.org_voltdb_ExecutionSite_SendingCompletedWUToDtxn.name(), null);
         if (hostLog.isDebugEnabled()) {
@@ -46,6 +46,7 @@ import org.voltdb.PartitionDRGateway;
 import org.voltdb.SnapshotCompletionInterest;
 import org.voltdb.SnapshotCompletionMonitor;
 import org.voltdb.SystemProcedureCatalog;
+import org.voltdb.TransactionTracer;
 import org.voltdb.VoltDB;
 import org.voltdb.dtxn.TransactionState;
 import org.voltdb.messaging.BorrowTaskMessage;
@@ -158,6 +159,10 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
             public void onDurability(ArrayList<Object> durableThings) {
                 synchronized (m_lock) {
                     for (Object o : durableThings) {
+                        TransactionTracer.Trace trace = ((TransactionTask) o).getTransactionState().getTrace();
+                        if (trace != null) {
+                            trace.record(TransactionTracer.Stage.LOG_DURABLE);
+                        }
                         m_pendingTasks.offer((TransactionTask)o);
 
                         // Make sure all queued tasks for this MP txn are released
@@ -399,7 +404,17 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
         long newSpHandle;
         long uniqueId = Long.MIN_VALUE;
         Iv2InitiateTaskMessage msg = message;
+        TransactionTracer.Trace trace = null;
         if (m_isLeader || message.isReadOnly()) {
+            // Only the copy run by the master (or a short circuit read) is traced,
+            // the initiator of this message is the client interface.
+            if (!message.isForReplay()) {
+                trace = TransactionTracer.sample(CoreUtils.getHostIdFromHSId(message.getInitiatorHSId()),
+                                                 message.getClientInterfaceHandle());
+                if (trace != null) {
+                    trace.record(TransactionTracer.Stage.INITIATOR_RECEIVE);
+                }
+            }
             /*
              * A short circuit read is a read where the client interface is local to
              * this node. The CI will let a replica perform a read in this case and
@@ -514,7 +529,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
             uniqueId = msg.getUniqueId();
         }
         Iv2Trace.logIv2InitiateTaskMessage(message, m_mailbox.getHSId(), msg.getTxnId(), newSpHandle);
-        doLocalInitiateOffer(msg);
+        doLocalInitiateOffer(msg, trace);
         return;
     }
 
@@ -525,16 +540,28 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
      * path, and assumes that the caller has dealt with or ensured that the
      * necessary ID, SpHandles, and replication issues are resolved.
      */
-    private void doLocalInitiateOffer(Iv2InitiateTaskMessage msg)
+    private void doLocalInitiateOffer(Iv2InitiateTaskMessage msg, TransactionTracer.Trace trace)
     {
         final String procedureName = msg.getStoredProcedureName();
         final SpProcedureTask task =
             new SpProcedureTask(m_mailbox, procedureName, m_pendingTasks, msg, m_drGateway);
+        if (trace != null) {
+            task.getTransactionState().setTrace(trace);
+        }
         if (!msg.isReadOnly()) {
+            if (trace != null) {
+                trace.record(TransactionTracer.Stage.LOG_SUBMIT);
+            }
             if (!m_cl.log(msg, msg.getSpHandle(), m_durabilityListener, task)) {
+                if (trace != null) {
+                    trace.record(TransactionTracer.Stage.QUEUE_OFFER);
+                }
                 m_pendingTasks.offer(task);
             }
         } else {
+            if (trace != null) {
+                trace.record(TransactionTracer.Stage.QUEUE_OFFER);
+            }
             m_pendingTasks.offer(task);
         }
     }
@@ -586,7 +613,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
             Iv2InitiateTaskMessage localWork =
                 new Iv2InitiateTaskMessage(message.getInitiatorHSId(),
                     message.getCoordinatorHSId(), message);
-            doLocalInitiateOffer(localWork);
+            doLocalInitiateOffer(localWork, null);
         }
 
         // is remote repair necessary?
@@ -642,6 +669,8 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
         // the truncation handle, since it won't have meaning for anyone.
         if (message.isReadOnly()) {
             // the initiatorHSId is the ClientInterface mailbox. Yeah. I know.
+            TransactionTracer.record(CoreUtils.getHostIdFromHSId(message.getInitiatorHSId()),
+                    message.getClientInterfaceHandle(), TransactionTracer.Stage.RESPONSE_SEND);
             m_mailbox.send(message.getInitiatorHSId(), message);
             return;
         }
@@ -650,10 +679,17 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
         final DuplicateCounterKey dcKey = new DuplicateCounterKey(message.getTxnId(), spHandle);
         DuplicateCounter counter = m_duplicateCounters.get(dcKey);
         if (counter != null) {
+            final int ciHostId = CoreUtils.getHostIdFromHSId(counter.m_destinationId);
+            if (message.m_sourceHSId != m_mailbox.getHSId()) {
+                TransactionTracer.record(ciHostId, message.getClientInterfaceHandle(),
+                        TransactionTracer.Stage.REPLICA_ACK);
+            }
             int result = counter.offer(message);
             if (result == DuplicateCounter.DONE) {
                 m_duplicateCounters.remove(dcKey);
                 m_repairLogTruncationHandle = spHandle;
+                TransactionTracer.record(ciHostId, message.getClientInterfaceHandle(),
+                        TransactionTracer.Stage.RESPONSE_SEND);
                 m_mailbox.send(counter.m_destinationId, counter.getLastResponse());
             }
             else if (result == DuplicateCounter.MISMATCH) {
@@ -663,6 +699,10 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
         else {
             // the initiatorHSId is the ClientInterface mailbox. Yeah. I know.
             m_repairLogTruncationHandle = spHandle;
+            if (m_isLeader) {
+                TransactionTracer.record(CoreUtils.getHostIdFromHSId(message.getInitiatorHSId()),
+                        message.getClientInterfaceHandle(), TransactionTracer.Stage.RESPONSE_SEND);
+            }
             m_mailbox.send(message.getInitiatorHSId(), message);
         }
     }
@@ -53,7 +53,13 @@ import org.voltdb.utils.VoltTableUtil;
 public abstract class ExecutionEngine implements FastDeserializer.DeserializationMonitor {
 
     public static enum TaskType {
-        VALIDATE_PARTITIONING(0);
+        VALIDATE_PARTITIONING(0),
+        SET_TEMP_TABLE_SPILL(1),
+        GET_TEMP_TABLE_SPILL_STATS(2),
+        GET_VIEW_STATS(3),
+        SET_PLAN_CACHE(4),
+        GET_PLAN_CACHE_STATS(5),
+        SET_KEY_FILTER(6);
 
         private TaskType(int taskId) {
             this.taskId = taskId;
@@ -20,6 +20,7 @@ package org.voltdb.jni;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.voltcore.logging.VoltLogger;
@@ -81,10 +82,14 @@ public class ExecutionEngineJNI extends ExecutionEngine {
         new FastDeserializer(deserializerBufferOrigin.b);
 
     /*
-     * For large result sets the EE will allocate new memory for the results
-     * and invoke a callback to set the allocated memory here.
+     * For large result sets the EE asks for a bigger buffer from the
+     * ResultBufferPool through growResultBuffer(). Buffers it grew out of
+     * within the same call are retired and go back to the pool afterwards.
      */
-    private ByteBuffer fallbackBuffer = null;
+    private BBContainer grownResultBuffer = null;
+    private final ArrayList<BBContainer> retiredResultBuffers = new ArrayList<BBContainer>();
+    // size of the last result that didn't fit, the first grow of the next one starts there
+    private int grownResultHint = 0;
 
     private final BBContainer exceptionBufferOrigin = org.voltcore.utils.DBBPool.allocateDirect(1024 * 1024 * 5);
     private ByteBuffer exceptionBuffer = exceptionBufferOrigin.b;
@@ -178,6 +183,7 @@ public class ExecutionEngineJNI extends ExecutionEngine {
             pointer = 0L;
             checkErrorCode(errorCode);
         }
+        releaseResultBuffers();
         deserializer = null;
         deserializerBufferOrigin.discard();
         exceptionBuffer = null;
@@ -271,6 +277,7 @@ public class ExecutionEngineJNI extends ExecutionEngine {
         // checkMaxFsSize();
 
         // Execute the plan, passing a raw pointer to the byte buffers for input and output
+        releaseResultBuffers();
         deserializer.clear();
         final int errorCode =
             nativeExecutePlanFragments(
@@ -285,9 +292,24 @@ public class ExecutionEngineJNI extends ExecutionEngine {
 
         try {
             checkErrorCode(errorCode);
-            FastDeserializer fds = fallbackBuffer == null ? deserializer : new FastDeserializer(fallbackBuffer);
-            // get a copy of the result buffers and make the tables
-            // use the copy
+            // results in a grown buffer are handed to the tables as is, the
+            // ones in the shared result buffer are copied out. So are grown ones
+            // while the pool has too much handed off memory the GC hasn't reclaimed,
+            // that buffer is released below.
+            final boolean grown = grownResultBuffer != null;
+            final ByteBuffer handedOff = grown ? ResultBufferPool.handOff(grownResultBuffer) : null;
+            final boolean handOff = handedOff != null;
+            final FastDeserializer fds;
+            if (handOff) {
+                fds = new FastDeserializer(handedOff);
+                grownResultBuffer = null;
+            } else if (grown) {
+                final ByteBuffer copySource = grownResultBuffer.b.duplicate();
+                copySource.clear();
+                fds = new FastDeserializer(copySource);
+            } else {
+                fds = deserializer;
+            }
             try {
                 // read the complete size of the buffer used
                 final int totalSize = fds.readInt();
@@ -295,8 +317,15 @@ public class ExecutionEngineJNI extends ExecutionEngine {
                 final boolean dirty = fds.readBoolean();
                 if (dirty)
                     m_dirty = true;
-                // get a copy of the buffer
-                final ByteBuffer fullBacking = fds.readBuffer(totalSize);
+                grownResultHint = grown ? fds.buffer().position() + totalSize : 0;
+                final ByteBuffer fullBacking;
+                if (handOff) {
+                    fullBacking = fds.remainder();
+                    fullBacking.limit(totalSize);
+                } else {
+                    // get a copy of the buffer
+                    fullBacking = fds.readBuffer(totalSize);
+                }
                 final VoltTable[] results = new VoltTable[batchSize];
                 for (int i = 0; i < batchSize; ++i) {
                     final int numdeps = fullBacking.getInt(); // number of dependencies for this frag
@@ -319,7 +348,7 @@ public class ExecutionEngineJNI extends ExecutionEngine {
                 throw new EEException(ERRORCODE_WRONG_SERIALIZED_BYTES);
             }
         } finally {
-            fallbackBuffer = null;
+            releaseResultBuffers();
         }
     }
 
@@ -405,6 +434,7 @@ public class ExecutionEngineJNI extends ExecutionEngine {
             final boolean interval,
             final Long now)
     {
+        releaseResultBuffers();
         deserializer.clear();
         final int numResults = nativeGetStats(pointer, selector.ordinal(), locators, interval, now);
         if (numResults == -1) {
@@ -413,8 +443,9 @@ public class ExecutionEngineJNI extends ExecutionEngine {
 
 
         try {
-            deserializer.readInt();//Ignore the length of the result tables
-            FastDeserializer fds = fallbackBuffer == null ? deserializer : new FastDeserializer(fallbackBuffer);
+            FastDeserializer fds = grownResultBuffer == null ?
+                    deserializer : new FastDeserializer(grownResultBuffer.b);
+            fds.readInt();//Ignore the length of the result tables
             final VoltTable results[] = new VoltTable[numResults];
             for (int ii = 0; ii < numResults; ii++) {
                 final VoltTable resultTable = PrivateVoltTableFactory.createUninitializedVoltTable();
@@ -424,6 +455,8 @@ public class ExecutionEngineJNI extends ExecutionEngine {
         } catch (final IOException ex) {
             LOG.error("Failed to deserialze result table for getStats" + ex);
             throw new EEException(ERRORCODE_WRONG_SERIALIZED_BYTES);
+        } finally {
+            releaseResultBuffers();
         }
     }
 
@@ -568,13 +601,35 @@ public class ExecutionEngineJNI extends ExecutionEngine {
     }
 
     /*
-     * Instead of using the reusable output buffer to get results for the next batch,
-     * use this buffer allocated by the EE. This is for one time use.
+     * Called by the EE when the results outgrow the reusable output buffer. The EE
+     * copies what it wrote so far into the returned buffer and keeps writing there
+     * for the rest of this call. Grows by at least double, and starts at the size
+     * of the last result that had to grow so it usually only happens once.
+     */
+    public ByteBuffer growResultBuffer(int minimumSize) {
+        int size = Math.max(minimumSize, grownResultHint);
+        if (grownResultBuffer != null) {
+            size = Math.max(size, Math.min(grownResultBuffer.b.capacity() * 2, ResultBufferPool.MAX_CAPACITY));
+            // the EE is still copying out of it
+            retiredResultBuffers.add(grownResultBuffer);
+        }
+        grownResultBuffer = ResultBufferPool.acquire(size);
+        return grownResultBuffer.b;
+    }
+
+    /*
+     * Give the result buffers the EE grew into during the last call back to the
+     * pool, unless they were handed off.
      */
-    public void fallbackToEEAllocatedBuffer(ByteBuffer buffer) {
-        assert(buffer != null);
-        assert(fallbackBuffer == null);
-        fallbackBuffer = buffer;
+    private void releaseResultBuffers() {
+        if (grownResultBuffer != null) {
+            ResultBufferPool.release(grownResultBuffer);
+            grownResultBuffer = null;
+        }
+        for (BBContainer c : retiredResultBuffers) {
+            ResultBufferPool.release(c);
+        }
+        retiredResultBuffers.clear();
     }
 
     @Override
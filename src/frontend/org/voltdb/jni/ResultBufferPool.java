@@ -0,0 +1,222 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.jni;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.voltcore.utils.DBBPool;
+import org.voltcore.utils.DBBPool.BBContainer;
+
+/**
+ * <p>Pool of the direct buffers the EE grows its results into when they outgrow
+ * an engine's regular result buffer. Capacities are rounded up to a power of two
+ * and capped at MAX_CAPACITY, so a buffer given back by one site can be reused by
+ * any other. Idle buffers beyond -DEE_RESULT_POOL_MAX_MB (default 256) are freed.</p>
+ *
+ * <p>Results in a grown buffer are handed to the VoltTables without being copied.
+ * The tables get slices of a buffer that wraps the memory without owning it. Slices
+ * and duplicates keep the wrapper reachable, so a phantom reference to it tells
+ * when the last table is gone and the memory can go back to the pool.</p>
+ *
+ * <p>That only happens when the GC runs, which it may not do for a long time if the
+ * heap is quiet. Handed off buffers not reclaimed yet are capped at
+ * -DEE_RESULT_HANDOFF_MAX_MB (default 512), past that results are copied to the heap
+ * and their buffer goes straight back to the pool.</p>
+ */
+public class ResultBufferPool {
+
+    /** Largest result buffer, the EE keeps 32k of it for message headers */
+    public static final int MAX_CAPACITY = 1024 * 1024 * 50;
+    static final int MIN_CAPACITY = 1024 * 1024;
+
+    static final long MAX_POOLED_BYTES =
+        Math.max(0, Integer.getInteger("EE_RESULT_POOL_MAX_MB", 256)) * 1024L * 1024L;
+
+    // not final so tests can lower it
+    static volatile long m_maxHandedOffBytes =
+        Math.max(0, Integer.getInteger("EE_RESULT_HANDOFF_MAX_MB", 512)) * 1024L * 1024L;
+
+    // idle buffers by capacity
+    private static final ConcurrentHashMap<Integer, ConcurrentLinkedQueue<BBContainer>> m_pooled =
+        new ConcurrentHashMap<Integer, ConcurrentLinkedQueue<BBContainer>>();
+
+    /**
+     * Returns the memory of a handed off buffer to the pool once nothing
+     * refers to its wrapper anymore
+     */
+    private static class HandOff extends PhantomReference<ByteBuffer> {
+        final BBContainer origin;
+
+        HandOff(ByteBuffer wrapper, BBContainer origin) {
+            super(wrapper, m_queue);
+            this.origin = origin;
+        }
+    }
+
+    private static final ReferenceQueue<ByteBuffer> m_queue = new ReferenceQueue<ByteBuffer>();
+    // keeps the references themselves reachable until they are enqueued
+    private static final Set<HandOff> m_outstanding =
+        Collections.newSetFromMap(new ConcurrentHashMap<HandOff, Boolean>());
+
+    private static final AtomicInteger m_pooledBuffers = new AtomicInteger(0);
+    private static final AtomicLong m_pooledBytes = new AtomicLong(0);
+    private static final AtomicInteger m_lentBuffers = new AtomicInteger(0);
+    private static final AtomicLong m_lentBytes = new AtomicLong(0);
+    private static final AtomicLong m_handedOffBytes = new AtomicLong(0);
+    private static final AtomicLong m_acquires = new AtomicLong(0);
+    private static final AtomicLong m_allocations = new AtomicLong(0);
+    private static final AtomicLong m_handOffs = new AtomicLong(0);
+    private static final AtomicLong m_copies = new AtomicLong(0);
+    private static final AtomicLong m_reclaimed = new AtomicLong(0);
+    private static final AtomicLong m_freed = new AtomicLong(0);
+
+    /**
+     * @return the capacity of the buffers a result of size bytes goes into
+     */
+    static int sizeClass(int size) {
+        if (size <= MIN_CAPACITY) {
+            return MIN_CAPACITY;
+        }
+        if (size > MAX_CAPACITY / 2) {
+            return MAX_CAPACITY;
+        }
+        return Integer.highestOneBit(size - 1) << 1;
+    }
+
+    /**
+     * Take a buffer of at least minimumSize bytes, up to MAX_CAPACITY, from the
+     * pool or allocate one. It goes back with release() or handOff().
+     */
+    public static BBContainer acquire(int minimumSize) {
+        reclaim();
+        final int capacity = sizeClass(minimumSize);
+        m_acquires.incrementAndGet();
+        BBContainer c = null;
+        ConcurrentLinkedQueue<BBContainer> pooled = m_pooled.get(capacity);
+        if (pooled != null) {
+            c = pooled.poll();
+        }
+        if (c != null) {
+            m_pooledBuffers.decrementAndGet();
+            m_pooledBytes.addAndGet(-capacity);
+        } else {
+            c = DBBPool.allocateDirect(capacity);
+            m_allocations.incrementAndGet();
+        }
+        m_lentBuffers.incrementAndGet();
+        m_lentBytes.addAndGet(capacity);
+        c.b.clear();
+        return c;
+    }
+
+    /**
+     * Give back a buffer from acquire() that nothing refers to anymore
+     */
+    public static void release(BBContainer c) {
+        m_lentBuffers.decrementAndGet();
+        m_lentBytes.addAndGet(-c.b.capacity());
+        pool(c);
+    }
+
+    /**
+     * Give up a buffer from acquire() whose contents are still in use. The memory
+     * goes back to the pool once the returned wrapper and everything sliced or
+     * duplicated from it are unreachable.
+     * @return a buffer over the same memory, positioned at 0, or null if the handed
+     * off buffers are at the limit. The buffer is still lent then, the caller copies
+     * its contents out and releases it.
+     */
+    public static ByteBuffer handOff(BBContainer c) {
+        reclaim();
+        final int capacity = c.b.capacity();
+        long handedOff;
+        do {
+            handedOff = m_handedOffBytes.get();
+            if (handedOff + capacity > m_maxHandedOffBytes) {
+                m_copies.incrementAndGet();
+                return null;
+            }
+        } while (!m_handedOffBytes.compareAndSet(handedOff, handedOff + capacity));
+
+        final ByteBuffer wrapper = DBBPool.wrapAddress(DBBPool.getBufferAddress(c.b), capacity);
+        m_outstanding.add(new HandOff(wrapper, c));
+        m_lentBuffers.decrementAndGet();
+        m_lentBytes.addAndGet(-capacity);
+        m_handOffs.incrementAndGet();
+        return wrapper;
+    }
+
+    /**
+     * Return the memory of the handed off buffers the GC found unreachable
+     */
+    public static void reclaim() {
+        HandOff ref;
+        while ((ref = (HandOff) m_queue.poll()) != null) {
+            m_outstanding.remove(ref);
+            m_handedOffBytes.addAndGet(-ref.origin.b.capacity());
+            m_reclaimed.incrementAndGet();
+            pool(ref.origin);
+        }
+    }
+
+    private static void pool(BBContainer c) {
+        final int capacity = c.b.capacity();
+        if (m_pooledBytes.get() + capacity > MAX_POOLED_BYTES) {
+            m_freed.incrementAndGet();
+            c.discard();
+            return;
+        }
+        ConcurrentLinkedQueue<BBContainer> pooled = m_pooled.get(capacity);
+        if (pooled == null) {
+            pooled = new ConcurrentLinkedQueue<BBContainer>();
+            ConcurrentLinkedQueue<BBContainer> existing = m_pooled.putIfAbsent(capacity, pooled);
+            if (existing != null) {
+                pooled = existing;
+            }
+        }
+        m_pooledBuffers.incrementAndGet();
+        m_pooledBytes.addAndGet(capacity);
+        pooled.offer(c);
+    }
+
+    /** Idle buffers in the pool */
+    public static int getPooledBuffers() { return m_pooledBuffers.get(); }
+    public static long getPooledBytes() { return m_pooledBytes.get(); }
+    /** Buffers an EE is writing results into */
+    public static int getLentBuffers() { return m_lentBuffers.get(); }
+    public static long getLentBytes() { return m_lentBytes.get(); }
+    /** Buffers backing result tables */
+    public static int getHandedOffBuffers() { return m_outstanding.size(); }
+    public static long getHandedOffBytes() { return m_handedOffBytes.get(); }
+    public static long getAcquires() { return m_acquires.get(); }
+    public static long getAllocations() { return m_allocations.get(); }
+    public static long getHandOffs() { return m_handOffs.get(); }
+    /** Results copied out because the handed off buffers were at the limit */
+    public static long getCopies() { return m_copies.get(); }
+    public static long getHandedOffLimitBytes() { return m_maxHandedOffBytes; }
+    public static long getReclaimed() { return m_reclaimed.get(); }
+    public static long getFreed() { return m_freed.get(); }
+}
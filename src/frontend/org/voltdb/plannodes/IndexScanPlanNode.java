@@ -19,7 +19,9 @@ package org.voltdb.plannodes;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.json_voltpatches.JSONArray;
 import org.json_voltpatches.JSONException;
@@ -36,6 +38,7 @@ import org.voltdb.compiler.DatabaseEstimates;
 import org.voltdb.compiler.ScalarValueHints;
 import org.voltdb.expressions.AbstractExpression;
 import org.voltdb.expressions.ExpressionUtil;
+import org.voltdb.expressions.TupleAddressExpression;
 import org.voltdb.expressions.TupleValueExpression;
 import org.voltdb.types.IndexLookupType;
 import org.voltdb.types.IndexType;
@@ -51,6 +54,7 @@ public class IndexScanPlanNode extends AbstractScanPlanNode {
         KEY_ITERATE,
         LOOKUP_TYPE,
         DETERMINISM_ONLY,
+        COVERING,
         SORT_DIRECTION;
     }
 
@@ -90,6 +94,10 @@ public class IndexScanPlanNode extends AbstractScanPlanNode {
 
     private boolean m_forDeterminismOnly = false;
 
+    // Every column the scan reads is part of the index key, so the EE can
+    // evaluate the scan on the key without touching the table tuples
+    private boolean m_isCovering = false;
+
     public IndexScanPlanNode() {
         super();
     }
@@ -277,6 +285,50 @@ public class IndexScanPlanNode extends AbstractScanPlanNode {
         }
         // now do the common scan node work
         super.resolveColumnIndexes();
+        m_isCovering = computeCovering();
+    }
+
+    /**
+     * An index scan is covering when it projects, filters and ends on nothing but
+     * columns of a pure column index of the target table. Scans that project the tuple address for
+     * an update or delete always need the table tuple.
+     */
+    private boolean computeCovering() {
+        ProjectionPlanNode proj = (ProjectionPlanNode)getInlinePlanNode(PlanNodeType.PROJECTION);
+        if (proj == null || m_catalogIndex == null || !m_catalogIndex.getExpressionsjson().isEmpty()) {
+            return false;
+        }
+        Set<String> indexedColumns = new HashSet<String>();
+        for (ColumnRef cref : m_catalogIndex.getColumns()) {
+            indexedColumns.add(cref.getColumn().getTypeName());
+        }
+        List<AbstractExpression> exprs = new ArrayList<AbstractExpression>();
+        for (SchemaColumn col : proj.getOutputSchema().getColumns()) {
+            exprs.add(col.getExpression());
+        }
+        exprs.add(m_endExpression);
+        exprs.add(m_predicate);
+        for (AbstractExpression expr : exprs) {
+            if (expr == null) {
+                continue;
+            }
+            if (expr.hasAnySubexpressionOfClass(TupleAddressExpression.class)) {
+                return false;
+            }
+            for (TupleValueExpression tve : ExpressionUtil.getTupleValueExpressions(expr)) {
+                // an inlined join scan also reads the outer table, whose column
+                // names may be the same as the index columns
+                if (!m_targetTableName.equalsIgnoreCase(tve.getTableName()) ||
+                    !indexedColumns.contains(tve.getColumnName())) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    public boolean isCovering() {
+        return m_isCovering;
     }
 
     @Override
@@ -390,6 +442,9 @@ public class IndexScanPlanNode extends AbstractScanPlanNode {
         if (m_forDeterminismOnly) {
             stringer.key(Members.DETERMINISM_ONLY.name()).value(true);
         }
+        if (m_isCovering) {
+            stringer.key(Members.COVERING.name()).value(true);
+        }
         stringer.key(Members.TARGET_INDEX_NAME.name()).value(m_targetIndexName);
         stringer.key(Members.END_EXPRESSION.name());
         stringer.value(m_endExpression);
@@ -410,6 +465,7 @@ public class IndexScanPlanNode extends AbstractScanPlanNode {
         m_lookupType = IndexLookupType.get( jobj.getString( Members.LOOKUP_TYPE.name() ) );
         m_sortDirection = SortDirectionType.get( jobj.getString( Members.SORT_DIRECTION.name() ) );
         m_forDeterminismOnly = jobj.optBoolean(Members.DETERMINISM_ONLY.name());
+        m_isCovering = jobj.optBoolean(Members.COVERING.name());
         m_targetIndexName = jobj.getString(Members.TARGET_INDEX_NAME.name());
         m_catalogIndex = db.getTables().get(super.m_targetTableName).getIndexes().get(m_targetIndexName);
         JSONObject tempjobj = null;
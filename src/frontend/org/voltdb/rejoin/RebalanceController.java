@@ -0,0 +1,308 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.rejoin;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.voltcore.logging.VoltLogger;
+import org.voltdb.SnapshotWorkController;
+import org.voltdb.StatsSource;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.VoltType;
+
+/**
+ * Throughput controls and progress tracking for the hash range streams of an
+ * elastic rebalance on this host.
+ *
+ * Every source site streams its ranges to their destination sites concurrently,
+ * the stream snapshot targets of an elastic join ask this controller before
+ * handing a block to the sender threads. The controller can hold blocks back to
+ * stay under a host wide MB/s limit, while the p99 transaction latency is over a
+ * budget, or indefinitely while the rebalance is paused. Held blocks stay on the
+ * data target, so they don't count against the write timeout, and the source sites
+ * stop serializing once their snapshot buffers are all held.
+ *
+ * Settings are per host, @RebalanceControl applies them to every host.
+ */
+public class RebalanceController extends StatsSource {
+    private static final VoltLogger JOINLOG = new VoltLogger("JOIN");
+
+    private static final long MB = 1024 * 1024;
+    // how long to wait before checking the latency budget again
+    static final long LATENCY_RETRY_MS = 100;
+    // a block that can't be sent yet is never retried sooner than this
+    static final long MIN_RETRY_MS = 1;
+
+    private static final RebalanceController m_instance = new RebalanceController(
+            Math.max(0, Integer.getInteger("ELASTIC_REBALANCE_MB_PER_SEC", 0)),
+            Math.max(0, Integer.getInteger("ELASTIC_REBALANCE_LATENCY_BUDGET_MS", 0)));
+
+    public static RebalanceController instance() {
+        return m_instance;
+    }
+
+    /**
+     * The ranges of one stream of the rebalance, they are moved once all of the
+     * local targets streaming them are closed.
+     */
+    public class RangeGroup {
+        private final int m_ranges;
+        private final AtomicInteger m_openTargets;
+
+        private RangeGroup(int ranges, int targets) {
+            m_ranges = ranges;
+            m_openTargets = new AtomicInteger(targets);
+        }
+
+        public void targetClosed() {
+            if (m_openTargets.decrementAndGet() == 0) {
+                m_rangesMoved.addAndGet(m_ranges);
+            }
+        }
+    }
+
+    // settings, 0 means unlimited
+    private volatile long m_maxBytesPerSec;
+    private volatile int m_latencyBudget;
+    private volatile boolean m_paused = false;
+
+    // token bucket, protected by this
+    private long m_tokens = 0;
+    private long m_lastRefillNanos = System.nanoTime();
+
+    // targets with blocks waiting, kicked on resume or when the limits change
+    private final Set<StreamSnapshotDataTarget> m_targets =
+        Collections.newSetFromMap(new ConcurrentHashMap<StreamSnapshotDataTarget, Boolean>());
+
+    // progress of the current (or last) rebalance
+    private volatile long m_startTime = 0;
+    private volatile long m_endTime = 0;
+    private final AtomicLong m_rangesTotal = new AtomicLong(0);
+    private final AtomicLong m_rangesMoved = new AtomicLong(0);
+    private final AtomicLong m_bytes = new AtomicLong(0);
+    private final AtomicLong m_throttledBlocks = new AtomicLong(0);
+
+    RebalanceController(int maxMBPerSec, int latencyBudget) {
+        super(false);
+        m_maxBytesPerSec = maxMBPerSec * MB;
+        m_latencyBudget = latencyBudget;
+    }
+
+    /**
+     * Called when a snapshot streaming ranges out of this host is set up.
+     * @param ranges number of ranges in the stream
+     * @param targets number of local targets streaming them
+     */
+    public synchronized RangeGroup addRanges(int ranges, int targets) {
+        if (m_targets.isEmpty() && (m_endTime != 0 || m_startTime == 0)) {
+            // a new rebalance, reset the progress
+            m_startTime = System.currentTimeMillis();
+            m_endTime = 0;
+            m_rangesTotal.set(0);
+            m_rangesMoved.set(0);
+            m_bytes.set(0);
+            m_throttledBlocks.set(0);
+        }
+        m_rangesTotal.addAndGet(ranges);
+        return new RangeGroup(ranges, targets);
+    }
+
+    void register(StreamSnapshotDataTarget target) {
+        m_targets.add(target);
+    }
+
+    synchronized void unregister(StreamSnapshotDataTarget target) {
+        m_targets.remove(target);
+        if (m_targets.isEmpty()) {
+            m_endTime = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Ask to send a block of the given size.
+     * @return 0 if it can be sent now, otherwise the number of milliseconds to wait
+     * before asking again. Long.MAX_VALUE while paused, the target will be kicked on resume.
+     */
+    long acquire(int bytes) {
+        if (m_paused) {
+            return Long.MAX_VALUE;
+        }
+
+        final int latencyBudget = m_latencyBudget;
+        if (latencyBudget > 0 &&
+            SnapshotWorkController.getRecentHostLatency(System.currentTimeMillis()) > latencyBudget) {
+            m_throttledBlocks.incrementAndGet();
+            return LATENCY_RETRY_MS;
+        }
+
+        final long wait = acquireBytes(bytes, System.nanoTime());
+        if (wait > 0) {
+            m_throttledBlocks.incrementAndGet();
+            return wait;
+        }
+        m_bytes.addAndGet(bytes);
+        return 0;
+    }
+
+    /**
+     * Token bucket holding up to one second of the rate. A block is let through
+     * as long as the bucket isn't in debt, so blocks larger than the bucket still
+     * go out at the configured rate on average.
+     */
+    synchronized long acquireBytes(int bytes, long nowNanos) {
+        final long rate = m_maxBytesPerSec;
+        if (rate <= 0) {
+            return 0;
+        }
+        final long elapsed = Math.max(0, nowNanos - m_lastRefillNanos);
+        m_lastRefillNanos = nowNanos;
+        m_tokens = Math.min(rate, m_tokens + (long)(elapsed * (rate / 1000000000.0)));
+        if (m_tokens < 0) {
+            return Math.max(MIN_RETRY_MS, (-m_tokens * 1000) / rate);
+        }
+        m_tokens -= bytes;
+        return 0;
+    }
+
+    public void pause() {
+        JOINLOG.info("Pausing elastic rebalance data transfer");
+        m_paused = true;
+    }
+
+    public void resume() {
+        JOINLOG.info("Resuming elastic rebalance data transfer");
+        m_paused = false;
+        kickTargets();
+    }
+
+    public void setMaxMBPerSec(int mbPerSec) {
+        JOINLOG.info("Setting elastic rebalance throughput limit to " +
+                     (mbPerSec > 0 ? mbPerSec + " MB/s" : "unlimited"));
+        synchronized (this) {
+            m_maxBytesPerSec = Math.max(0, mbPerSec) * MB;
+            m_tokens = 0;
+            m_lastRefillNanos = System.nanoTime();
+        }
+        kickTargets();
+    }
+
+    public void setLatencyBudget(int latencyBudgetMs) {
+        JOINLOG.info("Setting elastic rebalance latency budget to " +
+                     (latencyBudgetMs > 0 ? latencyBudgetMs + " ms" : "unlimited"));
+        m_latencyBudget = Math.max(0, latencyBudgetMs);
+        kickTargets();
+    }
+
+    public boolean isPaused() {
+        return m_paused;
+    }
+
+    private void kickTargets() {
+        for (StreamSnapshotDataTarget target : m_targets) {
+            target.kickPendingWork();
+        }
+    }
+
+    @Override
+    protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
+        super.populateColumnSchema(columns);
+        columns.add(new ColumnInfo("STATE", VoltType.STRING));
+        columns.add(new ColumnInfo("MAX_MB_PER_SEC", VoltType.INTEGER));
+        columns.add(new ColumnInfo("LATENCY_BUDGET", VoltType.INTEGER));
+        columns.add(new ColumnInfo("START_TIME", VoltType.BIGINT));
+        columns.add(new ColumnInfo("RANGES_TOTAL", VoltType.BIGINT));
+        columns.add(new ColumnInfo("RANGES_MOVED", VoltType.BIGINT));
+        columns.add(new ColumnInfo("BYTES", VoltType.BIGINT));
+        columns.add(new ColumnInfo("THROUGHPUT", VoltType.FLOAT));
+        columns.add(new ColumnInfo("THROTTLED_BLOCKS", VoltType.BIGINT));
+        columns.add(new ColumnInfo("ETA", VoltType.BIGINT));
+    }
+
+    @Override
+    protected void updateStatsRow(Object rowKey, Object[] rowValues) {
+        final long now = System.currentTimeMillis();
+        final long start = m_startTime;
+        final long end = m_endTime == 0 ? now : m_endTime;
+        final long total = m_rangesTotal.get();
+        final long moved = m_rangesMoved.get();
+        final double duration = start == 0 ? 0 : (end - start) / 1000.0;
+
+        String state;
+        if (start == 0 || m_endTime != 0) {
+            state = "IDLE";
+        } else if (m_paused) {
+            state = "PAUSED";
+        } else {
+            state = "RUNNING";
+        }
+
+        // Seconds until the remaining ranges are moved at the rate of the ones
+        // already moved, -1 until a range is done
+        long eta = -1;
+        if (moved >= total) {
+            eta = 0;
+        } else if (moved > 0) {
+            eta = (long)(duration * (total - moved) / moved);
+        }
+
+        rowValues[columnNameToIndex.get("STATE")] = state;
+        rowValues[columnNameToIndex.get("MAX_MB_PER_SEC")] = (int)(m_maxBytesPerSec / MB);
+        rowValues[columnNameToIndex.get("LATENCY_BUDGET")] = m_latencyBudget;
+        rowValues[columnNameToIndex.get("START_TIME")] = start;
+        rowValues[columnNameToIndex.get("RANGES_TOTAL")] = total;
+        rowValues[columnNameToIndex.get("RANGES_MOVED")] = moved;
+        rowValues[columnNameToIndex.get("BYTES")] = m_bytes.get();
+        rowValues[columnNameToIndex.get("THROUGHPUT")] =
+            duration > 0 ? (m_bytes.get() / (double)MB) / duration : 0.0;
+        rowValues[columnNameToIndex.get("THROTTLED_BLOCKS")] = m_throttledBlocks.get();
+        rowValues[columnNameToIndex.get("ETA")] = eta;
+        super.updateStatsRow(rowKey, rowValues);
+    }
+
+    @Override
+    protected Iterator<Object> getStatsRowKeyIterator(boolean interval) {
+        return new Iterator<Object>() {
+            boolean returnRow = true;
+            @Override
+            public boolean hasNext() {
+                return returnRow;
+            }
+
+            @Override
+            public Object next() {
+                if (returnRow) {
+                    returnRow = false;
+                    return new Object();
+                } else {
+                    return null;
+                }
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
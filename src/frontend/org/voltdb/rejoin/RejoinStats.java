@@ -0,0 +1,147 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.rejoin;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.voltcore.utils.CoreUtils;
+import org.voltdb.StatsSource;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.VoltType;
+
+/**
+ * Reports the progress of the snapshot streams used by rejoin and elastic join,
+ * one row per stream endpoint on this host. Senders are the
+ * StreamSnapshotDataTargets, receivers are the StreamSnapshotSinks. A bounded
+ * history of finished streams is kept so the throughput of the last rejoin
+ * can be looked at after the fact.
+ */
+public class RejoinStats extends StatsSource {
+    private static final int m_maxStreamHistory = 64;
+
+    public static enum Direction {
+        SEND,
+        RECEIVE
+    }
+
+    /**
+     * Counters for a single stream. Updated by the sender/receiver threads,
+     * read without locking by the stats source.
+     */
+    public static class StreamProgress {
+        public final Direction direction;
+        public final long streamId;
+        public final long startTime = System.currentTimeMillis();
+        public volatile long endTime = 0;
+        public volatile long remoteHSId = -1;
+
+        public final AtomicLong blocks = new AtomicLong(0);
+        // bytes on the wire, after compression
+        public final AtomicLong bytes = new AtomicLong(0);
+        public final AtomicLong uncompressedBytes = new AtomicLong(0);
+        public final AtomicLong compressionTimeNanos = new AtomicLong(0);
+
+        // sender side flow control, 0 on the receiving side
+        public volatile int window = 0;
+        public volatile int outstanding = 0;
+
+        private StreamProgress(Direction direction, long streamId, long remoteHSId) {
+            this.direction = direction;
+            this.streamId = streamId;
+            this.remoteHSId = remoteHSId;
+        }
+
+        public void finish() {
+            endTime = System.currentTimeMillis();
+        }
+    }
+
+    private static final LinkedList<StreamProgress> m_streams = new LinkedList<StreamProgress>();
+
+    public static StreamProgress startStream(Direction direction, long streamId, long remoteHSId) {
+        StreamProgress progress = new StreamProgress(direction, streamId, remoteHSId);
+        synchronized (m_streams) {
+            m_streams.add(progress);
+            // Only drop finished streams from the history
+            Iterator<StreamProgress> iter = m_streams.iterator();
+            while (m_streams.size() > m_maxStreamHistory && iter.hasNext()) {
+                if (iter.next().endTime != 0) {
+                    iter.remove();
+                }
+            }
+        }
+        return progress;
+    }
+
+    public RejoinStats() {
+        super(false);
+    }
+
+    @Override
+    protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
+        super.populateColumnSchema(columns);
+        columns.add(new ColumnInfo("DIRECTION", VoltType.STRING));
+        columns.add(new ColumnInfo("STREAM_ID", VoltType.BIGINT));
+        columns.add(new ColumnInfo("REMOTE_SITE", VoltType.STRING));
+        columns.add(new ColumnInfo("START_TIME", VoltType.BIGINT));
+        columns.add(new ColumnInfo("END_TIME", VoltType.BIGINT));
+        columns.add(new ColumnInfo("BLOCKS", VoltType.BIGINT));
+        columns.add(new ColumnInfo("BYTES", VoltType.BIGINT));
+        columns.add(new ColumnInfo("UNCOMPRESSED_BYTES", VoltType.BIGINT));
+        columns.add(new ColumnInfo("COMPRESSION_TIME", VoltType.BIGINT));
+        columns.add(new ColumnInfo("WINDOW", VoltType.INTEGER));
+        columns.add(new ColumnInfo("OUTSTANDING", VoltType.INTEGER));
+        columns.add(new ColumnInfo("THROUGHPUT", VoltType.FLOAT));
+    }
+
+    @Override
+    protected void updateStatsRow(Object rowKey, Object[] rowValues) {
+        StreamProgress p = (StreamProgress) rowKey;
+        long end = p.endTime == 0 ? System.currentTimeMillis() : p.endTime;
+        double duration = (end - p.startTime) / 1000.0;
+        // MB/s of table data moved, independent of how well it compressed
+        double throughput = duration > 0 ? (p.uncompressedBytes.get() / (1024.0 * 1024.0)) / duration : 0.0;
+
+        rowValues[columnNameToIndex.get("DIRECTION")] = p.direction.name();
+        rowValues[columnNameToIndex.get("STREAM_ID")] = p.streamId;
+        rowValues[columnNameToIndex.get("REMOTE_SITE")] =
+            p.remoteHSId == -1 ? "" : CoreUtils.hsIdToString(p.remoteHSId);
+        rowValues[columnNameToIndex.get("START_TIME")] = p.startTime;
+        rowValues[columnNameToIndex.get("END_TIME")] = p.endTime;
+        rowValues[columnNameToIndex.get("BLOCKS")] = p.blocks.get();
+        rowValues[columnNameToIndex.get("BYTES")] = p.bytes.get();
+        rowValues[columnNameToIndex.get("UNCOMPRESSED_BYTES")] = p.uncompressedBytes.get();
+        rowValues[columnNameToIndex.get("COMPRESSION_TIME")] = p.compressionTimeNanos.get() / 1000000;
+        rowValues[columnNameToIndex.get("WINDOW")] = p.window;
+        rowValues[columnNameToIndex.get("OUTSTANDING")] = p.outstanding;
+        rowValues[columnNameToIndex.get("THROUGHPUT")] = throughput;
+        super.updateStatsRow(rowKey, rowValues);
+    }
+
+    @Override
+    protected Iterator<Object> getStatsRowKeyIterator(boolean interval) {
+        ArrayList<Object> streams;
+        synchronized (m_streams) {
+            streams = new ArrayList<Object>(m_streams);
+        }
+        return streams.iterator();
+    }
+}
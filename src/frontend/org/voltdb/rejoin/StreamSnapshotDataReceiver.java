@@ -46,12 +46,15 @@ implements Runnable {
 
     private final Mailbox m_mb;
     private final FixedDBBPool m_bufferPool;
+    private final RejoinStats.StreamProgress m_progress;
     private volatile boolean m_closed = false;
 
-    public StreamSnapshotDataReceiver(Mailbox mb, FixedDBBPool bufferPool) {
+    public StreamSnapshotDataReceiver(Mailbox mb, FixedDBBPool bufferPool,
+                                      RejoinStats.StreamProgress progress) {
         super();
         m_mb = mb;
         m_bufferPool = bufferPool;
+        m_progress = progress;
     }
 
     public void close() {
@@ -123,6 +126,8 @@ implements Runnable {
                                     compressionBuffer.b,
                                     messageBuffer);
                     messageBuffer.limit(uncompressedSize);
+                    m_progress.bytes.addAndGet(data.length);
+                    m_progress.uncompressedBytes.addAndGet(uncompressedSize);
                     m_queue.offer(Pair.of(dataMsg.m_sourceHSId, Pair.of(dataMsg.getTargetId(), container)));
                     success = true;
                 } finally {
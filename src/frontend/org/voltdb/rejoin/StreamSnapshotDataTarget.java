@@ -19,8 +19,11 @@ package org.voltdb.rejoin;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.TreeMap;
@@ -65,6 +68,15 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
     final static long WRITE_TIMEOUT_MS = m_rejoinDeathTestMode ? 10000 : 60000;
     final static long WATCHDOG_PERIOS_S = 5;
 
+    /*
+     * Upper bound on the number of blocks that can be in flight (sent but not acked)
+     * per target. The effective window starts there and shrinks when the rejoining
+     * site acks slower than it used to, i.e. it is falling behind applying the blocks,
+     * and grows back additively while acks keep up.
+     */
+    public final static int MAX_WINDOW = Math.max(1, Integer.getInteger("REJOIN_STREAM_WINDOW", 8));
+    final static int MIN_WINDOW = 1;
+
     // schemas for all the tables on this partition
     private final Map<Integer, byte[]> m_schemas = new HashMap<Integer, byte[]>();
     // Mailbox used to transfer snapshot data
@@ -82,6 +94,20 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
     final AtomicInteger m_outstandingWorkCount = new AtomicInteger(0);
     // map of sent, but un-acked buffers, packaged up a bit
     private final Map<Integer, SendWork> m_outstandingWork = (new TreeMap<Integer, SendWork>());
+    // work that is waiting for room in the window before being handed to the sender
+    private final ArrayDeque<SendWork> m_pendingWork = new ArrayDeque<SendWork>();
+    // flow control state, protected by this
+    private int m_window = MAX_WINDOW;
+    private int m_inFlight = 0;
+    private double m_avgAckLatency = 0;
+
+    private final RejoinStats.StreamProgress m_progress;
+
+    // throughput controls of an elastic rebalance, null for rejoin
+    private final RebalanceController m_rebalance;
+    private final RebalanceController.RangeGroup m_rangeGroup;
+    // a retry of the pending work is scheduled, protected by this
+    private boolean m_dispatchScheduled = false;
 
     int m_blockIndex = 0;
     private final AtomicReference<Runnable> m_onCloseHandler = new AtomicReference<Runnable>(null);
@@ -91,6 +117,15 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
     public StreamSnapshotDataTarget(long HSId, Map<Integer, byte[]> schemas,
                                     Mailbox mb,
                                     SnapshotSender sender, StreamSnapshotAckReceiver ackReceiver)
+    {
+        this(HSId, schemas, mb, sender, ackReceiver, null, null);
+    }
+
+    public StreamSnapshotDataTarget(long HSId, Map<Integer, byte[]> schemas,
+                                    Mailbox mb,
+                                    SnapshotSender sender, StreamSnapshotAckReceiver ackReceiver,
+                                    RebalanceController rebalance,
+                                    RebalanceController.RangeGroup rangeGroup)
     {
         super();
         m_targetId = m_totalSnapshotTargetCount.getAndIncrement();
@@ -101,6 +136,13 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
         m_sender.registerDataTarget(m_targetId);
         m_ackReceiver = ackReceiver;
         m_ackReceiver.setCallback(m_targetId, this);
+        m_progress = RejoinStats.startStream(RejoinStats.Direction.SEND, m_targetId, HSId);
+        m_progress.window = m_window;
+        m_rebalance = rebalance;
+        m_rangeGroup = rangeGroup;
+        if (m_rebalance != null) {
+            m_rebalance.register(this);
+        }
 
         rejoinLog.info(String.format("Initializing snapshot stream processor " +
                 "for source site id: %s, and with processorid: %d",
@@ -120,7 +162,10 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
         final long m_targetId;
         final long m_destHSId;
         final int m_blockIndex;
-        final long m_ts;
+        final RejoinStats.StreamProgress m_progress;
+        // time the work was handed to the sender, used for ack timeouts and latency,
+        // 0 while it is still waiting on the target
+        long m_ts;
 
         final boolean m_isEmpty;
 
@@ -135,23 +180,39 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
             m_targetId = -1;
             m_destHSId = -1;
             m_blockIndex = -1;
+            m_progress = null;
             m_ts = -1;
             m_future = null;
         }
 
         SendWork (long targetId, long destHSId, int blockIndex,
                   BBContainer schema, BBContainer message,
-                  SettableFuture<Boolean> future) {
+                  SettableFuture<Boolean> future, RejoinStats.StreamProgress progress) {
             m_isEmpty = false;
             m_targetId = targetId;
             m_destHSId = destHSId;
             m_blockIndex = blockIndex;
+            m_progress = progress;
             m_schema = schema;
             m_message = message;
-            m_ts = System.currentTimeMillis();
+            m_ts = 0;
             m_future = future;
         }
 
+        /**
+         * Number of bytes of table data (and schema) to send
+         */
+        synchronized int size() {
+            int size = 0;
+            if (m_message != null) {
+                size += m_message.b.remaining();
+            }
+            if (m_schema != null) {
+                size += m_schema.b.remaining();
+            }
+            return size;
+        }
+
         /**
          * Idempotent method to cancel any pending work and release any
          * BBContainters held.
@@ -178,6 +239,16 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
          * subsystem.
          */
         protected int send(Mailbox mb, BBContainer message) throws IOException {
+            m_progress.uncompressedBytes.addAndGet(message.b.remaining());
+            final long start = System.nanoTime();
+            try {
+                return compressAndSend(mb, message);
+            } finally {
+                m_progress.compressionTimeNanos.addAndGet(System.nanoTime() - start);
+            }
+        }
+
+        private int compressAndSend(Mailbox mb, BBContainer message) throws IOException {
             if (message.b.isDirect()) {
                 byte[] data = CompressionService.compressBuffer(message.b);
                 RejoinDataMessage msg = new RejoinDataMessage(m_targetId, data);
@@ -218,6 +289,8 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
                 }
 
                 bytesSent += send(mb, m_message);
+                m_progress.blocks.incrementAndGet();
+                m_progress.bytes.addAndGet(bytesSent);
                 return bytesSent;
             } finally {
                 // Always discard the buffer so that they can be reused
@@ -252,7 +325,8 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
             long now = System.currentTimeMillis();
             for (Entry<Integer, SendWork> e : m_outstandingWork.entrySet()) {
                 SendWork work = e.getValue();
-                if ((now - work.m_ts) > WRITE_TIMEOUT_MS) {
+                // work held back by the rebalance controls hasn't been sent yet
+                if (work.m_ts != 0 && (now - work.m_ts) > WRITE_TIMEOUT_MS) {
                     rejoinLog.error(String.format(
                             "A snapshot write task failed after a timeout (currently %d seconds outstanding).",
                             (now - work.m_ts) / 1000));
@@ -284,7 +358,10 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
             e.getValue().discard();
         }
         m_outstandingWork.clear();
+        m_pendingWork.clear();
+        m_inFlight = 0;
         m_outstandingWorkCount.set(0);
+        m_progress.outstanding = 0;
     }
 
     /**
@@ -300,73 +377,182 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
 
         // releases the BBContainers and cleans up
         work.discard();
+
+        m_inFlight--;
+        adjustWindow(System.currentTimeMillis() - work.m_ts);
+        dispatchPendingWork();
+        m_progress.outstanding = m_outstandingWorkCount.get();
     }
 
     /**
-     * Thread that runs send work (sending snapshot blocks). One per node
+     * AIMD on the ack latency of the blocks. The receiver only acks a block once
+     * its site has taken it for loading, so a latency well above the running
+     * average means the rejoining site is applying slower than we send and more
+     * blocks in flight would only sit in its (shared) receive buffer pool.
      */
-    public static class SnapshotSender implements Runnable {
+    private void adjustWindow(long ackLatency) {
+        if (m_avgAckLatency > 0 && ackLatency > 2 * m_avgAckLatency) {
+            m_window = Math.max(MIN_WINDOW, m_window / 2);
+        } else if (m_window < MAX_WINDOW) {
+            m_window++;
+        }
+        m_avgAckLatency = m_avgAckLatency == 0 ? ackLatency : (0.8 * m_avgAckLatency) + (0.2 * ackLatency);
+        m_progress.window = m_window;
+    }
+
+    private void dispatchPendingWork() {
+        while (m_inFlight < m_window && !m_pendingWork.isEmpty()) {
+            if (m_rebalance != null) {
+                final long wait = m_rebalance.acquire(m_pendingWork.peek().size());
+                if (wait > 0) {
+                    scheduleDispatch(wait);
+                    break;
+                }
+            }
+            SendWork work = m_pendingWork.poll();
+            m_inFlight++;
+            work.m_ts = System.currentTimeMillis();
+            m_sender.offer(work);
+        }
+    }
+
+    /**
+     * Retry the pending work later if the rebalance controls held it back. Nothing is
+     * scheduled while paused, resume kicks the target.
+     */
+    private void scheduleDispatch(long waitMs) {
+        if (m_dispatchScheduled || waitMs == Long.MAX_VALUE) {
+            return;
+        }
+        m_dispatchScheduled = true;
+        VoltDB.instance().scheduleWork(new Runnable() {
+            @Override
+            public void run() {
+                kickPendingWork();
+            }
+        }, waitMs, -1, TimeUnit.MILLISECONDS);
+    }
+
+    synchronized void kickPendingWork() {
+        m_dispatchScheduled = false;
+        if (!m_closed.get()) {
+            dispatchPendingWork();
+        }
+    }
+
+    /**
+     * Sends the blocks of the stream targets sharing a mailbox. Each thread
+     * drains its own queue and every target is assigned to one of them, so
+     * the blocks of a target go out in the order they were written. That
+     * matters because a table's schema only travels with its first block.
+     */
+    public static class SnapshotSender {
         private final Mailbox m_mb;
-        private final LinkedBlockingQueue<SendWork> m_workQueue;
+        private final List<LinkedBlockingQueue<SendWork>> m_workQueues;
+        private final Map<Long, LinkedBlockingQueue<SendWork>> m_targetQueues;
         private final AtomicInteger m_expectedEOFs;
+        private int m_registeredTargets = 0;
 
         final Map<Long, AtomicLong> m_bytesSent;
         volatile Exception m_lastException = null;
 
         public SnapshotSender(Mailbox mb)
+        {
+            this(mb, 1);
+        }
+
+        public SnapshotSender(Mailbox mb, int threadCount)
         {
             m_mb = mb;
-            m_workQueue = new LinkedBlockingQueue<SendWork>();
+            m_workQueues = new ArrayList<LinkedBlockingQueue<SendWork>>();
+            for (int i = 0; i < Math.max(1, threadCount); i++) {
+                m_workQueues.add(new LinkedBlockingQueue<SendWork>());
+            }
+            m_targetQueues = Collections.synchronizedMap(new HashMap<Long, LinkedBlockingQueue<SendWork>>());
             m_expectedEOFs = new AtomicInteger();
             m_bytesSent = Collections.synchronizedMap(new HashMap<Long, AtomicLong>());
         }
 
-        public void registerDataTarget(long targetId)
+        public synchronized void registerDataTarget(long targetId)
         {
             m_expectedEOFs.incrementAndGet();
             m_bytesSent.put(targetId, new AtomicLong());
+            m_targetQueues.put(targetId, m_workQueues.get(m_registeredTargets++ % m_workQueues.size()));
         }
 
-        public void offer(SendWork work)
+        /**
+         * Start one thread per queue
+         */
+        public void start(String name)
         {
-            m_workQueue.offer(work);
+            for (int i = 0; i < m_workQueues.size(); i++) {
+                new Thread(new Sender(m_workQueues.get(i)), name + " " + i).start();
+            }
         }
 
-        @Override
-        public void run() {
-            rejoinLog.trace("Starting stream sender thread");
+        public void offer(SendWork work)
+        {
+            if (work.m_isEmpty) {
+                // Empty work indicates the end of a target's stream. The threads are
+                // shared by multiple data targets, each of them will send an end-of-queue
+                // work, once all of them have the threads are told to terminate.
+                if (m_expectedEOFs.decrementAndGet() == 0) {
+                    for (LinkedBlockingQueue<SendWork> queue : m_workQueues) {
+                        queue.offer(work);
+                    }
+                }
+                return;
+            }
+            m_targetQueues.get(work.m_targetId).offer(work);
+        }
 
-            while (true) {
-                SendWork work = null;
+        private class Sender implements Runnable {
+            private final LinkedBlockingQueue<SendWork> m_workQueue;
 
-                try {
-                    rejoinLog.trace("Blocking on sending work queue");
-                    work = m_workQueue.poll(10, TimeUnit.MINUTES);
+            Sender(LinkedBlockingQueue<SendWork> workQueue)
+            {
+                m_workQueue = workQueue;
+            }
 
-                    if (work == null) {
-                        rejoinLog.warn("No stream snapshot send work was produced in the past 10 minutes");
-                        break;
-                    } else if (work.m_isEmpty) {
-                        // Empty work indicates the end of the queue.
-                        // The sender is shared by multiple data targets, each of them will
-                        // send an end-of-queue work, must wait until all end-of-queue works
-                        // are received before terminating the thread.
-                        if (m_expectedEOFs.decrementAndGet() == 0) {
+            @Override
+            public void run() {
+                rejoinLog.trace("Starting stream sender thread");
+
+                while (true) {
+                    SendWork work = null;
+
+                    try {
+                        rejoinLog.trace("Blocking on sending work queue");
+                        work = m_workQueue.poll(10, TimeUnit.MINUTES);
+
+                        if (work == null) {
+                            // A paused rebalance can leave the queue empty for as long
+                            // as the operator wants, keep waiting for the resume. Else
+                            // the targets were abandoned without being closed.
+                            final RebalanceController rebalance = RebalanceController.instance();
+                            if (rebalance != null && rebalance.isPaused()) {
+                                continue;
+                            }
+                            rejoinLog.warn("No stream snapshot send work was produced in the past 10 minutes");
+                            break;
+                        } else if (work.m_isEmpty) {
                             break;
-                        } else {
-                            continue;
                         }
-                    }
 
-                    m_bytesSent.get(work.m_targetId).addAndGet(work.doWork(m_mb));
-                }
-                catch (Exception e) {
-                    m_lastException = e;
-                    rejoinLog.error("Error sending a recovery stream message", e);
+                        m_bytesSent.get(work.m_targetId).addAndGet(work.doWork(m_mb));
+                    }
+                    catch (InterruptedException e) {
+                        rejoinLog.warn("Stream sender thread interrupted", e);
+                        break;
+                    }
+                    catch (Exception e) {
+                        m_lastException = e;
+                        rejoinLog.error("Error sending a recovery stream message", e);
+                    }
                 }
-            }
 
-            rejoinLog.trace("Stream sender thread exiting");
+                rejoinLog.trace("Stream sender thread exiting");
+            }
         }
     }
 
@@ -456,10 +642,12 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
     synchronized ListenableFuture<Boolean> send(int blockIndex, BBContainer schemaContainer, BBContainer chunk) {
         SettableFuture<Boolean> sendFuture = SettableFuture.create();
         SendWork sendWork = new SendWork(m_targetId, m_destHSId, blockIndex,
-                                         schemaContainer, chunk, sendFuture);
+                                         schemaContainer, chunk, sendFuture, m_progress);
         m_outstandingWork.put(blockIndex, sendWork);
         m_outstandingWorkCount.incrementAndGet();
-        m_sender.offer(sendWork);
+        m_pendingWork.offer(sendWork);
+        dispatchPendingWork();
+        m_progress.outstanding = m_outstandingWorkCount.get();
         return sendFuture;
     }
 
@@ -511,6 +699,14 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
             m_sender.offer(new SendWork());
             m_mb.deliver(new RejoinDataAckMessage(true));
 
+            m_progress.finish();
+            if (m_rebalance != null) {
+                m_rebalance.unregister(this);
+                if (!m_writeFailed.get()) {
+                    m_rangeGroup.targetClosed();
+                }
+            }
+
             // locked so m_closed is true when the ack thread dies
             synchronized(this) {
                 m_mb = null;
@@ -533,6 +729,21 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
         return m_sender.m_bytesSent.get(m_targetId).get();
     }
 
+    @Override
+    public long getUncompressedBytes() {
+        return m_progress.uncompressedBytes.get();
+    }
+
+    @Override
+    public long getCompressedBytes() {
+        return m_progress.bytes.get();
+    }
+
+    @Override
+    public long getCompressionTimeNanos() {
+        return m_progress.compressionTimeNanos.get();
+    }
+
     @Override
     public void setOnCloseHandler(Runnable onClose) {
         m_onCloseHandler.set(onClose);
@@ -51,6 +51,7 @@ public class StreamSnapshotSink {
     // Schemas of the tables
     private final Map<Integer, byte[]> m_schemas = new HashMap<Integer, byte[]>();
     private long m_bytesReceived = 0;
+    private RejoinStats.StreamProgress m_progress = null;
 
     public long initialize(int sourceCount, FixedDBBPool bufferPool) {
         // Mailbox used to transfer snapshot data
@@ -59,7 +60,8 @@ public class StreamSnapshotSink {
         // Expect sourceCount number of EOFs at the end
         m_expectedEOFs.set(sourceCount);
 
-        m_in = new StreamSnapshotDataReceiver(m_mb, bufferPool);
+        m_progress = RejoinStats.startStream(RejoinStats.Direction.RECEIVE, m_mb.getHSId(), -1);
+        m_in = new StreamSnapshotDataReceiver(m_mb, bufferPool, m_progress);
         m_inThread = new Thread(m_in, "Snapshot data receiver");
         m_inThread.setDaemon(true);
         m_ack = new StreamSnapshotAckSender(m_mb);
@@ -94,6 +96,10 @@ public class StreamSnapshotSink {
         m_in = null;
         m_ack = null;
 
+        if (m_progress != null) {
+            m_progress.finish();
+        }
+
         if (m_mb != null) {
             VoltDB.instance().getHostMessenger().removeMailbox(m_mb.getHSId());
         }
@@ -213,6 +219,8 @@ public class StreamSnapshotSink {
             block.position(StreamSnapshotDataTarget.contentOffset);
             ByteBuffer nextChunk = getNextChunk(tableId, block, resultBufferAllocator);
             m_bytesReceived += nextChunk.remaining();
+            m_progress.remoteHSId = hsId;
+            m_progress.blocks.incrementAndGet();
 
             // Queue ack to this block
             m_ack.ack(hsId, targetId, blockIndex);
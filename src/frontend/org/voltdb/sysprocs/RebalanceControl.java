@@ -0,0 +1,100 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.sysprocs;
+
+import java.util.List;
+import java.util.Map;
+
+import org.voltdb.DependencyPair;
+import org.voltdb.ParameterSet;
+import org.voltdb.ProcInfo;
+import org.voltdb.SystemProcedureExecutionContext;
+import org.voltdb.VoltSystemProcedure;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.VoltType;
+import org.voltdb.rejoin.RebalanceController;
+
+@ProcInfo(singlePartition = false)
+
+/**
+ * Controls the data transfer of an elastic rebalance on every host.
+ * Commands are PAUSE, RESUME, THROTTLE (value is the MB/s limit per host,
+ * 0 for unlimited) and LATENCY (value is the p99 latency budget in ms,
+ * 0 for none).
+ */
+public class RebalanceControl extends VoltSystemProcedure
+{
+    @Override
+    public void init() {}
+
+    @Override
+    public DependencyPair executePlanFragment(
+            Map<Integer, List<VoltTable>> dependencies, long fragmentId,
+            ParameterSet params, SystemProcedureExecutionContext context)
+    {
+        throw new RuntimeException("RebalanceControl was given an " +
+                                   "invalid fragment id: " + String.valueOf(fragmentId));
+    }
+
+    /**
+     * @param ctx       Internal parameter. Not user-accessible.
+     * @param command   PAUSE, RESUME, THROTTLE or LATENCY
+     * @param value     Argument of THROTTLE and LATENCY, ignored otherwise.
+     * @return          Result table with the command or the error.
+     */
+    public VoltTable[] run(SystemProcedureExecutionContext ctx, String command, long value)
+    {
+        VoltTable table = new VoltTable(new ColumnInfo("Result", VoltType.STRING));
+
+        boolean valid = true;
+        if (command.equalsIgnoreCase("PAUSE") || command.equalsIgnoreCase("RESUME")) {
+            table.addRow(command);
+        }
+        else if (command.equalsIgnoreCase("THROTTLE") || command.equalsIgnoreCase("LATENCY")) {
+            if (value < 0 || value > Integer.MAX_VALUE) {
+                table.addRow("Invalid value for " + command + ": " + value);
+                valid = false;
+            } else {
+                table.addRow(command + " " + value);
+            }
+        }
+        else {
+            table.addRow("Invalid command: " + command);
+            valid = false;
+        }
+
+        // Choose the lowest site ID on this host to do the work.
+        if (valid && ctx.isLowestSiteId()) {
+            RebalanceController controller = RebalanceController.instance();
+            if (command.equalsIgnoreCase("PAUSE")) {
+                controller.pause();
+            }
+            else if (command.equalsIgnoreCase("RESUME")) {
+                controller.resume();
+            }
+            else if (command.equalsIgnoreCase("THROTTLE")) {
+                controller.setMaxMBPerSec((int)value);
+            }
+            else {
+                controller.setLatencyBudget((int)value);
+            }
+        }
+        return (new VoltTable[] {table});
+    }
+}
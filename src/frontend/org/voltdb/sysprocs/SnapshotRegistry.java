@@ -135,19 +135,29 @@ public class SnapshotRegistry {
             public final String name;
             public final String filename;
             public final long size;
+            public final long uncompressedSize;
+            public final long compressedSize;
+            public final long compressionTimeNanos;
             public final Throwable error;
 
             private Table(String name, String filename) {
                 this.name = name;
                 this.filename = filename;
                 size = 0;
+                uncompressedSize = 0;
+                compressedSize = 0;
+                compressionTimeNanos = 0;
                 error = null;
             }
 
-            public Table(Table t, long size, Throwable error) {
+            public Table(Table t, long size, long uncompressedSize, long compressedSize,
+                         long compressionTimeNanos, Throwable error) {
                 this.name = t.name;
                 this.filename = t.filename;
                 this.size = size;
+                this.uncompressedSize = uncompressedSize;
+                this.compressedSize = compressedSize;
+                this.compressionTimeNanos = compressionTimeNanos;
                 this.error = error;
             }
         }
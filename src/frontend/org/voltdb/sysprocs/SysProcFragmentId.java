@@ -164,4 +164,8 @@ public class SysProcFragmentId
 
     public static final long PF_validatePartitioning = 240;
     public static final long PF_validatePartitioningResults = 241;
+
+    // @TransactionTrace
+    public static final long PF_transactionTrace = 250;
+    public static final long PF_transactionTraceAggregate = 251;
 }
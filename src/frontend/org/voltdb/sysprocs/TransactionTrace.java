@@ -0,0 +1,178 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.sysprocs;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import org.voltcore.logging.VoltLogger;
+import org.voltdb.DependencyPair;
+import org.voltdb.ParameterSet;
+import org.voltdb.ProcInfo;
+import org.voltdb.SystemProcedureExecutionContext;
+import org.voltdb.TransactionTracer;
+import org.voltdb.TransactionTracer.Stage;
+import org.voltdb.VoltSystemProcedure;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.VoltType;
+import org.voltdb.dtxn.DtxnConstants;
+import org.voltdb.utils.VoltTableUtil;
+
+/**
+ * Controls and collects the sampled transaction lifecycle traces of every host.
+ * Commands are SAMPLE (argument is N to trace 1 in N transactions, 0 turns
+ * tracing off), CLEAR, EVENTS (returns the recorded events) and DUMP (argument
+ * is a directory, every host writes its events to a binary file in it that
+ * TransactionTraceReader summarizes).
+ */
+@ProcInfo(singlePartition = false)
+public class TransactionTrace extends VoltSystemProcedure
+{
+    private static final VoltLogger HOST_LOG = new VoltLogger("HOST");
+
+    static final int DEP_TRACE = (int)
+        SysProcFragmentId.PF_transactionTrace | DtxnConstants.MULTIPARTITION_DEPENDENCY;
+    static final int DEP_TRACE_AGGREGATE = (int) SysProcFragmentId.PF_transactionTraceAggregate;
+
+    static VoltTable createStatusTable() {
+        return new VoltTable(
+                new ColumnInfo(CNAME_HOST_ID, CTYPE_ID),
+                new ColumnInfo("SAMPLE_RATE", VoltType.INTEGER),
+                new ColumnInfo("EVENTS", VoltType.BIGINT),
+                new ColumnInfo("RESULT", VoltType.STRING));
+    }
+
+    static VoltTable createEventTable() {
+        return new VoltTable(
+                new ColumnInfo(CNAME_HOST_ID, CTYPE_ID),
+                new ColumnInfo("THREAD", VoltType.STRING),
+                new ColumnInfo("CI_HOST_ID", VoltType.INTEGER),
+                new ColumnInfo("CI_HANDLE", VoltType.BIGINT),
+                new ColumnInfo("STAGE", VoltType.STRING),
+                new ColumnInfo("TIME_NANOS", VoltType.BIGINT));
+    }
+
+    @Override
+    public void init() {
+        registerPlanFragment(SysProcFragmentId.PF_transactionTrace);
+        registerPlanFragment(SysProcFragmentId.PF_transactionTraceAggregate);
+    }
+
+    @Override
+    public DependencyPair executePlanFragment(
+            Map<Integer, List<VoltTable>> dependencies, long fragmentId,
+            ParameterSet params, SystemProcedureExecutionContext context)
+    {
+        if (fragmentId == SysProcFragmentId.PF_transactionTrace) {
+            final String command = (String) params.toArray()[0];
+            final String argument = (String) params.toArray()[1];
+            final boolean events = command.equalsIgnoreCase("EVENTS");
+            final VoltTable result = events ? createEventTable() : createStatusTable();
+
+            // Choose the lowest site ID on this host to do the work.
+            if (context.isLowestSiteId()) {
+                final int hostId = context.getHostId();
+                if (events) {
+                    TransactionTracer.visit(new TransactionTracer.EventVisitor() {
+                        @Override
+                        public void event(String thread, int ciHostId, long ciHandle, Stage stage, long nanos) {
+                            result.addRow(hostId, thread, ciHostId, ciHandle, stage.name(), nanos);
+                        }
+                    });
+                }
+                else if (command.equalsIgnoreCase("DUMP")) {
+                    File file = new File(argument, "txntrace-host" + hostId + "-" +
+                                                   System.currentTimeMillis() + ".bin");
+                    try {
+                        long count = TransactionTracer.dump(file, hostId);
+                        result.addRow(hostId, TransactionTracer.getSampleRate(), count, file.getPath());
+                    } catch (IOException e) {
+                        HOST_LOG.warn("Failed to write transaction trace to " + file, e);
+                        result.addRow(hostId, TransactionTracer.getSampleRate(), 0,
+                                      "FAILURE: " + e.getMessage());
+                    }
+                }
+                else {
+                    if (command.equalsIgnoreCase("SAMPLE")) {
+                        TransactionTracer.setSampleRate(Integer.parseInt(argument.trim()));
+                    }
+                    else {
+                        TransactionTracer.clear();
+                    }
+                    result.addRow(hostId, TransactionTracer.getSampleRate(), 0, "SUCCESS");
+                }
+            }
+            return new DependencyPair(DEP_TRACE, result);
+        }
+        else if (fragmentId == SysProcFragmentId.PF_transactionTraceAggregate) {
+            VoltTable result = VoltTableUtil.unionTables(dependencies.get(DEP_TRACE));
+            return new DependencyPair(DEP_TRACE_AGGREGATE, result);
+        }
+        throw new RuntimeException("TransactionTrace was given an " +
+                                   "invalid fragment id: " + String.valueOf(fragmentId));
+    }
+
+    /**
+     * @param ctx       Internal parameter. Not user-accessible.
+     * @param command   SAMPLE, CLEAR, EVENTS or DUMP
+     * @param argument  Sample rate for SAMPLE, directory for DUMP, ignored otherwise.
+     * @return          The events for EVENTS, a status row per host otherwise.
+     */
+    public VoltTable[] run(SystemProcedureExecutionContext ctx, String command, String argument)
+    {
+        if (command.equalsIgnoreCase("SAMPLE")) {
+            int rate;
+            try {
+                rate = Integer.parseInt(argument.trim());
+            } catch (NumberFormatException e) {
+                rate = -1;
+            }
+            if (rate < 0) {
+                throw new VoltAbortException("Invalid sample rate: " + argument);
+            }
+        }
+        else if (command.equalsIgnoreCase("DUMP")) {
+            if (argument == null || argument.trim().isEmpty()) {
+                throw new VoltAbortException("DUMP requires a directory to write the traces to");
+            }
+        }
+        else if (!command.equalsIgnoreCase("CLEAR") && !command.equalsIgnoreCase("EVENTS")) {
+            throw new VoltAbortException("Invalid command: " + command);
+        }
+
+        SynthesizedPlanFragment pfs[] = new SynthesizedPlanFragment[2];
+        pfs[0] = new SynthesizedPlanFragment();
+        pfs[0].fragmentId = SysProcFragmentId.PF_transactionTrace;
+        pfs[0].outputDepId = DEP_TRACE;
+        pfs[0].inputDepIds = new int[] {};
+        pfs[0].multipartition = true;
+        pfs[0].parameters = ParameterSet.fromArrayNoCopy(command, argument == null ? "" : argument.trim());
+
+        pfs[1] = new SynthesizedPlanFragment();
+        pfs[1].fragmentId = SysProcFragmentId.PF_transactionTraceAggregate;
+        pfs[1].outputDepId = DEP_TRACE_AGGREGATE;
+        pfs[1].inputDepIds = new int[] { DEP_TRACE };
+        pfs[1].multipartition = false;
+        pfs[1].parameters = ParameterSet.emptyParameterSet();
+
+        return executeSysProcPlanFragments(pfs, DEP_TRACE_AGGREGATE);
+    }
+}
@@ -109,6 +109,9 @@ public abstract class SnapshotWritePlan
                             return m_snapshotRecord.new Table(
                                 registryTable,
                                 m_sdt.getBytesWritten(),
+                                m_sdt.getUncompressedBytes(),
+                                m_sdt.getCompressedBytes(),
+                                m_sdt.getCompressionTimeNanos(),
                                 m_sdt.getLastWriteException());
                             }
                     });
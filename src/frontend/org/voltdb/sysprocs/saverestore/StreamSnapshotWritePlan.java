@@ -54,6 +54,7 @@ import org.voltdb.dtxn.SiteTracker;
 
 import org.voltdb.expressions.AbstractExpression;
 import org.voltdb.expressions.HashRangeExpression;
+import org.voltdb.rejoin.RebalanceController;
 import org.voltdb.rejoin.StreamSnapshotAckReceiver;
 import org.voltdb.rejoin.StreamSnapshotDataTarget;
 
@@ -159,9 +160,18 @@ public class StreamSnapshotWritePlan extends SnapshotWritePlan
 
         if (!localStreams.isEmpty()) {
             Mailbox mb = VoltDB.instance().getHostMessenger().createMailbox();
-            StreamSnapshotDataTarget.SnapshotSender sender = new StreamSnapshotDataTarget.SnapshotSender(mb);
+            // Blocks are compressed on the sending threads, use one per stream up to
+            // the number of cores not taken by the sites, or what the user asked for.
+            // Each stream is served by a single thread so its blocks stay in order.
+            int streamCount = 0;
+            for (StreamSnapshotRequestConfig.Stream stream : localStreams) {
+                streamCount += stream.streamPairs.size();
+            }
+            int senderThreads = Integer.getInteger("REJOIN_STREAM_SENDER_THREADS",
+                    Math.min(streamCount, Math.max(1, CoreUtils.availableProcessors() / 4)));
+            StreamSnapshotDataTarget.SnapshotSender sender =
+                new StreamSnapshotDataTarget.SnapshotSender(mb, Math.max(1, senderThreads));
             StreamSnapshotAckReceiver ackReceiver = new StreamSnapshotAckReceiver(mb);
-            new Thread(sender, "Stream Snapshot Sender").start();
             new Thread(ackReceiver, "Stream Snapshot Ack Receiver").start();
             // The mailbox will be removed after all snapshot data targets are finished
             SnapshotSiteProcessor.m_tasksOnSnapshotCompletion.offer(createCompletionTask(mb));
@@ -170,6 +180,15 @@ public class StreamSnapshotWritePlan extends SnapshotWritePlan
             for (StreamSnapshotRequestConfig.Stream stream : localStreams) {
                 SNAP_LOG.debug("Sites to stream from: " +
                                CoreUtils.hsIdCollectionToString(stream.streamPairs.keySet()));
+                // Elastic join streams hash ranges out of the source partitions, those
+                // go through the rebalance throughput controls. Rejoin streams don't.
+                RebalanceController rebalance = null;
+                RebalanceController.RangeGroup rangeGroup = null;
+                if (stream.partition != null && stream.ranges != null && !stream.streamPairs.isEmpty()) {
+                    rebalance = RebalanceController.instance();
+                    rangeGroup = rebalance.addRanges(stream.ranges.size(), stream.streamPairs.size());
+                }
+
                 for (Entry<Long, Long> entry : stream.streamPairs.entries()) {
                     long srcHSId = entry.getKey();
                     long destHSId = entry.getValue();
@@ -178,9 +197,12 @@ public class StreamSnapshotWritePlan extends SnapshotWritePlan
                                                 srcHSId,
                                                 destHSId,
                                                 new StreamSnapshotDataTarget(destHSId, schemas, mb,
-                                                                             sender, ackReceiver)));
+                                                                             sender, ackReceiver,
+                                                                             rebalance, rangeGroup)));
                 }
             }
+
+            sender.start("Stream Snapshot Sender");
         }
 
         return sdts;
@@ -111,20 +111,31 @@ public final class CompressionService {
 
             @Override
             public BBContainer call() throws Exception {
-                //Reserve 4-bytes for the CRC
-                final int crcPosition = outBuffer.b.position();
-                outBuffer.b.position(outBuffer.b.position() + 4);
-                final int crcCalcStart = outBuffer.b.position();
-                compressBuffer(inBuffer, outBuffer.b);
-                final int crc32c =
-                        DBBPool.getCRC32C( outBuffer.address, crcCalcStart, outBuffer.b.limit() - crcCalcStart);
-                outBuffer.b.putInt(crcPosition, crc32c);
-                return outBuffer;
+                return compressAndCRC32cBuffer(inBuffer, outBuffer);
             }
 
         });
     }
 
+    /**
+     * Compress the remaining bytes of inBuffer into outBuffer starting at the output
+     * buffer's current position, preceded by a 4-byte CRC32C of the compressed bytes.
+     */
+    public static BBContainer compressAndCRC32cBuffer(final ByteBuffer inBuffer, final BBContainer outBuffer)
+    throws IOException {
+        assert(inBuffer.isDirect());
+        assert(outBuffer.b.isDirect());
+        //Reserve 4-bytes for the CRC
+        final int crcPosition = outBuffer.b.position();
+        outBuffer.b.position(outBuffer.b.position() + 4);
+        final int crcCalcStart = outBuffer.b.position();
+        compressBuffer(inBuffer, outBuffer.b);
+        final int crc32c =
+                DBBPool.getCRC32C( outBuffer.address, crcCalcStart, outBuffer.b.limit() - crcCalcStart);
+        outBuffer.b.putInt(crcPosition, crc32c);
+        return outBuffer;
+    }
+
     public static int compressBuffer(ByteBuffer buffer, ByteBuffer output) throws IOException {
         assert(buffer.isDirect());
         assert(output.isDirect());
@@ -53,6 +53,7 @@ public class HTTPAdminListener {
 
     Server m_server = new Server();
     HTTPClientInterface httpClientInterface = new HTTPClientInterface();
+    final MetricsRenderer m_metrics = new MetricsRenderer();
     final boolean m_jsonEnabled;
     Map<String, String> m_htmlTemplates = new HashMap<String, String>();
 
@@ -179,6 +180,18 @@ public class HTTPAdminListener {
                 return;
             }
 
+            // Prometheus scrape of the stats of this host
+            if (baseRequest.getRequestURI().equals("/metrics") ||
+                baseRequest.getRequestURI().startsWith("/metrics/")) {
+                response.setContentType("text/plain; version=0.0.4; charset=utf-8");
+                response.setStatus(HttpServletResponse.SC_OK);
+                baseRequest.setHandled(true);
+                @SuppressWarnings("unchecked")
+                Map<String, String[]> params = request.getParameterMap();
+                m_metrics.render(VoltDB.instance().getStatsAgent(), params, response.getWriter());
+                return;
+            }
+
             // handle the CSV request for memory stats
             if (baseRequest.getRequestURI().contains("/memorycsv/")) {
                 String msg = SystemStatsCollector.getCSV();
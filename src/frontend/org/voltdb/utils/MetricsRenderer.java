@@ -0,0 +1,386 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.utils;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.voltdb.PrivateVoltTableFactory;
+import org.voltdb.StatsAgent;
+import org.voltdb.StatsSelector;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+
+/**
+ * <p>Renders the stats of this host in the Prometheus text exposition format for
+ * the /metrics page of the HTTP admin listener. Every numeric column of a stats
+ * table becomes a metric named voltdb_&lt;selector&gt;_&lt;column&gt;, the string
+ * and *_ID columns become its labels. TIMESTAMP is dropped, the scrape has its own.
+ * Tables of BUCKET_MIN, BUCKET_MAX and count rows, like LATENCY, are rendered as
+ * histograms with cumulative buckets instead.</p>
+ *
+ * <p>Tables come from the StatsAgent snapshot cache, so scrapes closer together than
+ * the max age don't touch the stats sources at all. Output is written straight to
+ * the response writer, metric names are built once per column and numbers are
+ * formatted into a scratch buffer.</p>
+ *
+ * <p>Query parameters: selector=procedure,memory limits the selectors rendered,
+ * any other parameter filters on the label of the same name, e.g.
+ * procedure=Insert&amp;partition_id=1&amp;partition_id=2. A filter only applies to
+ * the tables that have the label.</p>
+ */
+public class MetricsRenderer {
+
+    /** Oldest stats snapshot served to a scrape, set with -DMETRICS_MAX_AGE_MS */
+    public static final long MAX_AGE_MS = Math.max(0, Integer.getInteger("METRICS_MAX_AGE_MS", 1000));
+
+    static final StatsSelector[] DEFAULT_SELECTORS = new StatsSelector[] {
+        StatsSelector.PROCEDURE,
+        StatsSelector.PROCEDURELATENCY,
+        StatsSelector.PARTITIONLATENCY,
+        StatsSelector.LATENCY,
+        StatsSelector.INITIATOR,
+        StatsSelector.MEMORY,
+        StatsSelector.IOSTATS,
+        StatsSelector.TABLE,
+        StatsSelector.INDEX,
+        StatsSelector.STARVATION,
+        StatsSelector.PLANNER
+    };
+
+    private static final String SELECTOR_PARAM = "selector";
+    private static final String BUCKET_MIN = "BUCKET_MIN";
+    private static final String BUCKET_MAX = "BUCKET_MAX";
+
+    // "voltdb_<selector>_<column>" by selector and column name
+    private final ConcurrentHashMap<StatsSelector, ConcurrentHashMap<String, String>> m_names =
+        new ConcurrentHashMap<StatsSelector, ConcurrentHashMap<String, String>>();
+
+    /**
+     * Render the requested selectors of the local stats agent
+     * @param params the request parameters, as from ServletRequest.getParameterMap()
+     */
+    public void render(StatsAgent agent, Map<String, String[]> params, Writer out) throws IOException {
+        List<StatsSelector> selectors = new ArrayList<StatsSelector>();
+        Map<String, Set<String>> filters = new HashMap<String, Set<String>>();
+        for (Map.Entry<String, String[]> e : params.entrySet()) {
+            if (e.getKey().equalsIgnoreCase(SELECTOR_PARAM)) {
+                for (String value : e.getValue()) {
+                    for (String name : value.split(",")) {
+                        try {
+                            selectors.add(StatsSelector.valueOf(name.trim().toUpperCase()));
+                        } catch (IllegalArgumentException ignored) {}
+                    }
+                }
+            } else {
+                Set<String> values = new HashSet<String>();
+                for (String value : e.getValue()) {
+                    values.add(value);
+                }
+                filters.put(e.getKey().toLowerCase(), values);
+            }
+        }
+        if (selectors.isEmpty()) {
+            for (StatsSelector selector : DEFAULT_SELECTORS) {
+                selectors.add(selector);
+            }
+        }
+
+        final long now = System.currentTimeMillis();
+        final char[] scratch = new char[20];
+        for (StatsSelector selector : selectors) {
+            VoltTable shared = agent.getStatsSnapshot(selector, MAX_AGE_MS, now);
+            if (shared == null) {
+                continue;
+            }
+            // the snapshot is shared with other readers, iterate a private view
+            VoltTable table = PrivateVoltTableFactory.createVoltTableFromBuffer(shared.getBuffer(), true);
+            renderTable(selector, table, filters, out, scratch);
+        }
+    }
+
+    static boolean isLabel(String column, VoltType type) {
+        return type == VoltType.STRING || column.equals("ID") || column.endsWith("_ID");
+    }
+
+    static String sanitize(String name) {
+        StringBuilder sb = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char c = Character.toLowerCase(name.charAt(i));
+            sb.append((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') ? c : '_');
+        }
+        return sb.toString();
+    }
+
+    private String metricName(StatsSelector selector, String column) {
+        ConcurrentHashMap<String, String> names = m_names.get(selector);
+        if (names == null) {
+            names = new ConcurrentHashMap<String, String>();
+            ConcurrentHashMap<String, String> existing = m_names.putIfAbsent(selector, names);
+            if (existing != null) {
+                names = existing;
+            }
+        }
+        String name = names.get(column);
+        if (name == null) {
+            name = "voltdb_" + sanitize(selector.name()) + "_" + sanitize(column);
+            names.put(column, name);
+        }
+        return name;
+    }
+
+    /**
+     * Samples are grouped by metric, so the table is walked once per numeric column.
+     */
+    void renderTable(StatsSelector selector, VoltTable table, Map<String, Set<String>> filters,
+                     Writer out, char[] scratch) throws IOException {
+        final int columnCount = table.getColumnCount();
+        final boolean[] labels = new boolean[columnCount];
+        final String[] labelNames = new String[columnCount];
+        int minColumn = -1;
+        int maxColumn = -1;
+        for (int c = 0; c < columnCount; c++) {
+            String column = table.getColumnName(c);
+            labels[c] = isLabel(column, table.getColumnType(c));
+            if (labels[c]) {
+                labelNames[c] = sanitize(column);
+            }
+            if (column.equals(BUCKET_MIN)) {
+                minColumn = c;
+            } else if (column.equals(BUCKET_MAX)) {
+                maxColumn = c;
+            }
+        }
+        final boolean[] skip = filterRows(table, labels, labelNames, filters);
+
+        final boolean histogram = minColumn >= 0 && maxColumn >= 0;
+        for (int c = 0; c < columnCount; c++) {
+            final VoltType type = table.getColumnType(c);
+            final String column = table.getColumnName(c);
+            if (labels[c] || column.equals("TIMESTAMP") || !isNumeric(type)) {
+                continue;
+            }
+            if (histogram) {
+                if (c != minColumn && c != maxColumn) {
+                    renderHistogram(metricName(selector, column), table, c, maxColumn,
+                                    labels, labelNames, skip, out, scratch);
+                }
+                continue;
+            }
+            final String name = metricName(selector, column);
+            out.write("# TYPE ");
+            out.write(name);
+            out.write(" untyped\n");
+
+            table.resetRowPosition();
+            for (int r = 0; table.advanceRow(); r++) {
+                if (skip[r]) {
+                    continue;
+                }
+                long longValue = 0;
+                double doubleValue = 0;
+                if (type == VoltType.FLOAT) {
+                    doubleValue = table.getDouble(c);
+                } else if (type == VoltType.DECIMAL) {
+                    BigDecimal d = table.getDecimalAsBigDecimal(c);
+                    doubleValue = d == null ? 0 : d.doubleValue();
+                } else {
+                    longValue = table.getLong(c);
+                }
+                if (table.wasNull()) {
+                    continue;
+                }
+
+                out.write(name);
+                writeLabels(table, labels, labelNames, out, scratch);
+                out.write(' ');
+                if (type == VoltType.FLOAT || type == VoltType.DECIMAL) {
+                    out.write(Double.toString(doubleValue));
+                } else {
+                    writeLong(out, longValue, scratch);
+                }
+                out.write('\n');
+            }
+        }
+    }
+
+    /**
+     * @return the rows left out by the label filters
+     */
+    private static boolean[] filterRows(VoltTable table, boolean[] labels, String[] labelNames,
+                                        Map<String, Set<String>> filters) {
+        final int columnCount = table.getColumnCount();
+        final boolean[] skip = new boolean[table.getRowCount()];
+        if (!filters.isEmpty()) {
+            table.resetRowPosition();
+            for (int r = 0; table.advanceRow(); r++) {
+                for (int c = 0; c < columnCount && !skip[r]; c++) {
+                    Set<String> accepted = labels[c] ? filters.get(labelNames[c]) : null;
+                    if (accepted != null) {
+                        Object value = table.get(c, table.getColumnType(c));
+                        skip[r] = value == null || !accepted.contains(value.toString());
+                    }
+                }
+            }
+        }
+        return skip;
+    }
+
+    /**
+     * A histogram per label set of the count column, the rows of a label set in
+     * ascending BUCKET_MIN order. BUCKET_MAX is the upper bound of each bucket but
+     * the last, which is open ended. There is no _sum, the tables don't have one.
+     */
+    private static void renderHistogram(String name, VoltTable table, int countColumn, int maxColumn,
+                                        boolean[] labels, String[] labelNames, boolean[] skip,
+                                        Writer out, char[] scratch) throws IOException {
+        // bucket upper bounds and counts by label set
+        final Map<String, List<long[]>> series = new LinkedHashMap<String, List<long[]>>();
+        table.resetRowPosition();
+        for (int r = 0; table.advanceRow(); r++) {
+            if (skip[r]) {
+                continue;
+            }
+            final long count = table.getLong(countColumn);
+            if (table.wasNull()) {
+                continue;
+            }
+            StringWriter labelSet = new StringWriter();
+            writeLabels(table, labels, labelNames, labelSet, scratch);
+            List<long[]> buckets = series.get(labelSet.toString());
+            if (buckets == null) {
+                buckets = new ArrayList<long[]>();
+                series.put(labelSet.toString(), buckets);
+            }
+            buckets.add(new long[] { table.getLong(maxColumn), count });
+        }
+        if (series.isEmpty()) {
+            return;
+        }
+
+        out.write("# TYPE ");
+        out.write(name);
+        out.write(" histogram\n");
+        for (Map.Entry<String, List<long[]>> e : series.entrySet()) {
+            // the labels without the closing brace, le goes after them
+            final String labelSet = e.getKey();
+            final String prefix = labelSet.isEmpty() ? "{" : labelSet.substring(0, labelSet.length() - 1) + ",";
+            final List<long[]> buckets = e.getValue();
+            long cumulative = 0;
+            for (int b = 0; b < buckets.size(); b++) {
+                cumulative += buckets.get(b)[1];
+                out.write(name);
+                out.write("_bucket");
+                out.write(prefix);
+                out.write("le=\"");
+                if (b == buckets.size() - 1) {
+                    out.write("+Inf");
+                } else {
+                    writeLong(out, buckets.get(b)[0], scratch);
+                }
+                out.write("\"} ");
+                writeLong(out, cumulative, scratch);
+                out.write('\n');
+            }
+            out.write(name);
+            out.write("_count");
+            out.write(labelSet);
+            out.write(' ');
+            writeLong(out, cumulative, scratch);
+            out.write('\n');
+        }
+    }
+
+    private static boolean isNumeric(VoltType type) {
+        return type == VoltType.TINYINT || type == VoltType.SMALLINT || type == VoltType.INTEGER ||
+               type == VoltType.BIGINT || type == VoltType.FLOAT || type == VoltType.DECIMAL;
+    }
+
+    private static void writeLabels(VoltTable table, boolean[] labels, String[] labelNames, Writer out,
+                                    char[] scratch) throws IOException {
+        boolean first = true;
+        for (int c = 0; c < labels.length; c++) {
+            if (!labels[c]) {
+                continue;
+            }
+            out.write(first ? '{' : ',');
+            first = false;
+            out.write(labelNames[c]);
+            out.write("=\"");
+            if (table.getColumnType(c) == VoltType.STRING) {
+                String value = table.getString(c);
+                if (value != null) {
+                    writeEscaped(out, value);
+                }
+            } else {
+                long value = table.getLong(c);
+                if (!table.wasNull()) {
+                    writeLong(out, value, scratch);
+                }
+            }
+            out.write('"');
+        }
+        if (!first) {
+            out.write('}');
+        }
+    }
+
+    private static void writeEscaped(Writer out, String value) throws IOException {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' || c == '"') {
+                out.write('\\');
+                out.write(c);
+            } else if (c == '\n') {
+                out.write("\\n");
+            } else {
+                out.write(c);
+            }
+        }
+    }
+
+    /**
+     * Write the decimal digits of v without going through a String
+     */
+    static void writeLong(Writer out, long v, char[] scratch) throws IOException {
+        if (v == Long.MIN_VALUE) {
+            out.write("-9223372036854775808");
+            return;
+        }
+        if (v < 0) {
+            out.write('-');
+            v = -v;
+        }
+        int pos = scratch.length;
+        do {
+            scratch[--pos] = (char)('0' + (v % 10));
+            v /= 10;
+        } while (v != 0);
+        out.write(scratch, pos, scratch.length - pos);
+    }
+}
@@ -0,0 +1,233 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.utils;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.voltdb.LatencyHistogram;
+import org.voltdb.TransactionTracer;
+import org.voltdb.TransactionTracer.Stage;
+
+/**
+ * A command line utility that summarizes the transaction trace files written
+ * by the DUMP command of @TransactionTrace. Events are grouped into one trace
+ * per transaction and host, the time between consecutive stages is aggregated
+ * into latency histograms and the slowest traces are printed stage by stage.
+ */
+public class TransactionTraceReader {
+
+    /**
+     * The events one host recorded for one transaction, in time order
+     */
+    static class Trace {
+        final int hostId;
+        final int ciHostId;
+        final long ciHandle;
+        final List<Stage> stages = new ArrayList<Stage>();
+        final List<Long> times = new ArrayList<Long>();
+
+        Trace(int hostId, int ciHostId, long ciHandle) {
+            this.hostId = hostId;
+            this.ciHostId = ciHostId;
+            this.ciHandle = ciHandle;
+        }
+
+        long getDurationNanos() {
+            return times.get(times.size() - 1) - times.get(0);
+        }
+
+        void sort() {
+            Integer[] order = new Integer[times.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            // stable, so events stamped in the same nanosecond keep their order
+            Arrays.sort(order, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer a, Integer b) {
+                    return times.get(a).compareTo(times.get(b));
+                }
+            });
+            List<Stage> sortedStages = new ArrayList<Stage>(order.length);
+            List<Long> sortedTimes = new ArrayList<Long>(order.length);
+            for (Integer i : order) {
+                sortedStages.add(stages.get(i));
+                sortedTimes.add(times.get(i));
+            }
+            stages.clear();
+            stages.addAll(sortedStages);
+            times.clear();
+            times.addAll(sortedTimes);
+        }
+    }
+
+    /**
+     * Read the traces in a file written by TransactionTracer.dump()
+     */
+    static List<Trace> read(File file) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if (in.readInt() != TransactionTracer.DUMP_MAGIC) {
+                throw new IOException(file + " is not a transaction trace file");
+            }
+            int version = in.readInt();
+            if (version != TransactionTracer.DUMP_VERSION) {
+                throw new IOException("Unsupported transaction trace version " + version + " in " + file);
+            }
+            final int hostId = in.readInt();
+            in.readLong(); // wall clock
+            in.readLong(); // nano time
+
+            Map<String, Trace> traces = new HashMap<String, Trace>();
+            int ciHostId;
+            while ((ciHostId = in.readInt()) != -1) {
+                final long ciHandle = in.readLong();
+                final Stage stage = Stage.get(in.readByte());
+                final long nanos = in.readLong();
+                String key = ciHostId + ":" + ciHandle;
+                Trace trace = traces.get(key);
+                if (trace == null) {
+                    trace = new Trace(hostId, ciHostId, ciHandle);
+                    traces.put(key, trace);
+                }
+                trace.stages.add(stage);
+                trace.times.add(nanos);
+            }
+
+            List<Trace> result = new ArrayList<Trace>(traces.values());
+            for (Trace trace : result) {
+                trace.sort();
+            }
+            return result;
+        } finally {
+            in.close();
+        }
+    }
+
+    private static String formatHistogram(String name, LatencyHistogram h) {
+        return String.format("%-36s %10d %10.1f %10d %10d %10d %10d",
+                name, h.getTotalCount(), h.getMean(),
+                h.getValueAtPercentile(0.5), h.getValueAtPercentile(0.99),
+                h.getValueAtPercentile(0.999), h.getMax());
+    }
+
+    /**
+     * Latency percentiles of every transition between consecutive stages and of the
+     * whole trace, followed by the slowest traces.
+     */
+    static String summarize(List<Trace> traces, int top) {
+        // keyed by from * stages + to so the transitions come out in lifecycle order
+        final int stageCount = Stage.values().length;
+        TreeMap<Integer, LatencyHistogram> transitions = new TreeMap<Integer, LatencyHistogram>();
+        LatencyHistogram total = new LatencyHistogram();
+        for (Trace trace : traces) {
+            for (int i = 1; i < trace.stages.size(); i++) {
+                int key = trace.stages.get(i - 1).ordinal() * stageCount + trace.stages.get(i).ordinal();
+                LatencyHistogram h = transitions.get(key);
+                if (h == null) {
+                    h = new LatencyHistogram();
+                    transitions.put(key, h);
+                }
+                h.recordValue((trace.times.get(i) - trace.times.get(i - 1)) / 1000);
+            }
+            total.recordValue(trace.getDurationNanos() / 1000);
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(traces.size()).append(" traces, latencies in microseconds\n");
+        sb.append(String.format("%-36s %10s %10s %10s %10s %10s %10s\n",
+                "TRANSITION", "COUNT", "AVG", "P50", "P99", "P99.9", "MAX"));
+        for (Map.Entry<Integer, LatencyHistogram> e : transitions.entrySet()) {
+            String name = Stage.get(e.getKey() / stageCount) + " -> " + Stage.get(e.getKey() % stageCount);
+            sb.append(formatHistogram(name, e.getValue())).append('\n');
+        }
+        sb.append(formatHistogram("TOTAL", total)).append('\n');
+
+        List<Trace> slowest = new ArrayList<Trace>(traces);
+        Collections.sort(slowest, new Comparator<Trace>() {
+            @Override
+            public int compare(Trace a, Trace b) {
+                return Long.valueOf(b.getDurationNanos()).compareTo(a.getDurationNanos());
+            }
+        });
+        if (top > 0 && !slowest.isEmpty()) {
+            sb.append("\nSlowest traces\n");
+            for (Trace trace : slowest.subList(0, Math.min(top, slowest.size()))) {
+                sb.append(String.format("host %d ci host %d handle %d: %d us\n",
+                        trace.hostId, trace.ciHostId, trace.ciHandle, trace.getDurationNanos() / 1000));
+                final long start = trace.times.get(0);
+                for (int i = 0; i < trace.stages.size(); i++) {
+                    sb.append(String.format("    %-20s +%d us\n",
+                            trace.stages.get(i), (trace.times.get(i) - start) / 1000));
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void printHelpAndQuit(int code) {
+        System.out.println("Usage: TransactionTraceReader [--top N] file1 file2 ...");
+        System.out.println("Summarizes the files written by @TransactionTrace DUMP, --top sets");
+        System.out.println("how many of the slowest traces are printed (default 10).");
+        System.exit(code);
+    }
+
+    public static void main(String args[]) {
+        int top = 10;
+        List<File> files = new ArrayList<File>();
+        for (int ii = 0; ii < args.length; ii++) {
+            if (args[ii].equals("--help")) {
+                printHelpAndQuit(0);
+            } else if (args[ii].equals("--top")) {
+                if (ii + 1 >= args.length) {
+                    System.err.println("Error: No count specified after --top");
+                    printHelpAndQuit(-1);
+                }
+                top = Integer.parseInt(args[++ii]);
+            } else {
+                files.add(new File(args[ii]));
+            }
+        }
+        if (files.isEmpty()) {
+            printHelpAndQuit(-1);
+        }
+
+        List<Trace> traces = new ArrayList<Trace>();
+        for (File file : files) {
+            try {
+                traces.addAll(read(file));
+            } catch (IOException e) {
+                System.err.println("Error reading " + file + ": " + e.getMessage());
+                System.exit(-1);
+            }
+        }
+        System.out.print(summarize(traces, top));
+    }
+}
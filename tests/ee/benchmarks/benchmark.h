@@ -0,0 +1,238 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+// A small benchmark harness for EE code, built like the tests on top of the
+// stupidunit registration macros. Each benchmark is a class whose constructor
+// does the setup, whose run() performs one round of work and returns the number
+// of operations it performed, and whose destructor tears down. Work inside a
+// round that should not be measured goes between stopTimer() and startTimer().
+//
+// main() of a benchmark binary calls BenchmarkSuite::globalInstance()->runAll(),
+// which reads its options from the command line:
+//   benchmark [result.json] [filter]
+// Results go to result.json (stdout if not given or "-") as a JSON object
+// holding one entry per benchmark, filter runs only the benchmarks whose
+// "suite.name" contains it. EEBENCH_WARMUP and EEBENCH_ROUNDS set the number of
+// warmup and measured rounds (1 and 5 by default).
+//
+// "ant eebench -Dbuild=release" builds and runs every benchmark binary listed
+// in build.py and merges their results into eebench.json in the build dir.
+
+#ifndef EE_BENCHMARK_H_
+#define EE_BENCHMARK_H_
+
+#include <stdint.h>
+#include <stdio.h>
+#include <stdlib.h>
+#include <string.h>
+#include <sys/time.h>
+#include <string>
+#include <vector>
+
+class Benchmark;
+
+// Contains and runs a collection of benchmarks.
+class BenchmarkSuite {
+public:
+    void registerBenchmark(Benchmark* (*factory)()) {
+        factories_.push_back(factory);
+    }
+
+    // Returns the number of benchmarks that failed to produce a result.
+    inline int runAll(int argc, char** argv);
+
+    static BenchmarkSuite* globalInstance() {
+        static BenchmarkSuite suite;
+        return &suite;
+    }
+
+private:
+    std::vector<Benchmark* (*)()> factories_;
+};
+
+// Base class for a single benchmark. Users create subclasses via the
+// BENCHMARK_F helper macro.
+class Benchmark {
+public:
+    Benchmark() : timing_(false), start_(0), elapsed_(0) {}
+    virtual ~Benchmark() {}
+
+    // Run one round of the benchmark, returns the number of operations timed.
+    virtual int64_t run() = 0;
+
+    virtual const char* suiteName() const = 0;
+    virtual const char* benchmarkName() const = 0;
+
+    void startTimer() {
+        if (!timing_) {
+            timing_ = true;
+            start_ = nowNanos();
+        }
+    }
+
+    void stopTimer() {
+        if (timing_) {
+            elapsed_ += nowNanos() - start_;
+            timing_ = false;
+        }
+    }
+
+    void resetTimer() {
+        timing_ = false;
+        elapsed_ = 0;
+    }
+
+    int64_t elapsedNanos() const { return elapsed_; }
+
+    // Keeps the compiler from throwing away a result nothing else reads. The
+    // empty asm claims to read the value, which costs nothing at run time.
+    static void consume(int64_t value) {
+        __asm__ __volatile__("" : : "r"(value) : "memory");
+    }
+
+    static int64_t nowNanos() {
+        struct timeval tv;
+        gettimeofday(&tv, NULL);
+        return (int64_t)tv.tv_sec * 1000000000LL + (int64_t)tv.tv_usec * 1000LL;
+    }
+
+private:
+    bool timing_;
+    int64_t start_;
+    int64_t elapsed_;
+};
+
+// A class used to statically register benchmarks with the global suite.
+template <typename T>
+class RegisterBenchmark {
+public:
+    RegisterBenchmark(BenchmarkSuite* suite) {
+        suite->registerBenchmark(&RegisterBenchmark<T>::create);
+    }
+
+    static Benchmark* create() {
+        return new T();
+    }
+};
+
+// Creates a benchmark subclass of a fixture.
+#define BENCHMARK_F(fixture_name, benchmark_name) \
+    class fixture_name ## _ ## benchmark_name : public fixture_name { \
+    public: \
+        virtual ~fixture_name ## _ ## benchmark_name() {} \
+        virtual int64_t run(); \
+        virtual const char* suiteName() const { return #fixture_name; } \
+        virtual const char* benchmarkName() const { return #benchmark_name; } \
+    }; \
+    static RegisterBenchmark<fixture_name ## _ ## benchmark_name> \
+        fixture_name ## _ ## benchmark_name ## _register(BenchmarkSuite::globalInstance()); \
+    int64_t fixture_name ## _ ## benchmark_name::run()
+
+namespace eebenchmark {
+
+inline int envInt(const char* name, int defaultValue) {
+    const char* value = getenv(name);
+    if (value == NULL || *value == '\0') {
+        return defaultValue;
+    }
+    return atoi(value);
+}
+
+}  // namespace eebenchmark
+
+int BenchmarkSuite::runAll(int argc, char** argv) {
+    const char* resultPath = argc > 1 ? argv[1] : "-";
+    const char* filter = argc > 2 ? argv[2] : NULL;
+    const int warmup = eebenchmark::envInt("EEBENCH_WARMUP", 1);
+    int rounds = eebenchmark::envInt("EEBENCH_ROUNDS", 5);
+    if (rounds < 1) {
+        rounds = 1;
+    }
+
+    FILE* out = stdout;
+    if (strcmp(resultPath, "-") != 0) {
+        out = fopen(resultPath, "w");
+        if (out == NULL) {
+            perror(resultPath);
+            return 1;
+        }
+    }
+
+    int failures = 0;
+    bool first = true;
+    fprintf(out, "{\"benchmarks\":[");
+    for (size_t i = 0; i < factories_.size(); ++i) {
+        Benchmark* benchmark = factories_[i]();
+        const std::string suiteName = benchmark->suiteName();
+        const std::string benchmarkName = benchmark->benchmarkName();
+        const std::string fullName = suiteName + "." + benchmarkName;
+        if (filter != NULL && fullName.find(filter) == std::string::npos) {
+            delete benchmark;
+            continue;
+        }
+
+        int64_t ops = 0;
+        double total = 0;
+        double best = 0;
+        double worst = 0;
+        for (int round = -warmup; round < rounds; ++round) {
+            benchmark->resetTimer();
+            benchmark->startTimer();
+            int64_t roundOps = benchmark->run();
+            benchmark->stopTimer();
+            if (round < 0) {
+                continue;
+            }
+            if (roundOps <= 0) {
+                ops = 0;
+                break;
+            }
+            double nsPerOp = (double)benchmark->elapsedNanos() / (double)roundOps;
+            ops += roundOps;
+            total += nsPerOp;
+            best = (round == 0 || nsPerOp < best) ? nsPerOp : best;
+            worst = (round == 0 || nsPerOp > worst) ? nsPerOp : worst;
+        }
+        delete benchmark;
+
+        if (ops == 0) {
+            fprintf(stderr, "%-56s FAILED: no operations\n", fullName.c_str());
+            ++failures;
+            continue;
+        }
+        const double mean = total / rounds;
+        fprintf(stderr, "%-56s %12.1f ns/op (min %.1f, max %.1f)\n", fullName.c_str(), mean, best, worst);
+        fprintf(out, "%s\n {\"suite\":\"%s\",\"name\":\"%s\",\"rounds\":%d,\"ops\":%lld,"
+                "\"ns_per_op\":%.3f,\"min_ns_per_op\":%.3f,\"max_ns_per_op\":%.3f}",
+                first ? "" : ",", suiteName.c_str(), benchmarkName.c_str(), rounds, (long long)ops,
+                mean, best, worst);
+        first = false;
+    }
+    fprintf(out, "\n]}\n");
+    if (out != stdout) {
+        fclose(out);
+    }
+    return failures;
+}
+
+#endif  // EE_BENCHMARK_H_
@@ -0,0 +1,238 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include "benchmarks/benchmark.h"
+#include "planfixture.h"
+#include "common/types.h"
+#include "common/NValue.hpp"
+#include "common/ValueFactory.hpp"
+#include "common/valuevector.h"
+#include "common/tabletuple.h"
+#include "storage/table.h"
+
+using namespace voltdb;
+
+#define NUM_OF_TUPLES 100000
+#define NUM_OF_GROUPS 100
+#define BUFFER_SIZE (10 * 1024 * 1024)
+
+/*
+ * CREATE TABLE BENCH (ID BIGINT NOT NULL, GRP INTEGER NOT NULL, VAL BIGINT NOT NULL,
+ *                     PRIMARY KEY (ID));
+ * CREATE INDEX BENCH_GRP ON BENCH (GRP);
+ */
+static const char *catalogPayload =
+    "add / clusters cluster"
+    "\nadd /clusters[cluster] databases database"
+    "\nadd /clusters[cluster]/databases[database] tables BENCH"
+    "\nset /clusters[cluster]/databases[database]/tables[BENCH] isreplicated true"
+    "\nset $PREV partitioncolumn null"
+    "\nset $PREV estimatedtuplecount 0"
+    "\nset $PREV materializer null"
+    "\nset $PREV signature \"BENCHbib\""
+    "\nadd /clusters[cluster]/databases[database]/tables[BENCH] columns ID"
+    "\nset /clusters[cluster]/databases[database]/tables[BENCH]/columns[ID] index 0"
+    "\nset $PREV type 6"
+    "\nset $PREV size 8"
+    "\nset $PREV nullable false"
+    "\nset $PREV name \"ID\""
+    "\nadd /clusters[cluster]/databases[database]/tables[BENCH] columns GRP"
+    "\nset /clusters[cluster]/databases[database]/tables[BENCH]/columns[GRP] index 1"
+    "\nset $PREV type 5"
+    "\nset $PREV size 4"
+    "\nset $PREV nullable false"
+    "\nset $PREV name \"GRP\""
+    "\nadd /clusters[cluster]/databases[database]/tables[BENCH] columns VAL"
+    "\nset /clusters[cluster]/databases[database]/tables[BENCH]/columns[VAL] index 2"
+    "\nset $PREV type 6"
+    "\nset $PREV size 8"
+    "\nset $PREV nullable false"
+    "\nset $PREV name \"VAL\""
+    "\nadd /clusters[cluster]/databases[database]/tables[BENCH] indexes BENCH_GRP"
+    "\nset /clusters[cluster]/databases[database]/tables[BENCH]/indexes[BENCH_GRP] unique false"
+    "\nset $PREV countable true"
+    "\nset $PREV type 1"
+    "\nset $PREV expressionsjson \"\""
+    "\nadd /clusters[cluster]/databases[database]/tables[BENCH]/indexes[BENCH_GRP] columns GRP"
+    "\nset /clusters[cluster]/databases[database]/tables[BENCH]/indexes[BENCH_GRP]/columns[GRP] index 0"
+    "\nset $PREV column /clusters[cluster]/databases[database]/tables[BENCH]/columns[GRP]"
+    "\nadd /clusters[cluster]/databases[database]/tables[BENCH] indexes BENCH_PK"
+    "\nset /clusters[cluster]/databases[database]/tables[BENCH]/indexes[BENCH_PK] unique true"
+    "\nset $PREV countable true"
+    "\nset $PREV type 1"
+    "\nset $PREV expressionsjson \"\""
+    "\nadd /clusters[cluster]/databases[database]/tables[BENCH]/indexes[BENCH_PK] columns ID"
+    "\nset /clusters[cluster]/databases[database]/tables[BENCH]/indexes[BENCH_PK]/columns[ID] index 0"
+    "\nset $PREV column /clusters[cluster]/databases[database]/tables[BENCH]/columns[ID]"
+    "\nadd /clusters[cluster]/databases[database]/tables[BENCH] constraints BENCH_PK_CONSTRAINT"
+    "\nset /clusters[cluster]/databases[database]/tables[BENCH]/constraints[BENCH_PK_CONSTRAINT] type 4"
+    "\nset $PREV oncommit \"\""
+    "\nset $PREV index /clusters[cluster]/databases[database]/tables[BENCH]/indexes[BENCH_PK]"
+    "\nset $PREV foreignkeytable null";
+
+#define TUPLE_VALUE(type, size, index, name) \
+    "{\"TYPE\":\"VALUE_TUPLE\",\"VALUE_TYPE\":\"" type "\",\"VALUE_SIZE\":" #size "," \
+    "\"COLUMN_IDX\":" #index ",\"TABLE_NAME\":\"BENCH\",\"COLUMN_NAME\":\"" name "\"}"
+
+#define PROJECT_ID_VAL \
+    "\"INLINE_NODES\":[{\"ID\":0,\"PLAN_NODE_TYPE\":\"PROJECTION\",\"INLINE_NODES\":[]," \
+    "\"CHILDREN_IDS\":[],\"PARENT_IDS\":[],\"OUTPUT_SCHEMA\":[" \
+    "{\"COLUMN_NAME\":\"ID\",\"EXPRESSION\":" TUPLE_VALUE("BIGINT", 8, 0, "ID") "}," \
+    "{\"COLUMN_NAME\":\"VAL\",\"EXPRESSION\":" TUPLE_VALUE("BIGINT", 8, 2, "VAL") "}]}]"
+
+// SELECT ID, VAL FROM BENCH WHERE VAL > ?, as a sequential scan
+static const char *seqScanPlan =
+    "{\"PLAN_NODES\":["
+    "{\"ID\":1,\"PLAN_NODE_TYPE\":\"SEND\",\"INLINE_NODES\":[],\"CHILDREN_IDS\":[2],\"PARENT_IDS\":[]},"
+    "{\"ID\":2,\"PLAN_NODE_TYPE\":\"SEQSCAN\"," PROJECT_ID_VAL ",\"CHILDREN_IDS\":[],\"PARENT_IDS\":[1],"
+    "\"PREDICATE\":{\"TYPE\":\"COMPARE_GREATERTHAN\",\"VALUE_TYPE\":\"BIGINT\",\"VALUE_SIZE\":8,"
+    "\"LEFT\":" TUPLE_VALUE("BIGINT", 8, 2, "VAL") ","
+    "\"RIGHT\":{\"TYPE\":\"VALUE_PARAMETER\",\"VALUE_TYPE\":\"BIGINT\",\"VALUE_SIZE\":8,\"PARAM_IDX\":0}},"
+    "\"TARGET_TABLE_NAME\":\"BENCH\"}],"
+    "\"PARAMETERS\":[[0,\"BIGINT\"]],\"EXECUTE_LIST\":[2,1]}";
+
+// SELECT ID, VAL FROM BENCH WHERE GRP = ?
+static const char *indexScanPlan =
+    "{\"PLAN_NODES\":["
+    "{\"ID\":1,\"PLAN_NODE_TYPE\":\"SEND\",\"INLINE_NODES\":[],\"CHILDREN_IDS\":[2],\"PARENT_IDS\":[]},"
+    "{\"ID\":2,\"PLAN_NODE_TYPE\":\"INDEXSCAN\"," PROJECT_ID_VAL ",\"CHILDREN_IDS\":[],\"PARENT_IDS\":[1],"
+    "\"PREDICATE\":null,\"TARGET_TABLE_NAME\":\"BENCH\",\"KEY_ITERATE\":false,\"LOOKUP_TYPE\":\"EQ\","
+    "\"SORT_DIRECTION\":\"INVALID\",\"TARGET_INDEX_NAME\":\"BENCH_GRP\","
+    "\"END_EXPRESSION\":{\"TYPE\":\"COMPARE_EQUAL\",\"VALUE_TYPE\":\"BIGINT\",\"VALUE_SIZE\":8,"
+    "\"LEFT\":" TUPLE_VALUE("INTEGER", 4, 1, "GRP") ","
+    "\"RIGHT\":{\"TYPE\":\"VALUE_PARAMETER\",\"VALUE_TYPE\":\"INTEGER\",\"VALUE_SIZE\":4,\"PARAM_IDX\":0}},"
+    "\"SEARCHKEY_EXPRESSIONS\":[{\"TYPE\":\"VALUE_PARAMETER\",\"VALUE_TYPE\":\"INTEGER\",\"VALUE_SIZE\":4,\"PARAM_IDX\":0}]}],"
+    "\"PARAMETERS\":[[0,\"INTEGER\"]],\"EXECUTE_LIST\":[2,1]}";
+
+// SELECT GRP, SUM(VAL), COUNT(*) FROM BENCH GROUP BY GRP, over a sequential scan
+static const char *hashAggregatePlan =
+    "{\"PLAN_NODES\":["
+    "{\"ID\":1,\"PLAN_NODE_TYPE\":\"SEND\",\"INLINE_NODES\":[],\"CHILDREN_IDS\":[2],\"PARENT_IDS\":[]},"
+    "{\"ID\":2,\"PLAN_NODE_TYPE\":\"HASHAGGREGATE\",\"INLINE_NODES\":[],\"CHILDREN_IDS\":[3],\"PARENT_IDS\":[1],"
+    "\"OUTPUT_SCHEMA\":["
+    "{\"COLUMN_NAME\":\"GRP\",\"EXPRESSION\":" TUPLE_VALUE("INTEGER", 4, 0, "GRP") "},"
+    "{\"COLUMN_NAME\":\"C2\",\"EXPRESSION\":" TUPLE_VALUE("BIGINT", 8, 1, "") "},"
+    "{\"COLUMN_NAME\":\"C3\",\"EXPRESSION\":" TUPLE_VALUE("BIGINT", 8, 2, "") "}],"
+    "\"AGGREGATE_COLUMNS\":["
+    "{\"AGGREGATE_TYPE\":\"AGGREGATE_SUM\",\"AGGREGATE_DISTINCT\":0,\"AGGREGATE_OUTPUT_COLUMN\":1,"
+    "\"AGGREGATE_EXPRESSION\":" TUPLE_VALUE("BIGINT", 8, 1, "VAL") "},"
+    "{\"AGGREGATE_TYPE\":\"AGGREGATE_COUNT_STAR\",\"AGGREGATE_DISTINCT\":0,\"AGGREGATE_OUTPUT_COLUMN\":2}],"
+    "\"GROUPBY_EXPRESSIONS\":[" TUPLE_VALUE("INTEGER", 4, 0, "GRP") "]},"
+    "{\"ID\":3,\"PLAN_NODE_TYPE\":\"SEQSCAN\",\"INLINE_NODES\":[{\"ID\":0,\"PLAN_NODE_TYPE\":\"PROJECTION\","
+    "\"INLINE_NODES\":[],\"CHILDREN_IDS\":[],\"PARENT_IDS\":[],\"OUTPUT_SCHEMA\":["
+    "{\"COLUMN_NAME\":\"GRP\",\"EXPRESSION\":" TUPLE_VALUE("INTEGER", 4, 1, "GRP") "},"
+    "{\"COLUMN_NAME\":\"VAL\",\"EXPRESSION\":" TUPLE_VALUE("BIGINT", 8, 2, "VAL") "}]}],"
+    "\"CHILDREN_IDS\":[],\"PARENT_IDS\":[2],\"PREDICATE\":null,\"TARGET_TABLE_NAME\":\"BENCH\"}],"
+    "\"PARAMETERS\":[],\"EXECUTE_LIST\":[3,2,1]}";
+
+#define ORDERBY_PLAN(inline_limit) \
+    "{\"PLAN_NODES\":[" \
+    "{\"ID\":1,\"PLAN_NODE_TYPE\":\"SEND\",\"INLINE_NODES\":[],\"CHILDREN_IDS\":[2],\"PARENT_IDS\":[]}," \
+    "{\"ID\":2,\"PLAN_NODE_TYPE\":\"ORDERBY\",\"INLINE_NODES\":[" inline_limit "]," \
+    "\"CHILDREN_IDS\":[3],\"PARENT_IDS\":[1],\"SORT_COLUMNS\":[" \
+    "{\"SORT_DIRECTION\":\"DESC\",\"SORT_EXPRESSION\":" TUPLE_VALUE("BIGINT", 8, 1, "VAL") "}]}," \
+    "{\"ID\":3,\"PLAN_NODE_TYPE\":\"SEQSCAN\"," PROJECT_ID_VAL ",\"CHILDREN_IDS\":[],\"PARENT_IDS\":[2]," \
+    "\"PREDICATE\":null,\"TARGET_TABLE_NAME\":\"BENCH\"}]," \
+    "\"PARAMETERS\":[],\"EXECUTE_LIST\":[3,2,1]}"
+
+// SELECT ID, VAL FROM BENCH ORDER BY VAL DESC LIMIT 20
+static const char *orderByLimitPlan = ORDERBY_PLAN(
+    "{\"ID\":4,\"PLAN_NODE_TYPE\":\"LIMIT\",\"INLINE_NODES\":[],\"CHILDREN_IDS\":[],\"PARENT_IDS\":[],"
+    "\"LIMIT\":20,\"OFFSET\":0}");
+
+// SELECT ID, VAL FROM BENCH ORDER BY VAL DESC
+static const char *orderByPlan = ORDERBY_PLAN("");
+
+enum {
+    SEQSCAN_FRAGMENT = 1,
+    INDEXSCAN_FRAGMENT,
+    HASHAGGREGATE_FRAGMENT,
+    ORDERBY_LIMIT_FRAGMENT,
+    ORDERBY_FRAGMENT
+};
+
+/**
+ * An engine with the BENCH table filled with NUM_OF_TUPLES rows spread evenly
+ * over NUM_OF_GROUPS groups. Results are per fragment execution, including
+ * the serialization of the result table.
+ */
+class ExecutorBenchmark : public Benchmark, public PlanFixture {
+public:
+    ExecutorBenchmark() : PlanFixture(catalogPayload, BUFFER_SIZE), m_params(1) {
+        addPlan(SEQSCAN_FRAGMENT, seqScanPlan);
+        addPlan(INDEXSCAN_FRAGMENT, indexScanPlan);
+        addPlan(HASHAGGREGATE_FRAGMENT, hashAggregatePlan);
+        addPlan(ORDERBY_LIMIT_FRAGMENT, orderByLimitPlan);
+        addPlan(ORDERBY_FRAGMENT, orderByPlan);
+
+        Table *table = m_engine->getTable("BENCH");
+        TableTuple &tuple = table->tempTuple();
+        for (int64_t id = 0; id < NUM_OF_TUPLES; id++) {
+            tuple.setNValue(0, ValueFactory::getBigIntValue(id));
+            tuple.setNValue(1, ValueFactory::getIntegerValue((int32_t)(id % NUM_OF_GROUPS)));
+            tuple.setNValue(2, ValueFactory::getBigIntValue((id * 7919) % NUM_OF_TUPLES));
+            table->insertTuple(tuple);
+        }
+    }
+
+    int64_t execute(int64_t fragmentId, int executions) {
+        for (int ii = 0; ii < executions; ii++) {
+            if (executeFragment(fragmentId, m_params) != ENGINE_ERRORCODE_SUCCESS) {
+                return 0;
+            }
+        }
+        return executions;
+    }
+
+protected:
+    NValueArray m_params;
+};
+
+// selects 1% of the rows
+BENCHMARK_F(ExecutorBenchmark, SeqScan) {
+    m_params[0] = ValueFactory::getBigIntValue(NUM_OF_TUPLES - NUM_OF_TUPLES / 100);
+    return execute(SEQSCAN_FRAGMENT, 20);
+}
+
+// selects one group, 1% of the rows
+BENCHMARK_F(ExecutorBenchmark, IndexScan) {
+    m_params[0] = ValueFactory::getIntegerValue(NUM_OF_GROUPS / 2);
+    return execute(INDEXSCAN_FRAGMENT, 200);
+}
+
+BENCHMARK_F(ExecutorBenchmark, HashAggregate) {
+    return execute(HASHAGGREGATE_FRAGMENT, 10);
+}
+
+// top 20 of all the rows
+BENCHMARK_F(ExecutorBenchmark, OrderByLimit) {
+    return execute(ORDERBY_LIMIT_FRAGMENT, 10);
+}
+
+BENCHMARK_F(ExecutorBenchmark, OrderBy) {
+    return execute(ORDERBY_FRAGMENT, 2);
+}
+
+int main(int argc, char** argv) {
+    return BenchmarkSuite::globalInstance()->runAll(argc, argv);
+}
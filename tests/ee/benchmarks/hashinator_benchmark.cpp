@@ -0,0 +1,115 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include "benchmarks/benchmark.h"
+#include "common/serializeio.h"
+#include "common/ElasticHashinator.h"
+#include "common/NValue.hpp"
+#include "common/ValueFactory.hpp"
+#include "murmur3/MurmurHash3.h"
+
+#include <boost/scoped_array.hpp>
+#include <boost/scoped_ptr.hpp>
+#include <vector>
+
+using namespace voltdb;
+
+#define NUM_OF_PARTITIONS 48
+#define TOKENS_PER_PARTITION 256
+#define NUM_OF_LOOKUPS 1000000
+
+/**
+ * Hashing BIGINT keys onto an elastic ring of NUM_OF_PARTITIONS * TOKENS_PER_PARTITION
+ * random tokens, through the hashinator's bucket lookup and through the btree
+ * floor search it replaced. Both pay for the murmur hash of the key.
+ */
+class HashinatorLookup : public Benchmark {
+public:
+    HashinatorLookup() {
+        srand(0);
+        for (int p = 0; p < NUM_OF_PARTITIONS; p++) {
+            for (int t = 0; t < TOKENS_PER_PARTITION; t++) {
+                m_ring[randomLong()] = p;
+            }
+        }
+
+        const int32_t size = static_cast<int32_t>(4 + (12 * m_ring.size()));
+        boost::scoped_array<char> config(new char[size]);
+        ReferenceSerializeOutput output(config.get(), size);
+        output.writeInt(static_cast<int32_t>(m_ring.size()));
+        for (stx::btree_map<int64_t, int32_t>::const_iterator i = m_ring.begin(); i != m_ring.end(); i++) {
+            output.writeLong(i.key());
+            output.writeInt(i.data());
+        }
+        m_hashinator.reset(ElasticHashinator::newInstance(config.get()));
+
+        for (int i = 0; i < NUM_OF_LOOKUPS; i++) {
+            m_keys.push_back(ValueFactory::getBigIntValue(randomLong()));
+        }
+    }
+
+    int64_t bucket() {
+        int64_t sum = 0;
+        for (int i = 0; i < NUM_OF_LOOKUPS; i++) {
+            sum += m_hashinator->hashinate(m_keys[i]);
+        }
+        consume(sum);
+        return NUM_OF_LOOKUPS;
+    }
+
+    int64_t btree() {
+        int64_t sum = 0;
+        for (int i = 0; i < NUM_OF_LOOKUPS; i++) {
+            const int64_t hash = MurmurHash3_x64_128(ValuePeeker::peekAsRawInt64(m_keys[i]));
+            stx::btree_map<int64_t, int32_t>::const_iterator it = m_ring.upper_bound(hash);
+            if (it == m_ring.begin()) {
+                sum += m_ring.rbegin().data();
+            } else {
+                it--;
+                sum += it.data();
+            }
+        }
+        consume(sum);
+        return NUM_OF_LOOKUPS;
+    }
+
+private:
+    static int64_t randomLong() {
+        // shifted as unsigned, shifting into the sign bit of a signed value is undefined
+        const uint64_t value = (static_cast<uint64_t>(rand()) << 62) ^
+                               (static_cast<uint64_t>(rand()) << 31) ^
+                               static_cast<uint64_t>(rand());
+        return static_cast<int64_t>(value);
+    }
+
+    stx::btree_map<int64_t, int32_t> m_ring;
+    boost::scoped_ptr<TheHashinator> m_hashinator;
+    std::vector<NValue> m_keys;
+};
+
+BENCHMARK_F(HashinatorLookup, Bucket) { return bucket(); }
+BENCHMARK_F(HashinatorLookup, BtreeFloor) { return btree(); }
+
+int main(int argc, char** argv) {
+    return BenchmarkSuite::globalInstance()->runAll(argc, argv);
+}
@@ -0,0 +1,196 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include "benchmarks/benchmark.h"
+#include "common/TupleSchema.h"
+#include "common/types.h"
+#include "common/NValue.hpp"
+#include "common/ValueFactory.hpp"
+#include "common/tabletuple.h"
+#include "common/ThreadLocalPool.h"
+#include "indexes/tableindex.h"
+#include "indexes/tableindexfactory.h"
+
+#include <algorithm>
+#include <vector>
+#include <boost/scoped_array.hpp>
+
+using namespace voltdb;
+
+#define NUM_OF_KEYS 100000
+
+/**
+ * An index over tuples laid out in a flat array, with no table behind it, so
+ * the numbers are those of the index structure and its key type. A BIGINT key
+ * picks IntsKey, a VARCHAR key picks GenericKey. Keys are inserted in random
+ * order and the index is left populated after every round.
+ */
+class IndexBenchmark : public Benchmark {
+public:
+    IndexBenchmark(TableIndexType type, ValueType keyType) {
+        std::vector<ValueType> columnTypes(1, keyType);
+        std::vector<int32_t> columnLengths(1, keyType == VALUE_TYPE_VARCHAR ?
+                                           32 : NValue::getTupleStorageSize(keyType));
+        std::vector<bool> columnAllowNull(1, false);
+        m_schema = TupleSchema::createTupleSchema(columnTypes, columnLengths, columnAllowNull, true);
+
+        std::vector<int> columnIndices(1, 0);
+        TableIndexScheme scheme("BenchmarkIndex", type, columnIndices,
+                                TableIndex::simplyIndexColumns(), true, true, m_schema);
+        m_index = TableIndexFactory::getInstance(scheme);
+
+        std::vector<int64_t> values;
+        for (int64_t ii = 0; ii < NUM_OF_KEYS; ii++) {
+            values.push_back(ii * 7);
+        }
+        srand(0);
+        std::random_shuffle(values.begin(), values.end());
+
+        TableTuple tuple(m_schema);
+        m_tupleLength = tuple.tupleLength();
+        m_tupleStorage.reset(new char[m_tupleLength * NUM_OF_KEYS]);
+        memset(m_tupleStorage.get(), 0, m_tupleLength * NUM_OF_KEYS);
+        TableTuple key(m_index->getKeySchema());
+        m_keyLength = m_index->getKeySchema()->tupleLength();
+        m_keyStorage.reset(new char[m_keyLength * NUM_OF_KEYS]);
+        for (int ii = 0; ii < NUM_OF_KEYS; ii++) {
+            NValue value = keyValue(keyType, values[ii]);
+            tuple.move(m_tupleStorage.get() + m_tupleLength * ii);
+            tuple.setNValue(0, value);
+            key.moveNoHeader(m_keyStorage.get() + m_keyLength * ii);
+            key.setNValue(0, value);
+            value.free();
+            m_index->addEntry(&tuple);
+        }
+    }
+
+    ~IndexBenchmark() {
+        delete m_index;
+        TupleSchema::freeTupleSchema(m_schema);
+    }
+
+    static NValue keyValue(ValueType keyType, int64_t value) {
+        if (keyType == VALUE_TYPE_VARCHAR) {
+            char buffer[32];
+            snprintf(buffer, sizeof(buffer), "key-%020lld", (long long)value);
+            return ValueFactory::getStringValue(buffer);
+        }
+        return ValueFactory::getBigIntValue(value);
+    }
+
+    int64_t insertAll() {
+        TableTuple tuple(m_schema);
+        for (int ii = 0; ii < NUM_OF_KEYS; ii++) {
+            tuple.move(m_tupleStorage.get() + m_tupleLength * ii);
+            m_index->addEntry(&tuple);
+        }
+        return NUM_OF_KEYS;
+    }
+
+    int64_t deleteAll() {
+        TableTuple tuple(m_schema);
+        for (int ii = 0; ii < NUM_OF_KEYS; ii++) {
+            tuple.move(m_tupleStorage.get() + m_tupleLength * ii);
+            m_index->deleteEntry(&tuple);
+        }
+        return NUM_OF_KEYS;
+    }
+
+    int64_t insert() {
+        stopTimer();
+        deleteAll();
+        startTimer();
+        return insertAll();
+    }
+
+    int64_t remove() {
+        int64_t ops = deleteAll();
+        stopTimer();
+        insertAll();
+        return ops;
+    }
+
+    int64_t lookup() {
+        TableTuple key(m_index->getKeySchema());
+        int64_t found = 0;
+        for (int ii = 0; ii < NUM_OF_KEYS; ii++) {
+            key.moveNoHeader(m_keyStorage.get() + m_keyLength * ii);
+            if (m_index->moveToKey(&key)) {
+                found += !m_index->nextValueAtKey().isNullTuple();
+            }
+        }
+        consume(found);
+        return NUM_OF_KEYS;
+    }
+
+    int64_t scan() {
+        int64_t count = 0;
+        m_index->moveToEnd(true);
+        while (!m_index->nextValue().isNullTuple()) {
+            count++;
+        }
+        return count;
+    }
+
+private:
+    ThreadLocalPool m_pool;
+    TupleSchema *m_schema;
+    TableIndex *m_index;
+    int m_tupleLength;
+    int m_keyLength;
+    boost::scoped_array<char> m_tupleStorage;
+    boost::scoped_array<char> m_keyStorage;
+};
+
+class TreeIntsKey : public IndexBenchmark {
+public:
+    TreeIntsKey() : IndexBenchmark(BALANCED_TREE_INDEX, VALUE_TYPE_BIGINT) {}
+};
+
+class HashIntsKey : public IndexBenchmark {
+public:
+    HashIntsKey() : IndexBenchmark(HASH_TABLE_INDEX, VALUE_TYPE_BIGINT) {}
+};
+
+class TreeGenericKey : public IndexBenchmark {
+public:
+    TreeGenericKey() : IndexBenchmark(BALANCED_TREE_INDEX, VALUE_TYPE_VARCHAR) {}
+};
+
+BENCHMARK_F(TreeIntsKey, Insert) { return insert(); }
+BENCHMARK_F(TreeIntsKey, Delete) { return remove(); }
+BENCHMARK_F(TreeIntsKey, Lookup) { return lookup(); }
+BENCHMARK_F(TreeIntsKey, Scan) { return scan(); }
+
+BENCHMARK_F(HashIntsKey, Insert) { return insert(); }
+BENCHMARK_F(HashIntsKey, Delete) { return remove(); }
+BENCHMARK_F(HashIntsKey, Lookup) { return lookup(); }
+
+BENCHMARK_F(TreeGenericKey, Insert) { return insert(); }
+BENCHMARK_F(TreeGenericKey, Delete) { return remove(); }
+BENCHMARK_F(TreeGenericKey, Lookup) { return lookup(); }
+BENCHMARK_F(TreeGenericKey, Scan) { return scan(); }
+
+int main(int argc, char** argv) {
+    return BenchmarkSuite::globalInstance()->runAll(argc, argv);
+}
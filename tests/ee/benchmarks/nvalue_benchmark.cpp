@@ -0,0 +1,130 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include "benchmarks/benchmark.h"
+#include "common/types.h"
+#include "common/NValue.hpp"
+#include "common/ValueFactory.hpp"
+#include "common/ThreadLocalPool.h"
+
+#include <vector>
+
+using namespace voltdb;
+
+#define NUM_OF_VALUES 1024
+#define NUM_OF_PASSES 1000
+
+/**
+ * NUM_OF_VALUES values of one type, compared and hashed pairwise in
+ * NUM_OF_PASSES passes over the array.
+ */
+class NValueBenchmark : public Benchmark {
+public:
+    NValueBenchmark(ValueType type) {
+        srand(0);
+        for (int ii = 0; ii < NUM_OF_VALUES; ii++) {
+            int64_t value = rand() % 100000;
+            char buffer[64];
+            switch (type) {
+            case VALUE_TYPE_VARCHAR:
+                snprintf(buffer, sizeof(buffer), "value-%012lld", (long long)value);
+                m_values.push_back(ValueFactory::getStringValue(buffer));
+                break;
+            case VALUE_TYPE_DECIMAL:
+                snprintf(buffer, sizeof(buffer), "%lld.%04lld", (long long)value, (long long)(value % 9973));
+                m_values.push_back(ValueFactory::getDecimalValueFromString(buffer));
+                break;
+            case VALUE_TYPE_DOUBLE:
+                m_values.push_back(ValueFactory::getDoubleValue((double)value / 7));
+                break;
+            default:
+                m_values.push_back(ValueFactory::getBigIntValue(value));
+            }
+        }
+    }
+
+    ~NValueBenchmark() {
+        for (int ii = 0; ii < NUM_OF_VALUES; ii++) {
+            m_values[ii].free();
+        }
+    }
+
+    int64_t compare() {
+        int64_t result = 0;
+        for (int pass = 0; pass < NUM_OF_PASSES; pass++) {
+            for (int ii = 1; ii < NUM_OF_VALUES; ii++) {
+                result += m_values[ii - 1].compare(m_values[ii]);
+            }
+        }
+        consume(result);
+        return (int64_t)NUM_OF_PASSES * (NUM_OF_VALUES - 1);
+    }
+
+    int64_t hash() {
+        std::size_t seed = 0;
+        for (int pass = 0; pass < NUM_OF_PASSES; pass++) {
+            for (int ii = 0; ii < NUM_OF_VALUES; ii++) {
+                m_values[ii].hashCombine(seed);
+            }
+        }
+        consume((int64_t)seed);
+        return (int64_t)NUM_OF_PASSES * NUM_OF_VALUES;
+    }
+
+private:
+    ThreadLocalPool m_pool;
+    std::vector<NValue> m_values;
+};
+
+class BigIntValue : public NValueBenchmark {
+public:
+    BigIntValue() : NValueBenchmark(VALUE_TYPE_BIGINT) {}
+};
+
+class DoubleValue : public NValueBenchmark {
+public:
+    DoubleValue() : NValueBenchmark(VALUE_TYPE_DOUBLE) {}
+};
+
+class DecimalValue : public NValueBenchmark {
+public:
+    DecimalValue() : NValueBenchmark(VALUE_TYPE_DECIMAL) {}
+};
+
+class VarcharValue : public NValueBenchmark {
+public:
+    VarcharValue() : NValueBenchmark(VALUE_TYPE_VARCHAR) {}
+};
+
+BENCHMARK_F(BigIntValue, Compare) { return compare(); }
+BENCHMARK_F(BigIntValue, Hash) { return hash(); }
+BENCHMARK_F(DoubleValue, Compare) { return compare(); }
+BENCHMARK_F(DoubleValue, Hash) { return hash(); }
+BENCHMARK_F(DecimalValue, Compare) { return compare(); }
+BENCHMARK_F(DecimalValue, Hash) { return hash(); }
+BENCHMARK_F(VarcharValue, Compare) { return compare(); }
+BENCHMARK_F(VarcharValue, Hash) { return hash(); }
+
+int main(int argc, char** argv) {
+    return BenchmarkSuite::globalInstance()->runAll(argc, argv);
+}
@@ -0,0 +1,180 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include "benchmarks/benchmark.h"
+#include "common/TupleSchema.h"
+#include "common/types.h"
+#include "common/NValue.hpp"
+#include "common/ValueFactory.hpp"
+#include "common/tabletuple.h"
+#include "execution/VoltDBEngine.h"
+#include "indexes/tableindex.h"
+#include "indexes/tableindexfactory.h"
+#include "storage/persistenttable.h"
+#include "storage/tablefactory.h"
+
+#include <vector>
+#include <string>
+#include <boost/scoped_array.hpp>
+
+using namespace voltdb;
+
+#define NUM_OF_TUPLES 200000
+// small blocks so the table spans enough of them for compaction to kick in
+#define BLOCK_SIZE (64 * 1024)
+
+/**
+ * A persistent table with a tree primary key on a BIGINT column and a
+ * non-unique tree index on an INTEGER column, filled with NUM_OF_TUPLES rows
+ * before every round.
+ */
+class TableBenchmark : public Benchmark {
+public:
+    TableBenchmark() {
+        m_engine = new VoltDBEngine();
+        int partitionCount = 1;
+        m_engine->initialize(1, 1, 0, 0, "", DEFAULT_TEMP_TABLE_MEMORY, HASHINATOR_LEGACY, (char*)&partitionCount);
+
+        std::vector<std::string> columnNames;
+        std::vector<ValueType> columnTypes;
+        std::vector<int32_t> columnLengths;
+        std::vector<bool> columnAllowNull;
+        const char *names[] = { "ID", "GRP", "VAL1", "VAL2", "VAL3" };
+        for (int ii = 0; ii < 5; ii++) {
+            ValueType type = ii == 1 ? VALUE_TYPE_INTEGER : VALUE_TYPE_BIGINT;
+            columnNames.push_back(names[ii]);
+            columnTypes.push_back(type);
+            columnLengths.push_back(NValue::getTupleStorageSize(type));
+            columnAllowNull.push_back(false);
+        }
+        TupleSchema *schema = TupleSchema::createTupleSchema(columnTypes, columnLengths, columnAllowNull, true);
+
+        std::vector<int> pkeyColumns(1, 0);
+        TableIndexScheme pkeyScheme("BENCH_PK", BALANCED_TREE_INDEX, pkeyColumns,
+                                    TableIndex::simplyIndexColumns(), true, true, schema);
+        std::vector<int> grpColumns(1, 1);
+        TableIndexScheme grpScheme("BENCH_GRP", BALANCED_TREE_INDEX, grpColumns,
+                                   TableIndex::simplyIndexColumns(), false, true, schema);
+
+        m_table = dynamic_cast<PersistentTable*>(
+            TableFactory::getPersistentTable(0, "BENCH", schema, columnNames, 0,
+                                             false, false, BLOCK_SIZE));
+        TableIndex *pkeyIndex = TableIndexFactory::getInstance(pkeyScheme);
+        m_table->addIndex(pkeyIndex);
+        m_table->setPrimaryKeyIndex(pkeyIndex);
+        m_table->addIndex(TableIndexFactory::getInstance(grpScheme));
+
+        m_keyStorage.reset(new char[pkeyIndex->getKeySchema()->tupleLength()]);
+        fill(0, 1);
+    }
+
+    ~TableBenchmark() {
+        delete m_table;
+        delete m_engine;
+    }
+
+    // insert the rows from first on with a stride of step
+    int64_t fill(int64_t first, int64_t step) {
+        TableTuple &tuple = m_table->tempTuple();
+        int64_t count = 0;
+        for (int64_t id = first; id < NUM_OF_TUPLES; id += step) {
+            tuple.setNValue(0, ValueFactory::getBigIntValue(id));
+            tuple.setNValue(1, ValueFactory::getIntegerValue((int32_t)(id % 1000)));
+            tuple.setNValue(2, ValueFactory::getBigIntValue(id * 3));
+            tuple.setNValue(3, ValueFactory::getBigIntValue(id * 5));
+            tuple.setNValue(4, ValueFactory::getBigIntValue(id * 7));
+            m_table->insertTuple(tuple);
+            count++;
+        }
+        return count;
+    }
+
+    // delete the rows from first on with a stride of step, looked up by primary key
+    int64_t drain(int64_t first, int64_t step) {
+        TableIndex *pkeyIndex = m_table->primaryKeyIndex();
+        TableTuple key(pkeyIndex->getKeySchema());
+        key.moveNoHeader(m_keyStorage.get());
+        int64_t count = 0;
+        for (int64_t id = first; id < NUM_OF_TUPLES; id += step) {
+            key.setNValue(0, ValueFactory::getBigIntValue(id));
+            if (pkeyIndex->moveToKey(&key)) {
+                TableTuple tuple = pkeyIndex->nextValueAtKey();
+                m_table->deleteTuple(tuple, true);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // Put back the rows in key order. Deleted slots are reused in any order, so a
+    // plain fill would leave the rows of every other key in their own blocks.
+    void refill() {
+        drain(0, 1);
+        fill(0, 1);
+    }
+
+protected:
+    VoltDBEngine *m_engine;
+    PersistentTable *m_table;
+    boost::scoped_array<char> m_keyStorage;
+};
+
+BENCHMARK_F(TableBenchmark, Insert) {
+    stopTimer();
+    drain(0, 1);
+    startTimer();
+    return fill(0, 1);
+}
+
+BENCHMARK_F(TableBenchmark, Delete) {
+    int64_t count = drain(0, 1);
+    stopTimer();
+    fill(0, 1);
+    return count;
+}
+
+// Per tuple slot freed: half the rows are deleted, leaving every block half
+// empty for the compaction that follows the release of an undo quantum.
+BENCHMARK_F(TableBenchmark, ForcedCompaction) {
+    stopTimer();
+    int64_t count = drain(0, 2);
+    startTimer();
+    m_table->notifyQuantumRelease();
+    stopTimer();
+    refill();
+    return count;
+}
+
+BENCHMARK_F(TableBenchmark, IdleCompaction) {
+    stopTimer();
+    int64_t count = drain(0, 2);
+    startTimer();
+    m_table->doIdleCompaction();
+    stopTimer();
+    refill();
+    return count;
+}
+
+int main(int argc, char** argv) {
+    return BenchmarkSuite::globalInstance()->runAll(argc, argv);
+}
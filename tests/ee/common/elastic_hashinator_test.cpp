@@ -26,11 +26,54 @@
 
 #include <cfloat>
 #include <limits>
+#include <map>
+#include <vector>
 
 using namespace std;
 using namespace voltdb;
 
 class ElasticHashinatorTest : public Test {
+public:
+    typedef std::map<int64_t, int32_t> Ring;
+
+    static int64_t randomLong() {
+        return (static_cast<int64_t>(rand()) << 62) ^ (static_cast<int64_t>(rand()) << 31) ^ rand();
+    }
+
+    /*
+     * Serialize the ring in the format ElasticHashinator::newInstance expects.
+     * Caller owns the returned buffer.
+     */
+    static char *serializeRing(const Ring &ring) {
+        const int32_t size = static_cast<int32_t>(4 + (12 * ring.size()));
+        char *config = new char[size];
+        ReferenceSerializeOutput output(config, size);
+        output.writeInt(static_cast<int32_t>(ring.size()));
+        for (Ring::const_iterator i = ring.begin(); i != ring.end(); i++) {
+            output.writeLong(i->first);
+            output.writeInt(i->second);
+        }
+        return config;
+    }
+
+    static int32_t floorPartition(const Ring &ring, int64_t hash) {
+        Ring::const_iterator i = ring.upper_bound(hash);
+        if (i == ring.begin()) {
+            return ring.rbegin()->second;
+        }
+        i--;
+        return i->second;
+    }
+
+    static Ring randomRing(int partitions, int tokensPerPartition) {
+        Ring ring;
+        for (int p = 0; p < partitions; p++) {
+            for (int t = 0; t < tokensPerPartition; t++) {
+                ring[randomLong()] = p;
+            }
+        }
+        return ring;
+    }
 };
 
 TEST_F(ElasticHashinatorTest, TestMinMaxToken)
@@ -78,6 +121,51 @@ TEST_F(ElasticHashinatorTest, TestMinMaxToken)
     EXPECT_EQ( 2, hashinator->partitionForToken(std::numeric_limits<int64_t>::max() - 1));
 }
 
+/*
+ * Compare the bucket lookup against a plain floor search of the ring, including
+ * rings where all the tokens crowd into a few buckets and the lookup falls back
+ * to a binary search.
+ */
+TEST_F(ElasticHashinatorTest, TestBucketLookupMatchesRing)
+{
+    srand(0);
+    std::vector<Ring> rings;
+    rings.push_back(randomRing(1, 1));
+    rings.push_back(randomRing(3, 6));
+    rings.push_back(randomRing(24, 256));
+    rings.push_back(randomRing(200, 256));
+    Ring crowded;
+    for (int i = 0; i < 1000; i++) {
+        crowded[std::numeric_limits<int64_t>::min() + i * 3] = i % 4;
+        crowded[i * 7] = i % 4;
+        crowded[std::numeric_limits<int64_t>::max() - i * 5] = i % 4;
+    }
+    rings.push_back(crowded);
+
+    for (size_t r = 0; r < rings.size(); r++) {
+        const Ring &ring = rings[r];
+        boost::scoped_array<char> config(serializeRing(ring));
+        boost::scoped_ptr<ElasticHashinator> hashinator(ElasticHashinator::newInstance(config.get()));
+
+        std::vector<int64_t> hashes;
+        for (Ring::const_iterator i = ring.begin(); i != ring.end(); i++) {
+            hashes.push_back(i->first);
+            hashes.push_back(i->first - 1);
+            hashes.push_back(i->first + 1);
+        }
+        hashes.push_back(std::numeric_limits<int64_t>::min());
+        hashes.push_back(std::numeric_limits<int64_t>::max());
+        hashes.push_back(0);
+        for (int i = 0; i < 100000; i++) {
+            hashes.push_back(randomLong());
+        }
+
+        for (size_t i = 0; i < hashes.size(); i++) {
+            ASSERT_EQ(floorPartition(ring, hashes[i]), hashinator->partitionForToken(hashes[i]));
+        }
+    }
+}
+
 int main() {
     return TestSuite::globalInstance()->runAll();
 }
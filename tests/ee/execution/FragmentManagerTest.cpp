@@ -98,6 +98,109 @@ TEST_F(FragmentManagerTest, Basic) {
     ASSERT_TRUE(fragId == -7);
 }
 
+static boost::shared_ptr<int64_t> value(int64_t v) {
+    return boost::shared_ptr<int64_t>(new int64_t(v));
+}
+
+TEST_F(FragmentManagerTest, CacheEvictsLeastRecentlyUsed) {
+    voltdb::FragmentCache<int64_t> cache(3);
+
+    ASSERT_TRUE(cache.get(1) == NULL);
+    cache.insert(1, value(1), 10, 5);
+    cache.insert(2, value(2), 10, 5);
+    cache.insert(3, value(3), 10, 5);
+    ASSERT_EQ(1, *cache.get(1));
+
+    // 2 is the least recently used now
+    cache.insert(4, value(4), 10, 5);
+    ASSERT_EQ(3, cache.size());
+    ASSERT_TRUE(cache.get(2) == NULL);
+    ASSERT_EQ(1, *cache.get(1));
+    ASSERT_EQ(3, *cache.get(3));
+    ASSERT_EQ(4, *cache.get(4));
+
+    const FragmentCacheStats &stats = cache.stats();
+    ASSERT_EQ(4, stats.hits);
+    ASSERT_EQ(2, stats.misses);
+    ASSERT_EQ(1, stats.evictions);
+    ASSERT_EQ(20, stats.loadMicros);
+    ASSERT_EQ(3, stats.entries);
+    ASSERT_EQ(30, stats.bytes);
+}
+
+TEST_F(FragmentManagerTest, CacheBudget) {
+    voltdb::FragmentCache<int64_t> cache(100);
+    cache.setBudget(100);
+
+    cache.insert(1, value(1), 40, 0);
+    cache.insert(2, value(2), 40, 0);
+    cache.insert(3, value(3), 40, 0);
+    ASSERT_EQ(2, cache.size());
+    ASSERT_EQ(80, cache.stats().bytes);
+    ASSERT_TRUE(cache.get(1) == NULL);
+
+    // the entry just loaded stays even when it is over the budget alone
+    cache.insert(4, value(4), 500, 0);
+    ASSERT_EQ(1, cache.size());
+    ASSERT_EQ(4, *cache.get(4));
+    ASSERT_EQ(500, cache.stats().bytes);
+    ASSERT_EQ(3, cache.stats().evictions);
+
+    // lowering the budget evicts what no longer fits
+    cache.setBudget(0);
+    cache.insert(5, value(5), 500, 0);
+    ASSERT_EQ(2, cache.size());
+    cache.setBudget(600);
+    ASSERT_EQ(1, cache.size());
+    ASSERT_EQ(5, *cache.get(5));
+}
+
+TEST_F(FragmentManagerTest, CachePinning) {
+    voltdb::FragmentCache<int64_t> cache(2);
+    cache.setBudget(100);
+
+    std::vector<int64_t> pinned;
+    pinned.push_back(1);
+    pinned.push_back(2);
+    cache.setPinned(pinned);
+    ASSERT_TRUE(cache.isPinned(1));
+    ASSERT_FALSE(cache.isPinned(3));
+
+    // pinned entries neither count against the limits nor get evicted
+    cache.insert(1, value(1), 1000, 0);
+    cache.insert(2, value(2), 1000, 0);
+    cache.insert(3, value(3), 50, 0);
+    cache.insert(4, value(4), 50, 0);
+    cache.insert(5, value(5), 50, 0);
+    ASSERT_EQ(4, cache.size());
+    ASSERT_EQ(1, *cache.get(1));
+    ASSERT_EQ(2, *cache.get(2));
+    ASSERT_TRUE(cache.get(3) == NULL);
+    ASSERT_EQ(2, cache.stats().pinnedEntries);
+    ASSERT_EQ(2000, cache.stats().pinnedBytes);
+    ASSERT_EQ(2, cache.stats().entries);
+    ASSERT_EQ(100, cache.stats().bytes);
+
+    // a new catalog unpins 2 and pins the cached 4
+    pinned.clear();
+    pinned.push_back(1);
+    pinned.push_back(4);
+    cache.setPinned(pinned);
+    ASSERT_EQ(2, cache.stats().pinnedEntries);
+    ASSERT_EQ(1050, cache.stats().pinnedBytes);
+    ASSERT_EQ(1, cache.stats().entries);
+    ASSERT_EQ(1000, cache.stats().bytes);
+    ASSERT_EQ(3, cache.size());
+    ASSERT_EQ(2, *cache.get(2));
+    ASSERT_TRUE(cache.get(5) == NULL);
+
+    cache.clear();
+    ASSERT_EQ(0, cache.size());
+    ASSERT_EQ(0, cache.stats().pinnedBytes);
+    ASSERT_EQ(0, cache.stats().bytes);
+    ASSERT_TRUE(cache.isPinned(4));
+}
+
 int main() {
     assert(printf("Assertions are enabled\n"));
     return TestSuite::globalInstance()->runAll();
@@ -0,0 +1,231 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include "harness.h"
+#include "planfixture.h"
+#include "common/types.h"
+#include "common/NValue.hpp"
+#include "common/ValueFactory.hpp"
+#include "common/valuevector.h"
+#include "common/tabletuple.h"
+#include "common/serializeio.h"
+#include "storage/table.h"
+
+#include <algorithm>
+#include <map>
+#include <string>
+#include <utility>
+#include <vector>
+
+using namespace voltdb;
+using namespace std;
+
+#define NUM_OF_TUPLES 1000
+#define NUM_OF_VALUES 100
+#define BUFFER_SIZE (1024 * 1024)
+
+/*
+ * CREATE TABLE T (ID BIGINT NOT NULL, VAL BIGINT NOT NULL);
+ */
+static const char *catalogPayload =
+    "add / clusters cluster"
+    "\nadd /clusters[cluster] databases database"
+    "\nadd /clusters[cluster]/databases[database] tables T"
+    "\nset /clusters[cluster]/databases[database]/tables[T] isreplicated true"
+    "\nset $PREV partitioncolumn null"
+    "\nset $PREV estimatedtuplecount 0"
+    "\nset $PREV materializer null"
+    "\nset $PREV signature \"Tbb\""
+    "\nadd /clusters[cluster]/databases[database]/tables[T] columns ID"
+    "\nset /clusters[cluster]/databases[database]/tables[T]/columns[ID] index 0"
+    "\nset $PREV type 6"
+    "\nset $PREV size 8"
+    "\nset $PREV nullable false"
+    "\nset $PREV name \"ID\""
+    "\nadd /clusters[cluster]/databases[database]/tables[T] columns VAL"
+    "\nset /clusters[cluster]/databases[database]/tables[T]/columns[VAL] index 1"
+    "\nset $PREV type 6"
+    "\nset $PREV size 8"
+    "\nset $PREV nullable false"
+    "\nset $PREV name \"VAL\"";
+
+#define TUPLE_VALUE(table, index, name) \
+    "{\"TYPE\":\"VALUE_TUPLE\",\"VALUE_TYPE\":\"BIGINT\",\"VALUE_SIZE\":8," \
+    "\"COLUMN_IDX\":" #index ",\"TABLE_NAME\":\"" table "\",\"COLUMN_NAME\":\"" name "\"}"
+
+#define SCAN_NODE(parent) \
+    "{\"ID\":3,\"PLAN_NODE_TYPE\":\"SEQSCAN\",\"INLINE_NODES\":[{\"ID\":0,\"PLAN_NODE_TYPE\":\"PROJECTION\"," \
+    "\"INLINE_NODES\":[],\"CHILDREN_IDS\":[],\"PARENT_IDS\":[],\"OUTPUT_SCHEMA\":[" \
+    "{\"COLUMN_NAME\":\"ID\",\"EXPRESSION\":" TUPLE_VALUE("T", 0, "ID") "}," \
+    "{\"COLUMN_NAME\":\"VAL\",\"EXPRESSION\":" TUPLE_VALUE("T", 1, "VAL") "}]}]," \
+    "\"CHILDREN_IDS\":[],\"PARENT_IDS\":[" #parent "],\"PREDICATE\":null,\"TARGET_TABLE_NAME\":\"T\"}"
+
+// SELECT <key>, COUNT(*), SUM(<other>) FROM T GROUP BY <key>
+#define AGG_PLAN(key_idx, key, other_idx, other) \
+    "{\"PLAN_NODES\":[" \
+    "{\"ID\":1,\"PLAN_NODE_TYPE\":\"SEND\",\"INLINE_NODES\":[],\"CHILDREN_IDS\":[2],\"PARENT_IDS\":[]}," \
+    "{\"ID\":2,\"PLAN_NODE_TYPE\":\"HASHAGGREGATE\",\"INLINE_NODES\":[]," \
+    "\"CHILDREN_IDS\":[3],\"PARENT_IDS\":[1],\"OUTPUT_SCHEMA\":[" \
+    "{\"COLUMN_NAME\":\"" key "\",\"EXPRESSION\":" TUPLE_VALUE("T", key_idx, key) "}," \
+    "{\"COLUMN_NAME\":\"C1\",\"EXPRESSION\":" TUPLE_VALUE("VOLT_TEMP_TABLE", 1, "C1") "}," \
+    "{\"COLUMN_NAME\":\"C2\",\"EXPRESSION\":" TUPLE_VALUE("VOLT_TEMP_TABLE", 2, "C2") "}]," \
+    "\"AGGREGATE_COLUMNS\":[" \
+    "{\"AGGREGATE_TYPE\":\"AGGREGATE_COUNT_STAR\",\"AGGREGATE_DISTINCT\":0,\"AGGREGATE_OUTPUT_COLUMN\":1}," \
+    "{\"AGGREGATE_TYPE\":\"AGGREGATE_SUM\",\"AGGREGATE_DISTINCT\":0,\"AGGREGATE_OUTPUT_COLUMN\":2," \
+    "\"AGGREGATE_EXPRESSION\":" TUPLE_VALUE("T", other_idx, other) "}]," \
+    "\"GROUPBY_EXPRESSIONS\":[" TUPLE_VALUE("T", key_idx, key) "]}," \
+    SCAN_NODE(2) "]," \
+    "\"PARAMETERS\":[],\"EXECUTE_LIST\":[3,2,1]}"
+
+enum {
+    GROUP_BY_VAL_FRAGMENT = 1,
+    GROUP_BY_ID_FRAGMENT
+};
+
+struct Group {
+    Group() : key(0), count(0), sum(0) {}
+    Group(int64_t k, int64_t c, int64_t s) : key(k), count(c), sum(s) {}
+    bool operator<(const Group &other) const { return key < other.key; }
+    int64_t key;
+    int64_t count;
+    int64_t sum;
+};
+
+class HashAggregateExecutorTest : public Test, public PlanFixture {
+public:
+    HashAggregateExecutorTest() : PlanFixture(catalogPayload, BUFFER_SIZE) {
+        addPlan(GROUP_BY_VAL_FRAGMENT, AGG_PLAN(1, "VAL", 0, "ID"));
+        addPlan(GROUP_BY_ID_FRAGMENT, AGG_PLAN(0, "ID", 1, "VAL"));
+
+        Table *table = m_engine->getTable("T");
+        TableTuple &tuple = table->tempTuple();
+        map<int64_t, Group> byVal;
+        for (int64_t id = 0; id < NUM_OF_TUPLES; id++) {
+            int64_t val = (id * 7919) % NUM_OF_VALUES;
+            tuple.setNValue(0, ValueFactory::getBigIntValue(id));
+            tuple.setNValue(1, ValueFactory::getBigIntValue(val));
+            table->insertTuple(tuple);
+            m_byId.push_back(Group(id, 1, val));
+            Group &group = byVal[val];
+            group.key = val;
+            group.count++;
+            group.sum += id;
+        }
+        for (map<int64_t, Group>::iterator it = byVal.begin(); it != byVal.end(); it++) {
+            m_byVal.push_back(it->second);
+        }
+    }
+
+    /**
+     * Aggregate on disk once the groups in memory are over threshold bytes
+     */
+    void setSpill(int64_t threshold) {
+        char params[1024];
+        ReferenceSerializeOutput out(params, sizeof(params));
+        out.writeLong(threshold);
+        out.writeTextString("/tmp");
+        m_engine->resetReusedResultOutputBuffer();
+        m_engine->executeTask(TASK_TYPE_SET_TEMP_TABLE_SPILL, params);
+    }
+
+    /**
+     * The (spills, files, tuples) counters of the engine
+     */
+    vector<int64_t> spills() {
+        m_engine->resetReusedResultOutputBuffer();
+        m_engine->executeTask(TASK_TYPE_GET_TEMP_TABLE_SPILL_STATS, NULL);
+        ReferenceSerializeInput result(m_resultBuffer.get(), m_engine->getResultsSize());
+        result.readInt();
+        vector<int64_t> counters;
+        for (int ii = 0; ii < 3; ii++) {
+            counters.push_back(result.readLong());
+        }
+        return counters;
+    }
+
+    /**
+     * Run the fragment and check its groups, in any order, against the expected ones
+     */
+    void check(int64_t fragmentId, const vector<Group> &expected) {
+        NValueArray params(0);
+        ASSERT_EQ(ENGINE_ERRORCODE_SUCCESS, executeFragment(fragmentId, params));
+
+        vector<Group> groups;
+        ReferenceSerializeInput result(m_resultBuffer.get(), m_engine->getResultsSize());
+        int32_t rowCount = readResultHeader(result);
+        ASSERT_NE(-1, rowCount);
+        for (int32_t ii = 0; ii < rowCount; ii++) {
+            result.readInt();  // row size
+            int64_t key = result.readLong();
+            int64_t count = result.readLong();
+            int64_t sum = result.readLong();
+            groups.push_back(Group(key, count, sum));
+        }
+        sort(groups.begin(), groups.end());
+        ASSERT_EQ(expected.size(), groups.size());
+        for (size_t ii = 0; ii < groups.size(); ii++) {
+            ASSERT_EQ(expected[ii].key, groups[ii].key);
+            ASSERT_EQ(expected[ii].count, groups[ii].count);
+            ASSERT_EQ(expected[ii].sum, groups[ii].sum);
+        }
+    }
+
+protected:
+    vector<Group> m_byVal;
+    vector<Group> m_byId;
+};
+
+TEST_F(HashAggregateExecutorTest, InMemory) {
+    check(GROUP_BY_VAL_FRAGMENT, m_byVal);
+    check(GROUP_BY_ID_FRAGMENT, m_byId);
+    EXPECT_EQ(0, spills()[0]);
+}
+
+// the groups past the threshold are aggregated from partitions in later passes
+TEST_F(HashAggregateExecutorTest, SpillSomeGroups) {
+    // the pool starts with a 256KB chunk, leave room for a few hundred groups
+    setSpill(256 * 1024 + 16 * 1024);
+    check(GROUP_BY_ID_FRAGMENT, m_byId);
+    vector<int64_t> counters = spills();
+    EXPECT_EQ(1, counters[0]);
+    EXPECT_LT(0, counters[2]);
+    EXPECT_GT(NUM_OF_TUPLES, counters[2]);
+
+    // a hundred groups fit
+    check(GROUP_BY_VAL_FRAGMENT, m_byVal);
+    EXPECT_EQ(1, spills()[0]);
+}
+
+// every group spills until the last pass aggregates in memory
+TEST_F(HashAggregateExecutorTest, SpillEveryPass) {
+    setSpill(1);
+    check(GROUP_BY_VAL_FRAGMENT, m_byVal);
+    vector<int64_t> counters = spills();
+    EXPECT_LT(4, counters[0]);
+    EXPECT_EQ(NUM_OF_TUPLES * 4, counters[2]);
+    check(GROUP_BY_ID_FRAGMENT, m_byId);
+}
+
+int main() {
+    return TestSuite::globalInstance()->runAll();
+}
@@ -0,0 +1,240 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include "harness.h"
+#include "planfixture.h"
+#include "common/types.h"
+#include "common/NValue.hpp"
+#include "common/ValueFactory.hpp"
+#include "common/valuevector.h"
+#include "common/tabletuple.h"
+#include "common/serializeio.h"
+#include "storage/table.h"
+
+#include <string>
+#include <utility>
+#include <vector>
+
+using namespace voltdb;
+using namespace std;
+
+#define NUM_OF_TUPLES 1000
+#define NUM_OF_VALUES 100
+#define BUFFER_SIZE (1024 * 1024)
+
+/*
+ * CREATE TABLE T (ID BIGINT NOT NULL, VAL BIGINT NOT NULL, OTHER BIGINT NOT NULL);
+ * CREATE INDEX IDX ON T (VAL, ID);
+ */
+static const char *catalogPayload =
+    "add / clusters cluster"
+    "\nadd /clusters[cluster] databases database"
+    "\nadd /clusters[cluster]/databases[database] tables T"
+    "\nset /clusters[cluster]/databases[database]/tables[T] isreplicated true"
+    "\nset $PREV partitioncolumn null"
+    "\nset $PREV estimatedtuplecount 0"
+    "\nset $PREV materializer null"
+    "\nset $PREV signature \"Tbbb\""
+    "\nadd /clusters[cluster]/databases[database]/tables[T] columns ID"
+    "\nset /clusters[cluster]/databases[database]/tables[T]/columns[ID] index 0"
+    "\nset $PREV type 6"
+    "\nset $PREV size 8"
+    "\nset $PREV nullable false"
+    "\nset $PREV name \"ID\""
+    "\nadd /clusters[cluster]/databases[database]/tables[T] columns VAL"
+    "\nset /clusters[cluster]/databases[database]/tables[T]/columns[VAL] index 1"
+    "\nset $PREV type 6"
+    "\nset $PREV size 8"
+    "\nset $PREV nullable false"
+    "\nset $PREV name \"VAL\""
+    "\nadd /clusters[cluster]/databases[database]/tables[T] columns OTHER"
+    "\nset /clusters[cluster]/databases[database]/tables[T]/columns[OTHER] index 2"
+    "\nset $PREV type 6"
+    "\nset $PREV size 8"
+    "\nset $PREV nullable false"
+    "\nset $PREV name \"OTHER\""
+    "\nadd /clusters[cluster]/databases[database]/tables[T] indexes IDX"
+    "\nset /clusters[cluster]/databases[database]/tables[T]/indexes[IDX] unique false"
+    "\nset $PREV countable true"
+    "\nset $PREV type 1"
+    "\nset $PREV expressionsjson \"\""
+    "\nadd /clusters[cluster]/databases[database]/tables[T]/indexes[IDX] columns VAL"
+    "\nset /clusters[cluster]/databases[database]/tables[T]/indexes[IDX]/columns[VAL] index 0"
+    "\nset $PREV column /clusters[cluster]/databases[database]/tables[T]/columns[VAL]"
+    "\nadd /clusters[cluster]/databases[database]/tables[T]/indexes[IDX] columns ID"
+    "\nset /clusters[cluster]/databases[database]/tables[T]/indexes[IDX]/columns[ID] index 1"
+    "\nset $PREV column /clusters[cluster]/databases[database]/tables[T]/columns[ID]";
+
+#define TUPLE_VALUE(index, name) \
+    "{\"TYPE\":\"VALUE_TUPLE\",\"VALUE_TYPE\":\"BIGINT\",\"VALUE_SIZE\":8," \
+    "\"COLUMN_IDX\":" #index ",\"TABLE_NAME\":\"T\",\"COLUMN_NAME\":\"" name "\"}"
+
+#define PARAMETER(index) \
+    "{\"TYPE\":\"VALUE_PARAMETER\",\"VALUE_TYPE\":\"BIGINT\",\"VALUE_SIZE\":8,\"PARAM_IDX\":" #index "}"
+
+#define COMPARE(type, left, right) \
+    "{\"TYPE\":\"" type "\",\"VALUE_TYPE\":\"BIGINT\",\"VALUE_SIZE\":8,\"LEFT\":" left ",\"RIGHT\":" right "}"
+
+// SELECT VAL, ID FROM T WHERE ...
+#define SCAN_PLAN(lookup, sort, covering, predicate, end, keys) \
+    "{\"PLAN_NODES\":[" \
+    "{\"ID\":1,\"PLAN_NODE_TYPE\":\"SEND\",\"INLINE_NODES\":[],\"CHILDREN_IDS\":[2],\"PARENT_IDS\":[]}," \
+    "{\"ID\":2,\"PLAN_NODE_TYPE\":\"INDEXSCAN\",\"INLINE_NODES\":[{\"ID\":3,\"PLAN_NODE_TYPE\":\"PROJECTION\"," \
+    "\"INLINE_NODES\":[],\"CHILDREN_IDS\":[],\"PARENT_IDS\":[],\"OUTPUT_SCHEMA\":[" \
+    "{\"COLUMN_NAME\":\"VAL\",\"EXPRESSION\":" TUPLE_VALUE(1, "VAL") "}," \
+    "{\"COLUMN_NAME\":\"ID\",\"EXPRESSION\":" TUPLE_VALUE(0, "ID") "}]}]," \
+    "\"CHILDREN_IDS\":[],\"PARENT_IDS\":[1],\"PREDICATE\":" predicate ",\"TARGET_TABLE_NAME\":\"T\"," \
+    "\"KEY_ITERATE\":false,\"LOOKUP_TYPE\":\"" lookup "\",\"SORT_DIRECTION\":\"" sort "\"," covering \
+    "\"TARGET_INDEX_NAME\":\"IDX\",\"END_EXPRESSION\":" end ",\"SEARCHKEY_EXPRESSIONS\":[" keys "]}]," \
+    "\"PARAMETERS\":[[0,\"BIGINT\"],[1,\"BIGINT\"]],\"EXECUTE_LIST\":[2,1]}"
+
+// ... VAL = ? AND ID > ?
+#define RANGE_PLAN(covering) \
+    SCAN_PLAN("GTE", "INVALID", covering, \
+              COMPARE("COMPARE_GREATERTHAN", TUPLE_VALUE(0, "ID"), PARAMETER(1)), \
+              COMPARE("COMPARE_EQUAL", TUPLE_VALUE(1, "VAL"), PARAMETER(0)), \
+              PARAMETER(0))
+
+static const char *coveredRangePlan = RANGE_PLAN("\"COVERING\":true,");
+static const char *rangePlan = RANGE_PLAN("");
+
+// ... VAL = ? AND ID = ?
+static const char *coveredMatchPlan =
+    SCAN_PLAN("EQ", "INVALID", "\"COVERING\":true,", "null", "null", PARAMETER(0) "," PARAMETER(1));
+
+// ... VAL < ? ORDER BY VAL, ID
+static const char *coveredStartPlan =
+    SCAN_PLAN("GTE", "ASC", "\"COVERING\":true,", "null",
+              COMPARE("COMPARE_LESSTHAN", TUPLE_VALUE(1, "VAL"), PARAMETER(0)), "");
+
+enum {
+    COVERED_RANGE_FRAGMENT = 1,
+    RANGE_FRAGMENT,
+    COVERED_MATCH_FRAGMENT,
+    COVERED_START_FRAGMENT
+};
+
+typedef pair<int64_t, int64_t> Row; // VAL, ID
+
+class IndexScanExecutorTest : public Test, public PlanFixture {
+public:
+    IndexScanExecutorTest() : PlanFixture(catalogPayload, BUFFER_SIZE), m_params(2) {
+        addPlan(COVERED_RANGE_FRAGMENT, coveredRangePlan);
+        addPlan(RANGE_FRAGMENT, rangePlan);
+        addPlan(COVERED_MATCH_FRAGMENT, coveredMatchPlan);
+        addPlan(COVERED_START_FRAGMENT, coveredStartPlan);
+
+        Table *table = m_engine->getTable("T");
+        TableTuple &tuple = table->tempTuple();
+        for (int64_t id = 0; id < NUM_OF_TUPLES; id++) {
+            tuple.setNValue(0, ValueFactory::getBigIntValue(id));
+            tuple.setNValue(1, ValueFactory::getBigIntValue(value(id)));
+            tuple.setNValue(2, ValueFactory::getBigIntValue(id * 3));
+            table->insertTuple(tuple);
+        }
+    }
+
+    static int64_t value(int64_t id) {
+        return (id * 7919) % NUM_OF_VALUES;
+    }
+
+    /**
+     * Run the fragment and read back the (VAL, ID) rows of its result
+     */
+    vector<Row> execute(int64_t fragmentId, int64_t param0, int64_t param1) {
+        m_params[0] = ValueFactory::getBigIntValue(param0);
+        m_params[1] = ValueFactory::getBigIntValue(param1);
+        EXPECT_EQ(ENGINE_ERRORCODE_SUCCESS, executeFragment(fragmentId, m_params));
+
+        vector<Row> rows;
+        ReferenceSerializeInput result(m_resultBuffer.get(), m_engine->getResultsSize());
+        int32_t rowCount = readResultHeader(result);
+        EXPECT_NE(-1, rowCount);
+        for (int32_t ii = 0; ii < rowCount; ii++) {
+            result.readInt();  // row size
+            int64_t val = result.readLong();
+            int64_t id = result.readLong();
+            rows.push_back(Row(val, id));
+        }
+        return rows;
+    }
+
+    /**
+     * The rows with VAL in [minVal, maxVal) and ID above minId in index order
+     */
+    vector<Row> expected(int64_t minVal, int64_t maxVal, int64_t minId) {
+        vector<Row> rows;
+        for (int64_t val = minVal; val < maxVal; val++) {
+            for (int64_t id = minId + 1; id < NUM_OF_TUPLES; id++) {
+                if (value(id) == val) {
+                    rows.push_back(Row(val, id));
+                }
+            }
+        }
+        return rows;
+    }
+
+protected:
+    NValueArray m_params;
+};
+
+// end expression and post predicate are evaluated on the index keys
+TEST_F(IndexScanExecutorTest, CoveredRange) {
+    for (int64_t val = 0; val < NUM_OF_VALUES; val += 7) {
+        for (int64_t minId = -1; minId < NUM_OF_TUPLES; minId += 250) {
+            vector<Row> rows = execute(COVERED_RANGE_FRAGMENT, val, minId);
+            vector<Row> expect = expected(val, val + 1, minId);
+            ASSERT_EQ(expect.size(), rows.size());
+            for (size_t ii = 0; ii < rows.size(); ii++) {
+                ASSERT_EQ(expect[ii].first, rows[ii].first);
+                ASSERT_EQ(expect[ii].second, rows[ii].second);
+            }
+            vector<Row> uncovered = execute(RANGE_FRAGMENT, val, minId);
+            ASSERT_TRUE(uncovered == rows);
+        }
+    }
+}
+
+TEST_F(IndexScanExecutorTest, CoveredMatch) {
+    for (int64_t id = 0; id < NUM_OF_TUPLES; id += 37) {
+        vector<Row> rows = execute(COVERED_MATCH_FRAGMENT, value(id), id);
+        ASSERT_EQ(1, rows.size());
+        ASSERT_EQ(value(id), rows[0].first);
+        ASSERT_EQ(id, rows[0].second);
+    }
+    ASSERT_EQ(0, execute(COVERED_MATCH_FRAGMENT, value(5) + 1, 5).size());
+}
+
+TEST_F(IndexScanExecutorTest, CoveredFromStart) {
+    vector<Row> rows = execute(COVERED_START_FRAGMENT, 10, 0);
+    vector<Row> expect = expected(0, 10, -1);
+    ASSERT_EQ(expect.size(), rows.size());
+    for (size_t ii = 0; ii < rows.size(); ii++) {
+        ASSERT_EQ(expect[ii].first, rows[ii].first);
+        ASSERT_EQ(expect[ii].second, rows[ii].second);
+    }
+}
+
+int main() {
+    return TestSuite::globalInstance()->runAll();
+}
@@ -0,0 +1,336 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include "harness.h"
+#include "planfixture.h"
+#include "common/types.h"
+#include "common/NValue.hpp"
+#include "common/ValueFactory.hpp"
+#include "common/valuevector.h"
+#include "common/tabletuple.h"
+#include "common/serializeio.h"
+#include "storage/table.h"
+
+#include <string>
+#include <utility>
+#include <vector>
+
+using namespace voltdb;
+using namespace std;
+
+#define NUM_OF_TUPLES 1000
+#define NUM_OF_VALUES 100
+#define NUM_OF_KEYS 130
+#define BUFFER_SIZE (4 * 1024 * 1024)
+
+/*
+ * CREATE TABLE O (ID BIGINT NOT NULL, K BIGINT NOT NULL);
+ * CREATE TABLE T (ID BIGINT NOT NULL, VAL BIGINT NOT NULL, OTHER BIGINT NOT NULL);
+ * CREATE INDEX IDX ON T (VAL);
+ */
+#define TABLE(name, signature) \
+    "\nadd /clusters[cluster]/databases[database] tables " name \
+    "\nset /clusters[cluster]/databases[database]/tables[" name "] isreplicated true" \
+    "\nset $PREV partitioncolumn null" \
+    "\nset $PREV estimatedtuplecount 0" \
+    "\nset $PREV materializer null" \
+    "\nset $PREV signature \"" signature "\""
+
+#define COLUMN(table, name, index) \
+    "\nadd /clusters[cluster]/databases[database]/tables[" table "] columns " name \
+    "\nset /clusters[cluster]/databases[database]/tables[" table "]/columns[" name "] index " #index \
+    "\nset $PREV type 6" \
+    "\nset $PREV size 8" \
+    "\nset $PREV nullable false" \
+    "\nset $PREV name \"" name "\""
+
+static const char *catalogPayload =
+    "add / clusters cluster"
+    "\nadd /clusters[cluster] databases database"
+    TABLE("O", "Obb")
+    COLUMN("O", "ID", 0)
+    COLUMN("O", "K", 1)
+    TABLE("T", "Tbbb")
+    COLUMN("T", "ID", 0)
+    COLUMN("T", "VAL", 1)
+    COLUMN("T", "OTHER", 2)
+    "\nadd /clusters[cluster]/databases[database]/tables[T] indexes IDX"
+    "\nset /clusters[cluster]/databases[database]/tables[T]/indexes[IDX] unique false"
+    "\nset $PREV countable true"
+    "\nset $PREV type 1"
+    "\nset $PREV expressionsjson \"\""
+    "\nadd /clusters[cluster]/databases[database]/tables[T]/indexes[IDX] columns VAL"
+    "\nset /clusters[cluster]/databases[database]/tables[T]/indexes[IDX]/columns[VAL] index 0"
+    "\nset $PREV column /clusters[cluster]/databases[database]/tables[T]/columns[VAL]";
+
+#define TUPLE_VALUE(table, index, name) \
+    "{\"TYPE\":\"VALUE_TUPLE\",\"VALUE_TYPE\":\"BIGINT\",\"VALUE_SIZE\":8," \
+    "\"COLUMN_IDX\":" #index ",\"TABLE_NAME\":\"" table "\",\"COLUMN_NAME\":\"" name "\"}"
+
+#define PARAMETER(index) \
+    "{\"TYPE\":\"VALUE_PARAMETER\",\"VALUE_TYPE\":\"BIGINT\",\"VALUE_SIZE\":8,\"PARAM_IDX\":" #index "}"
+
+#define COMPARE(type, left, right) \
+    "{\"TYPE\":\"" type "\",\"VALUE_TYPE\":\"BIGINT\",\"VALUE_SIZE\":8,\"LEFT\":" left ",\"RIGHT\":" right "}"
+
+#define COLUMN_SCHEMA(table, index, name) \
+    "{\"COLUMN_NAME\":\"" name "\",\"EXPRESSION\":" TUPLE_VALUE(table, index, name) "}"
+
+// SELECT O.ID, O.K, T.ID, T.OTHER FROM O <join> T ON O.K = T.VAL AND T.OTHER > ? AND <prejoin> WHERE <where>
+#define JOIN_PLAN(join, prejoin, where) \
+    "{\"PLAN_NODES\":[" \
+    "{\"ID\":1,\"PLAN_NODE_TYPE\":\"SEND\",\"INLINE_NODES\":[],\"CHILDREN_IDS\":[2],\"PARENT_IDS\":[]}," \
+    "{\"ID\":2,\"PLAN_NODE_TYPE\":\"NESTLOOPINDEX\",\"INLINE_NODES\":[" \
+    "{\"ID\":3,\"PLAN_NODE_TYPE\":\"INDEXSCAN\",\"INLINE_NODES\":[],\"CHILDREN_IDS\":[],\"PARENT_IDS\":[]," \
+    "\"OUTPUT_SCHEMA\":[" COLUMN_SCHEMA("T", 0, "ID") "," COLUMN_SCHEMA("T", 2, "OTHER") "]," \
+    "\"PREDICATE\":" COMPARE("COMPARE_GREATERTHAN", TUPLE_VALUE("T", 2, "OTHER"), PARAMETER(0)) "," \
+    "\"TARGET_TABLE_NAME\":\"T\",\"KEY_ITERATE\":false,\"LOOKUP_TYPE\":\"EQ\",\"SORT_DIRECTION\":\"INVALID\"," \
+    "\"TARGET_INDEX_NAME\":\"IDX\",\"END_EXPRESSION\":null," \
+    "\"SEARCHKEY_EXPRESSIONS\":[" TUPLE_VALUE("O", 1, "K") "]}]," \
+    "\"CHILDREN_IDS\":[4],\"PARENT_IDS\":[1],\"JOIN_TYPE\":\"" join "\"," \
+    "\"PRE_JOIN_PREDICATE\":" prejoin ",\"JOIN_PREDICATE\":null,\"WHERE_PREDICATE\":" where "," \
+    "\"OUTPUT_SCHEMA\":[" COLUMN_SCHEMA("O", 0, "ID") "," COLUMN_SCHEMA("O", 1, "K") "," \
+    COLUMN_SCHEMA("T", 0, "ID") "," COLUMN_SCHEMA("T", 2, "OTHER") "]}," \
+    "{\"ID\":4,\"PLAN_NODE_TYPE\":\"SEQSCAN\",\"INLINE_NODES\":[],\"CHILDREN_IDS\":[],\"PARENT_IDS\":[2]," \
+    "\"OUTPUT_SCHEMA\":[" COLUMN_SCHEMA("O", 0, "ID") "," COLUMN_SCHEMA("O", 1, "K") "]," \
+    "\"PREDICATE\":null,\"TARGET_TABLE_NAME\":\"O\"}]," \
+    "\"PARAMETERS\":[[0,\"BIGINT\"],[1,\"BIGINT\"]],\"EXECUTE_LIST\":[4,2,1]}"
+
+static const char *innerJoinPlan = JOIN_PLAN("INNER", "null", "null");
+
+// ... LEFT JOIN T ON O.K = T.VAL AND T.OTHER > ? AND O.ID < ?
+static const char *leftJoinPlan =
+    JOIN_PLAN("LEFT", COMPARE("COMPARE_LESSTHAN", TUPLE_VALUE("O", 0, "ID"), PARAMETER(1)), "null");
+
+// ... INNER JOIN T ON O.K = T.VAL AND T.OTHER > ? WHERE T.OTHER < ?
+static const char *whereJoinPlan =
+    JOIN_PLAN("INNER", "null", COMPARE("COMPARE_LESSTHAN", TUPLE_VALUE("T", 2, "OTHER"), PARAMETER(1)));
+
+enum {
+    INNER_JOIN_FRAGMENT = 1,
+    LEFT_JOIN_FRAGMENT,
+    WHERE_JOIN_FRAGMENT
+};
+
+struct Row {
+    Row(int64_t outerId, int64_t key, int64_t innerId, int64_t other)
+        : outerId(outerId), key(key), innerId(innerId), other(other) {}
+
+    bool operator==(const Row &rhs) const {
+        return outerId == rhs.outerId && key == rhs.key && innerId == rhs.innerId && other == rhs.other;
+    }
+
+    int64_t outerId;
+    int64_t key;
+    int64_t innerId;
+    int64_t other;
+};
+
+class NestLoopIndexExecutorTest : public Test, public PlanFixture {
+public:
+    NestLoopIndexExecutorTest() : PlanFixture(catalogPayload, BUFFER_SIZE), m_params(2) {
+        addPlan(INNER_JOIN_FRAGMENT, innerJoinPlan);
+        addPlan(LEFT_JOIN_FRAGMENT, leftJoinPlan);
+        addPlan(WHERE_JOIN_FRAGMENT, whereJoinPlan);
+
+        Table *table = m_engine->getTable("T");
+        TableTuple &tuple = table->tempTuple();
+        for (int64_t id = 0; id < NUM_OF_TUPLES; id++) {
+            tuple.setNValue(0, ValueFactory::getBigIntValue(id));
+            tuple.setNValue(1, ValueFactory::getBigIntValue(value(id)));
+            tuple.setNValue(2, ValueFactory::getBigIntValue(other(id)));
+            table->insertTuple(tuple);
+        }
+    }
+
+    static int64_t value(int64_t id) {
+        return (id * 7919) % NUM_OF_VALUES;
+    }
+
+    static int64_t other(int64_t id) {
+        return (id * 31) % NUM_OF_TUPLES;
+    }
+
+    // some of the keys are not in T
+    static int64_t key(int64_t id) {
+        return (id * 104729) % NUM_OF_KEYS;
+    }
+
+    void fillOuter(int64_t count) {
+        Table *table = m_engine->getTable("O");
+        TableTuple &tuple = table->tempTuple();
+        for (int64_t id = 0; id < count; id++) {
+            tuple.setNValue(0, ValueFactory::getBigIntValue(id));
+            tuple.setNValue(1, ValueFactory::getBigIntValue(key(id)));
+            table->insertTuple(tuple);
+        }
+    }
+
+    /**
+     * Run the fragment, the second parameter is the bound on O.ID or
+     * T.OTHER depending on the fragment
+     * @return the engine's error code
+     */
+    int tryExecute(int64_t fragmentId, int64_t minOther, int64_t max) {
+        m_params[0] = ValueFactory::getBigIntValue(minOther);
+        m_params[1] = ValueFactory::getBigIntValue(max);
+        return executeFragment(fragmentId, m_params);
+    }
+
+    /**
+     * Run the fragment and read back the rows of its result
+     */
+    vector<Row> execute(int64_t fragmentId, int64_t minOther, int64_t max) {
+        EXPECT_EQ(ENGINE_ERRORCODE_SUCCESS, tryExecute(fragmentId, minOther, max));
+
+        vector<Row> rows;
+        ReferenceSerializeInput result(m_resultBuffer.get(), m_engine->getResultsSize());
+        int32_t rowCount = readResultHeader(result);
+        EXPECT_NE(-1, rowCount);
+        for (int32_t ii = 0; ii < rowCount; ii++) {
+            result.readInt();  // row size
+            int64_t outerId = result.readLong();
+            int64_t key = result.readLong();
+            int64_t innerId = result.readLong();
+            int64_t other = result.readLong();
+            rows.push_back(Row(outerId, key, innerId, other));
+        }
+        return rows;
+    }
+
+    /**
+     * The join of the first outerCount rows of O, in the order of O and
+     * then of the index
+     */
+    vector<Row> expected(int64_t outerCount, bool left, int64_t minOther, int64_t maxOuterId) {
+        vector<Row> rows;
+        for (int64_t outerId = 0; outerId < outerCount; outerId++) {
+            bool match = false;
+            for (int64_t innerId = 0; innerId < NUM_OF_TUPLES && (!left || outerId < maxOuterId); innerId++) {
+                if (value(innerId) == key(outerId) && other(innerId) > minOther) {
+                    rows.push_back(Row(outerId, key(outerId), innerId, other(innerId)));
+                    match = true;
+                }
+            }
+            if (left && !match) {
+                rows.push_back(Row(outerId, key(outerId), INT64_NULL, INT64_NULL));
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Compare ignoring the order of the inner rows of an outer row, the
+     * non-unique index returns those in no particular order
+     */
+    void assertJoin(const vector<Row> &expect, const vector<Row> &rows) {
+        ASSERT_EQ(expect.size(), rows.size());
+        size_t start = 0;
+        while (start < rows.size()) {
+            size_t end = start;
+            while (end < rows.size() && rows[end].outerId == rows[start].outerId) {
+                end++;
+            }
+            for (size_t ii = start; ii < end; ii++) {
+                ASSERT_EQ(rows[start].outerId, expect[ii].outerId);
+                bool found = false;
+                for (size_t jj = start; jj < end && !found; jj++) {
+                    found = rows[jj] == expect[ii];
+                }
+                ASSERT_TRUE(found);
+            }
+            start = end;
+        }
+    }
+
+protected:
+    NValueArray m_params;
+};
+
+// several batches of outer tuples, probed in key order, joined in outer order
+TEST_F(NestLoopIndexExecutorTest, BatchedInnerJoin) {
+    const int64_t outerCount = 2500;
+    fillOuter(outerCount);
+    for (int64_t minOther = -1; minOther < NUM_OF_TUPLES; minOther += 400) {
+        assertJoin(expected(outerCount, false, minOther, 0),
+                   execute(INNER_JOIN_FRAGMENT, minOther, 0));
+    }
+}
+
+TEST_F(NestLoopIndexExecutorTest, BatchedLeftJoin) {
+    const int64_t outerCount = 2500;
+    fillOuter(outerCount);
+    assertJoin(expected(outerCount, true, 500, 1500),
+               execute(LEFT_JOIN_FRAGMENT, 500, 1500));
+    assertJoin(expected(outerCount, true, NUM_OF_TUPLES, outerCount),
+               execute(LEFT_JOIN_FRAGMENT, NUM_OF_TUPLES, outerCount));
+}
+
+// every outer tuple matches the same manyToMany inner tuples, but the
+// where predicate lets few or none of them through
+TEST_F(NestLoopIndexExecutorTest, ManyToManyChargesLimits) {
+    const int64_t manyToMany = 5000;
+    const int64_t outerCount = 1100;
+    Table *table = m_engine->getTable("T");
+    TableTuple &tuple = table->tempTuple();
+    for (int64_t id = NUM_OF_TUPLES; id < NUM_OF_TUPLES + manyToMany; id++) {
+        tuple.setNValue(0, ValueFactory::getBigIntValue(id));
+        tuple.setNValue(1, ValueFactory::getBigIntValue(NUM_OF_VALUES));
+        tuple.setNValue(2, ValueFactory::getBigIntValue(id));
+        table->insertTuple(tuple);
+    }
+    table = m_engine->getTable("O");
+    TableTuple &outer = table->tempTuple();
+    for (int64_t id = 0; id < outerCount; id++) {
+        outer.setNValue(0, ValueFactory::getBigIntValue(id));
+        outer.setNValue(1, ValueFactory::getBigIntValue(NUM_OF_VALUES));
+        table->insertTuple(outer);
+    }
+
+    // a batch buffers more than DEFAULT_TEMP_TABLE_MEMORY of matches
+    EXPECT_EQ(ENGINE_ERRORCODE_ERROR, tryExecute(WHERE_JOIN_FRAGMENT, -1, 0));
+
+    // the failed join gave its charge back
+    const int64_t minOther = NUM_OF_TUPLES + manyToMany - 10;
+    vector<Row> expect;
+    for (int64_t outerId = 0; outerId < outerCount; outerId++) {
+        for (int64_t innerId = minOther + 1; innerId < NUM_OF_TUPLES + manyToMany; innerId++) {
+            expect.push_back(Row(outerId, NUM_OF_VALUES, innerId, innerId));
+        }
+    }
+    assertJoin(expect, execute(WHERE_JOIN_FRAGMENT, minOther, NUM_OF_TUPLES + manyToMany));
+}
+
+// too few outer tuples to batch
+TEST_F(NestLoopIndexExecutorTest, SmallOuter) {
+    const int64_t outerCount = 20;
+    fillOuter(outerCount);
+    assertJoin(expected(outerCount, false, 100, 0),
+               execute(INNER_JOIN_FRAGMENT, 100, 0));
+    assertJoin(expected(outerCount, true, 100, 10),
+               execute(LEFT_JOIN_FRAGMENT, 100, 10));
+}
+
+int main() {
+    return TestSuite::globalInstance()->runAll();
+}
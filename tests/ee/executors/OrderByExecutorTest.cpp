@@ -0,0 +1,271 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include "harness.h"
+#include "planfixture.h"
+#include "common/types.h"
+#include "common/NValue.hpp"
+#include "common/ValueFactory.hpp"
+#include "common/valuevector.h"
+#include "common/tabletuple.h"
+#include "common/serializeio.h"
+#include "storage/table.h"
+
+#include <algorithm>
+#include <string>
+#include <utility>
+#include <vector>
+
+using namespace voltdb;
+using namespace std;
+
+#define NUM_OF_TUPLES 1000
+#define NUM_OF_VALUES 100
+#define BUFFER_SIZE (1024 * 1024)
+
+/*
+ * CREATE TABLE T (ID BIGINT NOT NULL, VAL BIGINT NOT NULL);
+ */
+static const char *catalogPayload =
+    "add / clusters cluster"
+    "\nadd /clusters[cluster] databases database"
+    "\nadd /clusters[cluster]/databases[database] tables T"
+    "\nset /clusters[cluster]/databases[database]/tables[T] isreplicated true"
+    "\nset $PREV partitioncolumn null"
+    "\nset $PREV estimatedtuplecount 0"
+    "\nset $PREV materializer null"
+    "\nset $PREV signature \"Tbb\""
+    "\nadd /clusters[cluster]/databases[database]/tables[T] columns ID"
+    "\nset /clusters[cluster]/databases[database]/tables[T]/columns[ID] index 0"
+    "\nset $PREV type 6"
+    "\nset $PREV size 8"
+    "\nset $PREV nullable false"
+    "\nset $PREV name \"ID\""
+    "\nadd /clusters[cluster]/databases[database]/tables[T] columns VAL"
+    "\nset /clusters[cluster]/databases[database]/tables[T]/columns[VAL] index 1"
+    "\nset $PREV type 6"
+    "\nset $PREV size 8"
+    "\nset $PREV nullable false"
+    "\nset $PREV name \"VAL\"";
+
+#define TUPLE_VALUE(index, name) \
+    "{\"TYPE\":\"VALUE_TUPLE\",\"VALUE_TYPE\":\"BIGINT\",\"VALUE_SIZE\":8," \
+    "\"COLUMN_IDX\":" #index ",\"TABLE_NAME\":\"T\",\"COLUMN_NAME\":\"" name "\"}"
+
+#define SCAN_NODE(parent) \
+    "{\"ID\":3,\"PLAN_NODE_TYPE\":\"SEQSCAN\",\"INLINE_NODES\":[{\"ID\":0,\"PLAN_NODE_TYPE\":\"PROJECTION\"," \
+    "\"INLINE_NODES\":[],\"CHILDREN_IDS\":[],\"PARENT_IDS\":[],\"OUTPUT_SCHEMA\":[" \
+    "{\"COLUMN_NAME\":\"ID\",\"EXPRESSION\":" TUPLE_VALUE(0, "ID") "}," \
+    "{\"COLUMN_NAME\":\"VAL\",\"EXPRESSION\":" TUPLE_VALUE(1, "VAL") "}]}]," \
+    "\"CHILDREN_IDS\":[],\"PARENT_IDS\":[" #parent "],\"PREDICATE\":null,\"TARGET_TABLE_NAME\":\"T\"}"
+
+#define SORT_COLUMNS \
+    "\"SORT_COLUMNS\":[" \
+    "{\"SORT_DIRECTION\":\"DESC\",\"SORT_EXPRESSION\":" TUPLE_VALUE(1, "VAL") "}," \
+    "{\"SORT_DIRECTION\":\"ASC\",\"SORT_EXPRESSION\":" TUPLE_VALUE(0, "ID") "}]"
+
+// SELECT ID, VAL FROM T ORDER BY VAL DESC, ID LIMIT ? OFFSET ?
+static const char *orderByLimitPlan =
+    "{\"PLAN_NODES\":["
+    "{\"ID\":1,\"PLAN_NODE_TYPE\":\"SEND\",\"INLINE_NODES\":[],\"CHILDREN_IDS\":[2],\"PARENT_IDS\":[]},"
+    "{\"ID\":2,\"PLAN_NODE_TYPE\":\"ORDERBY\",\"INLINE_NODES\":[{\"ID\":4,\"PLAN_NODE_TYPE\":\"LIMIT\","
+    "\"INLINE_NODES\":[],\"CHILDREN_IDS\":[],\"PARENT_IDS\":[],\"LIMIT\":-1,\"OFFSET\":0,"
+    "\"LIMIT_PARAM_IDX\":0,\"OFFSET_PARAM_IDX\":1}],"
+    "\"CHILDREN_IDS\":[3],\"PARENT_IDS\":[1]," SORT_COLUMNS "},"
+    SCAN_NODE(2) "],"
+    "\"PARAMETERS\":[[0,\"INTEGER\"],[1,\"INTEGER\"]],\"EXECUTE_LIST\":[3,2,1]}";
+
+// SELECT ID, VAL FROM T ORDER BY VAL DESC, ID
+static const char *orderByPlan =
+    "{\"PLAN_NODES\":["
+    "{\"ID\":1,\"PLAN_NODE_TYPE\":\"SEND\",\"INLINE_NODES\":[],\"CHILDREN_IDS\":[2],\"PARENT_IDS\":[]},"
+    "{\"ID\":2,\"PLAN_NODE_TYPE\":\"ORDERBY\",\"INLINE_NODES\":[],"
+    "\"CHILDREN_IDS\":[3],\"PARENT_IDS\":[1]," SORT_COLUMNS "},"
+    SCAN_NODE(2) "],"
+    "\"PARAMETERS\":[],\"EXECUTE_LIST\":[3,2,1]}";
+
+enum {
+    ORDERBY_LIMIT_FRAGMENT = 1,
+    ORDERBY_FRAGMENT
+};
+
+typedef pair<int64_t, int64_t> Row; // VAL, ID
+
+class OrderByExecutorTest : public Test, public PlanFixture {
+public:
+    OrderByExecutorTest() : PlanFixture(catalogPayload, BUFFER_SIZE), m_params(2) {
+        addPlan(ORDERBY_LIMIT_FRAGMENT, orderByLimitPlan);
+        addPlan(ORDERBY_FRAGMENT, orderByPlan);
+
+        // every value shows up NUM_OF_TUPLES / NUM_OF_VALUES times, the ids break the ties
+        Table *table = m_engine->getTable("T");
+        TableTuple &tuple = table->tempTuple();
+        for (int64_t id = 0; id < NUM_OF_TUPLES; id++) {
+            int64_t val = (id * 7919) % NUM_OF_VALUES;
+            tuple.setNValue(0, ValueFactory::getBigIntValue(id));
+            tuple.setNValue(1, ValueFactory::getBigIntValue(val));
+            table->insertTuple(tuple);
+            m_sorted.push_back(Row(-val, id));
+        }
+        sort(m_sorted.begin(), m_sorted.end());
+    }
+
+    /**
+     * Run the fragment and read back the (VAL, ID) rows of its result
+     */
+    vector<Row> execute(int64_t fragmentId) {
+        EXPECT_EQ(ENGINE_ERRORCODE_SUCCESS, executeFragment(fragmentId, m_params));
+
+        vector<Row> rows;
+        ReferenceSerializeInput result(m_resultBuffer.get(), m_engine->getResultsSize());
+        int32_t rowCount = readResultHeader(result);
+        EXPECT_NE(-1, rowCount);
+        for (int32_t ii = 0; ii < rowCount; ii++) {
+            result.readInt();  // row size
+            int64_t id = result.readLong();
+            int64_t val = result.readLong();
+            rows.push_back(Row(val, id));
+        }
+        return rows;
+    }
+
+    vector<Row> expected(int limit, int offset) {
+        vector<Row> rows;
+        for (int ii = offset; ii < NUM_OF_TUPLES && (limit < 0 || ii < offset + limit); ii++) {
+            rows.push_back(Row(-m_sorted[ii].first, m_sorted[ii].second));
+        }
+        return rows;
+    }
+
+    /**
+     * Sort on disk any temp result over threshold bytes
+     */
+    void setSpill(int64_t threshold) {
+        char params[1024];
+        ReferenceSerializeOutput out(params, sizeof(params));
+        out.writeLong(threshold);
+        out.writeTextString("/tmp");
+        m_engine->resetReusedResultOutputBuffer();
+        m_engine->executeTask(TASK_TYPE_SET_TEMP_TABLE_SPILL, params);
+    }
+
+    /**
+     * Number of sorts that spilled so far
+     */
+    int64_t spills() {
+        m_engine->resetReusedResultOutputBuffer();
+        m_engine->executeTask(TASK_TYPE_GET_TEMP_TABLE_SPILL_STATS, NULL);
+        ReferenceSerializeInput result(m_resultBuffer.get(), m_engine->getResultsSize());
+        result.readInt();
+        return result.readLong();
+    }
+
+    void checkLimit(int limit, int offset) {
+        m_params[0] = ValueFactory::getIntegerValue(limit);
+        m_params[1] = ValueFactory::getIntegerValue(offset);
+        vector<Row> rows = execute(ORDERBY_LIMIT_FRAGMENT);
+        vector<Row> expect = expected(limit, offset);
+        ASSERT_EQ(expect.size(), rows.size());
+        for (size_t ii = 0; ii < rows.size(); ii++) {
+            ASSERT_EQ(expect[ii].first, rows[ii].first);
+            ASSERT_EQ(expect[ii].second, rows[ii].second);
+        }
+    }
+
+protected:
+    NValueArray m_params;
+    vector<Row> m_sorted; // (-VAL, ID) in sort order
+};
+
+TEST_F(OrderByExecutorTest, FullSort) {
+    vector<Row> rows = execute(ORDERBY_FRAGMENT);
+    vector<Row> expect = expected(-1, 0);
+    ASSERT_EQ(expect.size(), rows.size());
+    for (size_t ii = 0; ii < rows.size(); ii++) {
+        ASSERT_EQ(expect[ii].first, rows[ii].first);
+        ASSERT_EQ(expect[ii].second, rows[ii].second);
+    }
+}
+
+// offset + limit below the input size keeps a heap of the first rows
+TEST_F(OrderByExecutorTest, TopN) {
+    checkLimit(1, 0);
+    checkLimit(20, 0);
+    checkLimit(20, 15);
+    checkLimit(5, 990);
+    checkLimit(NUM_OF_TUPLES - 1, 0);
+}
+
+// offset + limit at or past the input size sorts everything
+TEST_F(OrderByExecutorTest, LimitPastInput) {
+    checkLimit(NUM_OF_TUPLES, 0);
+    checkLimit(20, NUM_OF_TUPLES - 10);
+    checkLimit(20, NUM_OF_TUPLES);
+    checkLimit(NUM_OF_TUPLES * 2, 0);
+}
+
+TEST_F(OrderByExecutorTest, LimitZero) {
+    checkLimit(0, 0);
+    checkLimit(0, 10);
+}
+
+// a threshold below the size of the input merges sorted runs from disk
+TEST_F(OrderByExecutorTest, SpillToDisk) {
+    setSpill(1000);
+    vector<Row> rows = execute(ORDERBY_FRAGMENT);
+    EXPECT_EQ(1, spills());
+    vector<Row> expect = expected(-1, 0);
+    ASSERT_EQ(expect.size(), rows.size());
+    for (size_t ii = 0; ii < rows.size(); ii++) {
+        ASSERT_EQ(expect[ii].first, rows[ii].first);
+        ASSERT_EQ(expect[ii].second, rows[ii].second);
+    }
+
+    // offsets and limits too large for a top-N heap apply to the merge
+    checkLimit(NUM_OF_TUPLES, 0);
+    checkLimit(20, NUM_OF_TUPLES - 10);
+    checkLimit(NUM_OF_TUPLES * 2, 3);
+    EXPECT_EQ(4, spills());
+
+    // top-N never spills
+    checkLimit(20, 15);
+    EXPECT_EQ(4, spills());
+
+    // runs of all but one tuple
+    setSpill(NUM_OF_TUPLES * 17 - 1);
+    rows = execute(ORDERBY_FRAGMENT);
+    EXPECT_EQ(5, spills());
+    ASSERT_EQ(expect.size(), rows.size());
+    for (size_t ii = 0; ii < rows.size(); ii++) {
+        ASSERT_EQ(expect[ii].first, rows[ii].first);
+        ASSERT_EQ(expect[ii].second, rows[ii].second);
+    }
+
+    setSpill(-1);
+    execute(ORDERBY_FRAGMENT);
+    EXPECT_EQ(5, spills());
+}
+
+int main() {
+    return TestSuite::globalInstance()->runAll();
+}
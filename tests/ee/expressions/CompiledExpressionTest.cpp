@@ -0,0 +1,277 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include "harness.h"
+#include "common/types.h"
+#include "common/NValue.hpp"
+#include "common/ValueFactory.hpp"
+#include "common/ValuePeeker.hpp"
+#include "common/TupleSchema.h"
+#include "common/tabletuple.h"
+#include "common/valuevector.h"
+#include "common/SerializableEEException.h"
+#include "expressions/abstractexpression.h"
+#include "expressions/compiledexpression.h"
+#include "expressions/expressions.h"
+#include "expressions/expressionutil.h"
+
+#include <cstdlib>
+#include <vector>
+#include <boost/scoped_ptr.hpp>
+
+using namespace voltdb;
+using namespace std;
+
+#define NUM_OF_TUPLES 200
+#define NUM_OF_TREES 2000
+#define NUM_OF_PARAMS 3
+
+static const ValueType columnTypes[] = {
+    VALUE_TYPE_TINYINT, VALUE_TYPE_SMALLINT, VALUE_TYPE_INTEGER, VALUE_TYPE_BIGINT,
+    VALUE_TYPE_TIMESTAMP, VALUE_TYPE_DOUBLE, VALUE_TYPE_DECIMAL
+};
+static const int columnCount = sizeof(columnTypes) / sizeof(columnTypes[0]);
+// the interpreter expects DECIMAL operands to be cast by the planner, leave them out of the trees
+static const int numericCount = columnCount - 1;
+
+static const ExpressionType comparisons[] = {
+    EXPRESSION_TYPE_COMPARE_EQUAL, EXPRESSION_TYPE_COMPARE_NOTEQUAL,
+    EXPRESSION_TYPE_COMPARE_LESSTHAN, EXPRESSION_TYPE_COMPARE_GREATERTHAN,
+    EXPRESSION_TYPE_COMPARE_LESSTHANOREQUALTO, EXPRESSION_TYPE_COMPARE_GREATERTHANOREQUALTO
+};
+
+/**
+ * A small value of the type, NULL now and then and sometimes one big enough
+ * to overflow arithmetic
+ */
+static NValue randomValue(ValueType type) {
+    if (rand() % 8 == 0) {
+        return NValue::getNullValue(type);
+    }
+    int64_t v = rand() % 11 - 5;
+    bool big = rand() % 10 == 0;
+    switch (type) {
+    case VALUE_TYPE_TINYINT:
+        return ValueFactory::getTinyIntValue(static_cast<int8_t>(big ? 127 : v));
+    case VALUE_TYPE_SMALLINT:
+        return ValueFactory::getSmallIntValue(static_cast<int16_t>(big ? 32767 : v));
+    case VALUE_TYPE_INTEGER:
+        return ValueFactory::getIntegerValue(static_cast<int32_t>(big ? INT32_MAX : v));
+    case VALUE_TYPE_BIGINT:
+        return ValueFactory::getBigIntValue(big ? INT64_MAX - v - 5 : v);
+    case VALUE_TYPE_TIMESTAMP:
+        return ValueFactory::getTimestampValue(big ? INT64_C(1) << 62 : v);
+    case VALUE_TYPE_DOUBLE:
+        return ValueFactory::getDoubleValue(big ? 1e308 : static_cast<double>(v) / 2);
+    default:
+        return ValueFactory::getDecimalValueFromString(big ? "1000000.25" : "1.5");
+    }
+}
+
+class CompiledExpressionTest : public Test {
+public:
+    CompiledExpressionTest() : m_params(NUM_OF_PARAMS) {
+        srand(0);
+        vector<ValueType> types;
+        vector<int32_t> sizes;
+        vector<bool> allowNull;
+        for (int ii = 0; ii < columnCount; ii++) {
+            types.push_back(columnTypes[ii]);
+            sizes.push_back(NValue::getTupleStorageSize(columnTypes[ii]));
+            allowNull.push_back(true);
+        }
+        m_schema = TupleSchema::createTupleSchema(types, sizes, allowNull, true);
+        for (int ii = 0; ii < NUM_OF_TUPLES; ii++) {
+            char *storage = new char[m_schema->tupleLength() + TUPLE_HEADER_SIZE];
+            TableTuple tuple(storage, m_schema);
+            for (int col = 0; col < columnCount; col++) {
+                tuple.setNValue(col, randomValue(columnTypes[col]));
+            }
+            m_tuples.push_back(tuple);
+        }
+    }
+
+    ~CompiledExpressionTest() {
+        for (int ii = 0; ii < m_tuples.size(); ii++) {
+            delete [] m_tuples[ii].address();
+        }
+        TupleSchema::freeTupleSchema(m_schema);
+    }
+
+    AbstractExpression *randomNumeric(int depth) {
+        int choice = rand() % (depth > 0 ? 6 : 3);
+        if (choice == 0) {
+            int col = rand() % numericCount;
+            return new TupleValueExpression(col, "T", "C");
+        } else if (choice == 1) {
+            return new ConstantValueExpression(randomValue(columnTypes[rand() % numericCount]));
+        } else if (choice == 2) {
+            return new ParameterValueExpression(rand() % NUM_OF_PARAMS);
+        }
+        return randomOperator(depth);
+    }
+
+    AbstractExpression *randomOperator(int depth) {
+        AbstractExpression *left = randomNumeric(depth - 1);
+        AbstractExpression *right = randomNumeric(depth - 1);
+        int choice = rand() % 3;
+        if (choice == 0) {
+            return new OperatorExpression<OpPlus>(EXPRESSION_TYPE_OPERATOR_PLUS, left, right);
+        } else if (choice == 1) {
+            return new OperatorExpression<OpMinus>(EXPRESSION_TYPE_OPERATOR_MINUS, left, right);
+        }
+        return new OperatorExpression<OpMultiply>(EXPRESSION_TYPE_OPERATOR_MULTIPLY, left, right);
+    }
+
+    AbstractExpression *randomPredicate(int depth) {
+        if (depth > 0 && rand() % 3 == 0) {
+            m_conjunction = true;
+            return ExpressionUtil::conjunctionFactory(rand() % 2 ? EXPRESSION_TYPE_CONJUNCTION_AND :
+                                                                   EXPRESSION_TYPE_CONJUNCTION_OR,
+                                                      randomPredicate(depth - 1), randomPredicate(depth - 1));
+        }
+        return ExpressionUtil::comparisonFactory(comparisons[rand() % 6],
+                                                 randomNumeric(2), randomNumeric(2));
+    }
+
+    void randomParams() {
+        for (int ii = 0; ii < NUM_OF_PARAMS; ii++) {
+            // a NULL of no type now and then, which the interpreter rejects
+            m_params[ii] = rand() % 20 == 0 ? NValue::getNullValue(VALUE_TYPE_NULL) :
+                randomValue(columnTypes[rand() % numericCount]);
+        }
+    }
+
+    /**
+     * Check the compiled tree against the interpreter on every tuple. Only the
+     * short-circuits of AND and OR may skip an error of the interpreter.
+     */
+    void check(AbstractExpression *expression, CompiledExpression *compiled) {
+        for (int ii = 0; ii < m_tuples.size(); ii++) {
+            const TableTuple *tuple = &m_tuples[ii];
+            NValue expected, actual;
+            bool expectedError = false, actualError = false;
+            try {
+                expected = expression->eval(tuple, NULL);
+            } catch (SerializableEEException &e) {
+                expectedError = true;
+            }
+            try {
+                actual = compiled->eval(tuple);
+            } catch (SerializableEEException &e) {
+                actualError = true;
+            }
+            if (expectedError) {
+                ASSERT_TRUE(actualError || m_conjunction);
+                continue;
+            }
+            ASSERT_FALSE(actualError);
+            ASSERT_EQ(ValuePeeker::peekValueType(expected), ValuePeeker::peekValueType(actual));
+            if (ValuePeeker::peekValueType(expected) == VALUE_TYPE_BOOLEAN) {
+                ASSERT_EQ(expected.isTrue(), actual.isTrue());
+                ASSERT_EQ(expected.isTrue(), compiled->isTrue(tuple));
+                continue;
+            }
+            ASSERT_EQ(expected.isNull(), actual.isNull());
+            if (!expected.isNull()) {
+                ASSERT_EQ(0, expected.compare(actual));
+            }
+        }
+    }
+
+    void compareRandomTrees(bool predicates) {
+        int compiledTrees = 0;
+        for (int tree = 0; tree < NUM_OF_TREES; tree++) {
+            m_conjunction = false;
+            boost::scoped_ptr<AbstractExpression> expression(
+                predicates ? randomPredicate(2) : randomOperator(3));
+            boost::scoped_ptr<CompiledExpression> compiled(
+                CompiledExpression::compile(expression.get(), m_schema));
+            if (compiled == NULL) {
+                continue;
+            }
+            compiledTrees++;
+            // parameters may change type between executions
+            for (int execution = 0; execution < 3; execution++) {
+                randomParams();
+                expression->substitute(m_params);
+                compiled->bind();
+                check(expression.get(), compiled.get());
+            }
+        }
+        ASSERT_TRUE(compiledTrees > NUM_OF_TREES / 2);
+    }
+
+protected:
+    TupleSchema *m_schema;
+    vector<TableTuple> m_tuples;
+    NValueArray m_params;
+    bool m_conjunction;
+};
+
+TEST_F(CompiledExpressionTest, Predicates) {
+    compareRandomTrees(true);
+}
+
+TEST_F(CompiledExpressionTest, Arithmetic) {
+    compareRandomTrees(false);
+}
+
+TEST_F(CompiledExpressionTest, NothingToCompile) {
+    // DECIMAL columns are left to the interpreter
+    boost::scoped_ptr<AbstractExpression> expression(
+        ExpressionUtil::comparisonFactory(EXPRESSION_TYPE_COMPARE_EQUAL,
+                                          new TupleValueExpression(6, "T", "C"),
+                                          new TupleValueExpression(6, "T", "C")));
+    ASSERT_TRUE(CompiledExpression::compile(expression.get(), m_schema) == NULL);
+    boost::scoped_ptr<AbstractExpression> column(new TupleValueExpression(3, "T", "C"));
+    ASSERT_TRUE(CompiledExpression::compile(column.get(), m_schema) == NULL);
+}
+
+TEST_F(CompiledExpressionTest, OtherSchema) {
+    // compiled for a BIGINT column 3, evaluated on a tuple whose column 3 is a DOUBLE
+    boost::scoped_ptr<AbstractExpression> expression(
+        ExpressionUtil::comparisonFactory(EXPRESSION_TYPE_COMPARE_LESSTHAN,
+                                          new TupleValueExpression(3, "T", "C"),
+                                          new ConstantValueExpression(ValueFactory::getDoubleValue(0.25))));
+    boost::scoped_ptr<CompiledExpression> compiled(CompiledExpression::compile(expression.get(), m_schema));
+    ASSERT_TRUE(compiled != NULL);
+
+    vector<ValueType> types(4, VALUE_TYPE_DOUBLE);
+    vector<int32_t> sizes(4, 8);
+    vector<bool> allowNull(4, true);
+    TupleSchema *schema = TupleSchema::createTupleSchema(types, sizes, allowNull, true);
+    char storage[4 * 8 + TUPLE_HEADER_SIZE];
+    TableTuple tuple(storage, schema);
+    for (int col = 0; col < 4; col++) {
+        tuple.setNValue(col, ValueFactory::getDoubleValue(0.125));
+    }
+    ASSERT_TRUE(compiled->isTrue(&tuple));
+    tuple.setNValue(3, ValueFactory::getDoubleValue(0.5));
+    ASSERT_FALSE(compiled->isTrue(&tuple));
+    TupleSchema::freeTupleSchema(schema);
+}
+
+int main() {
+    return TestSuite::globalInstance()->runAll();
+}
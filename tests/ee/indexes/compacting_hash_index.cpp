@@ -124,6 +124,92 @@ TEST_F(CompactingHashIndexTest, ENG1193) {
     delete tuple4;
 }
 
+// lookups of missing keys are mostly answered by the key filter, which
+// is rebuilt as keys come and go without ever dropping one still there
+TEST_F(CompactingHashIndexTest, KeyFilter) {
+    vector<int> columnIndices;
+    vector<ValueType> columnTypes;
+    vector<int32_t> columnLengths;
+    vector<bool> columnAllowNull;
+
+    columnIndices.push_back(0);
+    columnTypes.push_back(VALUE_TYPE_BIGINT);
+    columnLengths.push_back(NValue::getTupleStorageSize(VALUE_TYPE_BIGINT));
+    columnAllowNull.push_back(false);
+
+    TupleSchema *schema = TupleSchema::createTupleSchema(columnTypes,
+                                                         columnLengths,
+                                                         columnAllowNull,
+                                                         true);
+
+    TableIndexScheme scheme("test_index", HASH_TABLE_INDEX,
+                            columnIndices, TableIndex::simplyIndexColumns(),
+                            true, false, schema);
+    scheme.keyFilterBitsPerKey = TableIndex::DEFAULT_KEY_FILTER_BITS_PER_KEY;
+    TableIndex *index = TableIndexFactory::getInstance(scheme);
+    const int64_t emptyMemory = index->getMemoryEstimate();
+
+    const int count = 5000;
+    vector<TableTuple*> tuples;
+    for (int ii = 0; ii < count * 2; ii++) {
+        tuples.push_back(newTuple(schema, 0, ii));
+    }
+    // even values are in the index
+    for (int ii = 0; ii < count * 2; ii += 2) {
+        EXPECT_TRUE(index->addEntry(tuples[ii]));
+    }
+    EXPECT_TRUE(index->getMemoryEstimate() > emptyMemory);
+
+    for (int ii = 0; ii < count * 2; ii++) {
+        EXPECT_EQ(ii % 2 == 0, index->exists(tuples[ii]));
+    }
+    EXPECT_EQ(count * 2, index->getKeyFilterProbes());
+    EXPECT_EQ(count, index->getKeyFilterRejects() + index->getKeyFilterFalsePositives());
+    EXPECT_TRUE(index->getKeyFilterFalsePositives() < count / 20);
+
+    // delete most of them, enough for the filter to be rebuilt smaller
+    for (int ii = 0; ii < count * 2; ii += 2) {
+        if (ii % 10 != 0) {
+            EXPECT_TRUE(index->deleteEntry(tuples[ii]));
+        }
+    }
+    for (int ii = 0; ii < count * 2; ii++) {
+        EXPECT_EQ(ii % 10 == 0, index->exists(tuples[ii]));
+    }
+    EXPECT_EQ(count * 4, index->getKeyFilterProbes());
+    EXPECT_TRUE(index->getKeyFilterFalsePositives() < count / 10);
+
+    // the same unique index without a filter
+    scheme.keyFilterBitsPerKey = 0;
+    TableIndex *unfiltered = TableIndexFactory::getInstance(scheme);
+    EXPECT_TRUE(unfiltered->addEntry(tuples[0]));
+    EXPECT_TRUE(unfiltered->exists(tuples[0]));
+    EXPECT_FALSE(unfiltered->exists(tuples[1]));
+    EXPECT_EQ(0, unfiltered->getKeyFilterProbes());
+
+    // turned on later, the filter is built from the entries already there
+    const int64_t unfilteredMemory = unfiltered->getMemoryEstimate();
+    unfiltered->setKeyFilter(TableIndex::DEFAULT_KEY_FILTER_BITS_PER_KEY);
+    EXPECT_TRUE(unfiltered->getMemoryEstimate() > unfilteredMemory);
+    EXPECT_TRUE(unfiltered->exists(tuples[0]));
+    EXPECT_FALSE(unfiltered->exists(tuples[1]));
+    EXPECT_EQ(2, unfiltered->getKeyFilterProbes());
+
+    // and turned off again
+    unfiltered->setKeyFilter(0);
+    EXPECT_EQ(unfilteredMemory, unfiltered->getMemoryEstimate());
+    EXPECT_TRUE(unfiltered->exists(tuples[0]));
+    EXPECT_EQ(2, unfiltered->getKeyFilterProbes());
+
+    delete unfiltered;
+    delete index;
+    TupleSchema::freeTupleSchema(schema);
+    for (int ii = 0; ii < count * 2; ii++) {
+        delete[] tuples[ii]->address();
+        delete tuples[ii];
+    }
+}
+
 int main()
 {
     return TestSuite::globalInstance()->runAll();
@@ -399,6 +399,63 @@ TEST_F(IndexKeyTest, SingleVarChar30) {
     voltdb::TupleSchema::freeTupleSchema(keySchema);
 }
 
+TEST_F(IndexKeyTest, KeysToTuple) {
+    std::vector<voltdb::ValueType> columnTypes;
+    std::vector<int32_t> columnLengths;
+    std::vector<bool> columnAllowNull(3, true);
+    columnTypes.push_back(voltdb::VALUE_TYPE_BIGINT);
+    columnLengths.push_back(NValue::getTupleStorageSize(voltdb::VALUE_TYPE_BIGINT));
+    columnTypes.push_back(voltdb::VALUE_TYPE_INTEGER);
+    columnLengths.push_back(NValue::getTupleStorageSize(voltdb::VALUE_TYPE_INTEGER));
+    columnTypes.push_back(voltdb::VALUE_TYPE_TINYINT);
+    columnLengths.push_back(NValue::getTupleStorageSize(voltdb::VALUE_TYPE_TINYINT));
+    voltdb::TupleSchema *intsSchema = voltdb::TupleSchema::createTupleSchema(columnTypes, columnLengths, columnAllowNull, true);
+
+    voltdb::TableTuple intsTuple(intsSchema);
+    intsTuple.move(new char[intsTuple.tupleLength()]);
+    intsTuple.setNValue(0, ValueFactory::getBigIntValue(static_cast<int64_t>(-42)));
+    intsTuple.setNValue(1, ValueFactory::getNullValue());
+    intsTuple.setNValue(2, ValueFactory::getTinyIntValue(static_cast<int8_t>(7)));
+    voltdb::TableTuple intsOut(intsSchema);
+    intsOut.move(new char[intsOut.tupleLength()]);
+
+    EXPECT_TRUE(voltdb::IntsKey<2>::keyHoldsColumnValues());
+    voltdb::IntsKey<2> intsKey(&intsTuple);
+    intsKey.toTuple(&intsOut);
+    EXPECT_EQ(-42, ValuePeeker::peekBigInt(intsOut.getNValue(0)));
+    EXPECT_TRUE(intsOut.getNValue(1).isNull());
+    EXPECT_EQ(7, ValuePeeker::peekTinyInt(intsOut.getNValue(2)));
+
+    columnTypes[1] = voltdb::VALUE_TYPE_VARCHAR;
+    columnLengths[1] = 20;
+    voltdb::TupleSchema *genericSchema = voltdb::TupleSchema::createTupleSchema(columnTypes, columnLengths, columnAllowNull, true);
+
+    voltdb::TableTuple genericTuple(genericSchema);
+    genericTuple.move(new char[genericTuple.tupleLength()]);
+    voltdb::NValue stringValue = ValueFactory::getStringValue("value");
+    genericTuple.setNValue(0, ValueFactory::getBigIntValue(static_cast<int64_t>(-42)));
+    genericTuple.setNValue(1, stringValue);
+    genericTuple.setNValue(2, ValueFactory::getTinyIntValue(static_cast<int8_t>(7)));
+    voltdb::TableTuple genericOut(genericSchema);
+    genericOut.move(new char[genericOut.tupleLength()]);
+
+    EXPECT_TRUE(voltdb::GenericKey<40>::keyHoldsColumnValues());
+    EXPECT_FALSE(voltdb::TupleKey::keyHoldsColumnValues());
+    voltdb::GenericKey<40> genericKey(&genericTuple);
+    genericKey.toTuple(&genericOut);
+    EXPECT_EQ(-42, ValuePeeker::peekBigInt(genericOut.getNValue(0)));
+    EXPECT_EQ(0, stringValue.compare(genericOut.getNValue(1)));
+    EXPECT_EQ(7, ValuePeeker::peekTinyInt(genericOut.getNValue(2)));
+
+    delete [] intsTuple.address();
+    delete [] intsOut.address();
+    delete [] genericTuple.address();
+    delete [] genericOut.address();
+    stringValue.free();
+    voltdb::TupleSchema::freeTupleSchema(intsSchema);
+    voltdb::TupleSchema::freeTupleSchema(genericSchema);
+}
+
 TEST_F(IndexKeyTest, Int64Packing2Int32sWithSecondNull) {
     std::vector<voltdb::ValueType> columnTypes;
     std::vector<int32_t> columnLengths;
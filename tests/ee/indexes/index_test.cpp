@@ -743,6 +743,85 @@ TEST_F(IndexTest, IntsMulti) {
     delete[] searchkey.address();
 }
 
+TEST_F(IndexTest, IntsMultiKeyValues) {
+    vector<int> ixm_column_indices;
+    vector<ValueType> ixm_column_types;
+    ixm_column_indices.push_back(2);
+    ixm_column_indices.push_back(0);
+    ixm_column_types.push_back(VALUE_TYPE_BIGINT);
+    ixm_column_types.push_back(VALUE_TYPE_BIGINT);
+    init("ixm",
+         BALANCED_TREE_INDEX,
+         ixm_column_indices,
+         ixm_column_types,
+         false);
+
+    TableIndex* index = table->index("ixm");
+    EXPECT_EQ(true, index != NULL);
+    EXPECT_TRUE(index->keyHoldsColumnValues());
+
+    TableTuple tuple(table->schema());
+    TableTuple searchkey(index->getKeySchema());
+    searchkey.move(new char[searchkey.tupleLength()]);
+    TableTuple keyTuple(index->getKeySchema());
+    keyTuple.move(new char[keyTuple.tupleLength()]);
+
+    // the key of every entry matches the columns of its tuple
+    searchkey.setNValue(0, ValueFactory::getBigIntValue(static_cast<int64_t>(1)));
+    searchkey.setNValue(1, ValueFactory::getBigIntValue(static_cast<int64_t>(500)));
+    index->moveToKeyOrGreater(&searchkey);
+    for (int64_t i = 502; i < 520; i += 3) {
+        EXPECT_FALSE((tuple = index->nextValueWithKey(&keyTuple)).isNullTuple());
+        EXPECT_TRUE(ValueFactory::getBigIntValue(i).op_equals(tuple.getNValue(0)).isTrue());
+        EXPECT_TRUE(ValueFactory::getBigIntValue(1).op_equals(keyTuple.getNValue(0)).isTrue());
+        EXPECT_TRUE(ValueFactory::getBigIntValue(i).op_equals(keyTuple.getNValue(1)).isTrue());
+    }
+
+    searchkey.setNValue(0, ValueFactory::getBigIntValue(static_cast<int64_t>(2)));
+    searchkey.setNValue(1, ValueFactory::getBigIntValue(static_cast<int64_t>(5)));
+    EXPECT_TRUE(index->moveToKey(&searchkey));
+    EXPECT_FALSE((tuple = index->nextValueAtKeyWithKey(&keyTuple)).isNullTuple());
+    EXPECT_TRUE(ValueFactory::getBigIntValue(2).op_equals(keyTuple.getNValue(0)).isTrue());
+    EXPECT_TRUE(ValueFactory::getBigIntValue(5).op_equals(keyTuple.getNValue(1)).isTrue());
+    EXPECT_TRUE(ValueFactory::getBigIntValue(5 * 11).op_equals(tuple.getNValue(4)).isTrue());
+    EXPECT_TRUE(index->nextValueAtKeyWithKey(&keyTuple).isNullTuple());
+
+    delete[] searchkey.address();
+    delete[] keyTuple.address();
+}
+
+TEST_F(IndexTest, HashUniqueKeyValues) {
+    vector<int> ixu_column_indices;
+    vector<ValueType> ixu_column_types;
+    ixu_column_indices.push_back(4);
+    ixu_column_types.push_back(VALUE_TYPE_BIGINT);
+    init("ixu",
+         HASH_TABLE_INDEX,
+         ixu_column_indices,
+         ixu_column_types,
+         true);
+
+    TableIndex* index = table->index("ixu");
+    EXPECT_EQ(true, index != NULL);
+    EXPECT_TRUE(index->keyHoldsColumnValues());
+
+    TableTuple tuple(table->schema());
+    TableTuple searchkey(index->getKeySchema());
+    searchkey.move(new char[searchkey.tupleLength()]);
+    TableTuple keyTuple(index->getKeySchema());
+    keyTuple.move(new char[keyTuple.tupleLength()]);
+
+    searchkey.setNValue(0, ValueFactory::getBigIntValue(static_cast<int64_t>(77)));
+    EXPECT_TRUE(index->moveToKey(&searchkey));
+    EXPECT_FALSE((tuple = index->nextValueAtKeyWithKey(&keyTuple)).isNullTuple());
+    EXPECT_TRUE(ValueFactory::getBigIntValue(77).op_equals(keyTuple.getNValue(0)).isTrue());
+    EXPECT_TRUE(ValueFactory::getBigIntValue(7).op_equals(tuple.getNValue(0)).isTrue());
+    EXPECT_TRUE(index->nextValueAtKeyWithKey(&keyTuple).isNullTuple());
+
+    delete[] searchkey.address();
+    delete[] keyTuple.address();
+}
+
 TEST_F(IndexTest, TupleKeyUnique) {
 
     // make a tuple with the index key schema
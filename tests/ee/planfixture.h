@@ -0,0 +1,151 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+// An engine for EE tests and benchmarks that load a catalog and run hand
+// written plans. Test fixtures derive from both Test and PlanFixture,
+// benchmarks from Benchmark and PlanFixture, and register the plans of their
+// fragments with addPlan().
+
+#ifndef EE_PLANFIXTURE_H_
+#define EE_PLANFIXTURE_H_
+
+#include "common/types.h"
+#include "common/serializeio.h"
+#include "common/valuevector.h"
+#include "common/Topend.h"
+#include "execution/VoltDBEngine.h"
+#include "logging/StdoutLogProxy.h"
+
+#include <cstdio>
+#include <cstdlib>
+#include <map>
+#include <string>
+#include <boost/scoped_array.hpp>
+
+/**
+ * Serves the plans of the fragments, there is no frontend to fetch them from.
+ */
+class PlanTopend : public voltdb::Topend {
+public:
+    void addPlan(int64_t fragmentId, const std::string &plan) {
+        m_plans[fragmentId] = plan;
+    }
+
+    int loadNextDependency(int32_t dependencyId, voltdb::Pool *pool, voltdb::Table* destination) {
+        return 0;
+    }
+
+    std::string planForFragmentId(int64_t fragmentId) {
+        std::map<int64_t, std::string>::const_iterator iter = m_plans.find(fragmentId);
+        return iter == m_plans.end() ? "" : iter->second;
+    }
+
+    void crashVoltDB(voltdb::FatalException e) {
+        fprintf(stderr, "%s\n", e.m_reason.c_str());
+        abort();
+    }
+
+    int64_t getQueuedExportBytes(int32_t partitionId, std::string signature) {
+        return 0;
+    }
+
+    void pushExportBuffer(int64_t generation, int32_t partitionId, std::string signature,
+                          voltdb::StreamBlock *block, bool sync, bool endOfStream) {}
+
+    char* growResultBuffer(size_t minimumSize, size_t *capacity) { return NULL; }
+
+private:
+    std::map<int64_t, std::string> m_plans;
+};
+
+/**
+ * A single partition engine loaded with the catalog, with buffers of
+ * bufferSize bytes to exchange parameters, results and exceptions.
+ */
+class PlanFixture {
+public:
+    PlanFixture(const char *catalogPayload, int bufferSize) : m_spHandle(0) {
+        // the engine owns the topend and the log proxy
+        m_topend = new PlanTopend();
+        m_engine = new voltdb::VoltDBEngine(m_topend, new voltdb::StdoutLogProxy());
+        m_parameterBuffer.reset(new char[bufferSize]);
+        m_resultBuffer.reset(new char[bufferSize]);
+        m_exceptionBuffer.reset(new char[bufferSize]);
+        m_engine->setBuffers(m_parameterBuffer.get(), bufferSize,
+                             m_resultBuffer.get(), bufferSize,
+                             m_exceptionBuffer.get(), bufferSize);
+        int partitionCount = 1;
+        m_engine->initialize(1, 1, 0, 0, "", voltdb::DEFAULT_TEMP_TABLE_MEMORY, voltdb::HASHINATOR_LEGACY,
+                             (char*)&partitionCount);
+        m_engine->loadCatalog(0, catalogPayload);
+    }
+
+    virtual ~PlanFixture() {
+        delete m_engine;
+    }
+
+    void addPlan(int64_t fragmentId, const std::string &plan) {
+        m_topend->addPlan(fragmentId, plan);
+    }
+
+    /**
+     * Run the fragment as a transaction of its own
+     * @return the engine's error code
+     */
+    int executeFragment(int64_t fragmentId, const voltdb::NValueArray &params) {
+        m_engine->resetReusedResultOutputBuffer();
+        ++m_spHandle;
+        return m_engine->executeQuery(fragmentId, 1, -1, params,
+                                      m_spHandle, m_spHandle - 1, m_spHandle, true, true);
+    }
+
+    /**
+     * Read the result of the last fragment up to the size of its first
+     * row, the fragment must have sent a single table
+     * @return the number of rows, -1 for any other number of tables
+     */
+    static int32_t readResultHeader(voltdb::SerializeInput &result) {
+        result.readInt();      // size of the results
+        result.readBool();     // dirty
+        if (result.readInt() != 1) {
+            return -1;
+        }
+        result.readInt();      // dependency id
+        result.readInt();      // table size
+        int32_t headerSize = result.readInt();
+        result.getRawPointer(headerSize);
+        return result.readInt();
+    }
+
+protected:
+    voltdb::VoltDBEngine *m_engine;
+    int64_t m_spHandle;
+    boost::scoped_array<char> m_parameterBuffer;
+    boost::scoped_array<char> m_resultBuffer;
+    boost::scoped_array<char> m_exceptionBuffer;
+
+private:
+    PlanTopend *m_topend;
+};
+
+#endif // EE_PLANFIXTURE_H_
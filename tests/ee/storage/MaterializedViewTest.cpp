@@ -0,0 +1,254 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include "harness.h"
+#include "planfixture.h"
+#include "common/types.h"
+#include "common/NValue.hpp"
+#include "common/ValueFactory.hpp"
+#include "common/ValuePeeker.hpp"
+#include "common/tabletuple.h"
+#include "storage/persistenttable.h"
+#include "storage/tableiterator.h"
+#include "storage/MaterializedViewMetadata.h"
+
+#include <cstdlib>
+#include <map>
+#include <string>
+
+using namespace voltdb;
+using namespace std;
+
+#define NUM_OF_GROUPS 10
+#define NUM_OF_VALUES 50
+#define NUM_OF_OPERATIONS 3000
+#define BUFFER_SIZE (1024 * 1024)
+
+#define DB "/clusters[cluster]/databases[database]"
+
+#define COLUMN(table, name, idx, type, size, nullable, agg, view, source) \
+    "\nadd " DB "/tables[" table "] columns " name \
+    "\nset " DB "/tables[" table "]/columns[" name "] index " #idx \
+    "\nset $PREV type " #type \
+    "\nset $PREV size " #size \
+    "\nset $PREV nullable " #nullable \
+    "\nset $PREV name \"" name "\"" \
+    "\nset $PREV defaultvalue null" \
+    "\nset $PREV defaulttype 0" \
+    "\nset $PREV matview " view \
+    "\nset $PREV aggregatetype " #agg \
+    "\nset $PREV matviewsource " source
+
+/*
+ * CREATE TABLE <src> (ID BIGINT NOT NULL, G BIGINT NOT NULL, V BIGINT, PRIMARY KEY (ID));
+ * CREATE VIEW <view> (G, NUM, LOW, HIGH) AS
+ *     SELECT G, COUNT(*), MIN(V), MAX(V) FROM <src> GROUP BY G;
+ */
+#define TABLE_AND_VIEW(src, view) \
+    "\nadd " DB " tables " src \
+    "\nset " DB "/tables[" src "] isreplicated true" \
+    "\nset $PREV partitioncolumn null" \
+    "\nset $PREV estimatedtuplecount 0" \
+    "\nset $PREV materializer null" \
+    "\nset $PREV signature \"" src "bbb\"" \
+    COLUMN(src, "ID", 0, 6, 8, false, 0, "null", "null") \
+    COLUMN(src, "G", 1, 6, 8, false, 0, "null", "null") \
+    COLUMN(src, "V", 2, 6, 8, true, 0, "null", "null") \
+    "\nadd " DB "/tables[" src "] indexes " src "_PK" \
+    "\nset " DB "/tables[" src "]/indexes[" src "_PK] unique true" \
+    "\nset $PREV countable true" \
+    "\nset $PREV type 1" \
+    "\nset $PREV expressionsjson \"\"" \
+    "\nadd " DB "/tables[" src "]/indexes[" src "_PK] columns ID" \
+    "\nset " DB "/tables[" src "]/indexes[" src "_PK]/columns[ID] index 0" \
+    "\nset $PREV column " DB "/tables[" src "]/columns[ID]" \
+    "\nadd " DB "/tables[" src "] constraints " src "_PK_CONSTRAINT" \
+    "\nset " DB "/tables[" src "]/constraints[" src "_PK_CONSTRAINT] type 4" \
+    "\nset $PREV oncommit \"\"" \
+    "\nset $PREV index " DB "/tables[" src "]/indexes[" src "_PK]" \
+    "\nset $PREV foreignkeytable null" \
+    "\nadd " DB "/tables[" src "] views " view \
+    "\nset " DB "/tables[" src "]/views[" view "] dest " DB "/tables[" view "]" \
+    "\nset $PREV predicate \"\"" \
+    "\nadd " DB "/tables[" src "]/views[" view "] groupbycols G" \
+    "\nset " DB "/tables[" src "]/views[" view "]/groupbycols[G] index 0" \
+    "\nset $PREV column " DB "/tables[" src "]/columns[G]" \
+    "\nadd " DB " tables " view \
+    "\nset " DB "/tables[" view "] isreplicated true" \
+    "\nset $PREV partitioncolumn null" \
+    "\nset $PREV estimatedtuplecount 0" \
+    "\nset $PREV materializer " DB "/tables[" src "]" \
+    "\nset $PREV signature \"" view "bibb\"" \
+    COLUMN(view, "G", 0, 6, 8, true, 32, DB "/tables[" src "]/views[" view "]", DB "/tables[" src "]/columns[G]") \
+    COLUMN(view, "NUM", 1, 5, 4, true, 41, DB "/tables[" src "]/views[" view "]", "null") \
+    COLUMN(view, "LOW", 2, 6, 8, true, 43, DB "/tables[" src "]/views[" view "]", DB "/tables[" src "]/columns[V]") \
+    COLUMN(view, "HIGH", 3, 6, 8, true, 44, DB "/tables[" src "]/views[" view "]", DB "/tables[" src "]/columns[V]") \
+    "\nadd " DB "/tables[" view "] indexes MATVIEW_PK_INDEX" \
+    "\nset " DB "/tables[" view "]/indexes[MATVIEW_PK_INDEX] unique true" \
+    "\nset $PREV countable false" \
+    "\nset $PREV type 1" \
+    "\nset $PREV expressionsjson \"\"" \
+    "\nadd " DB "/tables[" view "]/indexes[MATVIEW_PK_INDEX] columns 0" \
+    "\nset " DB "/tables[" view "]/indexes[MATVIEW_PK_INDEX]/columns[0] index 0" \
+    "\nset $PREV column " DB "/tables[" view "]/columns[G]" \
+    "\nadd " DB "/tables[" view "] constraints MATVIEW_PK_CONSTRAINT" \
+    "\nset " DB "/tables[" view "]/constraints[MATVIEW_PK_CONSTRAINT] type 4" \
+    "\nset $PREV oncommit \"\"" \
+    "\nset $PREV index " DB "/tables[" view "]/indexes[MATVIEW_PK_INDEX]" \
+    "\nset $PREV foreignkeytable null"
+
+/*
+ * T has an index on (G, V) to recompute its view from, S has none.
+ * CREATE INDEX T_G_V ON T (G, V);
+ */
+static const char *catalogPayload =
+    "add / clusters cluster"
+    "\nadd /clusters[cluster] databases database"
+    TABLE_AND_VIEW("T", "VT")
+    "\nadd " DB "/tables[T] indexes T_G_V"
+    "\nset " DB "/tables[T]/indexes[T_G_V] unique false"
+    "\nset $PREV countable true"
+    "\nset $PREV type 1"
+    "\nset $PREV expressionsjson \"\""
+    "\nadd " DB "/tables[T]/indexes[T_G_V] columns G"
+    "\nset " DB "/tables[T]/indexes[T_G_V]/columns[G] index 0"
+    "\nset $PREV column " DB "/tables[T]/columns[G]"
+    "\nadd " DB "/tables[T]/indexes[T_G_V] columns V"
+    "\nset " DB "/tables[T]/indexes[T_G_V]/columns[V] index 1"
+    "\nset $PREV column " DB "/tables[T]/columns[V]"
+    TABLE_AND_VIEW("S", "VS");
+
+// (G, V) of the rows by ID, V is -1 for NULL
+typedef map<int64_t, pair<int64_t, int64_t> > Rows;
+
+class MaterializedViewTest : public Test, public PlanFixture {
+public:
+    MaterializedViewTest() : PlanFixture(catalogPayload, BUFFER_SIZE) {
+        srand(0);
+    }
+
+    static NValue value(int64_t v) {
+        return v < 0 ? NValue::getNullValue(VALUE_TYPE_BIGINT) : ValueFactory::getBigIntValue(v);
+    }
+
+    void setRow(TableTuple &tuple, int64_t id, int64_t g, int64_t v) {
+        tuple.setNValue(0, ValueFactory::getBigIntValue(id));
+        tuple.setNValue(1, ValueFactory::getBigIntValue(g));
+        tuple.setNValue(2, value(v));
+    }
+
+    /**
+     * Apply random inserts, deletes and updates to the table and check its view
+     * against the rows after every one of them
+     */
+    void modify(const char *tableName, const char *viewName) {
+        Table *table = m_engine->getTable(tableName);
+        Rows rows;
+        int64_t nextId = 0;
+        for (int op = 0; op < NUM_OF_OPERATIONS; op++) {
+            int choice = rows.size() < 20 ? 0 : rand() % 3;
+            int64_t g = rand() % NUM_OF_GROUPS;
+            int64_t v = rand() % 10 == 0 ? -1 : rand() % NUM_OF_VALUES;
+            if (choice == 0) {
+                TableTuple &tuple = table->tempTuple();
+                setRow(tuple, nextId, g, v);
+                ASSERT_TRUE(table->insertTuple(tuple));
+                rows[nextId++] = make_pair(g, v);
+                check(viewName, rows);
+                continue;
+            }
+
+            Rows::iterator row = rows.lower_bound(rand() % nextId);
+            if (row == rows.end()) {
+                row = rows.begin();
+            }
+            TableTuple &key = table->tempTuple();
+            setRow(key, row->first, row->second.first, row->second.second);
+            TableTuple target = dynamic_cast<PersistentTable*>(table)->lookupTuple(key);
+            ASSERT_FALSE(target.isNullTuple());
+            if (choice == 1) {
+                ASSERT_TRUE(table->deleteTuple(target, false));
+                rows.erase(row);
+            } else {
+                // keep the group half of the time
+                if (rand() % 2 == 0) {
+                    g = row->second.first;
+                }
+                TableTuple &source = table->tempTuple();
+                setRow(source, row->first, g, v);
+                ASSERT_TRUE(table->updateTuple(target, source));
+                row->second = make_pair(g, v);
+            }
+            check(viewName, rows);
+        }
+    }
+
+    void check(const char *viewName, const Rows &rows) {
+        // (count, low, high) by group
+        map<int64_t, int64_t> counts, lows, highs;
+        for (Rows::const_iterator it = rows.begin(); it != rows.end(); it++) {
+            int64_t g = it->second.first;
+            int64_t v = it->second.second;
+            if (counts.find(g) == counts.end()) {
+                lows[g] = highs[g] = -1;
+            }
+            counts[g]++;
+            if (v >= 0) {
+                lows[g] = lows[g] < 0 ? v : min(lows[g], v);
+                highs[g] = max(highs[g], v);
+            }
+        }
+
+        Table *view = m_engine->getTable(viewName);
+        ASSERT_EQ(counts.size(), view->activeTupleCount());
+        TableTuple tuple(view->schema());
+        TableIterator iterator = view->iterator();
+        while (iterator.next(tuple)) {
+            int64_t g = ValuePeeker::peekAsBigInt(tuple.getNValue(0));
+            ASSERT_TRUE(counts.find(g) != counts.end());
+            ASSERT_EQ(counts[g], ValuePeeker::peekAsBigInt(tuple.getNValue(1)));
+            ASSERT_EQ(0, value(lows[g]).compare(tuple.getNValue(2)));
+            ASSERT_EQ(0, value(highs[g]).compare(tuple.getNValue(3)));
+        }
+    }
+
+    MaterializedViewMetadata *view(const char *tableName) {
+        return dynamic_cast<PersistentTable*>(m_engine->getTable(tableName))->views()[0];
+    }
+};
+
+TEST_F(MaterializedViewTest, MinMaxFromIndex) {
+    modify("T", "VT");
+    ASSERT_TRUE(view("T")->getIndexRecomputes() > 0);
+    ASSERT_EQ(0, view("T")->getScanRecomputes());
+}
+
+TEST_F(MaterializedViewTest, MinMaxFromScan) {
+    modify("S", "VS");
+    ASSERT_EQ(0, view("S")->getIndexRecomputes());
+    ASSERT_TRUE(view("S")->getScanRecomputes() > 0);
+}
+
+int main() {
+    return TestSuite::globalInstance()->runAll();
+}
@@ -85,7 +85,7 @@ class MockTopend : public Topend {
 
     }
 
-    void fallbackToEEAllocatedBuffer(char *buffer, size_t length) {}
+    char* growResultBuffer(size_t minimumSize, size_t *capacity) { return NULL; }
     queue<int32_t> partitionIds;
     queue<std::string> signatures;
     vector<shared_ptr<StreamBlock> > blocks;
@@ -0,0 +1,243 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include <vector>
+#include <string>
+#include <stdint.h>
+
+#include "harness.h"
+#include "common/TupleSchema.h"
+#include "common/types.h"
+#include "common/NValue.hpp"
+#include "common/ValueFactory.hpp"
+#include "common/ValuePeeker.hpp"
+#include "execution/VoltDBEngine.h"
+#include "storage/persistenttable.h"
+#include "storage/StringDictionary.h"
+#include "storage/tablefactory.h"
+#include "storage/tableiterator.h"
+#include "indexes/tableindex.h"
+#include "indexes/tableindexfactory.h"
+
+using namespace std;
+using namespace voltdb;
+
+class StringDictionaryTest : public Test {
+public:
+    StringDictionaryTest() {
+        m_engine = new VoltDBEngine();
+        int partitionCount = 1;
+        m_engine->initialize(1,1, 0, 0, "", DEFAULT_TEMP_TABLE_MEMORY, HASHINATOR_LEGACY, (char*)&partitionCount);
+        m_engine->setUndoToken(INT64_MIN + 1);
+        m_engine->getExecutorContext();
+
+        vector<string> columnNames;
+        vector<ValueType> columnTypes;
+        vector<int32_t> columnSizes;
+        vector<bool> allowNull;
+        columnNames.push_back("ID");
+        columnNames.push_back("STATUS");
+        columnNames.push_back("NOTE");
+        columnTypes.push_back(VALUE_TYPE_TINYINT);
+        columnTypes.push_back(VALUE_TYPE_VARCHAR);
+        columnTypes.push_back(VALUE_TYPE_VARCHAR);
+        columnSizes.push_back(NValue::getTupleStorageSize(VALUE_TYPE_TINYINT));
+        columnSizes.push_back(100);
+        columnSizes.push_back(100);
+        allowNull.push_back(false);
+        allowNull.push_back(true);
+        allowNull.push_back(true);
+        m_schema = TupleSchema::createTupleSchema(columnTypes, columnSizes, allowNull, true);
+
+        m_table = dynamic_cast<PersistentTable*>(
+            TableFactory::getPersistentTable(0, "EVENTS", m_schema, columnNames, 0));
+        // STATUS is encoded, NOTE is stored per tuple
+        m_table->setDictionaryEncodedColumn(1);
+
+        vector<int> pkeyColumns;
+        pkeyColumns.push_back(0);
+        TableIndexScheme pkeyScheme("pkey", BALANCED_TREE_INDEX, pkeyColumns,
+                                    TableIndex::simplyIndexColumns(),
+                                    true, true, m_schema);
+        TableIndex *pkeyIndex = TableIndexFactory::getInstance(pkeyScheme);
+        m_table->addIndex(pkeyIndex);
+        m_table->setPrimaryKeyIndex(pkeyIndex);
+
+        m_values.push_back(ValueFactory::getStringValue("OK"));
+        m_values.push_back(ValueFactory::getStringValue("NOT_FOUND"));
+        m_values.push_back(ValueFactory::getStringValue("TIMEOUT"));
+        m_values.push_back(ValueFactory::getStringValue("RETRY"));
+        m_note = ValueFactory::getStringValue("a note");
+    }
+
+    ~StringDictionaryTest() {
+        for (int i = 0; i < m_values.size(); i++) {
+            m_values[i].free();
+        }
+        m_note.free();
+        // the engine owns the pools the strings come from
+        delete m_table;
+        delete m_engine;
+    }
+
+    void insert(int8_t id, const NValue &status) {
+        TableTuple &tuple = m_table->tempTuple();
+        tuple.setNValue(0, ValueFactory::getTinyIntValue(id));
+        tuple.setNValue(1, status);
+        tuple.setNValue(2, m_note);
+        m_table->insertTuple(tuple);
+    }
+
+    TableTuple find(int8_t id) {
+        TableIterator iterator = m_table->iterator();
+        TableTuple tuple(m_schema);
+        while (iterator.next(tuple)) {
+            if (ValuePeeker::peekTinyInt(tuple.getNValue(0)) == id) {
+                return tuple;
+            }
+        }
+        return TableTuple();
+    }
+
+    void update(int8_t id, const NValue &status) {
+        TableTuple target = find(id);
+        TableTuple source(m_schema);
+        source.move(new char[source.tupleLength()]);
+        source.copy(target);
+        source.setNValue(1, status);
+        m_table->updateTuple(target, source);
+        delete[] source.address();
+    }
+
+    static const void* storage(const TableTuple &tuple, int column) {
+        return ValuePeeker::peekObjectValue(tuple.getNValue(column));
+    }
+
+    static size_t memoryUsed(const NValue &value) {
+        return StringRef::computeStringMemoryUsed(ValuePeeker::peekObjectLength(value));
+    }
+
+    // a string allocated the way a persistent tuple's is
+    static StringRef* fresh(const NValue &value) {
+        StringRef *sref = NULL;
+        value.serializeToTupleStorageAllocateForObjects(&sref, false, 100, NULL);
+        return sref;
+    }
+
+    VoltDBEngine *m_engine;
+    TupleSchema *m_schema;
+    PersistentTable *m_table;
+    vector<NValue> m_values;
+    NValue m_note;
+};
+
+TEST_F(StringDictionaryTest, SharesEqualValues) {
+    for (int8_t id = 0; id < 30; id++) {
+        insert(id, m_values[id % 3]);
+    }
+    insert(30, NValue::getNullValue(VALUE_TYPE_VARCHAR));
+
+    const StringDictionary *dictionary = m_table->dictionary(1);
+    ASSERT_TRUE(dictionary != NULL);
+    ASSERT_TRUE(m_table->dictionary(2) == NULL);
+    ASSERT_TRUE(m_table->columnIsDictionaryEncoded(1));
+    ASSERT_FALSE(m_table->columnIsDictionaryEncoded(2));
+    ASSERT_EQ(3, dictionary->size());
+    ASSERT_EQ(memoryUsed(m_values[0]) + memoryUsed(m_values[1]) + memoryUsed(m_values[2]),
+              dictionary->bytes());
+    // the dictionary entries are counted once, the notes for each tuple
+    ASSERT_EQ(dictionary->bytes() + 31 * memoryUsed(m_note), m_table->nonInlinedMemorySize());
+
+    TableTuple first = find(1);
+    TableTuple second = find(4);
+    ASSERT_TRUE(storage(first, 1) == storage(second, 1));
+    ASSERT_TRUE(storage(first, 2) != storage(second, 2));
+    ASSERT_EQ(0, first.getNValue(1).compare(second.getNValue(1)));
+    ASSERT_EQ(0, first.getNValue(1).compare(m_values[1]));
+    ASSERT_TRUE(first.getNValue(1).compare(find(2).getNValue(1)) != 0);
+    ASSERT_TRUE(find(30).getNValue(1).isNull());
+}
+
+TEST_F(StringDictionaryTest, UpdateAndUndo) {
+    for (int8_t id = 0; id < 3; id++) {
+        insert(id, m_values[0]);
+    }
+    const StringDictionary *dictionary = m_table->dictionary(1);
+    ASSERT_EQ(1, dictionary->size());
+
+    m_engine->setUndoToken(INT64_MIN + 2);
+    update(1, m_values[3]);
+    ASSERT_EQ(2, dictionary->size());
+    ASSERT_EQ(0, find(1).getNValue(1).compare(m_values[3]));
+    m_engine->undoUndoToken(INT64_MIN + 2);
+
+    ASSERT_TRUE(storage(find(0), 1) == storage(find(1), 1));
+    // the entry no one refers to anymore stays until a sweep
+    ASSERT_EQ(2, dictionary->size());
+    ASSERT_EQ(dictionary->bytes() + 3 * memoryUsed(m_note), m_table->nonInlinedMemorySize());
+
+    m_engine->setUndoToken(INT64_MIN + 3);
+    update(1, m_values[3]);
+    update(2, m_values[3]);
+    m_engine->releaseUndoToken(INT64_MIN + 3);
+    ASSERT_EQ(2, dictionary->size());
+    ASSERT_TRUE(storage(find(1), 1) == storage(find(2), 1));
+    ASSERT_TRUE(storage(find(0), 1) != storage(find(1), 1));
+
+    m_engine->setUndoToken(INT64_MIN + 4);
+    m_table->deleteAllTuples(true);
+    m_engine->releaseUndoToken(INT64_MIN + 4);
+    ASSERT_EQ(0, m_table->activeTupleCount());
+    ASSERT_EQ(dictionary->bytes(), m_table->nonInlinedMemorySize());
+}
+
+TEST_F(StringDictionaryTest, Sweep) {
+    StringDictionary dictionary;
+    StringRef *ok = dictionary.intern(fresh(m_values[0]));
+    StringRef *timeout = dictionary.intern(fresh(m_values[2]));
+    ASSERT_TRUE(ok == dictionary.intern(fresh(m_values[0])));
+    ASSERT_TRUE(dictionary.intern(NULL) == NULL);
+    ASSERT_EQ(2, dictionary.size());
+
+    // both tuples with OK are gone
+    StringRef::destroy(ok);
+    StringRef::destroy(ok);
+    dictionary.sweep();
+    ASSERT_EQ(1, dictionary.size());
+    ASSERT_EQ(memoryUsed(m_values[2]), dictionary.bytes());
+    ASSERT_TRUE(timeout == dictionary.intern(fresh(m_values[2])));
+
+    // unreferenced entries are swept once the dictionary has doubled
+    char buffer[32];
+    for (int i = 0; i < 2000; i++) {
+        snprintf(buffer, sizeof(buffer), "value %d", i);
+        NValue value = ValueFactory::getStringValue(buffer);
+        StringRef::destroy(dictionary.intern(fresh(value)));
+        value.free();
+    }
+    ASSERT_TRUE(dictionary.size() < 1100);
+}
+
+int main() {
+    return TestSuite::globalInstance()->runAll();
+}
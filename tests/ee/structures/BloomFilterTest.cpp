@@ -0,0 +1,83 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include "harness.h"
+#include "structures/BloomFilter.h"
+
+using namespace voltdb;
+
+class BloomFilterTest : public Test {
+};
+
+TEST_F(BloomFilterTest, NoFalseNegatives) {
+    BloomFilter filter;
+    ASSERT_FALSE(filter.isEnabled());
+    filter.reset(10000, 10);
+    ASSERT_TRUE(filter.isEnabled());
+    ASSERT_EQ(10000, filter.capacity());
+    // 100000 bits rounded up to a power of two of 256 bit blocks
+    ASSERT_EQ(16384, filter.bytes());
+
+    for (uint64_t key = 0; key < 10000; key++) {
+        filter.add(key * 3);
+    }
+    for (uint64_t key = 0; key < 10000; key++) {
+        ASSERT_TRUE(filter.mayContain(key * 3));
+    }
+
+    // sequential hashes are mixed, about 1% of the others pass
+    int passed = 0;
+    for (uint64_t key = 0; key < 100000; key++) {
+        if (filter.mayContain(key * 3 + 1)) {
+            passed++;
+        }
+    }
+    ASSERT_TRUE(passed < 2000);
+}
+
+TEST_F(BloomFilterTest, ResetClears) {
+    BloomFilter filter;
+    filter.reset(100, 10);
+    for (uint64_t key = 0; key < 100; key++) {
+        filter.add(key);
+    }
+    filter.clear();
+    int passed = 0;
+    for (uint64_t key = 0; key < 100; key++) {
+        if (filter.mayContain(key)) {
+            passed++;
+        }
+    }
+    ASSERT_EQ(0, passed);
+
+    // resizing clears too
+    filter.add(7);
+    ASSERT_TRUE(filter.mayContain(7));
+    filter.reset(100000, 10);
+    ASSERT_FALSE(filter.mayContain(7));
+    ASSERT_EQ(131072, filter.bytes());
+}
+
+int main() {
+    return TestSuite::globalInstance()->runAll();
+}
@@ -0,0 +1,151 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include <set>
+#include <vector>
+#include <cstdio>
+#include "harness.h"
+#include "common/NValue.hpp"
+#include "common/ValueFactory.hpp"
+#include "common/SQLException.h"
+#include "common/ThreadLocalPool.h"
+#include "storage/TempTableLimits.h"
+#include "structures/NValueHashSet.h"
+
+using namespace voltdb;
+using namespace std;
+
+class NValueHashSetTest : public Test {
+public:
+    ~NValueHashSetTest() {
+        for (size_t i = 0; i < m_strings.size(); i++) {
+            m_strings[i].free();
+        }
+    }
+
+    NValue stringValue(int i) {
+        char buf[32];
+        snprintf(buf, sizeof(buf), "value %d", i);
+        NValue value = ValueFactory::getStringValue(buf);
+        m_strings.push_back(value);
+        return value;
+    }
+
+private:
+    ThreadLocalPool m_pool;
+    vector<NValue> m_strings;
+};
+
+TEST_F(NValueHashSetTest, MatchesStdSet) {
+    TempTableLimits limits;
+    NValueHashSet found(1, &limits);
+    set<int64_t> expected;
+    srand(1);
+    for (int i = 0; i < 20000; i++) {
+        // multiples of a power of two, the hashes must still spread
+        int64_t v = (rand() % 5000) * 1024;
+        NValue value = ValueFactory::getBigIntValue(v);
+        ASSERT_EQ(expected.insert(v).second, found.insert(&value));
+    }
+    ASSERT_EQ(expected.size(), found.size());
+    for (int64_t v = 0; v < 5000 * 1024; v += 512) {
+        NValue value = ValueFactory::getBigIntValue(v);
+        ASSERT_EQ(expected.count(v) == 1, found.contains(&value));
+    }
+}
+
+TEST_F(NValueHashSetTest, MultipleColumns) {
+    NValueHashSet found(2, NULL);
+    for (int i = 0; i < 100; i++) {
+        for (int j = 0; j < 10; j++) {
+            NValue row[2] = { ValueFactory::getIntegerValue(i), stringValue(j) };
+            ASSERT_TRUE(found.insert(row));
+        }
+    }
+    ASSERT_EQ(1000, static_cast<int>(found.size()));
+    for (int i = 0; i < 100; i++) {
+        for (int j = 0; j < 10; j++) {
+            // equal strings in other buffers
+            NValue row[2] = { ValueFactory::getIntegerValue(i), stringValue(j) };
+            ASSERT_FALSE(found.insert(row));
+        }
+    }
+    NValue row[2] = { ValueFactory::getIntegerValue(5), stringValue(10) };
+    ASSERT_FALSE(found.contains(row));
+    ASSERT_EQ(1000, static_cast<int>(found.size()));
+}
+
+TEST_F(NValueHashSetTest, Nulls) {
+    NValueHashSet found(1, NULL);
+    NValue null = ValueFactory::getNullStringValue();
+    NValue empty = ValueFactory::getStringValue(string(""));
+    ASSERT_TRUE(found.insert(&null));
+    ASSERT_FALSE(found.insert(&null));
+    // hashes like NULL but isn't equal to it
+    ASSERT_TRUE(found.insert(&empty));
+    ASSERT_EQ(2, static_cast<int>(found.size()));
+    empty.free();
+}
+
+TEST_F(NValueHashSetTest, ChargesLimits) {
+    TempTableLimits limits;
+    {
+        NValueHashSet found(1, &limits);
+        ASSERT_EQ(found.allocatedBytes(), limits.getAllocated());
+        for (int i = 0; i < 10000; i++) {
+            NValue value = ValueFactory::getIntegerValue(i);
+            found.insert(&value);
+        }
+        ASSERT_TRUE(found.capacity() >= 20000);
+        ASSERT_EQ(found.allocatedBytes(), limits.getAllocated());
+    }
+    ASSERT_EQ(0, limits.getAllocated());
+}
+
+TEST_F(NValueHashSetTest, MemoryLimit) {
+    TempTableLimits limits;
+    limits.setMemoryLimit(64 * 1024);
+    NValueHashSet found(1, &limits);
+    bool thrown = false;
+    int i = 0;
+    try {
+        for (; i < 100000; i++) {
+            NValue value = ValueFactory::getIntegerValue(i);
+            found.insert(&value);
+        }
+    } catch (SQLException &e) {
+        thrown = true;
+    }
+    ASSERT_TRUE(thrown);
+    // the set grew but the row that took it over the limit is not in it
+    ASSERT_EQ(i, static_cast<int>(found.size()));
+    ASSERT_EQ(found.allocatedBytes(), limits.getAllocated());
+    for (int j = 0; j < i; j++) {
+        NValue value = ValueFactory::getIntegerValue(j);
+        ASSERT_TRUE(found.contains(&value));
+    }
+}
+
+int main() {
+    return TestSuite::globalInstance()->runAll();
+}
@@ -51,6 +51,7 @@
 package org.voltcore.messaging;
 
 import java.util.*;
+import java.util.concurrent.LinkedBlockingDeque;
 
 import org.voltcore.messaging.Mailbox;
 
@@ -222,7 +223,8 @@ public class MockMailbox implements Mailbox {
 
     final ArrayList<Deque<VoltMessage>> m_messages = new ArrayList<Deque<VoltMessage>>();
 
-    private final ArrayDeque<Message> outgoingMessages = new ArrayDeque<Message>();
+    // stream snapshot tests send from several threads
+    private final LinkedBlockingDeque<Message> outgoingMessages = new LinkedBlockingDeque<Message>();
 
     private long m_hsId = 0;
 
@@ -166,4 +166,75 @@ public class TestHostMessenger {
         hm3.waitForGroupJoin(2);
     }
 
+    /*
+     * A local mailbox that sends again from deliver(), the way a site's
+     * scheduler answers a fragment, while the outer fan out is still
+     * grouping its destinations and has already seen a foreign host.
+     */
+    @Test
+    public void testNestedSendFromLocalDelivery() throws Exception {
+        final HostMessenger hm1 = createHostMessenger(0);
+        final HostMessenger hm2 = createHostMessenger(1, false);
+        final HostMessenger hm3 = createHostMessenger(2, false);
+
+        final AtomicReference<Exception> exception = new AtomicReference<Exception>();
+        Thread hm2Start = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    hm2.start();
+                } catch (Exception e) {
+                    exception.set(e);
+                }
+            }
+        };
+        Thread hm3Start = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    hm3.start();
+                } catch (Exception e) {
+                    exception.set(e);
+                }
+            }
+        };
+        hm2Start.start();
+        hm3Start.start();
+        hm2Start.join();
+        hm3Start.join();
+        if (exception.get() != null) {
+            fail(exception.get().toString());
+        }
+        hm1.waitForGroupJoin(3);
+
+        final Mailbox remote2 = hm2.createMailbox();
+        final Mailbox remote3 = hm3.createMailbox();
+        final Mailbox other2 = hm2.createMailbox();
+        final long nestedDestinations[] = new long[] { other2.getHSId(), remote3.getHSId() };
+        final BinaryPayloadMessage nested = new BinaryPayloadMessage(new byte[] { 2 }, null);
+        SiteMailbox local = new SiteMailbox(hm1, hm1.getHSIdForLocalSite(1000)) {
+            @Override
+            public void deliver(VoltMessage message) {
+                super.deliver(message);
+                hm1.send(nestedDestinations, nested);
+            }
+        };
+        hm1.createMailbox(local.getHSId(), local);
+
+        hm1.send(new long[] { remote2.getHSId(), local.getHSId(), remote3.getHSId() },
+                 new BinaryPayloadMessage(new byte[] { 1 }, null));
+
+        assertNotNull(local.recvBlocking(10000));
+        assertPayload(1, remote2.recvBlocking(10000));
+        assertPayload(2, other2.recvBlocking(10000));
+        // remote3 gets the nested message before the outer one
+        assertPayload(2, remote3.recvBlocking(10000));
+        assertPayload(1, remote3.recvBlocking(10000));
+        assertNull(remote2.recv());
+    }
+
+    private static void assertPayload(int expected, VoltMessage message) {
+        assertNotNull(message);
+        assertEquals(expected, ((BinaryPayloadMessage)message).m_metadata[0]);
+    }
 }
@@ -0,0 +1,166 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltcore.messaging;
+
+import java.nio.ByteBuffer;
+
+import junit.framework.TestCase;
+
+public class TestMessageBatch extends TestCase {
+
+    private static class Batch extends MessageBatch {
+        int m_closes = 0;
+        int m_messages = 0;
+        int m_bytes = 0;
+
+        @Override
+        void close() {
+            m_closes++;
+        }
+
+        @Override
+        void batchSerialized(int messages, int bytes) {
+            m_messages = messages;
+            m_bytes = bytes;
+        }
+    }
+
+    private static BinaryPayloadMessage message(int size, long sourceHSId) {
+        byte payload[] = new byte[size];
+        for (int ii = 0; ii < size; ii++) {
+            payload[ii] = (byte)(ii + sourceHSId);
+        }
+        BinaryPayloadMessage m = new BinaryPayloadMessage(new byte[] { 1, 2, 3 }, payload);
+        m.m_sourceHSId = sourceHSId;
+        return m;
+    }
+
+    private static ByteBuffer concat(ByteBuffer buffers[]) {
+        int size = 0;
+        for (ByteBuffer b : buffers) {
+            // the write stream requires exactly sized buffers
+            assertEquals(b.capacity(), b.limit());
+            size += b.remaining();
+        }
+        ByteBuffer out = ByteBuffer.allocate(size);
+        for (ByteBuffer b : buffers) {
+            out.put(b);
+        }
+        out.flip();
+        return out;
+    }
+
+    /** Check the next frame is the given message, laid out as a standalone frame */
+    private static void checkFrame(ByteBuffer in, long destinations[], BinaryPayloadMessage expected)
+            throws Exception {
+        final int end = in.getInt() + in.position();
+        assertEquals(expected.m_sourceHSId, in.getLong());
+        assertEquals(destinations.length, in.getInt());
+        for (long destination : destinations) {
+            assertEquals(destination, in.getLong());
+        }
+        final int limit = in.limit();
+        in.limit(end);
+        assertEquals(VoltMessage.toBuffer(expected), in.slice());
+        in.limit(limit);
+        in.position(end);
+    }
+
+    public void testSingleMessageIsPlainFrame() throws Exception {
+        Batch batch = new Batch();
+        BinaryPayloadMessage m = message(100, 5);
+        batch.add(new long[] { 7, 8 }, m, m.getSerializedSize());
+
+        ByteBuffer frame = concat(batch.serialize());
+        batch.serialized();
+        assertEquals(1, batch.m_closes);
+        assertEquals(1, batch.m_messages);
+        assertEquals(frame.remaining(), batch.m_bytes);
+        checkFrame(frame, new long[] { 7, 8 }, m);
+        assertFalse(frame.hasRemaining());
+    }
+
+    public void testBatchWithSharedBodies() throws Exception {
+        Batch batch = new Batch();
+        BinaryPayloadMessage first = message(10, 1);
+        BinaryPayloadMessage shared = message(3000, 2);
+        BinaryPayloadMessage last = message(0, 3);
+        SerializedMessage body = SerializedMessage.flatten(shared);
+
+        batch.add(new long[] { 11 }, first, first.getSerializedSize());
+        batch.add(new long[] { 12, 13, 14 }, shared.m_sourceHSId, body);
+        batch.add(new long[] { 15 }, last, last.getSerializedSize());
+        assertEquals(2, body.refCount());
+        assertEquals(3, batch.messageCount());
+
+        ByteBuffer buffers[] = batch.serialize();
+        // inline bytes, the shared body and the inline bytes after it
+        assertEquals(3, buffers.length);
+        ByteBuffer frame = concat(buffers);
+        batch.serialized();
+        assertEquals(1, body.refCount());
+        assertEquals(frame.remaining(), batch.m_bytes);
+        assertEquals(batch.bytes(), batch.m_bytes);
+
+        assertEquals(frame.remaining() - 4, frame.getInt());
+        assertEquals(-1, frame.getLong());
+        assertEquals(MessageBatch.BATCH, frame.getInt());
+        assertEquals(3, frame.getInt());
+        checkFrame(frame, new long[] { 11 }, first);
+        checkFrame(frame, new long[] { 12, 13, 14 }, shared);
+        checkFrame(frame, new long[] { 15 }, last);
+        assertFalse(frame.hasRemaining());
+        body.release();
+    }
+
+    public void testCancelReleasesSharedBodies() throws Exception {
+        Batch batch = new Batch();
+        SerializedMessage body = SerializedMessage.flatten(message(50, 1));
+        batch.add(new long[] { 1 }, 1, body);
+        batch.cancel();
+        assertEquals(1, batch.m_closes);
+        assertEquals(1, body.refCount());
+        body.release();
+    }
+
+    public void testAdaptBatchWindow() {
+        final int max = 100;
+        // Batches of one message never open the window
+        assertEquals(0, ForeignHost.adaptBatchWindow(0, 1.0, max));
+        // Full batches open it and double it up to the max
+        int window = ForeignHost.adaptBatchWindow(0, 6.0, max);
+        assertEquals(ForeignHost.BATCH_WINDOW_STEP_US, window);
+        for (int ii = 0; ii < 10; ii++) {
+            window = ForeignHost.adaptBatchWindow(window, 6.0, max);
+        }
+        assertEquals(max, window);
+        // In between it holds
+        assertEquals(max, ForeignHost.adaptBatchWindow(window, 3.0, max));
+        // and it closes again once the load goes away
+        for (int ii = 0; ii < 10; ii++) {
+            window = ForeignHost.adaptBatchWindow(window, 1.1, max);
+        }
+        assertEquals(0, window);
+    }
+}
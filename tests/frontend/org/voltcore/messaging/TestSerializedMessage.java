@@ -0,0 +1,79 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltcore.messaging;
+
+import java.nio.ByteBuffer;
+
+import junit.framework.TestCase;
+
+public class TestSerializedMessage extends TestCase {
+
+    private static BinaryPayloadMessage message(int size) {
+        byte payload[] = new byte[size];
+        for (int ii = 0; ii < size; ii++) {
+            payload[ii] = (byte)ii;
+        }
+        return new BinaryPayloadMessage(new byte[] { 1, 2, 3 }, payload);
+    }
+
+    public void testBodyMatchesMessage() throws Exception {
+        for (int size : new int[] { 0, 100, 5000, 1024 * 1024 }) {
+            BinaryPayloadMessage m = message(size);
+            SerializedMessage body = SerializedMessage.flatten(m);
+            ByteBuffer expected = VoltMessage.toBuffer(m);
+            assertEquals(expected.remaining(), body.size());
+
+            // Every reader gets its own read only view of the whole body
+            ByteBuffer first = body.body();
+            ByteBuffer second = body.body();
+            assertTrue(first.isReadOnly());
+            assertEquals(first.capacity(), first.limit());
+            assertEquals(expected, first);
+            first.position(first.limit());
+            assertEquals(expected, second);
+            body.release();
+        }
+    }
+
+    public void testBufferReusedAfterLastRelease() throws Exception {
+        SerializedMessage body = SerializedMessage.flatten(message(2000));
+        body.retain();
+        body.retain();
+        assertEquals(3, body.refCount());
+        body.release();
+        body.release();
+
+        // Still referenced, a new message must not get the same buffer
+        SerializedMessage other = SerializedMessage.flatten(message(1500));
+        ByteBuffer expected = VoltMessage.toBuffer(message(2000));
+        assertEquals(expected, body.body());
+        other.release();
+
+        body.release();
+        assertEquals(0, body.refCount());
+        SerializedMessage reused = SerializedMessage.flatten(message(1800));
+        assertEquals(VoltMessage.toBuffer(message(1800)), reused.body());
+        reused.release();
+    }
+}
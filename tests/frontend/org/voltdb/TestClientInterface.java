@@ -37,12 +37,15 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.File;
 import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
 import java.util.Arrays;
 
 import org.apache.zookeeper_voltpatches.CreateMode;
@@ -58,11 +61,15 @@ import org.mockito.stubbing.Answer;
 import org.voltcore.messaging.HostMessenger;
 import org.voltcore.messaging.LocalObjectMessage;
 import org.voltcore.network.Connection;
+import org.voltcore.network.InputHandler;
 import org.voltcore.network.VoltNetworkPool;
+import org.voltcore.utils.InstanceId;
+import org.voltdb.ClientInterface.ClientAcceptor;
 import org.voltdb.ClientInterface.ClientInputHandler;
 import org.voltdb.VoltDB.Configuration;
 import org.voltdb.VoltTable.ColumnInfo;
 import org.voltdb.catalog.Catalog;
+import org.voltdb.client.ConnectionUtil;
 import org.voltdb.client.ClientResponse;
 import org.voltdb.client.ProcedureInvocationType;
 import org.voltdb.common.Constants;
@@ -559,4 +566,113 @@ public class TestClientInterface {
             logConfig.setEnabled(wasEnabled);
         }
     }
+
+    private static ByteBuffer createLoginMsg(String service, String username) throws IOException {
+        FastSerializer fs = new FastSerializer();
+        fs.writeByte(0);            // version
+        fs.writeString(service);
+        fs.writeString(username);
+        fs.write(ConnectionUtil.getHashedPassword(""));
+        final ByteBuffer body = fs.getBuffer();
+        final ByteBuffer msg = ByteBuffer.allocate(4 + body.remaining());
+        msg.putInt(body.remaining());
+        msg.put(body);
+        msg.flip();
+        return msg;
+    }
+
+    private static ByteBuffer readLoginResponse(SocketChannel socket) throws IOException {
+        final ByteBuffer length = ByteBuffer.allocate(4);
+        while (length.hasRemaining()) {
+            assertTrue(socket.read(length) != -1);
+        }
+        length.flip();
+        final ByteBuffer response = ByteBuffer.allocate(length.getInt());
+        while (response.hasRemaining()) {
+            assertTrue(socket.read(response) != -1);
+        }
+        response.flip();
+        return response;
+    }
+
+    private ClientAcceptor startAcceptor(VoltNetworkPool network) throws IOException {
+        doReturn(false).when(m_volt).rejoining();
+        doReturn("test build string").when(m_volt).getBuildString();
+        doReturn(new InstanceId(0, 12345)).when(m_messenger).getInstanceId();
+        ClientAcceptor acceptor = m_ci.new ClientAcceptor(VoltDB.DEFAULT_PORT + 1000, network, false);
+        acceptor.start();
+        return acceptor;
+    }
+
+    @Test
+    public void testSlowPipelinedLogin() throws Exception {
+        VoltNetworkPool network = mock(VoltNetworkPool.class);
+        doReturn(m_cxn).when(network).registerChannel(any(SocketChannel.class),
+                                                      any(InputHandler.class), anyInt());
+        ClientAcceptor acceptor = startAcceptor(network);
+        SocketChannel client = SocketChannel.open(new InetSocketAddress("localhost", VoltDB.DEFAULT_PORT + 1000));
+        try {
+            // Trickle the login in and pipeline the first invocation behind it,
+            // the acceptor must stop reading at the end of the login message
+            ByteBuffer login = createLoginMsg("database", "");
+            ByteBuffer first = login.duplicate();
+            first.limit(3);
+            client.write(first);
+            Thread.sleep(200);
+            login.position(3);
+            ByteBuffer rest = ByteBuffer.allocate(login.remaining() + 4);
+            rest.put(login).putInt(0xCAFE).flip();
+            client.write(rest);
+
+            ByteBuffer response = readLoginResponse(client);
+            assertEquals(0, response.get()); // version
+            assertEquals(0, response.get()); // success
+
+            ArgumentCaptor<SocketChannel> registered = ArgumentCaptor.forClass(SocketChannel.class);
+            verify(network, timeout(5000)).registerChannel(registered.capture(),
+                                                           any(ClientInputHandler.class), eq(0));
+            ByteBuffer pipelined = ByteBuffer.allocate(4);
+            long end = System.currentTimeMillis() + 5000;
+            while (pipelined.hasRemaining() && System.currentTimeMillis() < end) {
+                registered.getValue().read(pipelined);
+            }
+            pipelined.flip();
+            assertEquals(0xCAFE, pipelined.getInt());
+            registered.getValue().close();
+
+            ClientLoginStats.Counters counters = acceptor.getCounters();
+            assertEquals(1, counters.accepted.get());
+            assertEquals(1, counters.logins.get());
+        } finally {
+            client.close();
+            acceptor.shutdown();
+        }
+    }
+
+    @Test
+    public void testLoginTimeout() throws Exception {
+        VoltNetworkPool network = mock(VoltNetworkPool.class);
+        ClientAcceptor acceptor = startAcceptor(network);
+        SocketChannel client = SocketChannel.open(new InetSocketAddress("localhost", VoltDB.DEFAULT_PORT + 1000));
+        try {
+            // send part of the length and nothing else
+            client.write(ByteBuffer.allocate(2));
+            long start = System.currentTimeMillis();
+            ByteBuffer response = readLoginResponse(client);
+            assertTrue(System.currentTimeMillis() - start < ClientInterface.LOGIN_TIMEOUT_MS + 1000);
+            assertEquals(0, response.get());
+            assertEquals(ClientInterface.WIRE_PROTOCOL_TIMEOUT_ERROR, response.get());
+            assertEquals(-1, client.read(ByteBuffer.allocate(1)));
+
+            ClientLoginStats.Counters counters = acceptor.getCounters();
+            assertEquals(1, counters.timeouts.get());
+            assertEquals(0, counters.pending.get());
+            assertEquals(0, counters.logins.get());
+            verify(network, never()).registerChannel(any(SocketChannel.class),
+                                                     any(InputHandler.class), anyInt());
+        } finally {
+            client.close();
+            acceptor.shutdown();
+        }
+    }
 }
@@ -0,0 +1,160 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class TestLatencyHistogram extends TestCase {
+
+    public void testSmallValuesAreExact() {
+        LatencyHistogram h = new LatencyHistogram(6);
+        for (int i = 0; i < 64; i++) {
+            assertEquals(i, h.indexOf(i));
+            assertEquals(i, h.lowestValueAt(i));
+            assertEquals(i, h.highestValueAt(i));
+        }
+        h.recordValue(10);
+        h.recordValue(20);
+        h.recordValue(30);
+        assertEquals(20, h.getValueAtPercentile(.5));
+        assertEquals(30, h.getValueAtPercentile(1.0));
+        assertEquals(10, h.getValueAtPercentile(0.0));
+        assertEquals(20.0, h.getMean());
+    }
+
+    public void testBucketsCoverEveryValue() {
+        LatencyHistogram h = new LatencyHistogram(4);
+        long last = -1;
+        for (long v = 0; v < (1L << 20); v++) {
+            final int index = h.indexOf(v);
+            assertTrue(h.lowestValueAt(index) <= v);
+            assertTrue(h.highestValueAt(index) >= v);
+            if (index != last) {
+                // buckets are contiguous
+                assertEquals(last + 1, index);
+                assertEquals(v, h.lowestValueAt(index));
+                last = index;
+            }
+        }
+        // the range from 2^36 has its own buckets, from 2^37 on is overflow
+        final int last36 = h.indexOf((1L << 37) - 1);
+        assertEquals((1L << 36), h.lowestValueAt(h.indexOf(1L << 36)));
+        assertEquals((1L << 37) - 1, h.highestValueAt(last36));
+        assertTrue(h.indexOf(1L << 36) < last36);
+        assertEquals(last36, h.indexOf(1L << 37));
+        assertEquals(last36, h.indexOf(Long.MAX_VALUE));
+        // huge values land in the last bucket, negative ones in the first
+        h.recordValue(Long.MAX_VALUE);
+        h.recordValue(-5);
+        assertEquals(2, h.getTotalCount());
+        assertEquals(Long.MAX_VALUE, h.getMax());
+        assertEquals(0, h.getValueAtPercentile(.5));
+    }
+
+    public void testPercentileAccuracy() {
+        LatencyHistogram h = new LatencyHistogram();
+        Random r = new Random(0);
+        long values[] = new long[100000];
+        for (int i = 0; i < values.length; i++) {
+            // mostly sub-millisecond with a long tail
+            values[i] = r.nextInt(10) == 0 ? r.nextInt(50000000) : 50 + r.nextInt(900);
+            h.recordValue(values[i]);
+        }
+        java.util.Arrays.sort(values);
+        final double error = 1.0 / (1 << LatencyHistogram.DEFAULT_PRECISION);
+        for (double p : new double[] { .5, .9, .99, .999 }) {
+            long expected = values[(int)Math.ceil(p * values.length) - 1];
+            long actual = h.getValueAtPercentile(p);
+            assertTrue(p + ": " + actual + " vs " + expected,
+                       Math.abs(actual - expected) <= expected * error + 1);
+        }
+        assertEquals(values[values.length - 1], h.getValueAtPercentile(1.0));
+        assertEquals(values[values.length - 1], h.getMax());
+    }
+
+    public void testMergeAndDiff() {
+        LatencyHistogram a = new LatencyHistogram();
+        LatencyHistogram b = new LatencyHistogram();
+        for (int i = 0; i < 100; i++) {
+            a.recordValue(100);
+            b.recordValue(5000);
+        }
+        LatencyHistogram merged = a.copy();
+        merged.add(b);
+        assertEquals(200, merged.getTotalCount());
+        assertEquals(100, merged.getValueAtPercentile(.5));
+        assertEquals(5000, merged.getValueAtPercentile(.51), 5000 / 64);
+        assertEquals(5000, merged.getMax());
+
+        LatencyHistogram before = merged.copy();
+        for (int i = 0; i < 10; i++) {
+            merged.recordValue(300);
+        }
+        LatencyHistogram interval = LatencyHistogram.diff(merged, before);
+        assertEquals(10, interval.getTotalCount());
+        assertEquals(300, interval.getValueAtPercentile(.99), 300 / 64);
+        assertTrue(interval.getMax() < 5000);
+        assertEquals(300.0, interval.getMean());
+
+        try {
+            a.add(new LatencyHistogram(3));
+            fail();
+        } catch (IllegalArgumentException expected) {}
+    }
+
+    public void testCountBetween() {
+        LatencyHistogram h = new LatencyHistogram();
+        h.recordValue(500);
+        h.recordValue(9000);
+        h.recordValue(15000);
+        h.recordValue(15000);
+        assertEquals(2, h.getCountBetween(0, 10000));
+        assertEquals(2, h.getCountBetween(10000, 20000));
+        assertEquals(0, h.getCountBetween(20000, 30000));
+    }
+
+    public void testConcurrentRecording() throws Exception {
+        final LatencyHistogram h = new LatencyHistogram();
+        Thread threads[] = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int offset = t;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 100000; i++) {
+                        h.recordValue(i % 1000 + offset);
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertEquals(400000, h.getTotalCount());
+        assertEquals(999 + threads.length - 1, h.getMax());
+    }
+}
@@ -0,0 +1,73 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.voltdb;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+
+public class TestMaterializedViewStats {
+
+    // the GET_VIEW_STATS result for a single view
+    private static ByteBuffer counters(String view, String source, long index, long scan) {
+        byte[] viewBytes = view.getBytes(Charsets.UTF_8);
+        byte[] sourceBytes = source.getBytes(Charsets.UTF_8);
+        ByteBuffer buf = ByteBuffer.allocate(4 + 4 + viewBytes.length + 4 + sourceBytes.length + 16);
+        buf.putInt(1);
+        buf.putInt(viewBytes.length).put(viewBytes);
+        buf.putInt(sourceBytes.length).put(sourceBytes);
+        buf.putLong(index).putLong(scan);
+        buf.flip();
+        return buf;
+    }
+
+    private static void assertCounters(MaterializedViewStats stats, boolean interval,
+                                       long index, long scan) {
+        Object[][] rows = stats.getStatsRows(interval, 0L);
+        assertEquals(1, rows.length);
+        assertEquals(index, rows[0][stats.columnNameToIndex.get("INDEX_RECOMPUTES")]);
+        assertEquals(scan, rows[0][stats.columnNameToIndex.get("SCAN_RECOMPUTES")]);
+    }
+
+    @Test
+    public void testIntervalDeltas() {
+        MaterializedViewStats stats = new MaterializedViewStats(0, 0);
+
+        stats.update(counters("V", "T", 5, 2));
+        assertCounters(stats, true, 5, 2);
+        assertCounters(stats, false, 5, 2);
+
+        stats.update(counters("V", "T", 8, 2));
+        assertCounters(stats, true, 3, 0);
+        assertCounters(stats, true, 0, 0);
+        assertCounters(stats, false, 8, 2);
+
+        // redefining the view starts its counters over
+        stats.update(counters("V", "T", 1, 1));
+        assertCounters(stats, true, 1, 1);
+    }
+}
@@ -0,0 +1,91 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb;
+
+import junit.framework.TestCase;
+
+public class TestSnapshotWorkController extends TestCase {
+
+    public void testBudgetGrowsWithHeadroom() {
+        SnapshotWorkController controller = new SnapshotWorkController(0, 50, 4, true);
+        assertEquals(1, controller.getBudget());
+        for (int i = 0; i < 10; i++) {
+            controller.adjust(10, 0.0);
+        }
+        assertEquals(4, controller.getBudget());
+        assertTrue(controller.hasLatencyHeadroom());
+    }
+
+    public void testBudgetHalvesOverTarget() {
+        SnapshotWorkController controller = new SnapshotWorkController(0, 50, 8, true);
+        for (int i = 0; i < 10; i++) {
+            controller.adjust(0, 0.0);
+        }
+        assertEquals(8, controller.getBudget());
+        controller.adjust(60, 0.0);
+        assertEquals(4, controller.getBudget());
+        assertFalse(controller.hasLatencyHeadroom());
+        controller.adjust(60, 0.0);
+        controller.adjust(60, 0.0);
+        controller.adjust(60, 0.0);
+        assertEquals(1, controller.getBudget());
+    }
+
+    public void testIdleSiteGrowsBudgetNearTarget() {
+        SnapshotWorkController controller = new SnapshotWorkController(0, 50, 8, true);
+        // Between half the target and the target the budget holds...
+        controller.adjust(40, 0.1);
+        assertEquals(1, controller.getBudget());
+        // ...unless the site is mostly starved for work
+        controller.adjust(40, 0.8);
+        assertEquals(2, controller.getBudget());
+    }
+
+    public void testDisabledControllerKeepsOneBlock() {
+        SnapshotWorkController controller = new SnapshotWorkController(0, 0, 8, true);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(1, controller.beginRound(i * 1000, null));
+        }
+        assertFalse(controller.hasLatencyHeadroom());
+    }
+
+    public void testDefaultTargetKeepsQuietPeriod() {
+        SnapshotWorkController controller = new SnapshotWorkController(0, 50, 8, false);
+        for (int i = 0; i < 10; i++) {
+            controller.adjust(0, 0.0);
+        }
+        // the budget still adapts, but snapshot priority isn't bypassed
+        assertEquals(8, controller.getBudget());
+        assertFalse(controller.hasLatencyHeadroom());
+    }
+
+    public void testPercentile() {
+        long[] buckets = new long[] { 90, 9, 0, 1 };
+        assertEquals(10, SnapshotWorkController.HostLatencySampler.percentile(buckets, 100, 500, 0.90));
+        assertEquals(20, SnapshotWorkController.HostLatencySampler.percentile(buckets, 100, 500, 0.99));
+        // the open ended last bucket reports the max
+        assertEquals(500, SnapshotWorkController.HostLatencySampler.percentile(buckets, 100, 500, 1.0));
+        assertEquals(0, SnapshotWorkController.HostLatencySampler.percentile(new long[4], 0, 0, 0.99));
+    }
+}
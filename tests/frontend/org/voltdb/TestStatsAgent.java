@@ -29,9 +29,12 @@ import java.util.concurrent.LinkedBlockingQueue;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.After;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import org.junit.Before;
@@ -239,6 +242,79 @@ public class TestStatsAgent {
         verifyResults(response);
     }
 
+    @Test
+    public void testCachedCumulativeStats() throws Exception {
+        StatsAgent agent = new StatsAgent(60 * 1000);
+        try {
+            MockStatsSource.columns = Arrays.asList(new VoltTable.ColumnInfo[] {
+                    new VoltTable.ColumnInfo("c1", VoltType.INTEGER)
+            });
+            final AtomicInteger reads = new AtomicInteger(0);
+            MockStatsSource source = new MockStatsSource(new Object[][] { { 42 } }) {
+                @Override
+                public Object[][] getStatsRows(boolean interval, final Long now) {
+                    reads.incrementAndGet();
+                    return super.getStatsRows(interval, now);
+                }
+            };
+            agent.registerStatsSource(StatsSelector.DRNODE, 0, source);
+
+            // served from the snapshot while it is fresh enough
+            final long now = System.currentTimeMillis();
+            VoltTable first = agent.getCachedStatsAggregate(StatsSelector.DRNODE, false, now);
+            VoltTable second = agent.getCachedStatsAggregate(StatsSelector.DRNODE, false, now + 1000);
+            assertEquals(1, reads.get());
+            assertSame(first, second);
+            assertEquals(1, first.getRowCount());
+
+            // too old, collected again
+            VoltTable third = agent.getCachedStatsAggregate(StatsSelector.DRNODE, false, now + 61 * 1000);
+            assertEquals(2, reads.get());
+            assertNotSame(first, third);
+
+            // interval requests always go to the sources
+            agent.getCachedStatsAggregate(StatsSelector.DRNODE, true, now + 61 * 1000);
+            assertEquals(3, reads.get());
+
+            // the snapshotter keeps requested selectors fresh...
+            agent.refreshSnapshots(now + 100 * 1000);
+            assertEquals(4, reads.get());
+            agent.getCachedStatsAggregate(StatsSelector.DRNODE, false, now + 150 * 1000);
+            assertEquals(4, reads.get());
+
+            // ...until nobody asks for them anymore
+            agent.refreshSnapshots(now + 150 * 1000 + (StatsAgent.IDLE_SNAPSHOT_PERIODS + 1) * 60 * 1000);
+            assertEquals(4, reads.get());
+        } finally {
+            agent.shutdown();
+        }
+    }
+
+    @Test
+    public void testRegisterDuringSlowCollection() throws Exception {
+        createAndRegisterStats();
+        MockStatsSource.delay = 500;
+        final StatsAgent agent = m_mvoltdb.getStatsAgent();
+        Thread collector = new Thread() {
+            @Override
+            public void run() {
+                agent.getStatsAggregate(StatsSelector.DRNODE, false, System.currentTimeMillis());
+            }
+        };
+        collector.start();
+        Thread.sleep(100);
+
+        // registering doesn't wait for the collection to finish
+        final long start = System.currentTimeMillis();
+        MockStatsSource.columns = Arrays.asList(new VoltTable.ColumnInfo[] {
+                new VoltTable.ColumnInfo("c1", VoltType.STRING),
+                new VoltTable.ColumnInfo("c2", VoltType.INTEGER)
+        });
+        agent.registerStatsSource(StatsSelector.DRNODE, 1, new MockStatsSource(new Object[][] { { "44", 44 } }));
+        assertTrue(System.currentTimeMillis() - start < 400);
+        collector.join();
+    }
+
     private void verifyResults(ClientResponseImpl response) {
         VoltTable results[] = response.getResults();
         assertEquals(2, results.length);
@@ -25,10 +25,12 @@ package org.voltdb;
 
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
 import java.util.Random;
@@ -814,5 +816,58 @@ public class TestTheHashinator {
         checkRangesAfterExpansion(/* beforePartitionCount = */ 21, /* afterPartitionCount = */ 28);
         checkRangesAfterExpansion(/* beforePartitionCount = */ 24, /* afterPartitionCount = */ 48);
     }
-}
 
+    private static void checkBucketLookup(ElasticHashinator hashinator, Random r) {
+        TreeMap<Long, Integer> ring =
+            new TreeMap<Long, Integer>(deserializeElasticConfig(hashinator.pGetCurrentConfig().getSecond()));
+
+        // every token, its neighbours, the ends of the ring and a lot of random hashes
+        List<Long> hashes = new ArrayList<Long>();
+        for (long token : ring.keySet()) {
+            hashes.add(token);
+            hashes.add(token - 1);
+            hashes.add(token + 1);
+        }
+        hashes.add(Long.MIN_VALUE);
+        hashes.add(Long.MAX_VALUE);
+        hashes.add(0L);
+        for (int i = 0; i < 100000; i++) {
+            hashes.add(r.nextLong());
+        }
+
+        for (long hash : hashes) {
+            Map.Entry<Long, Integer> floor = ring.floorEntry(hash);
+            int expected = floor == null ? ring.lastEntry().getValue() : floor.getValue();
+            assertEquals("hash " + hash, expected, hashinator.partitionForToken(hash));
+        }
+    }
+
+    @Test
+    public void testElasticBucketLookup()
+    {
+        if (hashinatorType == HashinatorType.LEGACY) return;
+
+        checkBucketLookup(new ElasticHashinator(ElasticHashinator.getConfigureBytes(1, 1)), r);
+        checkBucketLookup(new ElasticHashinator(ElasticHashinator.getConfigureBytes(3, tokensPerPartition)), r);
+        checkBucketLookup(new ElasticHashinator(ElasticHashinator.getConfigureBytes(24,
+                ElasticHashinator.DEFAULT_TOKENS_PER_PARTITION)), r);
+        // more tokens than the bucket array can spread out
+        checkBucketLookup(new ElasticHashinator(ElasticHashinator.getConfigureBytes(200,
+                ElasticHashinator.DEFAULT_TOKENS_PER_PARTITION)), r);
+
+        // all tokens crowded into a few buckets forces the binary search fallback
+        Map<Long, Integer> crowded = new HashMap<Long, Integer>();
+        for (int i = 0; i < 1000; i++) {
+            crowded.put(Long.MIN_VALUE + i * 3, i % 4);
+            crowded.put(i * 7L, i % 4);
+            crowded.put(Long.MAX_VALUE - i * 5, i % 4);
+        }
+        ByteBuffer buf = ByteBuffer.allocate(4 + crowded.size() * 12);
+        buf.putInt(crowded.size());
+        for (Map.Entry<Long, Integer> e : crowded.entrySet()) {
+            buf.putLong(e.getKey());
+            buf.putInt(e.getValue());
+        }
+        checkBucketLookup(new ElasticHashinator(buf.array()), r);
+    }
+}
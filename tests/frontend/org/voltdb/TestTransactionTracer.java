@@ -0,0 +1,155 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.voltdb.TransactionTracer.Stage;
+
+public class TestTransactionTracer extends TestCase {
+
+    static class Event {
+        final int ciHostId;
+        final long ciHandle;
+        final Stage stage;
+        final long nanos;
+
+        Event(int ciHostId, long ciHandle, Stage stage, long nanos) {
+            this.ciHostId = ciHostId;
+            this.ciHandle = ciHandle;
+            this.stage = stage;
+            this.nanos = nanos;
+        }
+    }
+
+    static List<Event> events(TransactionTracer.Ring ring) {
+        final List<Event> events = new ArrayList<Event>();
+        ring.visit(new TransactionTracer.EventVisitor() {
+            @Override
+            public void event(String thread, int ciHostId, long ciHandle, Stage stage, long nanos) {
+                events.add(new Event(ciHostId, ciHandle, stage, nanos));
+            }
+        });
+        return events;
+    }
+
+    @Override
+    public void tearDown() {
+        TransactionTracer.setSampleRate(0);
+        TransactionTracer.clear();
+    }
+
+    public void testSampling() {
+        TransactionTracer.setSampleRate(0);
+        assertNull(TransactionTracer.sample(0, 12345));
+
+        TransactionTracer.setSampleRate(1);
+        assertNotNull(TransactionTracer.sample(0, 12345));
+
+        // consecutive handles are spread out, roughly 1 in rate is sampled
+        TransactionTracer.setSampleRate(100);
+        int sampled = 0;
+        for (long handle = 0; handle < 100000; handle++) {
+            if (TransactionTracer.isSampled(handle)) {
+                sampled++;
+                // every host decides the same way
+                assertTrue(TransactionTracer.isSampled(handle));
+            }
+        }
+        assertTrue("sampled " + sampled, sampled > 800 && sampled < 1200);
+    }
+
+    public void testRingWrapsAndClears() {
+        TransactionTracer.Ring ring = new TransactionTracer.Ring("test", 8);
+        for (int i = 0; i < 5; i++) {
+            ring.add(1, i, Stage.CI_RECEIVE, i * 10);
+        }
+        List<Event> events = events(ring);
+        assertEquals(5, events.size());
+        assertEquals(0, events.get(0).ciHandle);
+
+        for (int i = 5; i < 20; i++) {
+            ring.add(1, i, Stage.get(i % Stage.values().length), i * 10);
+        }
+        // only the newest 8 are kept, oldest first
+        events = events(ring);
+        assertEquals(8, events.size());
+        for (int i = 0; i < 8; i++) {
+            Event e = events.get(i);
+            assertEquals(1, e.ciHostId);
+            assertEquals(12 + i, e.ciHandle);
+            assertEquals(Stage.get((12 + i) % Stage.values().length), e.stage);
+            assertEquals((12 + i) * 10, e.nanos);
+        }
+
+        // the next slot to be filled is never visited, a write to it may be torn
+        ring.m_handles[20 % ring.m_handles.length] = -1;
+        events = events(ring);
+        assertEquals(8, events.size());
+        assertEquals(12, events.get(0).ciHandle);
+
+        ring.clear();
+        assertEquals(0, events(ring).size());
+        ring.add(2, 100, Stage.CI_WRITE, 1000);
+        events = events(ring);
+        assertEquals(1, events.size());
+        assertEquals(100, events.get(0).ciHandle);
+    }
+
+    static Thread recordOnThread(String name, final long ciHandle) throws InterruptedException {
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                TransactionTracer.record(0, ciHandle, Stage.CI_RECEIVE);
+            }
+        }, name);
+        thread.start();
+        thread.join();
+        return thread;
+    }
+
+    public void testRingsOfExitedThreadsAreDropped() throws Exception {
+        TransactionTracer.setSampleRate(1);
+        recordOnThread("exited tracer", 1);
+        final List<String> threads = new ArrayList<String>();
+        TransactionTracer.EventVisitor visitor = new TransactionTracer.EventVisitor() {
+            @Override
+            public void event(String thread, int ciHostId, long ciHandle, Stage stage, long nanos) {
+                threads.add(thread);
+            }
+        };
+        TransactionTracer.visit(visitor);
+        assertTrue(threads.contains("exited tracer"));
+
+        // the next thread to trace drops the ring of the one that exited
+        recordOnThread("new tracer", 2);
+        threads.clear();
+        TransactionTracer.visit(visitor);
+        assertFalse(threads.contains("exited tracer"));
+        assertTrue(threads.contains("new tracer"));
+    }
+}
@@ -39,6 +39,7 @@ import junit.framework.TestCase;
 
 import org.apache.commons.lang3.StringUtils;
 import org.voltdb.ProcInfoData;
+import org.voltdb.VoltType;
 import org.voltdb.VoltDB.Configuration;
 import org.voltdb.benchmark.tpcc.TPCCProjectBuilder;
 import org.voltdb.catalog.Catalog;
@@ -52,6 +53,7 @@ import org.voltdb.catalog.Procedure;
 import org.voltdb.catalog.SnapshotSchedule;
 import org.voltdb.catalog.Table;
 import org.voltdb.compiler.VoltCompiler.Feedback;
+import org.voltdb.types.ExpressionType;
 import org.voltdb.types.IndexType;
 import org.voltdb.utils.BuildDirectoryUtils;
 import org.voltdb.utils.CatalogUtil;
@@ -1225,6 +1227,24 @@ public class TestVoltCompiler extends TestCase {
     }
 
 
+    public void testMaterializedViewMinMax() throws Exception {
+        Database db = goodDDLAgainstSimpleSchema(
+                "create table scores (game integer not null, score integer);",
+                "create view matscores (game, num, low, high, total) as " +
+                "select game, count(*), min(score), max(score), sum(score) from scores group by game;");
+        Table view = db.getTables().getIgnoreCase("matscores");
+        assertEquals(ExpressionType.AGGREGATE_MIN.getValue(),
+                     view.getColumns().getIgnoreCase("low").getAggregatetype());
+        assertEquals(ExpressionType.AGGREGATE_MAX.getValue(),
+                     view.getColumns().getIgnoreCase("high").getAggregatetype());
+        assertEquals(VoltType.INTEGER.getValue(), view.getColumns().getIgnoreCase("low").getType());
+
+        badDDLAgainstSimpleSchema(".*must have non-group by columns aggregated by sum, count, min or max.*",
+                "create table scores (game integer not null, score integer);",
+                "create view matscores (game, num, average) as " +
+                "select game, count(*), avg(score) from scores group by game;");
+    }
+
     public void testVarbinary() throws IOException {
         final String simpleSchema =
             "create table books (cash integer default 23 NOT NULL, title varbinary(10) default NULL, PRIMARY KEY(cash));" +
@@ -2571,6 +2591,52 @@ public class TestVoltCompiler extends TestCase {
                 );
     }
 
+    public void testGoodEncodeColumn() throws Exception {
+        Database db;
+
+        db = goodDDLAgainstSimpleSchema(
+                "create table e1 (id integer, f1 varchar(100), f2 varchar(200));",
+                "encode table e1 on column f1 as dictionary;",
+                "EnCoDe TABLE E1 ON column F2 as DICTIONARY;"
+                );
+        assertTrue(db.getTables().getIgnoreCase("e1").getColumns().getIgnoreCase("f1").getDictionaryencoded());
+        assertTrue(db.getTables().getIgnoreCase("e1").getColumns().getIgnoreCase("f2").getDictionaryencoded());
+        assertFalse(db.getTables().getIgnoreCase("books").getColumns().getIgnoreCase("title").getDictionaryencoded());
+    }
+
+    public void testBadEncodeColumn() throws Exception {
+
+        badDDLAgainstSimpleSchema(".+ENCODE has unknown TABLE 'non_existant'.*",
+                "encode table non_existant on column f1 as dictionary;"
+                );
+
+        badDDLAgainstSimpleSchema(".+ENCODE has unknown COLUMN 'f3'.*",
+                "create table e1 (id integer, f1 varchar(100));",
+                "encode table e1 on column f3 as dictionary;"
+                );
+
+        badDDLAgainstSimpleSchema(".+Invalid ENCODE TABLE statement.*",
+                "create table e1 (id integer, f1 varchar(100));",
+                "encode table e1 on column f1;"
+                );
+
+        badDDLAgainstSimpleSchema(".+Dictionary encoded columns must be VARCHAR\\(64\\) or larger.*",
+                "create table e1 (id integer, f1 varchar(16));",
+                "encode table e1 on column f1 as dictionary;"
+                );
+
+        badDDLAgainstSimpleSchema(".+Dictionary encoded columns must be VARCHAR\\(64\\) or larger.*",
+                "create table e1 (id integer, f1 varchar(100));",
+                "encode table e1 on column id as dictionary;"
+                );
+
+        badDDLAgainstSimpleSchema(".+Column \"E1.F1\" is already encoded.*",
+                "create table e1 (id integer, f1 varchar(100));",
+                "encode table e1 on column f1 as dictionary;",
+                "encode table E1 on column F1 as dictionary;"
+                );
+    }
+
     public void testCompileFromDDL() throws IOException {
         final String simpleSchema1 =
             "create table table1r_el  (pkey integer, column2_integer integer, PRIMARY KEY(pkey));\n" +
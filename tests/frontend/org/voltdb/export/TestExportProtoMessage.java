@@ -197,6 +197,9 @@ public class TestExportProtoMessage extends TestCase {
                 @Override
                 public void cancel() {
                 }
+                @Override
+                public void serialized() {
+                }
             }.serialize()[0];
         b.flip();
         assertEquals(39, b.getInt());
@@ -0,0 +1,103 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.jni;
+
+import junit.framework.TestCase;
+
+import org.voltcore.utils.DBBPool.BBContainer;
+
+public class TestResultBufferPool extends TestCase {
+
+    static final int MB = 1024 * 1024;
+
+    public void testSizeClass() {
+        assertEquals(MB, ResultBufferPool.sizeClass(1));
+        assertEquals(MB, ResultBufferPool.sizeClass(MB));
+        assertEquals(2 * MB, ResultBufferPool.sizeClass(MB + 1));
+        assertEquals(16 * MB, ResultBufferPool.sizeClass(10 * MB + 1));
+        assertEquals(16 * MB, ResultBufferPool.sizeClass(16 * MB));
+        assertEquals(32 * MB, ResultBufferPool.sizeClass(25 * MB));
+        // past half of the cap rounding up would overshoot it
+        assertEquals(ResultBufferPool.MAX_CAPACITY, ResultBufferPool.sizeClass(25 * MB + 1));
+        assertEquals(ResultBufferPool.MAX_CAPACITY,
+                     ResultBufferPool.sizeClass(ResultBufferPool.MAX_CAPACITY - 32 * 1024));
+    }
+
+    public void testReleasedBuffersAreReused() {
+        final long allocations = ResultBufferPool.getAllocations();
+        final int lent = ResultBufferPool.getLentBuffers();
+
+        BBContainer a = ResultBufferPool.acquire(3 * MB);
+        assertEquals(4 * MB, a.b.capacity());
+        assertEquals(0, a.b.position());
+        assertEquals(4 * MB, a.b.limit());
+        assertEquals(lent + 1, ResultBufferPool.getLentBuffers());
+
+        a.b.putInt(42);
+        ResultBufferPool.release(a);
+        assertEquals(lent, ResultBufferPool.getLentBuffers());
+        final int pooled = ResultBufferPool.getPooledBuffers();
+        assertTrue(pooled >= 1);
+
+        // same size class, served from the pool and cleared
+        BBContainer b = ResultBufferPool.acquire(4 * MB);
+        assertEquals(4 * MB, b.b.capacity());
+        assertEquals(0, b.b.position());
+        assertEquals(pooled - 1, ResultBufferPool.getPooledBuffers());
+
+        // another size class needs its own buffer
+        BBContainer c = ResultBufferPool.acquire(MB);
+        assertEquals(MB, c.b.capacity());
+        assertEquals(allocations + 2, ResultBufferPool.getAllocations());
+
+        ResultBufferPool.release(b);
+        ResultBufferPool.release(c);
+        assertEquals(lent, ResultBufferPool.getLentBuffers());
+    }
+
+    public void testHandOffLimit() {
+        final long limit = ResultBufferPool.m_maxHandedOffBytes;
+        // room for less than one more buffer
+        ResultBufferPool.m_maxHandedOffBytes = ResultBufferPool.getHandedOffBytes() + MB;
+        try {
+            final long copies = ResultBufferPool.getCopies();
+            final long handOffs = ResultBufferPool.getHandOffs();
+            final long handedOffBytes = ResultBufferPool.getHandedOffBytes();
+            final int lent = ResultBufferPool.getLentBuffers();
+
+            // over the limit the result has to be copied out, the buffer stays lent
+            BBContainer a = ResultBufferPool.acquire(2 * MB);
+            assertNull(ResultBufferPool.handOff(a));
+            assertEquals(copies + 1, ResultBufferPool.getCopies());
+            assertEquals(handOffs, ResultBufferPool.getHandOffs());
+            assertEquals(handedOffBytes, ResultBufferPool.getHandedOffBytes());
+            assertEquals(lent + 1, ResultBufferPool.getLentBuffers());
+
+            ResultBufferPool.release(a);
+            assertEquals(lent, ResultBufferPool.getLentBuffers());
+        } finally {
+            ResultBufferPool.m_maxHandedOffBytes = limit;
+        }
+    }
+}
@@ -23,9 +23,12 @@
 
 package org.voltdb.planner;
 
+import java.util.List;
+
 import org.voltdb.plannodes.AbstractPlanNode;
 import org.voltdb.plannodes.IndexScanPlanNode;
 import org.voltdb.types.IndexLookupType;
+import org.voltdb.types.PlanNodeType;
 
 public class TestCoveringIndexPlans extends PlannerTestCase {
     @Override
@@ -137,4 +140,44 @@ public class TestCoveringIndexPlans extends PlannerTestCase {
         assertTrue(pn instanceof IndexScanPlanNode);
     }
 
+    // Scans that only read index columns can be run on the index keys
+    public void testIndexOnlyScan()
+    {
+        AbstractPlanNode pn = compile("select a, b from t where a = ? and b > ? and b + a < ?;");
+        pn = pn.getChild(0);
+        assertTrue(pn instanceof IndexScanPlanNode);
+        IndexScanPlanNode ispn = (IndexScanPlanNode)pn;
+        assertTrue(ispn.isCovering());
+        assertTrue(ispn.toJSONString().contains("\"COVERING\":true"));
+    }
+
+    public void testNotIndexOnlyScan()
+    {
+        AbstractPlanNode pn = compile("select e from t where a = ? and b = ?;");
+        pn = pn.getChild(0);
+        assertTrue(pn instanceof IndexScanPlanNode);
+        assertFalse(((IndexScanPlanNode)pn).isCovering());
+
+        pn = compile("select a from t where a = ? and b = ? and e + 1 > ?;");
+        pn = pn.getChild(0);
+        assertTrue(pn instanceof IndexScanPlanNode);
+        assertFalse(((IndexScanPlanNode)pn).isCovering());
+    }
+
+    // T2 has columns named like the index columns of T, an inlined scan of T
+    // that reads them from the outer table still needs the tuples of T
+    public void testJoinOnSameNamedColumnsIsNotIndexOnly()
+    {
+        for (String sql : new String[] {
+                "select t.a from t2, t where t.a = t2.a and t.b > t2.b;",
+                "select t2.e from t2, t where t.a = t2.a and t.b = ? and t2.b > t.a;" }) {
+            AbstractPlanNode pn = compile(sql);
+            List<AbstractPlanNode> scans = pn.findAllNodesOfType(PlanNodeType.INDEXSCAN);
+            assertEquals(1, scans.size());
+            IndexScanPlanNode ispn = (IndexScanPlanNode)scans.get(0);
+            assertEquals("T", ispn.getTargetTableName());
+            assertFalse(sql, ispn.isCovering());
+        }
+    }
+
 }
@@ -11,3 +11,9 @@ create index idx_2_TREE on t (e, a, b, c, d);
 
 create index cover2_TREE on t (a, b);
 create index cover3_TREE on t (a, c, b);
+
+create table t2 (
+  a bigint not null,
+  b bigint not null,
+  e bigint not null
+);
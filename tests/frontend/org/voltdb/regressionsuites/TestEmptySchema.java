@@ -84,7 +84,7 @@ public class TestEmptySchema extends RegressionSuite
         assertEquals(11, results[0].getColumnCount());
         validateSchema(results[0], expectedTable);
 
-        expectedSchema = new ColumnInfo[12];
+        expectedSchema = new ColumnInfo[15];
         expectedSchema[0] = new ColumnInfo("TIMESTAMP", VoltType.BIGINT);
         expectedSchema[1] = new ColumnInfo("HOST_ID", VoltType.INTEGER);
         expectedSchema[2] = new ColumnInfo("HOSTNAME", VoltType.STRING);
@@ -97,12 +97,15 @@ public class TestEmptySchema extends RegressionSuite
         expectedSchema[9] = new ColumnInfo("IS_COUNTABLE", VoltType.TINYINT);
         expectedSchema[10] = new ColumnInfo("ENTRY_COUNT", VoltType.BIGINT);
         expectedSchema[11] = new ColumnInfo("MEMORY_ESTIMATE", VoltType.INTEGER);
+        expectedSchema[12] = new ColumnInfo("FILTER_PROBES", VoltType.BIGINT);
+        expectedSchema[13] = new ColumnInfo("FILTER_REJECTS", VoltType.BIGINT);
+        expectedSchema[14] = new ColumnInfo("FILTER_FALSE_POSITIVES", VoltType.BIGINT);
         expectedTable = new VoltTable(expectedSchema);
 
         results = client.callProcedure("@Statistics", "INDEX", 0).getResults();
         System.out.println("INDEX RESULTS: " + results[0]);
         assertEquals(0, results[0].getRowCount());
-        assertEquals(12, results[0].getColumnCount());
+        assertEquals(15, results[0].getColumnCount());
         validateSchema(results[0], expectedTable);
     }
 
@@ -318,6 +318,86 @@ public class TestMaterializedViewSuite extends RegressionSuite {
     }
 
 
+    private void assertMinMax(Client client, String view, String groupColumn, Object group,
+                              long num, Long min, Long max) throws Exception {
+        VoltTable result = client.callProcedure("@AdHoc",
+                "SELECT * FROM " + view + " WHERE " + groupColumn + " = " +
+                (group instanceof String ? "'" + group + "'" : group.toString()) + ";").getResults()[0];
+        assertTrue(result.advanceRow());
+        assertEquals(num, result.getLong(1));
+        long low = result.getLong(2);
+        assertEquals(min, result.wasNull() ? null : low);
+        long high = result.getLong(3);
+        assertEquals(max, result.wasNull() ? null : high);
+        assertFalse(result.advanceRow());
+    }
+
+    /** MIN and MAX kept through inserts, updates and deletes of the current values */
+    public void testMinMax() throws Exception {
+        Client client = getClient();
+
+        // recomputed through the SCORES_GAME_SCORE index
+        client.callProcedure("@AdHoc", "INSERT INTO SCORES VALUES (1, 1, 10);");
+        client.callProcedure("@AdHoc", "INSERT INTO SCORES VALUES (1, 2, 20);");
+        client.callProcedure("@AdHoc", "INSERT INTO SCORES VALUES (1, 3, 20);");
+        client.callProcedure("@AdHoc", "INSERT INTO SCORES VALUES (1, 4, NULL);");
+        client.callProcedure("@AdHoc", "INSERT INTO SCORES VALUES (2, 1, 5);");
+        assertMinMax(client, "MATSCORES", "GAME", 1, 4, 10L, 20L);
+        assertMinMax(client, "MATSCORES", "GAME", 2, 1, 5L, 5L);
+
+        // a tie keeps the MAX
+        client.callProcedure("@AdHoc", "DELETE FROM SCORES WHERE GAME = 1 AND PLAYER = 2;");
+        assertMinMax(client, "MATSCORES", "GAME", 1, 3, 10L, 20L);
+        client.callProcedure("@AdHoc", "DELETE FROM SCORES WHERE GAME = 1 AND PLAYER = 3;");
+        assertMinMax(client, "MATSCORES", "GAME", 1, 2, 10L, 10L);
+        // only a NULL left
+        client.callProcedure("@AdHoc", "DELETE FROM SCORES WHERE GAME = 1 AND PLAYER = 1;");
+        assertMinMax(client, "MATSCORES", "GAME", 1, 1, null, null);
+        client.callProcedure("@AdHoc", "UPDATE SCORES SET SCORE = 7 WHERE GAME = 2 AND PLAYER = 1;");
+        assertMinMax(client, "MATSCORES", "GAME", 2, 1, 7L, 7L);
+        client.callProcedure("@AdHoc", "INSERT INTO SCORES VALUES (2, 2, 3);");
+        assertMinMax(client, "MATSCORES", "GAME", 2, 2, 3L, 7L);
+        client.callProcedure("@AdHoc", "UPDATE SCORES SET SCORE = 1 WHERE GAME = 2 AND PLAYER = 1;");
+        assertMinMax(client, "MATSCORES", "GAME", 2, 2, 1L, 3L);
+
+        // no index to recompute with, RATINGS gets scanned
+        client.callProcedure("@AdHoc", "INSERT INTO RATINGS VALUES (1, 'a', 1);");
+        client.callProcedure("@AdHoc", "INSERT INTO RATINGS VALUES (2, 'a', 5);");
+        client.callProcedure("@AdHoc", "INSERT INTO RATINGS VALUES (3, 'a', 3);");
+        client.callProcedure("@AdHoc", "INSERT INTO RATINGS VALUES (4, 'b', 2);");
+        assertMinMax(client, "MATRATINGS", "ITEM", "a", 3, 1L, 5L);
+        client.callProcedure("@AdHoc", "DELETE FROM RATINGS WHERE ID = 2;");
+        assertMinMax(client, "MATRATINGS", "ITEM", "a", 2, 1L, 3L);
+        client.callProcedure("@AdHoc", "DELETE FROM RATINGS WHERE ID = 1;");
+        assertMinMax(client, "MATRATINGS", "ITEM", "a", 1, 3L, 3L);
+        assertMinMax(client, "MATRATINGS", "ITEM", "b", 1, 2L, 2L);
+
+        if (isHSQL()) {
+            return;
+        }
+        // the stats are refreshed on the next site tick
+        long indexRecomputes = 0;
+        long scanRecomputes = 0;
+        for (int i = 0; i < 100 && (indexRecomputes == 0 || scanRecomputes == 0); i++) {
+            Thread.sleep(100);
+            indexRecomputes = 0;
+            scanRecomputes = 0;
+            VoltTable stats = client.callProcedure("@Statistics", "VIEW", 0).getResults()[0];
+            while (stats.advanceRow()) {
+                if (stats.getString("VIEW_NAME").equals("MATSCORES")) {
+                    indexRecomputes += stats.getLong("INDEX_RECOMPUTES");
+                    assertEquals(0, stats.getLong("SCAN_RECOMPUTES"));
+                }
+                else if (stats.getString("VIEW_NAME").equals("MATRATINGS")) {
+                    assertEquals(0, stats.getLong("INDEX_RECOMPUTES"));
+                    scanRecomputes += stats.getLong("SCAN_RECOMPUTES");
+                }
+            }
+        }
+        assertTrue(indexRecomputes > 0);
+        assertTrue(scanRecomputes > 0);
+    }
+
     /**
      * Build a list of the tests that will be run when TestTPCCSuite gets run by JUnit.
      * Use helper classes that are part of the RegressionSuite framework.
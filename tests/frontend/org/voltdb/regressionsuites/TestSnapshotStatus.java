@@ -59,6 +59,33 @@ public class TestSnapshotStatus extends SaveRestoreBase {
         }
     }
 
+    public void testSnapshotCompressionStatus() throws Exception
+    {
+        Client client = getClient();
+        for (int ii = 0; ii < 1000; ii++) {
+            client.callProcedure("InsertA", ii, ii % 10);
+        }
+        client.callProcedure("@SnapshotSave", TMPDIR, TESTNONCE, 1);
+        VoltTable[] results = client.callProcedure("@SnapshotStatus").getResults();
+        System.out.println(results[0]);
+        boolean sawT = false;
+        while (results[0].advanceRow()) {
+            if (!results[0].getString("TABLE").equals("T")) {
+                continue;
+            }
+            sawT = true;
+            long size = results[0].getLong("SIZE");
+            long uncompressed = results[0].getLong("UNCOMPRESSED_SIZE");
+            double ratio = results[0].getDouble("COMPRESSION_RATIO");
+            assertTrue("SIZE was not filled", size > 0);
+            assertTrue("UNCOMPRESSED_SIZE was not filled", uncompressed > 0);
+            assertTrue("COMPRESSION_RATIO was not filled", ratio > 0.0);
+            // a small integer column compresses, and the ratio doesn't count the headers
+            assertTrue("COMPRESSION_RATIO " + ratio + " should show compression", ratio > 1.0);
+        }
+        assertTrue(sawT);
+    }
+
     // Regression test for ENG-4802
     public void testCsvSnapshotStatus() throws Exception
     {
@@ -333,7 +333,7 @@ public class TestStatisticsSuite extends SaveRestoreBase {
         System.out.println("\n\nTESTING INDEX STATS\n\n\n");
         Client client  = getFullyConnectedClient();
 
-        ColumnInfo[] expectedSchema = new ColumnInfo[12];
+        ColumnInfo[] expectedSchema = new ColumnInfo[15];
         expectedSchema[0] = new ColumnInfo("TIMESTAMP", VoltType.BIGINT);
         expectedSchema[1] = new ColumnInfo("HOST_ID", VoltType.BIGINT);
         expectedSchema[2] = new ColumnInfo("HOSTNAME", VoltType.STRING);
@@ -346,6 +346,9 @@ public class TestStatisticsSuite extends SaveRestoreBase {
         expectedSchema[9] = new ColumnInfo("IS_COUNTABLE", VoltType.TINYINT);
         expectedSchema[10] = new ColumnInfo("ENTRY_COUNT", VoltType.BIGINT);
         expectedSchema[11] = new ColumnInfo("MEMORY_ESTIMATE", VoltType.INTEGER);
+        expectedSchema[12] = new ColumnInfo("FILTER_PROBES", VoltType.BIGINT);
+        expectedSchema[13] = new ColumnInfo("FILTER_REJECTS", VoltType.BIGINT);
+        expectedSchema[14] = new ColumnInfo("FILTER_FALSE_POSITIVES", VoltType.BIGINT);
         VoltTable expectedTable = new VoltTable(expectedSchema);
 
         VoltTable[] results = null;
@@ -891,11 +894,46 @@ public class TestStatisticsSuite extends SaveRestoreBase {
         validateRowSeenAtAllHosts(results[0], "HOSTNAME", results[0].getString("HOSTNAME"), false);
     }
 
+    public void testSnapshotBudgetStatistics() throws Exception {
+        System.out.println("\n\nTESTING SNAPSHOTBUDGET STATS\n\n\n");
+        Client client  = getFullyConnectedClient();
+
+        ColumnInfo[] expectedSchema = new ColumnInfo[13];
+        expectedSchema[0] = new ColumnInfo("TIMESTAMP", VoltType.BIGINT);
+        expectedSchema[1] = new ColumnInfo("HOST_ID", VoltType.INTEGER);
+        expectedSchema[2] = new ColumnInfo("HOSTNAME", VoltType.STRING);
+        expectedSchema[3] = new ColumnInfo("SITE_ID", VoltType.INTEGER);
+        expectedSchema[4] = new ColumnInfo("BUDGET", VoltType.INTEGER);
+        expectedSchema[5] = new ColumnInfo("MAX_BUDGET", VoltType.INTEGER);
+        expectedSchema[6] = new ColumnInfo("LATENCY_TARGET", VoltType.INTEGER);
+        expectedSchema[7] = new ColumnInfo("MEASURED_LATENCY", VoltType.INTEGER);
+        expectedSchema[8] = new ColumnInfo("IDLE_PERCENT", VoltType.FLOAT);
+        expectedSchema[9] = new ColumnInfo("ROUNDS", VoltType.BIGINT);
+        expectedSchema[10] = new ColumnInfo("BLOCKS", VoltType.BIGINT);
+        expectedSchema[11] = new ColumnInfo("INCREASES", VoltType.BIGINT);
+        expectedSchema[12] = new ColumnInfo("DECREASES", VoltType.BIGINT);
+        VoltTable expectedTable = new VoltTable(expectedSchema);
+
+        VoltTable[] results = null;
+        //
+        // SNAPSHOTBUDGET
+        //
+        results = client.callProcedure("@Statistics", "SNAPSHOTBUDGET", 0).getResults();
+        // one aggregate table returned
+        assertEquals(1, results.length);
+        System.out.println("Test SNAPSHOTBUDGET table: " + results[0].toString());
+        validateSchema(results[0], expectedTable);
+        // One row per site, the MPI doesn't snapshot
+        assertEquals(HOSTS * SITES, results[0].getRowCount());
+        results[0].advanceRow();
+        validateRowSeenAtAllHosts(results[0], "HOSTNAME", results[0].getString("HOSTNAME"), false);
+    }
+
     public void testSnapshotStatus() throws Exception {
         System.out.println("\n\nTESTING SNAPSHOTSTATUS\n\n\n");
         Client client  = getFullyConnectedClient();
 
-        ColumnInfo[] expectedSchema = new ColumnInfo[14];
+        ColumnInfo[] expectedSchema = new ColumnInfo[17];
         expectedSchema[0] = new ColumnInfo("TIMESTAMP", VoltType.BIGINT);
         expectedSchema[1] = new ColumnInfo("HOST_ID", VoltType.INTEGER);
         expectedSchema[2] = new ColumnInfo("HOSTNAME", VoltType.STRING);
@@ -910,6 +948,9 @@ public class TestStatisticsSuite extends SaveRestoreBase {
         expectedSchema[11] = new ColumnInfo("DURATION", VoltType.BIGINT);
         expectedSchema[12] = new ColumnInfo("THROUGHPUT", VoltType.FLOAT);
         expectedSchema[13] = new ColumnInfo("RESULT", VoltType.STRING);
+        expectedSchema[14] = new ColumnInfo("UNCOMPRESSED_SIZE", VoltType.BIGINT);
+        expectedSchema[15] = new ColumnInfo("COMPRESSION_RATIO", VoltType.FLOAT);
+        expectedSchema[16] = new ColumnInfo("COMPRESSION_TIME", VoltType.BIGINT);
         VoltTable expectedTable = new VoltTable(expectedSchema);
 
         // Finagle a snapshot
@@ -930,6 +971,327 @@ public class TestStatisticsSuite extends SaveRestoreBase {
         validateRowSeenAtAllHosts(results[0], "TABLE", "ITEM", true);
     }
 
+    public void testRejoinStats() throws Exception {
+        System.out.println("\n\nTESTING REJOIN STATS\n\n\n");
+        Client client  = getFullyConnectedClient();
+
+        ColumnInfo[] expectedSchema = new ColumnInfo[15];
+        expectedSchema[0] = new ColumnInfo("TIMESTAMP", VoltType.BIGINT);
+        expectedSchema[1] = new ColumnInfo("HOST_ID", VoltType.INTEGER);
+        expectedSchema[2] = new ColumnInfo("HOSTNAME", VoltType.STRING);
+        expectedSchema[3] = new ColumnInfo("DIRECTION", VoltType.STRING);
+        expectedSchema[4] = new ColumnInfo("STREAM_ID", VoltType.BIGINT);
+        expectedSchema[5] = new ColumnInfo("REMOTE_SITE", VoltType.STRING);
+        expectedSchema[6] = new ColumnInfo("START_TIME", VoltType.BIGINT);
+        expectedSchema[7] = new ColumnInfo("END_TIME", VoltType.BIGINT);
+        expectedSchema[8] = new ColumnInfo("BLOCKS", VoltType.BIGINT);
+        expectedSchema[9] = new ColumnInfo("BYTES", VoltType.BIGINT);
+        expectedSchema[10] = new ColumnInfo("UNCOMPRESSED_BYTES", VoltType.BIGINT);
+        expectedSchema[11] = new ColumnInfo("COMPRESSION_TIME", VoltType.BIGINT);
+        expectedSchema[12] = new ColumnInfo("WINDOW", VoltType.INTEGER);
+        expectedSchema[13] = new ColumnInfo("OUTSTANDING", VoltType.INTEGER);
+        expectedSchema[14] = new ColumnInfo("THROUGHPUT", VoltType.FLOAT);
+        VoltTable expectedTable = new VoltTable(expectedSchema);
+
+        VoltTable[] results = null;
+        //
+        // REJOIN
+        //
+        results = client.callProcedure("@Statistics", "REJOIN", 0).getResults();
+        // one aggregate table returned, empty since nothing has rejoined
+        assertEquals(1, results.length);
+        System.out.println("Test REJOIN table: " + results[0].toString());
+        validateSchema(results[0], expectedTable);
+    }
+
+    public void testRebalanceStats() throws Exception {
+        System.out.println("\n\nTESTING REBALANCE STATS\n\n\n");
+        Client client  = getFullyConnectedClient();
+
+        ColumnInfo[] expectedSchema = new ColumnInfo[13];
+        expectedSchema[0] = new ColumnInfo("TIMESTAMP", VoltType.BIGINT);
+        expectedSchema[1] = new ColumnInfo("HOST_ID", VoltType.INTEGER);
+        expectedSchema[2] = new ColumnInfo("HOSTNAME", VoltType.STRING);
+        expectedSchema[3] = new ColumnInfo("STATE", VoltType.STRING);
+        expectedSchema[4] = new ColumnInfo("MAX_MB_PER_SEC", VoltType.INTEGER);
+        expectedSchema[5] = new ColumnInfo("LATENCY_BUDGET", VoltType.INTEGER);
+        expectedSchema[6] = new ColumnInfo("START_TIME", VoltType.BIGINT);
+        expectedSchema[7] = new ColumnInfo("RANGES_TOTAL", VoltType.BIGINT);
+        expectedSchema[8] = new ColumnInfo("RANGES_MOVED", VoltType.BIGINT);
+        expectedSchema[9] = new ColumnInfo("BYTES", VoltType.BIGINT);
+        expectedSchema[10] = new ColumnInfo("THROUGHPUT", VoltType.FLOAT);
+        expectedSchema[11] = new ColumnInfo("THROTTLED_BLOCKS", VoltType.BIGINT);
+        expectedSchema[12] = new ColumnInfo("ETA", VoltType.BIGINT);
+        VoltTable expectedTable = new VoltTable(expectedSchema);
+
+        VoltTable[] results = null;
+        //
+        // REBALANCE
+        //
+        results = client.callProcedure("@Statistics", "REBALANCE", 0).getResults();
+        // one aggregate table returned, one row per host
+        assertEquals(1, results.length);
+        System.out.println("Test REBALANCE table: " + results[0].toString());
+        validateSchema(results[0], expectedTable);
+        assertEquals(HOSTS, results[0].getRowCount());
+        results[0].advanceRow();
+        assertEquals("IDLE", results[0].getString("STATE"));
+    }
+
+    public void testMessageBatchStats() throws Exception {
+        System.out.println("\n\nTESTING MESSAGEBATCH STATS\n\n\n");
+        Client client  = getFullyConnectedClient();
+
+        ColumnInfo[] expectedSchema = new ColumnInfo[11];
+        expectedSchema[0] = new ColumnInfo("TIMESTAMP", VoltType.BIGINT);
+        expectedSchema[1] = new ColumnInfo("HOST_ID", VoltType.INTEGER);
+        expectedSchema[2] = new ColumnInfo("HOSTNAME", VoltType.STRING);
+        expectedSchema[3] = new ColumnInfo("REMOTE_HOST_ID", VoltType.INTEGER);
+        expectedSchema[4] = new ColumnInfo("REMOTE_HOSTNAME", VoltType.STRING);
+        expectedSchema[5] = new ColumnInfo("BATCHES", VoltType.BIGINT);
+        expectedSchema[6] = new ColumnInfo("MESSAGES", VoltType.BIGINT);
+        expectedSchema[7] = new ColumnInfo("BYTES", VoltType.BIGINT);
+        expectedSchema[8] = new ColumnInfo("MESSAGES_PER_BATCH", VoltType.FLOAT);
+        expectedSchema[9] = new ColumnInfo("FULL_BATCHES", VoltType.BIGINT);
+        expectedSchema[10] = new ColumnInfo("WINDOW", VoltType.INTEGER);
+        VoltTable expectedTable = new VoltTable(expectedSchema);
+
+        VoltTable[] results = null;
+        //
+        // MESSAGEBATCH
+        //
+        results = client.callProcedure("@Statistics", "MESSAGEBATCH", 0).getResults();
+        // one aggregate table returned, one row per pair of hosts
+        assertEquals(1, results.length);
+        System.out.println("Test MESSAGEBATCH table: " + results[0].toString());
+        validateSchema(results[0], expectedTable);
+        assertEquals(HOSTS * (HOSTS - 1), results[0].getRowCount());
+        while (results[0].advanceRow()) {
+            assertTrue(results[0].getLong("MESSAGES") >= results[0].getLong("BATCHES"));
+        }
+    }
+
+    public void testClientLoginStats() throws Exception {
+        System.out.println("\n\nTESTING CLIENTLOGIN STATS\n\n\n");
+        Client client  = getFullyConnectedClient();
+
+        ColumnInfo[] expectedSchema = new ColumnInfo[13];
+        expectedSchema[0] = new ColumnInfo("TIMESTAMP", VoltType.BIGINT);
+        expectedSchema[1] = new ColumnInfo("HOST_ID", VoltType.INTEGER);
+        expectedSchema[2] = new ColumnInfo("HOSTNAME", VoltType.STRING);
+        expectedSchema[3] = new ColumnInfo("PORT", VoltType.INTEGER);
+        expectedSchema[4] = new ColumnInfo("ACCEPTED", VoltType.BIGINT);
+        expectedSchema[5] = new ColumnInfo("REJECTED", VoltType.BIGINT);
+        expectedSchema[6] = new ColumnInfo("ACCEPT_RATE", VoltType.FLOAT);
+        expectedSchema[7] = new ColumnInfo("LOGINS", VoltType.BIGINT);
+        expectedSchema[8] = new ColumnInfo("FAILURES", VoltType.BIGINT);
+        expectedSchema[9] = new ColumnInfo("TIMEOUTS", VoltType.BIGINT);
+        expectedSchema[10] = new ColumnInfo("PENDING", VoltType.INTEGER);
+        expectedSchema[11] = new ColumnInfo("AVG_LOGIN_LATENCY", VoltType.FLOAT);
+        expectedSchema[12] = new ColumnInfo("MAX_LOGIN_LATENCY", VoltType.FLOAT);
+        VoltTable expectedTable = new VoltTable(expectedSchema);
+
+        VoltTable[] results = null;
+        //
+        // CLIENTLOGIN
+        //
+        results = client.callProcedure("@Statistics", "CLIENTLOGIN", 0).getResults();
+        // one aggregate table returned, a row for the client and admin ports of each host
+        assertEquals(1, results.length);
+        System.out.println("Test CLIENTLOGIN table: " + results[0].toString());
+        validateSchema(results[0], expectedTable);
+        assertEquals(HOSTS * 2, results[0].getRowCount());
+        long logins = 0;
+        while (results[0].advanceRow()) {
+            assertTrue(results[0].getLong("ACCEPTED") >= results[0].getLong("LOGINS"));
+            logins += results[0].getLong("LOGINS");
+        }
+        // the fully connected client logged in to every host
+        assertTrue(logins >= HOSTS);
+    }
+
+    public void testResultBufferStats() throws Exception {
+        System.out.println("\n\nTESTING RESULTBUFFER STATS\n\n\n");
+        Client client  = getFullyConnectedClient();
+
+        ColumnInfo[] expectedSchema = new ColumnInfo[16];
+        expectedSchema[0] = new ColumnInfo("TIMESTAMP", VoltType.BIGINT);
+        expectedSchema[1] = new ColumnInfo("HOST_ID", VoltType.INTEGER);
+        expectedSchema[2] = new ColumnInfo("HOSTNAME", VoltType.STRING);
+        expectedSchema[3] = new ColumnInfo("POOLED_BUFFERS", VoltType.INTEGER);
+        expectedSchema[4] = new ColumnInfo("POOLED_BYTES", VoltType.BIGINT);
+        expectedSchema[5] = new ColumnInfo("LENT_BUFFERS", VoltType.INTEGER);
+        expectedSchema[6] = new ColumnInfo("LENT_BYTES", VoltType.BIGINT);
+        expectedSchema[7] = new ColumnInfo("HANDED_OFF_BUFFERS", VoltType.INTEGER);
+        expectedSchema[8] = new ColumnInfo("HANDED_OFF_BYTES", VoltType.BIGINT);
+        expectedSchema[9] = new ColumnInfo("HANDED_OFF_LIMIT_BYTES", VoltType.BIGINT);
+        expectedSchema[10] = new ColumnInfo("ACQUIRES", VoltType.BIGINT);
+        expectedSchema[11] = new ColumnInfo("ALLOCATIONS", VoltType.BIGINT);
+        expectedSchema[12] = new ColumnInfo("HANDOFFS", VoltType.BIGINT);
+        expectedSchema[13] = new ColumnInfo("COPIES", VoltType.BIGINT);
+        expectedSchema[14] = new ColumnInfo("RECLAIMED", VoltType.BIGINT);
+        expectedSchema[15] = new ColumnInfo("FREED", VoltType.BIGINT);
+        VoltTable expectedTable = new VoltTable(expectedSchema);
+
+        VoltTable[] results = null;
+        //
+        // RESULTBUFFER
+        //
+        results = client.callProcedure("@Statistics", "RESULTBUFFER", 0).getResults();
+        // one aggregate table returned, one row per host
+        assertEquals(1, results.length);
+        System.out.println("Test RESULTBUFFER table: " + results[0].toString());
+        validateSchema(results[0], expectedTable);
+        assertEquals(HOSTS, results[0].getRowCount());
+        while (results[0].advanceRow()) {
+            assertTrue(results[0].getLong("ACQUIRES") >= results[0].getLong("ALLOCATIONS"));
+            assertTrue(results[0].getLong("HANDOFFS") >= results[0].getLong("RECLAIMED"));
+            assertTrue(results[0].getLong("HANDED_OFF_BYTES") <= results[0].getLong("HANDED_OFF_LIMIT_BYTES"));
+        }
+    }
+
+    public void testTempTableSpillStats() throws Exception {
+        System.out.println("\n\nTESTING TEMPTABLESPILL STATS\n\n\n");
+        Client client  = getFullyConnectedClient();
+
+        ColumnInfo[] expectedSchema = new ColumnInfo[8];
+        expectedSchema[0] = new ColumnInfo("TIMESTAMP", VoltType.BIGINT);
+        expectedSchema[1] = new ColumnInfo("HOST_ID", VoltType.INTEGER);
+        expectedSchema[2] = new ColumnInfo("HOSTNAME", VoltType.STRING);
+        expectedSchema[3] = new ColumnInfo("SITE_ID", VoltType.INTEGER);
+        expectedSchema[4] = new ColumnInfo("SPILLS", VoltType.BIGINT);
+        expectedSchema[5] = new ColumnInfo("FILES", VoltType.BIGINT);
+        expectedSchema[6] = new ColumnInfo("TUPLES", VoltType.BIGINT);
+        expectedSchema[7] = new ColumnInfo("BYTES", VoltType.BIGINT);
+        VoltTable expectedTable = new VoltTable(expectedSchema);
+
+        VoltTable[] results = null;
+        //
+        // TEMPTABLESPILL
+        //
+        results = client.callProcedure("@Statistics", "TEMPTABLESPILL", 0).getResults();
+        // one aggregate table returned
+        assertEquals(1, results.length);
+        System.out.println("Test TEMPTABLESPILL table: " + results[0].toString());
+        validateSchema(results[0], expectedTable);
+        // One row per site and one for the MPI of every host
+        assertEquals(HOSTS * (SITES + 1), results[0].getRowCount());
+        while (results[0].advanceRow()) {
+            // spilling is off by default
+            assertEquals(0, results[0].getLong("SPILLS"));
+        }
+    }
+
+    public void testViewStats() throws Exception {
+        System.out.println("\n\nTESTING VIEW STATS\n\n\n");
+        Client client  = getFullyConnectedClient();
+
+        ColumnInfo[] expectedSchema = new ColumnInfo[9];
+        expectedSchema[0] = new ColumnInfo("TIMESTAMP", VoltType.BIGINT);
+        expectedSchema[1] = new ColumnInfo("HOST_ID", VoltType.INTEGER);
+        expectedSchema[2] = new ColumnInfo("HOSTNAME", VoltType.STRING);
+        expectedSchema[3] = new ColumnInfo("SITE_ID", VoltType.INTEGER);
+        expectedSchema[4] = new ColumnInfo("PARTITION_ID", VoltType.INTEGER);
+        expectedSchema[5] = new ColumnInfo("VIEW_NAME", VoltType.STRING);
+        expectedSchema[6] = new ColumnInfo("SOURCE_TABLE", VoltType.STRING);
+        expectedSchema[7] = new ColumnInfo("INDEX_RECOMPUTES", VoltType.BIGINT);
+        expectedSchema[8] = new ColumnInfo("SCAN_RECOMPUTES", VoltType.BIGINT);
+        VoltTable expectedTable = new VoltTable(expectedSchema);
+
+        VoltTable[] results = null;
+        //
+        // VIEW
+        //
+        results = client.callProcedure("@Statistics", "VIEW", 0).getResults();
+        // one aggregate table returned
+        assertEquals(1, results.length);
+        System.out.println("Test VIEW table: " + results[0].toString());
+        validateSchema(results[0], expectedTable);
+        // this schema has no views
+        assertEquals(0, results[0].getRowCount());
+    }
+
+    public void testPlanCacheStats() throws Exception {
+        System.out.println("\n\nTESTING PLANCACHE STATS\n\n\n");
+        Client client  = getFullyConnectedClient();
+
+        ColumnInfo[] expectedSchema = new ColumnInfo[14];
+        expectedSchema[0] = new ColumnInfo("TIMESTAMP", VoltType.BIGINT);
+        expectedSchema[1] = new ColumnInfo("HOST_ID", VoltType.INTEGER);
+        expectedSchema[2] = new ColumnInfo("HOSTNAME", VoltType.STRING);
+        expectedSchema[3] = new ColumnInfo("SITE_ID", VoltType.INTEGER);
+        expectedSchema[4] = new ColumnInfo("PARTITION_ID", VoltType.INTEGER);
+        expectedSchema[5] = new ColumnInfo("HITS", VoltType.BIGINT);
+        expectedSchema[6] = new ColumnInfo("MISSES", VoltType.BIGINT);
+        expectedSchema[7] = new ColumnInfo("EVICTIONS", VoltType.BIGINT);
+        expectedSchema[8] = new ColumnInfo("LOAD_MICROS", VoltType.BIGINT);
+        expectedSchema[9] = new ColumnInfo("ENTRIES", VoltType.BIGINT);
+        expectedSchema[10] = new ColumnInfo("BYTES", VoltType.BIGINT);
+        expectedSchema[11] = new ColumnInfo("PINNED_ENTRIES", VoltType.BIGINT);
+        expectedSchema[12] = new ColumnInfo("PINNED_BYTES", VoltType.BIGINT);
+        expectedSchema[13] = new ColumnInfo("BUDGET_BYTES", VoltType.BIGINT);
+        VoltTable expectedTable = new VoltTable(expectedSchema);
+
+        // load a stored procedure's plan and an ad hoc one
+        client.callProcedure("NEW_ORDER.insert", 1000);
+        client.callProcedure("@AdHoc", "select count(*) from NEW_ORDER;");
+
+        VoltTable[] results = null;
+        //
+        // PLANCACHE
+        //
+        results = client.callProcedure("@Statistics", "PLANCACHE", 0).getResults();
+        // one aggregate table returned
+        assertEquals(1, results.length);
+        System.out.println("Test PLANCACHE table: " + results[0].toString());
+        validateSchema(results[0], expectedTable);
+        // One row per site and one for the MPI of every host
+        assertEquals(HOSTS * (SITES + 1), results[0].getRowCount());
+    }
+
+    public void testLatencyHistogramStats() throws Exception {
+        System.out.println("\n\nTESTING LATENCY HISTOGRAM STATS\n\n\n");
+        Client client  = getFullyConnectedClient();
+
+        final String selectors[] = { "PROCEDURELATENCY", "PARTITIONLATENCY", "CONNECTIONLATENCY" };
+        final ColumnInfo keyColumns[] = {
+                new ColumnInfo("PROCEDURE", VoltType.STRING),
+                new ColumnInfo("PARTITION_ID", VoltType.INTEGER),
+                new ColumnInfo("CONNECTION_ID", VoltType.BIGINT) };
+
+        // make sure something was recorded on every host
+        for (int i = 0; i < 100; i++) {
+            client.callProcedure("@AdHoc", "SELECT COUNT(*) FROM NEW_ORDER;");
+        }
+
+        for (int ii = 0; ii < selectors.length; ii++) {
+            ColumnInfo[] expectedSchema = new ColumnInfo[10];
+            expectedSchema[0] = new ColumnInfo("TIMESTAMP", VoltType.BIGINT);
+            expectedSchema[1] = new ColumnInfo("HOST_ID", VoltType.INTEGER);
+            expectedSchema[2] = new ColumnInfo("HOSTNAME", VoltType.STRING);
+            expectedSchema[3] = keyColumns[ii];
+            expectedSchema[4] = new ColumnInfo("INVOCATIONS", VoltType.BIGINT);
+            expectedSchema[5] = new ColumnInfo("AVG", VoltType.BIGINT);
+            expectedSchema[6] = new ColumnInfo("P50", VoltType.BIGINT);
+            expectedSchema[7] = new ColumnInfo("P99", VoltType.BIGINT);
+            expectedSchema[8] = new ColumnInfo("P999", VoltType.BIGINT);
+            expectedSchema[9] = new ColumnInfo("MAX", VoltType.BIGINT);
+            VoltTable expectedTable = new VoltTable(expectedSchema);
+
+            VoltTable[] results = client.callProcedure("@Statistics", selectors[ii], 0).getResults();
+            assertEquals(1, results.length);
+            System.out.println("Test " + selectors[ii] + " table: " + results[0].toString());
+            validateSchema(results[0], expectedTable);
+            assertTrue(results[0].getRowCount() > 0);
+            while (results[0].advanceRow()) {
+                assertTrue(results[0].getLong("INVOCATIONS") > 0);
+                assertTrue(results[0].getLong("P50") <= results[0].getLong("P99"));
+                assertTrue(results[0].getLong("P99") <= results[0].getLong("P999"));
+                assertTrue(results[0].getLong("P999") <= results[0].getLong("MAX"));
+            }
+        }
+    }
+
     public void testManagementStats() throws Exception {
         System.out.println("\n\nTESTING MANAGEMENT STATS\n\n\n");
         Client client  = getFullyConnectedClient();
@@ -23,6 +23,7 @@
 
 package org.voltdb.regressionsuites;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.Random;
 
@@ -365,6 +366,81 @@ public class TestSystemProcedureSuite extends RegressionSuite {
         assertTrue(true);
     }
 
+    // verify the rebalance controls are accepted when no rebalance is running
+    public void testRebalanceControl() throws Exception {
+        Client client = getClient();
+
+        String[] commands = {"PAUSE", "RESUME", "THROTTLE", "LATENCY"};
+        for (String command : commands) {
+            ClientResponse resp = client.callProcedure("@RebalanceControl", command, 0);
+            VoltTable vt = resp.getResults()[0];
+            boolean foundResponse = false;
+            while (vt.advanceRow()) {
+                if (!vt.getString("Result").toUpperCase().startsWith(command)) {
+                    fail();
+                }
+                foundResponse = true;
+            }
+            assertTrue(foundResponse);
+        }
+
+        //
+        // garbage
+        //
+        ClientResponse resp = client.callProcedure("@RebalanceControl", "MakeAPony", 0);
+        VoltTable vt = resp.getResults()[0];
+        assertTrue(vt.advanceRow());
+        assertTrue(vt.getString("Result").startsWith("Invalid command"));
+    }
+
+    public void testTransactionTrace() throws Exception {
+        Client client = getClient();
+
+        VoltTable vt = client.callProcedure("@TransactionTrace", "SAMPLE", "1").getResults()[0];
+        assertEquals(HOSTS, vt.getRowCount());
+        while (vt.advanceRow()) {
+            assertEquals(1, vt.getLong("SAMPLE_RATE"));
+            assertEquals("SUCCESS", vt.getString("RESULT"));
+        }
+
+        for (int i = 0; i < 10; i++) {
+            client.callProcedure("NEW_ORDER.insert", i);
+        }
+
+        // every insert went through its client interface and its partition master
+        vt = client.callProcedure("@TransactionTrace", "EVENTS", "").getResults()[0];
+        int ciReceives = 0;
+        int eeStarts = 0;
+        while (vt.advanceRow()) {
+            if (vt.getString("STAGE").equals("CI_RECEIVE")) {
+                ciReceives++;
+            }
+            else if (vt.getString("STAGE").equals("EE_START")) {
+                eeStarts++;
+            }
+        }
+        assertTrue(ciReceives >= 10);
+        assertTrue(eeStarts >= 10);
+
+        vt = client.callProcedure("@TransactionTrace", "DUMP",
+                System.getProperty("java.io.tmpdir")).getResults()[0];
+        assertEquals(HOSTS, vt.getRowCount());
+        while (vt.advanceRow()) {
+            assertTrue(vt.getString("RESULT").contains("txntrace-host"));
+            new File(vt.getString("RESULT")).delete();
+        }
+
+        client.callProcedure("@TransactionTrace", "SAMPLE", "0");
+        client.callProcedure("@TransactionTrace", "CLEAR", "");
+        vt = client.callProcedure("@TransactionTrace", "EVENTS", "").getResults()[0];
+        assertEquals(0, vt.getRowCount());
+
+        try {
+            client.callProcedure("@TransactionTrace", "MakeAPony", "");
+            fail();
+        } catch (ProcCallException expected) {}
+    }
+
     //
     // Build a list of the tests to be run. Use the regression suite
     // helpers to allow multiple backends.
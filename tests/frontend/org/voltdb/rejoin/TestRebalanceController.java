@@ -0,0 +1,83 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.rejoin;
+
+import junit.framework.TestCase;
+
+public class TestRebalanceController extends TestCase {
+    private static final int MB = 1024 * 1024;
+
+    public void testUnlimitedNeverWaits() {
+        RebalanceController controller = new RebalanceController(0, 0);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(0, controller.acquire(2 * MB));
+        }
+    }
+
+    public void testThrottleRate() {
+        RebalanceController controller = new RebalanceController(10, 0);
+        long now = System.nanoTime();
+        // bucket starts empty but not in debt, the first block goes through
+        assertEquals(0, controller.acquireBytes(5 * MB, now));
+        // 5MB in debt at 10MB/s is half a second
+        assertEquals(500, controller.acquireBytes(MB, now), 1);
+        // after 250ms half the debt is paid
+        now += 250 * 1000000L;
+        assertEquals(250, controller.acquireBytes(MB, now), 1);
+        now += 251 * 1000000L;
+        assertEquals(0, controller.acquireBytes(MB, now));
+    }
+
+    public void testPauseResume() {
+        RebalanceController controller = new RebalanceController(0, 0);
+        controller.pause();
+        assertTrue(controller.isPaused());
+        assertEquals(Long.MAX_VALUE, controller.acquire(MB));
+        controller.resume();
+        assertFalse(controller.isPaused());
+        assertEquals(0, controller.acquire(MB));
+    }
+
+    public void testRangesMovedWhenAllTargetsClose() {
+        RebalanceController controller = new RebalanceController(0, 0);
+        RebalanceController.RangeGroup group = controller.addRanges(4, 2);
+        RebalanceController.RangeGroup other = controller.addRanges(2, 1);
+        group.targetClosed();
+        Object[] row = statsRow(controller);
+        assertEquals(6L, row[0]);
+        assertEquals(0L, row[1]);
+        group.targetClosed();
+        other.targetClosed();
+        row = statsRow(controller);
+        assertEquals(6L, row[0]);
+        assertEquals(6L, row[1]);
+    }
+
+    private static Object[] statsRow(RebalanceController controller) {
+        Object[][] rows = controller.getStatsRows(false, System.currentTimeMillis());
+        assertEquals(1, rows.length);
+        // RANGES_TOTAL and RANGES_MOVED follow the 3 common and 4 control columns
+        return new Object[] { rows[0][7], rows[0][8] };
+    }
+}
@@ -50,7 +50,6 @@ import java.util.concurrent.Callable;
 public class TestStreamSnapshotDataTarget {
     private MockMailbox m_mb;
     private StreamSnapshotDataTarget.SnapshotSender m_sender;
-    private Thread m_senderThread;
     private StreamSnapshotAckReceiver m_ack;
     private Thread m_ackThread;
     private Map<Integer, byte[]> m_schemas;
@@ -72,9 +71,8 @@ public class TestStreamSnapshotDataTarget {
 
         m_sender = new StreamSnapshotDataTarget.SnapshotSender(m_mb);
         m_ack = new StreamSnapshotAckReceiver(m_mb);
-        m_senderThread = new Thread(m_sender, "test sender");
         m_ackThread = new Thread(m_ack, "test ack");
-        m_senderThread.start();
+        m_sender.start("test sender");
         m_ackThread.start();
 
         m_schemas = Maps.newHashMap();
@@ -213,4 +211,109 @@ public class TestStreamSnapshotDataTarget {
         dut1.close();
         dut2.close();
     }
+
+    @Test
+    public void testWindowLimitsInFlightBlocks() throws IOException, InterruptedException
+    {
+        StreamSnapshotDataTarget dut = makeDataTarget(1000);
+
+        // Fill the window, the first block carries the schema as well
+        writeAndVerify(/* dataTarget = */ dut, /* tableId = */ 0, /* hasSchema = */ true);
+        for (int i = 1; i < StreamSnapshotDataTarget.MAX_WINDOW; i++) {
+            writeAndVerify(/* dataTarget = */ dut, /* tableId = */ 0, /* hasSchema = */ false);
+        }
+
+        // One more block has to wait for an ack before it is sent
+        dut.write(makeTuples(), makeTask(0));
+        Thread.sleep(100);
+        assertTrue(m_mb.noSentMessages());
+        assertEquals(StreamSnapshotDataTarget.MAX_WINDOW + 1, dut.m_outstandingWorkCount.get());
+
+        m_mb.deliver(new RejoinDataAckMessage(dut.m_targetId, 0));
+        while (m_mb.noSentMessages()) {
+            Thread.yield();
+        }
+        verifyData((RejoinDataMessage) m_mb.pollMessage(),
+                   dut.m_targetId,
+                   StreamSnapshotMessageType.DATA,
+                   /* tableId = */ 0,
+                   StreamSnapshotDataTarget.MAX_WINDOW);
+
+        for (int i = 1; i <= StreamSnapshotDataTarget.MAX_WINDOW; i++) {
+            m_mb.deliver(new RejoinDataAckMessage(dut.m_targetId, i));
+        }
+        while (dut.m_outstandingWorkCount.get() != 0) {
+            Thread.yield();
+        }
+        assertTrue(dut.getUncompressedBytes() > 0);
+        dut.close();
+    }
+
+    @Test
+    public void testPerTargetOrderWithMultipleSenders() throws Exception
+    {
+        final int targetCount = 4;
+        final int blockCount = StreamSnapshotDataTarget.MAX_WINDOW;
+
+        StreamSnapshotDataTarget.SnapshotSender sender =
+            new StreamSnapshotDataTarget.SnapshotSender(m_mb, targetCount);
+        sender.start("test multi sender");
+        List<StreamSnapshotDataTarget> duts = new ArrayList<StreamSnapshotDataTarget>();
+        for (int i = 0; i < targetCount; i++) {
+            duts.add(new StreamSnapshotDataTarget(1000 + i, m_schemas, m_mb, sender, m_ack));
+        }
+
+        // interleave the writes of all targets, a new table every other block
+        for (int block = 0; block < blockCount; block++) {
+            for (StreamSnapshotDataTarget dut : duts) {
+                dut.write(makeTuples(), makeTask(block / 2));
+            }
+        }
+
+        // every data block and one schema per table
+        Map<Long, List<ByteBuffer>> received = Maps.newHashMap();
+        for (int i = 0; i < targetCount * (blockCount + (blockCount + 1) / 2); i++) {
+            while (m_mb.noSentMessages()) {
+                Thread.yield();
+            }
+            RejoinDataMessage msg = (RejoinDataMessage) m_mb.pollMessage();
+            if (!received.containsKey(msg.getTargetId())) {
+                received.put(msg.getTargetId(), new ArrayList<ByteBuffer>());
+            }
+            received.get(msg.getTargetId()).add(
+                    ByteBuffer.wrap(CompressionService.decompressBytes(msg.getData())));
+        }
+
+        // the schema of a table precedes its data and blocks keep their order
+        for (StreamSnapshotDataTarget dut : duts) {
+            List<ByteBuffer> messages = received.get(dut.m_targetId);
+            assertNotNull(messages);
+            int lastTableWithSchema = -1;
+            int nextBlock = 0;
+            for (ByteBuffer data : messages) {
+                int tableId = data.getInt(StreamSnapshotBase.tableIdOffset);
+                if (data.get(StreamSnapshotBase.typeOffset) == StreamSnapshotMessageType.SCHEMA.ordinal()) {
+                    assertEquals(lastTableWithSchema + 1, tableId);
+                    lastTableWithSchema = tableId;
+                } else {
+                    assertEquals(StreamSnapshotMessageType.DATA.ordinal(), data.get(StreamSnapshotBase.typeOffset));
+                    assertEquals(lastTableWithSchema, tableId);
+                    assertEquals(nextBlock++, data.getInt(StreamSnapshotBase.blockIndexOffset));
+                }
+            }
+            assertEquals(blockCount, nextBlock);
+        }
+
+        for (StreamSnapshotDataTarget dut : duts) {
+            for (int block = 0; block < blockCount; block++) {
+                m_mb.deliver(new RejoinDataAckMessage(dut.m_targetId, block));
+            }
+        }
+        for (StreamSnapshotDataTarget dut : duts) {
+            while (dut.m_outstandingWorkCount.get() != 0) {
+                Thread.yield();
+            }
+            dut.close();
+        }
+    }
 }
@@ -0,0 +1,168 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.utils;
+
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import org.voltdb.StatsSelector;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.VoltType;
+
+public class TestMetricsRenderer extends TestCase {
+
+    private static VoltTable procedureTable() {
+        VoltTable t = new VoltTable(
+                new ColumnInfo("TIMESTAMP", VoltType.BIGINT),
+                new ColumnInfo("HOST_ID", VoltType.INTEGER),
+                new ColumnInfo("PARTITION_ID", VoltType.INTEGER),
+                new ColumnInfo("PROCEDURE", VoltType.STRING),
+                new ColumnInfo("INVOCATIONS", VoltType.BIGINT),
+                new ColumnInfo("AVG_EXECUTION_TIME", VoltType.FLOAT));
+        t.addRow(1000L, 0, 1, "Insert", 42L, 1.5);
+        t.addRow(1000L, 0, 2, "Say \"hi\"\\\n", -7L, VoltType.NULL_FLOAT);
+        return t;
+    }
+
+    // LATENCY of two hosts, 10ms buckets, the last one open ended
+    private static VoltTable latencyTable() {
+        VoltTable t = new VoltTable(
+                new ColumnInfo("TIMESTAMP", VoltType.BIGINT),
+                new ColumnInfo("HOST_ID", VoltType.INTEGER),
+                new ColumnInfo("HOSTNAME", VoltType.STRING),
+                new ColumnInfo("SITE_ID", VoltType.INTEGER),
+                new ColumnInfo("BUCKET_MIN", VoltType.INTEGER),
+                new ColumnInfo("BUCKET_MAX", VoltType.INTEGER),
+                new ColumnInfo("INVOCATIONS", VoltType.BIGINT));
+        t.addRow(1000L, 0, "a", 0, 0, 10, 5L);
+        t.addRow(1000L, 0, "a", 0, 10, 20, 3L);
+        t.addRow(1000L, 0, "a", 0, 20, 75, 1L);
+        t.addRow(1000L, 1, "b", 0, 0, 10, 7L);
+        t.addRow(1000L, 1, "b", 0, 10, 20, 0L);
+        t.addRow(1000L, 1, "b", 0, 20, 20, 0L);
+        return t;
+    }
+
+    private static String render(VoltTable t, Map<String, Set<String>> filters) throws Exception {
+        return render(StatsSelector.PROCEDURE, t, filters);
+    }
+
+    private static String render(StatsSelector selector, VoltTable t, Map<String, Set<String>> filters)
+            throws Exception {
+        StringWriter out = new StringWriter();
+        new MetricsRenderer().renderTable(selector, t, filters, out, new char[20]);
+        return out.toString();
+    }
+
+    /**
+     * Prometheus rejects a scrape with two samples of the same name and labels
+     */
+    private static void assertNoDuplicateSeries(String text) {
+        Set<String> series = new HashSet<String>();
+        for (String line : text.split("\n")) {
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String key = line.substring(0, line.lastIndexOf(' '));
+            assertTrue("duplicate series " + key, series.add(key));
+        }
+    }
+
+    public void testRenderTable() throws Exception {
+        String text = render(procedureTable(), Collections.<String, Set<String>>emptyMap());
+        String expected =
+            "# TYPE voltdb_procedure_invocations untyped\n" +
+            "voltdb_procedure_invocations{host_id=\"0\",partition_id=\"1\",procedure=\"Insert\"} 42\n" +
+            "voltdb_procedure_invocations{host_id=\"0\",partition_id=\"2\",procedure=\"Say \\\"hi\\\"\\\\\\n\"} -7\n" +
+            "# TYPE voltdb_procedure_avg_execution_time untyped\n" +
+            "voltdb_procedure_avg_execution_time{host_id=\"0\",partition_id=\"1\",procedure=\"Insert\"} 1.5\n";
+        assertEquals(expected, text);
+    }
+
+    public void testRenderHistogram() throws Exception {
+        String text = render(StatsSelector.LATENCY, latencyTable(), Collections.<String, Set<String>>emptyMap());
+        String expected =
+            "# TYPE voltdb_latency_invocations histogram\n" +
+            "voltdb_latency_invocations_bucket{host_id=\"0\",hostname=\"a\",site_id=\"0\",le=\"10\"} 5\n" +
+            "voltdb_latency_invocations_bucket{host_id=\"0\",hostname=\"a\",site_id=\"0\",le=\"20\"} 8\n" +
+            "voltdb_latency_invocations_bucket{host_id=\"0\",hostname=\"a\",site_id=\"0\",le=\"+Inf\"} 9\n" +
+            "voltdb_latency_invocations_count{host_id=\"0\",hostname=\"a\",site_id=\"0\"} 9\n" +
+            "voltdb_latency_invocations_bucket{host_id=\"1\",hostname=\"b\",site_id=\"0\",le=\"10\"} 7\n" +
+            "voltdb_latency_invocations_bucket{host_id=\"1\",hostname=\"b\",site_id=\"0\",le=\"20\"} 7\n" +
+            "voltdb_latency_invocations_bucket{host_id=\"1\",hostname=\"b\",site_id=\"0\",le=\"+Inf\"} 7\n" +
+            "voltdb_latency_invocations_count{host_id=\"1\",hostname=\"b\",site_id=\"0\"} 7\n";
+        assertEquals(expected, text);
+        assertNoDuplicateSeries(text);
+
+        Map<String, Set<String>> filters = new HashMap<String, Set<String>>();
+        filters.put("host_id", new HashSet<String>(Arrays.asList("1")));
+        text = render(StatsSelector.LATENCY, latencyTable(), filters);
+        assertFalse(text.contains("host_id=\"0\""));
+        assertTrue(text.contains("voltdb_latency_invocations_count{host_id=\"1\",hostname=\"b\",site_id=\"0\"} 7\n"));
+    }
+
+    public void testNoDuplicateSeries() throws Exception {
+        for (StatsSelector selector : MetricsRenderer.DEFAULT_SELECTORS) {
+            VoltTable t = selector == StatsSelector.LATENCY ? latencyTable() : procedureTable();
+            assertNoDuplicateSeries(render(selector, t, Collections.<String, Set<String>>emptyMap()));
+        }
+    }
+
+    public void testLabelFilter() throws Exception {
+        Map<String, Set<String>> filters = new HashMap<String, Set<String>>();
+        filters.put("partition_id", new HashSet<String>(Arrays.asList("2", "3")));
+        String text = render(procedureTable(), filters);
+        assertFalse(text.contains("partition_id=\"1\""));
+        assertTrue(text.contains("partition_id=\"2\""));
+
+        // a filter on a label the table doesn't have leaves it alone
+        filters.clear();
+        filters.put("table_name", new HashSet<String>(Arrays.asList("FOO")));
+        text = render(procedureTable(), filters);
+        assertTrue(text.contains("partition_id=\"1\""));
+        assertTrue(text.contains("partition_id=\"2\""));
+    }
+
+    public void testWriteLong() throws Exception {
+        char[] scratch = new char[20];
+        for (long v : new long[] { 0, 7, -1, 1234567890123L, Long.MAX_VALUE, Long.MIN_VALUE }) {
+            StringWriter out = new StringWriter();
+            MetricsRenderer.writeLong(out, v, scratch);
+            assertEquals(Long.toString(v), out.toString());
+        }
+    }
+
+    public void testSanitize() {
+        assertEquals("tuple_allocated_memory", MetricsRenderer.sanitize("TUPLE_ALLOCATED_MEMORY"));
+        assertEquals("p99_9", MetricsRenderer.sanitize("P99.9"));
+    }
+}
@@ -0,0 +1,107 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.voltdb.TransactionTracer;
+import org.voltdb.TransactionTracer.Stage;
+
+public class TestTransactionTraceReader extends TestCase {
+
+    static final Stage[] LIFECYCLE = new Stage[] {
+        Stage.CI_RECEIVE, Stage.INITIATOR_RECEIVE, Stage.LOG_SUBMIT, Stage.QUEUE_OFFER,
+        Stage.TASK_START, Stage.PROCEDURE_START, Stage.EE_START, Stage.EE_END,
+        Stage.PROCEDURE_END, Stage.TASK_END, Stage.RESPONSE_SEND, Stage.CI_RESPONSE,
+        Stage.CI_WRITE };
+
+    @Override
+    public void setUp() {
+        TransactionTracer.clear();
+        TransactionTracer.setSampleRate(1);
+    }
+
+    @Override
+    public void tearDown() {
+        TransactionTracer.setSampleRate(0);
+        TransactionTracer.clear();
+    }
+
+    public void testDumpAndSummarize() throws Exception {
+        for (long handle = 1; handle <= 10; handle++) {
+            TransactionTracer.Trace trace = TransactionTracer.sample(3, handle);
+            for (Stage stage : LIFECYCLE) {
+                trace.record(stage);
+            }
+        }
+        // a partial trace from another client interface with the same handle
+        TransactionTracer.record(4, 1, Stage.INITIATOR_RECEIVE);
+        TransactionTracer.record(4, 1, Stage.RESPONSE_SEND);
+
+        File file = File.createTempFile("txntrace", ".bin");
+        try {
+            assertEquals(10 * LIFECYCLE.length + 2, TransactionTracer.dump(file, 7));
+            List<TransactionTraceReader.Trace> traces = TransactionTraceReader.read(file);
+            assertEquals(11, traces.size());
+            for (TransactionTraceReader.Trace trace : traces) {
+                assertEquals(7, trace.hostId);
+                if (trace.ciHostId == 4) {
+                    assertEquals(2, trace.stages.size());
+                    continue;
+                }
+                assertEquals(3, trace.ciHostId);
+                assertEquals(LIFECYCLE.length, trace.stages.size());
+                for (int i = 0; i < LIFECYCLE.length; i++) {
+                    assertEquals(LIFECYCLE[i], trace.stages.get(i));
+                }
+                assertTrue(trace.getDurationNanos() >= 0);
+            }
+
+            String summary = TransactionTraceReader.summarize(traces, 2);
+            assertTrue(summary, summary.startsWith("11 traces"));
+            assertTrue(summary, summary.contains("CI_RECEIVE -> INITIATOR_RECEIVE"));
+            assertTrue(summary, summary.contains("EE_START -> EE_END"));
+            assertTrue(summary, summary.contains("INITIATOR_RECEIVE -> RESPONSE_SEND"));
+            assertTrue(summary, summary.contains("Slowest traces"));
+        } finally {
+            file.delete();
+        }
+    }
+
+    public void testRejectsOtherFiles() throws Exception {
+        File file = File.createTempFile("txntrace", ".bin");
+        try {
+            try {
+                TransactionTraceReader.read(file);
+                fail();
+            } catch (IOException expected) {}
+        } finally {
+            file.delete();
+        }
+    }
+}
@@ -7,6 +7,13 @@ CREATE VIEW MATTHINGS (PRICE, NUM) AS SELECT PRICE, COUNT(*) FROM THINGS GROUP B
 CREATE TABLE OVERFLOWTEST ( col_pk BIGINT NOT NULL, col_1 INTEGER NOT NULL, col_integer INTEGER, col_bigint BIGINT, PRIMARY KEY (COL_PK));
 CREATE VIEW V_OVERFLOWTEST (col_1, num_rows, sum_integer, sum_bigint) AS SELECT col_1, count(*), sum(col_integer), sum(col_bigint) FROM overflowtest GROUP BY col_1;
 
+CREATE TABLE SCORES (GAME INTEGER NOT NULL, PLAYER INTEGER NOT NULL, SCORE INTEGER, PRIMARY KEY (GAME, PLAYER));
+CREATE INDEX SCORES_GAME_SCORE ON SCORES (GAME, SCORE);
+CREATE VIEW MATSCORES (GAME, NUM, LOW, HIGH) AS SELECT GAME, COUNT(*), MIN(SCORE), MAX(SCORE) FROM SCORES GROUP BY GAME;
+
+CREATE TABLE RATINGS (ID INTEGER NOT NULL, ITEM VARCHAR(16) NOT NULL, RATING INTEGER, PRIMARY KEY (ID));
+CREATE VIEW MATRATINGS (ITEM, NUM, WORST, BEST) AS SELECT ITEM, COUNT(*), MIN(RATING), MAX(RATING) FROM RATINGS GROUP BY ITEM;
+
 
 CREATE TABLE ENG798 (
     c1 VARCHAR(16) NOT NULL,
@@ -0,0 +1,124 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltcore.network;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Enqueue a batch of messages on a write stream, serialize them into network
+ * buffers the way the network thread does and drain them to a channel that
+ * accepts everything. The score is per batch.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class NIOWriteStreamBench {
+
+    @Param({"64", "1024"})
+    public int messageSize;
+
+    @Param({"1", "32"})
+    public int batch;
+
+    private static class NullPort extends VoltPort {
+        NullPort(NetworkDBBPool pool) {
+            super(null, null, "", pool);
+        }
+
+        @Override
+        public void setInterests(int opsToAdd, int opsToRemove) {}
+    }
+
+    private static class SinkChannel implements GatheringByteChannel {
+        @Override
+        public int write(ByteBuffer src) {
+            int remaining = src.remaining();
+            src.position(src.limit());
+            return remaining;
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) {
+            long written = 0;
+            for (int i = offset; i < offset + length; i++) {
+                written += write(srcs[i]);
+            }
+            return written;
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs) {
+            return write(srcs, 0, srcs.length);
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {}
+    }
+
+    private NetworkDBBPool m_pool;
+    private NIOWriteStream m_stream;
+    private final SinkChannel m_channel = new SinkChannel();
+    private ByteBuffer m_message;
+
+    @Setup
+    public void setup() {
+        m_pool = new NetworkDBBPool();
+        m_stream = new NIOWriteStream(new NullPort(m_pool));
+        m_message = ByteBuffer.allocate(messageSize);
+        m_message.putInt(messageSize - 4);
+        m_message.clear();
+    }
+
+    @TearDown
+    public void tearDown() {
+        m_pool.clear();
+    }
+
+    @Benchmark
+    public int enqueueAndDrain() throws IOException {
+        for (int i = 0; i < batch; i++) {
+            m_stream.enqueue(m_message.duplicate());
+        }
+        m_stream.swapAndSerializeQueuedWrites(m_pool);
+        return m_stream.drainTo(m_channel);
+    }
+}
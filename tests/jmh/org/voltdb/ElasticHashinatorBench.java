@@ -0,0 +1,66 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Partition routing of long and varchar partition keys on a 6 partition ring
+ * with the default number of tokens per partition.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ElasticHashinatorBench {
+
+    private ElasticHashinator m_hashinator;
+    private final byte[][] m_keys = new byte[1024][];
+    private long m_next = 0;
+
+    @Setup
+    public void setup() {
+        m_hashinator = new ElasticHashinator(ElasticHashinator.getConfigureBytes(6, ElasticHashinator.DEFAULT_TOKENS_PER_PARTITION));
+        for (int i = 0; i < m_keys.length; i++) {
+            m_keys[i] = ("customer-" + i).getBytes();
+        }
+    }
+
+    @Benchmark
+    public int hashinateLong() {
+        return m_hashinator.pHashinateLong(m_next++);
+    }
+
+    @Benchmark
+    public int hashinateBytes() {
+        return m_hashinator.pHashinateBytes(m_keys[(int)(m_next++ & (m_keys.length - 1))]);
+    }
+}
@@ -0,0 +1,84 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Serialization of the parameters of a typical stored procedure invocation,
+ * both the plain scalar case and one with arrays and varbinary.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ParameterSetBench {
+
+    @Param({"scalar", "mixed"})
+    public String shape;
+
+    private Object[] m_params;
+    private ByteBuffer m_buffer;
+    private ByteBuffer m_serialized;
+
+    @Setup
+    public void setup() throws IOException {
+        if (shape.equals("scalar")) {
+            m_params = new Object[] { 42L, "customer", 12, 3.5, (byte) 1 };
+        }
+        else {
+            m_params = new Object[] { 42L, "customer", new byte[256],
+                                      new long[] { 1, 2, 3, 4, 5, 6, 7, 8 },
+                                      new String[] { "a", "bb", "ccc" }, 3.5 };
+        }
+        ParameterSet params = ParameterSet.fromArrayNoCopy(m_params);
+        m_buffer = ByteBuffer.allocate(params.getSerializedSize());
+        params.flattenToBuffer(m_buffer);
+        m_serialized = m_buffer.duplicate();
+        m_serialized.flip();
+    }
+
+    @Benchmark
+    public ByteBuffer serialize() throws IOException {
+        ParameterSet params = ParameterSet.fromArrayNoCopy(m_params);
+        m_buffer.clear();
+        params.flattenToBuffer(m_buffer);
+        return m_buffer;
+    }
+
+    @Benchmark
+    public ParameterSet deserialize() throws IOException {
+        return ParameterSet.fromByteBuffer(m_serialized.duplicate());
+    }
+}
@@ -0,0 +1,84 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.voltdb.VoltTable.ColumnInfo;
+
+/**
+ * Building a result table row by row and walking it the way client code and
+ * the stats/sysproc aggregation code do.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class VoltTableBench {
+
+    @Param({"10", "1000"})
+    public int rows;
+
+    private static final ColumnInfo[] COLUMNS = new ColumnInfo[] {
+        new ColumnInfo("ID", VoltType.BIGINT),
+        new ColumnInfo("NAME", VoltType.STRING),
+        new ColumnInfo("BALANCE", VoltType.FLOAT),
+        new ColumnInfo("FLAGS", VoltType.INTEGER)
+    };
+
+    private VoltTable m_table;
+
+    @Setup
+    public void setup() {
+        m_table = build();
+    }
+
+    @Benchmark
+    public VoltTable build() {
+        VoltTable table = new VoltTable(COLUMNS);
+        for (int i = 0; i < rows; i++) {
+            table.addRow(i, "name", i * 1.5, i & 0xff);
+        }
+        return table;
+    }
+
+    @Benchmark
+    public void iterate(Blackhole bh) {
+        m_table.resetRowPosition();
+        while (m_table.advanceRow()) {
+            bh.consume(m_table.getLong(0));
+            bh.consume(m_table.getString(1));
+            bh.consume(m_table.getDouble(2));
+            bh.consume(m_table.getLong(3));
+        }
+    }
+}
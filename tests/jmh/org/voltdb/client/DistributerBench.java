@@ -0,0 +1,210 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.client;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.voltcore.network.Connection;
+import org.voltcore.network.QueueMonitor;
+import org.voltcore.network.VoltNetworkPool;
+import org.voltcore.network.VoltProtocolHandler;
+import org.voltdb.ClientResponseImpl;
+import org.voltdb.StoredProcedureInvocation;
+import org.voltdb.VoltTable;
+import org.voltdb.messaging.FastDeserializer;
+
+/**
+ * Invocations queued through the client Distributer to an in process server
+ * that answers every invocation with an empty success response. The number of
+ * outstanding invocations is capped the way an application throttles on
+ * backpressure, so the score is the sustained invocation rate of one client
+ * connection.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class DistributerBench {
+
+    private static final int MAX_OUTSTANDING = 1000;
+
+    /**
+     * Replies to each invocation with an empty response carrying its handle
+     */
+    private static class Responder extends VoltProtocolHandler {
+        @Override
+        public void handleMessage(ByteBuffer message, Connection c) throws IOException {
+            StoredProcedureInvocation spi =
+                new FastDeserializer(message).readObject(StoredProcedureInvocation.class);
+            ClientResponseImpl response =
+                new ClientResponseImpl(ClientResponse.SUCCESS, new VoltTable[0], null, spi.getClientHandle());
+            ByteBuffer buf = ByteBuffer.allocate(4 + response.getSerializedSize());
+            buf.putInt(buf.capacity() - 4);
+            response.flattenToBuffer(buf);
+            buf.clear();
+            c.writeStream().enqueue(buf);
+        }
+
+        @Override
+        public int getMaxRead() {
+            return Integer.MAX_VALUE;
+        }
+
+        @Override
+        public Runnable offBackPressure() {
+            return new Runnable() {
+                @Override
+                public void run() {}
+            };
+        }
+
+        @Override
+        public Runnable onBackPressure() {
+            return new Runnable() {
+                @Override
+                public void run() {}
+            };
+        }
+
+        @Override
+        public QueueMonitor writestreamMonitor() {
+            return null;
+        }
+    }
+
+    private final Semaphore m_outstanding = new Semaphore(MAX_OUTSTANDING);
+    private final AtomicLong m_handle = new AtomicLong();
+    private final ProcedureCallback m_callback = new ProcedureCallback() {
+        @Override
+        public void clientCallback(ClientResponse response) {
+            m_outstanding.release();
+        }
+    };
+
+    private VoltNetworkPool m_serverNetwork;
+    private ServerSocketChannel m_serverSocket;
+    private Thread m_acceptor;
+    private Distributer m_dist;
+
+    @Setup
+    public void setup() throws Exception {
+        m_serverNetwork = new VoltNetworkPool();
+        m_serverNetwork.start();
+        m_serverSocket = ServerSocketChannel.open();
+        m_serverSocket.socket().bind(new InetSocketAddress("localhost", 0));
+        m_acceptor = new Thread("DistributerBench acceptor") {
+            @Override
+            public void run() {
+                try {
+                    acceptOne();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        };
+        m_acceptor.start();
+
+        m_dist = new Distributer();
+        m_dist.createConnection("localhost", "", "", m_serverSocket.socket().getLocalPort());
+        m_acceptor.join();
+    }
+
+    private static void readFully(SocketChannel client, ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) {
+            if (client.read(buf) < 0) {
+                throw new IOException("Connection closed during login");
+            }
+        }
+        buf.flip();
+    }
+
+    /**
+     * Accept the client connection, answer its login and hand it to the network
+     */
+    private void acceptOne() throws IOException {
+        SocketChannel client = m_serverSocket.accept();
+        client.configureBlocking(true);
+        // length and version, then the service, username and password hash
+        readFully(client, ByteBuffer.allocate(5));
+        ByteBuffer length = ByteBuffer.allocate(4);
+        readFully(client, length);
+        readFully(client, ByteBuffer.allocate(length.getInt()));
+        length.clear();
+        readFully(client, length);
+        readFully(client, ByteBuffer.allocate(length.getInt()));
+        readFully(client, ByteBuffer.allocate(20));
+
+        ByteBuffer response = ByteBuffer.allocate(34);
+        response.putInt(30);
+        response.put((byte)0); // version
+        response.put((byte)0); // success
+        response.putInt(0);    // host id
+        response.putLong(0);   // connection id
+        response.putLong(0);   // instance id
+        response.putInt(0);    // instance id part 2
+        response.putInt(0);    // empty build string
+        response.flip();
+        while (response.hasRemaining()) {
+            client.write(response);
+        }
+
+        client.configureBlocking(false);
+        m_serverNetwork.registerChannel(client, new Responder());
+    }
+
+    @TearDown(Level.Iteration)
+    public void drain() throws InterruptedException {
+        m_dist.drain();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        m_dist.shutdown();
+        m_serverNetwork.shutdown();
+        m_serverSocket.close();
+    }
+
+    @Benchmark
+    public boolean queue() throws Exception {
+        m_outstanding.acquire();
+        ProcedureInvocation invocation =
+            new ProcedureInvocation(m_handle.incrementAndGet(), "Insert", 42L, "customer", 3.5);
+        return m_dist.queue(invocation, m_callback, true);
+    }
+}
@@ -0,0 +1,94 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.iv2;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Control;
+import org.voltdb.SiteProcedureConnection;
+import org.voltdb.rejoin.TaskLog;
+
+/**
+ * Cost of handing a task to a site thread. offerPoll is the uncontended cost
+ * on one thread, pingpong bounces a task between an initiator thread and a
+ * site thread through a pair of queues so the score is a round trip.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SiteTaskerQueueBench {
+
+    private static final SiteTasker TASK = new SiteTasker() {
+        @Override
+        public void run(SiteProcedureConnection siteConnection) {}
+
+        @Override
+        public void runForRejoin(SiteProcedureConnection siteConnection, TaskLog rejoinTaskLog) {}
+    };
+
+    private final SiteTaskerQueue m_queue = new SiteTaskerQueue();
+
+    @State(Scope.Group)
+    public static class Queues {
+        final SiteTaskerQueue m_requests = new SiteTaskerQueue();
+        final SiteTaskerQueue m_responses = new SiteTaskerQueue();
+    }
+
+    @Benchmark
+    public SiteTasker offerPoll() {
+        m_queue.offer(TASK);
+        return m_queue.poll();
+    }
+
+    @Benchmark
+    @Group("pingpong")
+    @GroupThreads(1)
+    public SiteTasker initiator(Queues queues, Control control) {
+        queues.m_requests.offer(TASK);
+        SiteTasker task;
+        // give up once the iteration is over, the site may have stopped already
+        while ((task = queues.m_responses.poll()) == null && !control.stopMeasurement) {}
+        return task;
+    }
+
+    @Benchmark
+    @Group("pingpong")
+    @GroupThreads(1)
+    public SiteTasker site(Queues queues, Control control) {
+        SiteTasker task;
+        while ((task = queues.m_requests.poll()) == null && !control.stopMeasurement) {}
+        if (task != null) {
+            queues.m_responses.offer(task);
+        }
+        return task;
+    }
+}
@@ -0,0 +1,88 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.messaging;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Round trip of a record of the primitive types, strings and arrays through
+ * FastSerializer and FastDeserializer.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FastSerializerBench {
+
+    private static final long[] LONGS = new long[] { 1, 2, 3, 4, 5, 6, 7, 8 };
+    private static final String STRING = "the quick brown fox jumps over the lazy dog";
+
+    private final FastSerializer m_fs = new FastSerializer();
+    private byte[] m_bytes;
+
+    @Setup
+    public void setup() throws IOException {
+        write(m_fs);
+        ByteBuffer buf = m_fs.getBuffer();
+        m_bytes = new byte[buf.remaining()];
+        buf.get(m_bytes);
+    }
+
+    private static void write(FastSerializer fs) throws IOException {
+        fs.writeLong(42);
+        fs.writeInt(7);
+        fs.writeDouble(3.5);
+        fs.writeString(STRING);
+        fs.writeArray(LONGS);
+        fs.writeByte(1);
+    }
+
+    @Benchmark
+    public int serialize() throws IOException {
+        m_fs.clear();
+        write(m_fs);
+        return m_fs.size();
+    }
+
+    @Benchmark
+    public void deserialize(Blackhole bh) throws IOException {
+        FastDeserializer fds = new FastDeserializer(m_bytes);
+        bh.consume(fds.readLong());
+        bh.consume(fds.readInt());
+        bh.consume(fds.readDouble());
+        bh.consume(fds.readString());
+        bh.consume(fds.readArray(long.class));
+        bh.consume(fds.readByte());
+    }
+}
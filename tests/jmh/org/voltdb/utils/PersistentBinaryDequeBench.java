@@ -0,0 +1,111 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.voltcore.utils.DBBPool;
+import org.voltcore.utils.DBBPool.BBContainer;
+
+/**
+ * Overflow a batch of objects to a deque on disk and read them back, once
+ * appended at the tail (offer) and once prepended at the head (push). The
+ * score is per batch.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PersistentBinaryDequeBench {
+
+    @Param({"1024", "65536"})
+    public int objectSize;
+
+    @Param({"16", "256"})
+    public int batch;
+
+    private File m_dir;
+    private PersistentBinaryDeque m_pbd;
+    private ByteBuffer m_object;
+
+    @Setup
+    public void setup() throws IOException {
+        m_dir = new File(System.getProperty("java.io.tmpdir"),
+                         "pbdbench-" + System.getProperty("user.name") + "-" + System.nanoTime());
+        if (!m_dir.mkdirs()) {
+            throw new IOException("Unable to create " + m_dir);
+        }
+        m_pbd = new PersistentBinaryDeque("pbdbench", m_dir);
+        m_object = ByteBuffer.allocateDirect(objectSize);
+        while (m_object.remaining() > 7) {
+            m_object.putLong(42);
+        }
+        m_object.clear();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        m_pbd.closeAndDelete();
+        m_dir.delete();
+    }
+
+    private int drain() throws IOException {
+        int bytes = 0;
+        BBContainer c;
+        while ((c = m_pbd.poll()) != null) {
+            bytes += c.b.remaining();
+            c.discard();
+        }
+        return bytes;
+    }
+
+    @Benchmark
+    public int offerPoll() throws IOException {
+        for (int i = 0; i < batch; i++) {
+            m_pbd.offer(new BBContainer[] { DBBPool.wrapBB(m_object.duplicate()) });
+        }
+        return drain();
+    }
+
+    @Benchmark
+    public int pushPoll() throws IOException {
+        BBContainer[][] objects = new BBContainer[batch][];
+        for (int i = 0; i < batch; i++) {
+            objects[i] = new BBContainer[] { DBBPool.wrapBB(m_object.duplicate()) };
+        }
+        m_pbd.push(objects);
+        return drain();
+    }
+}